@@ -0,0 +1,164 @@
+package com.example.blankets_and_wines;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic receipts and reports shaped like a busy night at the bar, in
+ * both the method channel (map) and binary channel forms.
+ */
+final class BenchData {
+
+  private static final String[] DRINKS = {
+    "Tusker Lager", "White Cap", "Gilbeys Gin & Tonic", "Four Cousins Red", "Savanna Dry",
+    "Jameson Shot", "Water 500ml", "Nederburg Baronne", "Guinness", "Smirnoff Ice Black"
+  };
+  private static final String[] SELLERS = {
+    "Wanjiku", "Otieno", "Achieng Bar 2", "Kamau", "Muthoni Wristbands", "Baraka", "Njeri", "Kiprop"
+  };
+
+  private BenchData() {
+  }
+
+  static Map<String, Object> receiptMap(int items) {
+    Random random = new Random(items);
+    Map<String, Object> receipt = new HashMap<>();
+    receipt.put("storeName", "Blankets And Wine");
+    receipt.put("receiptType", "CUSTOMER RECEIPT");
+    receipt.put("date", "2025-01-17");
+    receipt.put("time", "21:43");
+    receipt.put("paymentMethod", "M-Pesa");
+    receipt.put("orderNumber", "BW-000417");
+    receipt.put("qrSize", 200);
+    List<Map<String, Object>> lines = new ArrayList<>(items);
+    long subtotal = 0;
+    for (int i = 0; i < items; i++) {
+      Map<String, Object> item = new HashMap<>();
+      int quantity = 1 + random.nextInt(4);
+      long cents = (3 + random.nextInt(40)) * 5000L;
+      subtotal += cents;
+      item.put("name", DRINKS[i % DRINKS.length]);
+      item.put("quantity", quantity);
+      item.put("price", PayloadCodec.formatCents(cents));
+      lines.add(item);
+    }
+    receipt.put("items", lines);
+    receipt.put("subtotal", PayloadCodec.formatCents(subtotal));
+    receipt.put("tax", PayloadCodec.formatCents(subtotal * 16 / 116));
+    receipt.put("total", PayloadCodec.formatCents(subtotal));
+    return receipt;
+  }
+
+  /** The receipt as SmartposPayloadCodec sends it. */
+  static ByteBuffer receiptBinary(int items) {
+    Random random = new Random(items);
+    ByteBuffer out = ByteBuffer.allocateDirect(128 + items * 64).order(ByteOrder.LITTLE_ENDIAN);
+    out.put(PayloadCodec.TAG_RECEIPT);
+    putString(out, "Blankets And Wine");
+    putString(out, "CUSTOMER RECEIPT");
+    putString(out, "2025-01-17");
+    putString(out, "21:43");
+    putString(out, "M-Pesa");
+    putString(out, "BW-000417");
+    long[] cents = new long[items];
+    int[] quantities = new int[items];
+    long subtotal = 0;
+    for (int i = 0; i < items; i++) {
+      quantities[i] = 1 + random.nextInt(4);
+      cents[i] = (3 + random.nextInt(40)) * 5000L;
+      subtotal += cents[i];
+    }
+    out.put((byte) 0b111);
+    putZigZag(out, subtotal);
+    putZigZag(out, subtotal * 16 / 116);
+    putZigZag(out, subtotal);
+    PayloadCodec.putVarLong(out, 200);
+    PayloadCodec.putVarLong(out, items);
+    for (int i = 0; i < items; i++) {
+      putString(out, DRINKS[i % DRINKS.length]);
+      PayloadCodec.putVarLong(out, quantities[i]);
+      putZigZag(out, cents[i]);
+    }
+    out.flip();
+    return out;
+  }
+
+  static List<Map<String, Object>> transactionMaps(int rows) {
+    Random random = new Random(rows);
+    List<Map<String, Object>> transactions = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      Map<String, Object> row = new HashMap<>();
+      row.put("dateTime", dateTime(i));
+      row.put("seller", SELLERS[random.nextInt(SELLERS.length)]);
+      row.put("amount", PayloadCodec.formatCents((1 + random.nextInt(200)) * 5000L));
+      row.put("id", "TX" + (100000 + i));
+      transactions.add(row);
+    }
+    return transactions;
+  }
+
+  /** A page of rows as SmartposPayloadCodec sends it. */
+  static ByteBuffer transactionsBinary(int rows) {
+    Random random = new Random(rows);
+    ByteBuffer out = ByteBuffer.allocateDirect(64 + rows * 64).order(ByteOrder.LITTLE_ENDIAN);
+    out.put(PayloadCodec.TAG_REPORT_ROWS);
+    putString(out, "bench");
+    PayloadCodec.putVarLong(out, rows);
+    for (int i = 0; i < rows; i++) {
+      putString(out, dateTime(i));
+      putString(out, SELLERS[random.nextInt(SELLERS.length)]);
+      putZigZag(out, (1 + random.nextInt(200)) * 5000L);
+      putString(out, "TX" + (100000 + i));
+    }
+    out.flip();
+    return out;
+  }
+
+  static Map<String, Object> reportHeader(int rows) {
+    Map<String, Object> report = new HashMap<>();
+    report.put("storeName", "Blankets And Wine");
+    report.put("reportTitle", "END OF DAY REPORT");
+    report.put("dateRange", "2025-01-17 12:00 - 2025-01-18 02:00");
+    report.put("generatedAt", "2025-01-18 02:05");
+    report.put("totalTransactions", String.valueOf(rows));
+    report.put("totalSales", "1234567.50");
+    report.put("averageTransaction", "2469.13");
+    return report;
+  }
+
+  static Map<String, Object> reportFooter() {
+    Map<String, Object> breakdown = new LinkedHashMap<>();
+    for (String seller : SELLERS) {
+      Map<String, Object> data = new HashMap<>();
+      data.put("totalSales", "154320.00");
+      data.put("transactionCount", "63");
+      breakdown.put(seller, data);
+    }
+    Map<String, Object> footer = new HashMap<>();
+    footer.put("sellerBreakdown", breakdown);
+    footer.put("generatedBy", "Supervisor");
+    return footer;
+  }
+
+  private static String dateTime(int row) {
+    int minutes = 12 * 60 + row / 4;
+    return String.format("01-17 %02d:%02d", (minutes / 60) % 24, minutes % 60);
+  }
+
+  private static void putString(ByteBuffer out, String value) {
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    PayloadCodec.putVarLong(out, utf8.length + 1);
+    out.put(utf8);
+  }
+
+  private static void putZigZag(ByteBuffer out, long value) {
+    PayloadCodec.putVarLong(out, (value << 1) ^ (value >> 63));
+  }
+}
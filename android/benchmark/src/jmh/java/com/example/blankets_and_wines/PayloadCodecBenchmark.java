@@ -0,0 +1,70 @@
+package com.example.blankets_and_wines;
+
+import io.flutter.plugin.common.StandardMessageCodec;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Java-side decode cost of the binary channel against the method channel's
+ * standard codec for the same receipt or page of report rows. The map path
+ * includes extracting the fields the layout needs, since that is where its
+ * casts and String.valueOf calls happen.
+ */
+@State(Scope.Thread)
+public class PayloadCodecBenchmark {
+
+  @Param({"3", "40", "500", "5000"})
+  public int size;
+
+  private final PayloadCodec codec = new PayloadCodec();
+  private ByteBuffer receiptStandard;
+  private ByteBuffer receiptBinary;
+  private ByteBuffer rowsStandard;
+  private ByteBuffer rowsBinary;
+
+  @Setup
+  public void setUp() {
+    receiptStandard = StandardMessageCodec.INSTANCE.encodeMessage(BenchData.receiptMap(size));
+    receiptBinary = BenchData.receiptBinary(size);
+    rowsStandard = StandardMessageCodec.INSTANCE.encodeMessage(BenchData.transactionMaps(size));
+    rowsBinary = BenchData.transactionsBinary(size);
+  }
+
+  @Benchmark
+  @SuppressWarnings("unchecked")
+  public ReceiptPayload receiptStandardCodec() {
+    receiptStandard.rewind();
+    return ReceiptPayload.fromMap((Map<String, Object>) StandardMessageCodec.INSTANCE.decodeMessage(receiptStandard));
+  }
+
+  @Benchmark
+  public Object receiptBinaryCodec() {
+    receiptBinary.rewind();
+    return codec.decodeMessage(receiptBinary);
+  }
+
+  @Benchmark
+  @SuppressWarnings("unchecked")
+  public long rowsStandardCodec() {
+    rowsStandard.rewind();
+    List<Map<String, Object>> rows = (List<Map<String, Object>>) StandardMessageCodec.INSTANCE.decodeMessage(rowsStandard);
+    long checksum = 0;
+    for (Map<String, Object> row : rows) {
+      checksum += ((String) row.get("dateTime")).length() + ((String) row.get("seller")).length()
+          + ((String) row.get("amount")).length() + ((String) row.get("id")).length();
+    }
+    return checksum;
+  }
+
+  @Benchmark
+  public Object rowsBinaryCodec() {
+    rowsBinary.rewind();
+    return codec.decodeMessage(rowsBinary);
+  }
+}
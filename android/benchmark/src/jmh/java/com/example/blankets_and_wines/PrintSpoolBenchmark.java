@@ -0,0 +1,96 @@
+package com.example.blankets_and_wines;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Time to make a burst of receipts durable in the print spool and then mark
+ * them printed. grouped appends the whole burst before waiting, as a rush at
+ * the bar does, so appends share fsyncs; serial waits for each one, which is
+ * what a sync per job would cost. Numbers depend heavily on the storage under
+ * the temp directory.
+ */
+@State(Scope.Thread)
+public class PrintSpoolBenchmark {
+
+  @Param({"1", "8", "64"})
+  public int burst;
+
+  private File dir;
+  private ExecutorService writer;
+  private PrintSpool spool;
+  private byte[] receipt;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("spool").toFile();
+    writer = Executors.newSingleThreadExecutor();
+    spool = new PrintSpool(new File(dir, "print_spool.journal"), writer, PrintSpool.DEFAULT_MAX_BYTES);
+    // About the size of a binary receipt with a dozen items
+    receipt = new byte[600];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    spool.close();
+    writer.shutdown();
+    writer.awaitTermination(10, TimeUnit.SECONDS);
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    dir.delete();
+  }
+
+  @Benchmark
+  public long grouped() throws InterruptedException {
+    CountDownLatch durable = new CountDownLatch(burst);
+    AtomicLong last = new AtomicLong();
+    for (int i = 0; i < burst; i++) {
+      spool.append("printReceiptBinary", receipt, completing(durable, last));
+    }
+    durable.await();
+    return last.get();
+  }
+
+  @Benchmark
+  public long serial() throws InterruptedException {
+    AtomicLong last = new AtomicLong();
+    for (int i = 0; i < burst; i++) {
+      CountDownLatch durable = new CountDownLatch(1);
+      spool.append("printReceiptBinary", receipt, completing(durable, last));
+      durable.await();
+    }
+    return last.get();
+  }
+
+  // Completes each job as soon as it is durable, so the journal keeps
+  // compacting like it does when the printer keeps up
+  private PrintSpool.Callback completing(CountDownLatch durable, AtomicLong last) {
+    return new PrintSpool.Callback() {
+      @Override
+      public void onWritten(long id) {
+        spool.complete(id);
+        last.set(id);
+        durable.countDown();
+      }
+
+      @Override
+      public void onFailed(Exception e) {
+        durable.countDown();
+      }
+    };
+  }
+}
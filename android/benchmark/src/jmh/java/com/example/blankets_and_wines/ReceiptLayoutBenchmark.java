@@ -0,0 +1,53 @@
+package com.example.blankets_and_wines;
+
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Receipt body layout (header, item lines, totals, footer text) from a
+ * three-drink bar tab to a large group order. The QR code and order number
+ * block need bitmaps and are left out.
+ */
+@State(Scope.Thread)
+public class ReceiptLayoutBenchmark {
+
+  @Param({"3", "12", "40"})
+  public int items;
+
+  private final StyleRegistry styles = new StyleRegistry();
+  private final SymbolCache symbols = new SymbolCache();
+  private Map<String, Object> receiptData;
+  private ReceiptPayload mapReceipt;
+  private ReceiptPayload binaryReceipt;
+
+  @Setup
+  public void setUp() {
+    receiptData = BenchData.receiptMap(items);
+    mapReceipt = ReceiptPayload.fromMap(receiptData);
+    binaryReceipt = (ReceiptPayload) new PayloadCodec().decodeMessage(BenchData.receiptBinary(items));
+  }
+
+  /** Prices as sent over the method channel. */
+  @Benchmark
+  public void layoutTextPrices(Blackhole blackhole) {
+    new ReceiptLayout(null, new SinkTarget(blackhole), styles, symbols).appendBody(mapReceipt);
+  }
+
+  /** Prices as fixed-point cents from the binary channel. */
+  @Benchmark
+  public void layoutCentPrices(Blackhole blackhole) {
+    new ReceiptLayout(null, new SinkTarget(blackhole), styles, symbols).appendBody(binaryReceipt);
+  }
+
+  /** What printReceipt pays per call: payload extraction plus layout. */
+  @Benchmark
+  public void fromMapAndLayout(Blackhole blackhole) {
+    ReceiptPayload receipt = ReceiptPayload.fromMap(receiptData);
+    new ReceiptLayout(null, new SinkTarget(blackhole), styles, symbols).appendBody(receipt);
+  }
+}
@@ -0,0 +1,69 @@
+package com.example.blankets_and_wines;
+
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A whole transaction report: header and summary, one formatted line group
+ * per transaction, seller breakdown and footer, up to an end-of-day report
+ * of 5,000 rows.
+ */
+@State(Scope.Thread)
+public class ReportLayoutBenchmark {
+
+  @Param({"50", "500", "5000"})
+  public int rows;
+
+  private final StyleRegistry styles = new StyleRegistry();
+  private Map<String, Object> header;
+  private Map<String, Object> footer;
+  private List<Map<String, Object>> transactions;
+  private ReportPage page;
+  private String[] lines;
+  private final ColumnFormatter columns = ReportLayout.transactionColumns();
+
+  @Setup
+  public void setUp() {
+    header = BenchData.reportHeader(rows);
+    footer = BenchData.reportFooter();
+    transactions = BenchData.transactionMaps(rows);
+    page = (ReportPage) new PayloadCodec().decodeMessage(BenchData.transactionsBinary(rows));
+    lines = new String[rows * ReportLayout.MAX_LINES_PER_TRANSACTION];
+  }
+
+  /** Rows as maps from the method channel, as printTransactionReport lays them out. */
+  @Benchmark
+  public void layoutMapRows(Blackhole blackhole) {
+    ReportLayout layout = new ReportLayout(new SinkTarget(blackhole), styles);
+    layout.appendHeader(header);
+    layout.appendTransactionsHeader();
+    int count = 0;
+    for (Map<String, Object> transaction : transactions) {
+      count += ReportLayout.formatTransaction(columns, transaction, lines, count);
+    }
+    layout.appendTransactionLines(lines, count);
+    layout.appendSectionEnd();
+    layout.appendFooter(footer);
+  }
+
+  /** Rows from a binary page, amounts as cents. */
+  @Benchmark
+  public void layoutPageRows(Blackhole blackhole) {
+    ReportLayout layout = new ReportLayout(new SinkTarget(blackhole), styles);
+    layout.appendHeader(header);
+    layout.appendTransactionsHeader();
+    int count = 0;
+    for (int row = 0; row < page.rowCount; row++) {
+      count += ReportLayout.formatTransaction(columns, page, row, lines, count);
+    }
+    layout.appendTransactionLines(lines, count);
+    layout.appendSectionEnd();
+    layout.appendFooter(footer);
+  }
+}
@@ -0,0 +1,25 @@
+package com.example.blankets_and_wines;
+
+import android.graphics.Bitmap;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Print target that hands every appended line to the blackhole. */
+final class SinkTarget implements PrintTarget {
+
+  private final Blackhole blackhole;
+
+  SinkTarget(Blackhole blackhole) {
+    this.blackhole = blackhole;
+  }
+
+  @Override
+  public void appendString(String text, PrintStyle style) {
+    blackhole.consume(text);
+    blackhole.consume(style);
+  }
+
+  @Override
+  public void appendBitmap(Bitmap bitmap, PrintStyle.Align align) {
+    blackhole.consume(bitmap);
+  }
+}
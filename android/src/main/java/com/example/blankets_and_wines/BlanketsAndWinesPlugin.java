@@ -3,24 +3,43 @@ import androidx.annotation.NonNull;
 
 // Flutter imports
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import io.flutter.plugin.common.StandardMessageCodec;
 
 // Android imports
 import android.content.Context;
 import android.util.Log;
-import android.os.Handler;
-import android.os.Looper;
-import android.widget.EditText;
 import android.widget.TextView;
 
 // Java utilities
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // SmartPos SDK Core imports
 import com.zcs.sdk.DriverManager;
@@ -61,8 +80,6 @@ import com.zcs.sdk.pin.PinWorkKeyTypeEnum;
 import com.zcs.sdk.pin.pinpad.PinPadManager;
 
 // Printer imports
-import com.zcs.sdk.Printer;
-import com.zcs.sdk.print.PrnStrFormat;
 import com.zcs.sdk.print.PrnTextFont;
 import com.zcs.sdk.print.PrnTextStyle;
 
@@ -74,7 +91,6 @@ import com.zcs.sdk.HQrsanner;
 import android.os.SystemClock;
 
 import android.view.KeyEvent;
-import android.widget.EditText;
 
 // External Port imports
 import com.zcs.sdk.exteranl.ExternalCardManager;
@@ -94,9 +110,9 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.text.Layout;
 import com.google.zxing.BarcodeFormat;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -115,21 +131,74 @@ public class BlanketsAndWinesPlugin implements FlutterPlugin, MethodCallHandler
     
     // Channel name for communication between Flutter and Android
     private static final String CHANNEL_NAME = "smartpos_plugin";
+    private static final String PRINTER_STATUS_CHANNEL_NAME = "smartpos_plugin/printer_status";
+    private static final String SCAN_CHANNEL_NAME = "smartpos_plugin/scans";
     private static final String TAG = "SmartposPlugin";
     
     // Flutter method channel for communication
     private MethodChannel channel;
+    // Binary channel for receipts and report pages, see PayloadCodec
+    private BasicMessageChannel<Object> binaryChannel;
+    // Printer status changes, see PrinterStatusMonitor
+    private EventChannel printerStatusChannel;
+    private volatile EventChannel.EventSink printerStatusSink;
+    // Codes from continuous scanning, see ContinuousScan
+    private EventChannel scanChannel;
+    private volatile EventChannel.EventSink scanSink;
+    private volatile ContinuousScan continuousScan;
     private Context context;
-    private HQrsanner mHQrsanner;
+    // App-private storage for the journal, ledger, order numbers and tickets
+    private File filesDir;
+    private ScannerDevice mScanner;
     
-    // Background thread executor for SDK operations
-    private ExecutorService executor;
-    private Handler mainHandler;
-     private Sys mSys;
+    // One serial lane per peripheral; see ExecutionLanes. The printer lane
+    // runs print jobs, cuts, status reads and device bring-up
+    private ExecutionLanes lanes;
+    private ExecutorService printerLane;
+    private final MainThread mainHandler;
     
-    // SDK instance variables
-    private DriverManager mDriverManager;
-    private Printer mPrinter;
+    // Peripherals, from ZCS hardware or a test fake
+    private final Devices.Factory deviceFactory;
+    private Devices devices;
+    private SystemDevice mSys;
+    private PrinterDevice mPrinter;
+    // Customer display updates; latest frame wins, see LcdRenderer
+    private volatile LcdRenderer lcdRenderer;
+    private PrintQueue printQueue;
+    private final StyleRegistry styles = new StyleRegistry();
+    private final SymbolCache symbols = new SymbolCache();
+    private final Map<String, ReceiptTemplate> templates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ReportStream> reportStreams = new ConcurrentHashMap<>();
+    private final AtomicInteger reportStreamIds = new AtomicInteger();
+    // Streams print one after another; see ReportStream.Gate
+    private ReportStream.Gate reportGate;
+    // A stream Dart never ends would keep the gate and its chunk buffers;
+    // one idle this long is dropped. Main thread only
+    private static final long REPORT_STREAM_IDLE_MILLIS = 5 * 60 * 1000;
+    private boolean reportExpiryScheduled;
+
+    // Per-method latencies and SDK / print counters, see getMetrics
+    private final PluginMetrics metrics = new PluginMetrics();
+
+    // Formats streamed report pages off the main thread while chunks print
+    private ExecutorService reportFormatter;
+
+    // Raster receipt mode: receipts render on rasterRenderer into pooled
+    // rasters while the previous one prints
+    private ExecutorService rasterRenderer;
+    private ReceiptRaster.Pool rasterPool;
+
+    // Startup phases that run beside the printer's; see DeviceStartup
+    private ExecutorService systemLane;
+    private DeviceStartup startup;
+    // Served by getDeviceInfo from the calling thread
+    private volatile DeviceInfo deviceInfo;
+    private volatile PrinterStatusMonitor statusMonitor;
+    // Built once the sysInfo phase has the serial number; see OrderNumbers
+    private static final String ORDER_SEQUENCE_FILE = "order_sequence";
+    private static final int MAX_ORDER_NUMBERS = 1000;
+    private volatile Future<OrderNumbers> orderNumbers;
+    private volatile boolean rasterReceipts = false;
     private boolean isSupportCutter = false;
     
     // Device state tracking
@@ -138,48 +207,457 @@ public class BlanketsAndWinesPlugin implements FlutterPlugin, MethodCallHandler
     private boolean isScannerActive = false;
 
 private String lastScannedData = "";
-private boolean isWaitingForScan = false;
-private Result pendingScanResult = null;
-private EditText scanResultEditText;
+private volatile boolean isWaitingForScan = false;
+
+    // Scans wait for codes on the scanner lane; see ScanCapture
+    private static final long SCAN_TIMEOUT_MILLIS = 10000;
+    private ExecutorService scannerLane;
+    private ScanCapture scanCapture;
+
+    // Offline gate validation; see TicketIndex. Loads and deltas run on
+    // the state lane, validations on the calling thread
+    private static final String TICKET_INDEX_FILE = "tickets.idx";
+    private ExecutorService stateLane;
+    private volatile TicketIndex ticketIndex;
+
+    // Print calls are journaled before they run and replayed after a crash
+    // or engine restart; see PrintSpool
+    private static final String PRINT_SPOOL_FILE = "print_spool.journal";
+    private static final String BINARY_RECEIPT = "printReceiptBinary";
+    private static final Set<String> SPOOLED_METHODS = new HashSet<>(Arrays.asList(
+            "printText", "printFromTemplate", "printReceipt", "printQRCode", "printBarcode",
+            "printTransactionReport"));
+    private ExecutorService spoolExecutor;
+    private PrintSpool printSpool;
+    // Spooled jobs that failed while the printer could not print; retried
+    // when it reports ready again or is reopened, up to MAX_PRINT_ATTEMPTS
+    private static final int MAX_PRINT_ATTEMPTS = 3;
+    private static final Set<String> RETRIED_PRINT_ERRORS = new HashSet<>(Arrays.asList(
+            "PRINT_ERROR", "REPORT_ERROR", "DEVICE_NOT_INITIALIZED", "DEVICE_NOT_OPENED"));
+    private final List<HeldPrint> heldPrints = new ArrayList<>();
+
+    private static final class HeldPrint {
+        final long id;
+        final String kind;
+        final Object call;
+        final int attempts;
 
+        HeldPrint(long id, String kind, Object call, int attempts) {
+            this.id = id;
+            this.kind = kind;
+            this.call = call;
+            this.attempts = attempts;
+        }
+    }
+
+    // Every receipt that printed, for printLedgerReport; see SalesLedger
+    private static final String SALES_LEDGER_FILE = "sales_ledger.dat";
+    private static final int LEDGER_PAGE_ROWS = 256;
+    private volatile SalesLedger salesLedger;
+    // Running shift totals over the ledger, for getSalesSummary; see SalesRollup
+    private static final String SALES_ROLLUP_FILE = "sales_rollup.dat";
+    private volatile SalesRollup salesRollup;
+    private static final String[] SHIFT_REPORT_FIELDS = {
+            "totalTransactions", "totalSales", "averageTransaction", "sellerBreakdown"};
+
+
+    public BlanketsAndWinesPlugin() {
+        this(ZcsDevices::create, new MainThread.MainLooper());
+    }
+
+    BlanketsAndWinesPlugin(Devices.Factory deviceFactory, MainThread mainThread) {
+        this.deviceFactory = deviceFactory;
+        this.mainHandler = mainThread;
+    }
 
     @Override
     public void onAttachedToEngine(@NonNull FlutterPluginBinding flutterPluginBinding) {
         channel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), CHANNEL_NAME);
         channel.setMethodCallHandler(this);
+        binaryChannel = new BasicMessageChannel<>(flutterPluginBinding.getBinaryMessenger(),
+                PayloadCodec.CHANNEL_NAME, new PayloadCodec());
+        binaryChannel.setMessageHandler(this::onBinaryMessage);
+        printerStatusChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(),
+                PRINTER_STATUS_CHANNEL_NAME);
+        printerStatusChannel.setStreamHandler(new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events) {
+                printerStatusSink = events;
+                // Start every listener off with the current state
+                PrinterStatusMonitor monitor = statusMonitor;
+                if (monitor != null && monitor.status() != PrinterStatusMonitor.UNKNOWN) {
+                    events.success(printerStatusEvent(PrinterStatusMonitor.UNKNOWN, monitor.status()));
+                }
+            }
+
+            @Override
+            public void onCancel(Object arguments) {
+                printerStatusSink = null;
+            }
+        });
+        scanChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(), SCAN_CHANNEL_NAME);
+        scanChannel.setStreamHandler(new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events) {
+                scanSink = events;
+            }
+
+            @Override
+            public void onCancel(Object arguments) {
+                scanSink = null;
+            }
+        });
         context = flutterPluginBinding.getApplicationContext();
-        
-        // Initialize background executor and main handler
-        executor = Executors.newSingleThreadExecutor();
-        mainHandler = new Handler(Looper.getMainLooper());
+        start(context.getFilesDir());
         
         Log.d(TAG, "SmartPos Plugin attached to engine");
     }
 
+    // Everything attaching sets up besides the channels; JVM tests start the
+    // plugin here against a temporary directory
+    void start(File filesDir) {
+        this.filesDir = filesDir;
+
+        // Initialize execution lanes
+        lanes = new ExecutionLanes(metrics);
+        printerLane = lanes.open(ExecutionLanes.PRINTER);
+        reportFormatter = Executors.newSingleThreadExecutor();
+        reportGate = new ReportStream.Gate(reportFormatter);
+        rasterRenderer = Executors.newSingleThreadExecutor();
+        systemLane = lanes.open(ExecutionLanes.SYSTEM);
+        scannerLane = lanes.open(ExecutionLanes.SCANNER);
+        stateLane = lanes.open(ExecutionLanes.STATE);
+        stateLane.execute(this::openTicketIndex);
+        spoolExecutor = Executors.newSingleThreadExecutor();
+        printSpool = new PrintSpool(new File(filesDir, PRINT_SPOOL_FILE),
+                spoolExecutor, PrintSpool.DEFAULT_MAX_BYTES);
+        try {
+            salesLedger = SalesLedger.open(new File(filesDir, SALES_LEDGER_FILE));
+            // Rollup checkpoints are written on the spool's disk thread
+            salesRollup = SalesRollup.open(salesLedger, new File(filesDir, SALES_ROLLUP_FILE),
+                    spoolExecutor, TimeZone.getDefault());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open sales ledger", e);
+        }
+    }
+
     @Override
     public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
         channel.setMethodCallHandler(null);
+        binaryChannel.setMessageHandler(null);
+        printerStatusChannel.setStreamHandler(null);
+        scanChannel.setStreamHandler(null);
+        stop();
         
+        Log.d(TAG, "SmartPos Plugin detached from engine");
+    }
+
+    // Undoes start(): waiting jobs fail, the printing batch finishes, then
+    // storage is closed and every lane stops
+    void stop() {
         // Cleanup resources
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
+        // Waiting print jobs fail and stay journaled for the next run. The
+        // batch already printing finishes; its results are posted to the main
+        // thread ahead of closeStorage, so its completions reach the spool
+        PrintQueue queue = printQueue;
+        if (queue != null) {
+            queue.close(new Exception("Plugin detached from engine"));
+        }
+        ExecutorService spool = spoolExecutor;
+        PrintSpool journal = printSpool;
+        SalesRollup rollup = salesRollup;
+        SalesLedger ledger = salesLedger;
+        if (printerLane != null && !printerLane.isShutdown()) {
+            printerLane.execute(() -> mainHandler.post(() -> closeStorage(spool, journal, rollup, ledger)));
+            printerLane.shutdown();
+        } else {
+            closeStorage(spool, journal, rollup, ledger);
+        }
+        if (reportFormatter != null && !reportFormatter.isShutdown()) {
+            reportFormatter.shutdownNow();
+        }
+        if (rasterRenderer != null && !rasterRenderer.isShutdown()) {
+            rasterRenderer.shutdownNow();
+        }
+        if (systemLane != null && !systemLane.isShutdown()) {
+            systemLane.shutdownNow();
+        }
+        if (scanCapture != null) {
+            scanCapture.cancel();
+        }
+        if (scannerLane != null && !scannerLane.isShutdown()) {
+            scannerLane.shutdown();
+        }
+        PrinterStatusMonitor monitor = statusMonitor;
+        if (monitor != null) {
+            monitor.stop();
+        }
+        if (stateLane != null && !stateLane.isShutdown()) {
+            stateLane.execute(() -> {
+                TicketIndex index = ticketIndex;
+                if (index != null) {
+                    index.sync();
+                }
+            });
+            stateLane.shutdown();
         }
         
         // Stop scanner if active
-        if (isScannerActive && mHQrsanner != null) {
+        if (isScannerActive && mScanner != null) {
             try {
-                mHQrsanner.QRScanerPowerCtrl((byte) 0);
+                mScanner.setPowered(false);
                 isScannerActive = false;
+                continuousScan = null;
+                scanCapture.cancel();
             } catch (Exception e) {
                 Log.w(TAG, "Failed to stop scanner during cleanup", e);
             }
         }
-        
-        Log.d(TAG, "SmartPos Plugin detached from engine");
+    }
+
+    // Last step of detaching, once nothing more can print: checkpoint the
+    // rollup, close the ledger it reads and close the journal on the disk
+    // thread, then stop that thread
+    private void closeStorage(ExecutorService spool, PrintSpool journal, SalesRollup rollup,
+                              SalesLedger ledger) {
+        if (spool == null || spool.isShutdown()) return;
+        spool.execute(() -> {
+            if (rollup != null) {
+                try {
+                    rollup.checkpoint();
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to checkpoint sales rollup", e);
+                }
+            }
+            if (ledger != null) {
+                try {
+                    ledger.force();
+                    ledger.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to close sales ledger", e);
+                }
+            }
+        });
+        journal.close();
+        spool.shutdown();
+    }
+
+    // Binary channel messages reuse the method channel paths with a Result
+    // that answers in PayloadCodec.Reply form
+    private void onBinaryMessage(Object message, BasicMessageChannel.Reply<Object> reply) {
+        if (message instanceof ReceiptPayload) {
+            Result result = metrics.enter(BINARY_RECEIPT, new BinaryResult(reply, "orderNumber", null));
+            try {
+                if (!checkDeviceReady(result)) return;
+                ReceiptPayload receipt = (ReceiptPayload) message;
+                numberReceipt(receipt.orderNumber, result, number -> {
+                    if (!number.equals(receipt.orderNumber)) {
+                        receipt.orderNumber = number;
+                        receipt.encoded = PayloadCodec.withOrderNumber(receipt.encoded, number);
+                    }
+                    printSpool.append(BINARY_RECEIPT, receipt.encoded, spoolCallback(BINARY_RECEIPT, receipt, result));
+                });
+            } finally {
+                metrics.exit();
+            }
+        } else if (message instanceof ReportPage) {
+            Result result = metrics.enter("appendReportRowsBinary", new BinaryResult(reply, "streamId", "rowsAccepted"));
+            try {
+                appendReportPage((ReportPage) message, result);
+            } finally {
+                metrics.exit();
+            }
+        } else {
+            reply.reply(new PayloadCodec.Reply(false, "INVALID_INPUT", "Unsupported binary message", null, 0));
+        }
     }
 
     @Override
     public void onMethodCall(@NonNull MethodCall call, @NonNull Result result) {
+        Result metered = metrics.enter(call.method, result);
+        try {
+            if (SPOOLED_METHODS.contains(call.method)) {
+                spoolCall(call, metered);
+            } else {
+                handleMethodCall(call, metered);
+            }
+        } finally {
+            metrics.exit();
+        }
+    }
+
+    // ==================== PRINT SPOOL ====================
+
+    private void spoolCall(MethodCall call, Result result) {
+        if (!checkDeviceReady(result)) return;
+        Map<String, Object> receiptData = "printReceipt".equals(call.method) ? call.argument("receiptData") : null;
+        if (receiptData == null) {
+            journal(call, result);
+            return;
+        }
+        Object given = receiptData.get("orderNumber");
+        numberReceipt(given instanceof String ? (String) given : null, result, number -> {
+            Map<String, Object> numbered = new HashMap<>(receiptData);
+            numbered.put("orderNumber", number);
+            Map<String, Object> arguments = new HashMap<>();
+            arguments.put("receiptData", numbered);
+            journal(new MethodCall(call.method, arguments), result);
+        });
+    }
+
+    private void journal(MethodCall call, Result result) {
+        ByteBuffer encoded = StandardMessageCodec.INSTANCE.encodeMessage(call.arguments);
+        byte[] payload = new byte[encoded != null ? encoded.position() : 0];
+        if (encoded != null) {
+            encoded.flip();
+            encoded.get(payload);
+        }
+        printSpool.append(call.method, payload, spoolCallback(call.method, call, result));
+    }
+
+    // Runs the call once its journal record is durable
+    private PrintSpool.Callback spoolCallback(String kind, Object call, Result result) {
+        return new PrintSpool.Callback() {
+            @Override
+            public void onWritten(long id) {
+                mainHandler.post(() -> runSpooled(id, kind, call, 1, result));
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                Log.e(TAG, "Failed to spool " + kind, e);
+                mainHandler.post(() -> {
+                    result.error("SPOOL_ERROR", "Failed to spool print: " + e.getMessage(), null);
+                });
+            }
+        };
+    }
+
+    // A job is done once it printed. One that failed for a reason the
+    // printer can recover from (paper out, device not ready) stays journaled
+    // and is held for another attempt; any other failure would only repeat,
+    // so the job is dropped
+    private void runSpooled(long id, String kind, Object call, int attempt, Result result) {
+        Result finished = new Result() {
+            @Override
+            public void success(Object value) {
+                printSpool.complete(id);
+                result.success(value);
+            }
+
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                if (!RETRIED_PRINT_ERRORS.contains(errorCode) || attempt >= MAX_PRINT_ATTEMPTS) {
+                    printSpool.complete(id);
+                    result.error(errorCode, errorMessage, errorDetails);
+                    return;
+                }
+                synchronized (heldPrints) {
+                    heldPrints.add(new HeldPrint(id, kind, call, attempt));
+                }
+                Map<String, Object> details = new HashMap<>();
+                details.put("held", true);
+                details.put("spoolId", id);
+                result.error(errorCode, errorMessage + " (held; prints when the printer is ready)", details);
+            }
+
+            @Override
+            public void notImplemented() {
+                printSpool.complete(id);
+                result.notImplemented();
+            }
+        };
+        metrics.resume(kind);
+        try {
+            if (!checkDeviceReady(finished)) return;
+            if (call instanceof ReceiptPayload) {
+                printReceiptPayload((ReceiptPayload) call, finished);
+            } else {
+                handleMethodCall((MethodCall) call, finished);
+            }
+        } catch (IllegalArgumentException | ClassCastException e) {
+            // The journaled payload cannot be decoded or bound; it never will be
+            Log.e(TAG, "Spooled " + kind + " is invalid", e);
+            finished.error("INVALID_INPUT", "Invalid " + kind + ": " + e.getMessage(), null);
+        } catch (Exception e) {
+            Log.e(TAG, "Spooled " + kind + " failed", e);
+            finished.error("PRINT_ERROR", "Failed to print " + kind + ": " + e.getMessage(), null);
+        } finally {
+            metrics.exit();
+        }
+    }
+
+    // Prints what the previous run journaled and never finished, once the
+    // device is both initialized and open
+    private void replaySpool() {
+        if (!isDeviceInitialized || !isDeviceOpened) return;
+        spoolExecutor.execute(() -> {
+            List<PrintSpool.Entry> entries = printSpool.takeRecovered();
+            if (entries.isEmpty()) return;
+            Log.d(TAG, "Replaying " + entries.size() + " spooled print jobs");
+            mainHandler.post(() -> {
+                for (PrintSpool.Entry entry : entries) {
+                    Object call;
+                    try {
+                        call = decodeSpooled(entry);
+                    } catch (Exception e) {
+                        Log.e(TAG, "Dropping unreadable spooled " + entry.kind, e);
+                        printSpool.complete(entry.id);
+                        continue;
+                    }
+                    runSpooled(entry.id, entry.kind, call, 1, replayResult(entry.kind));
+                }
+            });
+        });
+        retryHeldPrints();
+    }
+
+    // Prints held jobs again; called once the printer is ready
+    private void retryHeldPrints() {
+        List<HeldPrint> held;
+        synchronized (heldPrints) {
+            if (heldPrints.isEmpty()) return;
+            held = new ArrayList<>(heldPrints);
+            heldPrints.clear();
+        }
+        Log.d(TAG, "Retrying " + held.size() + " held print jobs");
+        mainHandler.post(() -> {
+            for (HeldPrint print : held) {
+                runSpooled(print.id, print.kind, print.call, print.attempts + 1, replayResult(print.kind));
+            }
+        });
+    }
+
+    private Object decodeSpooled(PrintSpool.Entry entry) {
+        if (BINARY_RECEIPT.equals(entry.kind)) {
+            return new PayloadCodec().decodeMessage(ByteBuffer.wrap(entry.payload));
+        }
+        Object arguments = entry.payload.length > 0
+                ? StandardMessageCodec.INSTANCE.decodeMessage(ByteBuffer.wrap(entry.payload)) : null;
+        return new MethodCall(entry.kind, arguments);
+    }
+
+    // Nobody is waiting on a replayed job any more
+    private Result replayResult(String kind) {
+        return new Result() {
+            @Override
+            public void success(Object value) {
+                Log.d(TAG, "Replayed spooled " + kind);
+            }
+
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                Log.w(TAG, "Replayed spooled " + kind + " failed: " + errorCode + " " + errorMessage);
+            }
+
+            @Override
+            public void notImplemented() {
+                Log.w(TAG, "Replayed spooled " + kind + " is not supported");
+            }
+        };
+    }
+
+    private void handleMethodCall(MethodCall call, Result result) {
     String text  = call.argument("text");
         switch (call.method) {
             case "initializeDevice":
@@ -192,6 +670,9 @@ private EditText scanResultEditText;
             Boolean clear = call.argument("clear");
             showTextOnLcd(text, x != null ? x : 0, y != null ? y : 0, clear != null ? clear : true, result);
             break;
+            case "showLinesOnLcd":
+                showLinesOnLcd(call.argument("lines"), !Boolean.FALSE.equals(call.argument("clear")), result);
+                break;
 
             case "openDevice":
                 openDevice(result);
@@ -207,7 +688,20 @@ private EditText scanResultEditText;
                 break;
             case "printText":
                 // String text = call.argument("text");
-                printText(text, result);
+                String styleName = call.argument("style");
+                printText(text, styleName, result);
+                break;
+            case "registerStyle":
+                registerStyle(call, result);
+                break;
+            case "registerTemplate":
+                registerTemplate(call, result);
+                break;
+            case "printFromTemplate":
+                printFromTemplate(call, result);
+                break;
+            case "setReceiptRenderMode":
+                setReceiptRenderMode(call.argument("mode"), result);
                 break;
             case "printReceipt":
                 Map<String, Object> receiptData = call.argument("receiptData");
@@ -227,12 +721,66 @@ private EditText scanResultEditText;
                 Map<String, Object> reportData = call.argument("reportData");
                 printTransactionReport(reportData, result);
                 break;    
+            case "beginReportStream":
+                beginReportStream(call.argument("reportData"), result);
+                break;
+            case "appendReportRows":
+                appendReportRows(call.argument("streamId"), call.argument("rows"), result);
+                break;
+            case "endReportStream":
+                endReportStream(call.argument("streamId"), call.argument("reportData"), result);
+                break;
+            case "printLedgerReport":
+                printLedgerReport(call.argument("from"), call.argument("to"),
+                        call.argument("reportData"), result);
+                break;
             case "cutPaper":
                 cutPaper(result);
                 break;
             case "getPrinterStatus":
                 getPrinterStatus(result);
                 break;
+            case "getSymbolCacheStats":
+                getSymbolCacheStats(Boolean.TRUE.equals(call.argument("reset")), result);
+                break;
+            case "clearSymbolCache":
+                symbols.clear();
+                result.success(symbols.stats());
+                break;
+            case "getMetrics":
+                getMetrics(Boolean.TRUE.equals(call.argument("reset")), result);
+                break;
+            case "resetMetrics":
+                resetMetrics();
+                result.success(null);
+                break;
+            case "setSdkTrace":
+                setSdkTrace(Boolean.TRUE.equals(call.argument("enabled")),
+                        Boolean.TRUE.equals(call.argument("clear")), result);
+                break;
+            case "dumpTrace":
+                dumpTrace(call.argument("format"), Boolean.TRUE.equals(call.argument("clear")), result);
+                break;
+            case "loadTickets":
+                loadTickets(call.argument("path"), call.argument("format"),
+                        !Boolean.FALSE.equals(call.argument("keepUsed")), result);
+                break;
+            case "applyTicketDelta":
+                applyTicketDelta(call.argument("version"), call.argument("add"),
+                        call.argument("revoke"), result);
+                break;
+            case "validateTicket":
+                validateTicket(call.argument("code"), !Boolean.FALSE.equals(call.argument("markUsed")), result);
+                break;
+            case "nextOrderNumbers":
+                nextOrderNumbers(call.argument("count"), result);
+                break;
+            case "getTicketIndexStats":
+                getTicketIndexStats(result);
+                break;
+            case "getSalesSummary":
+                getSalesSummary(Boolean.TRUE.equals(call.argument("closeShift")), result);
+                break;
              
         case "stopQRScan":
             stopQRScan(result);
@@ -240,6 +788,15 @@ private EditText scanResultEditText;
         case "scanQRCode":
             scanQRCodeOnce(result);
             break;
+        case "startContinuousScan": {
+            Number window = call.argument("dedupeWindowMillis");
+            startContinuousScan(window != null ? window.longValue()
+                    : ContinuousScan.DEFAULT_DEDUPE_WINDOW_MILLIS, result);
+            break;
+        }
+        case "stopContinuousScan":
+            stopContinuousScan(result);
+            break;
         // case "getLastScannedData":
         //     getLastScannedData(result);
         //     break;
@@ -250,52 +807,102 @@ private EditText scanResultEditText;
         }
     }
 
+// Runs on the printer lane: bring-up ends with the printer, and nothing can
+// print until it is done
 private void initializeDevice(Result result) {
-    executor.execute(() -> {
+    printerLane.execute(() -> {
         try {
             Log.d(TAG, "Initializing ZCS SmartPos SDK...");
-            
-            // Initialize the ZCS SDK
-            mDriverManager = DriverManager.getInstance();
-            if (mDriverManager == null) {
-                throw new Exception("Failed to get DriverManager instance");
+            DeviceStartup phases = new DeviceStartup();
+
+            // Look up the SDK drivers
+            devices = phases.run(DeviceStartup.DRIVERS,
+                    () -> InstrumentedDevices.wrap(deviceFactory.create(context), metrics));
+            mSys = devices.system;
+
+            // The display and scanner are looked up while the SDK and printer come up
+            Future<Devices.Display> display =
+                    phases.start(DeviceStartup.DISPLAY, systemLane, devices.display);
+            Future<ScannerDevice> scanner =
+                    phases.start(DeviceStartup.SCANNER, systemLane, devices.scanner);
+
+            // Initialize SDK, powering on and polling if it is not up yet
+            int status = phases.run(DeviceStartup.SDK_INIT,
+                    () -> phases.initSdk(mSys, DeviceStartup.POWER_ON_TIMEOUT_MILLIS));
+            if (status != SdkResult.SDK_OK) {
+                throw new Exception("SDK initialization failed with status: " + status);
             }
-            
-            // Get Sys instance for device info - ADD THIS LINE
-            mSys = mDriverManager.getBaseSysDevice();
-            if (mSys == null) {
-                throw new Exception("Failed to get Sys instance");
+
+            // Device identity is read in the background while the printer comes up
+            Future<Map<String, String>> sysInfo =
+                    phases.start(DeviceStartup.SYS_INFO, systemLane, this::readSysInfo);
+
+            // Queued behind sysInfo, which reads the serial number
+            Future<OrderNumbers> numbers = orderNumbers;
+            if (numbers == null || failed(numbers)) {
+                FutureTask<OrderNumbers> task = new FutureTask<>(() -> new OrderNumbers(
+                        sysInfo.get().get("serialNumber"),
+                        new File(filesDir, ORDER_SEQUENCE_FILE), OrderNumbers.DEFAULT_BLOCK));
+                systemLane.execute(task);
+                orderNumbers = task;
             }
-            
-            // Initialize SDK - ADD THIS SECTION
-            int status = mSys.sdkInit();
-            if (status != SdkResult.SDK_OK) {
-                mSys.sysPowerOn();
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+
+            phases.run(DeviceStartup.PRINTER, () -> {
+                mPrinter = devices.printer;
+
+                // Check if device supports paper cutter
+                isSupportCutter = mPrinter.supportsCutter();
+
+                // Build the shared style palette once, before the first print
+                styles.prewarm();
+
+                // Status sampled in the background; prints read the cached state.
+                // A re-init replaces the monitor, so the old one stops sampling
+                PrinterStatusMonitor previousMonitor = statusMonitor;
+                if (previousMonitor != null) {
+                    previousMonitor.stop();
                 }
-                status = mSys.sdkInit();
-                if (status != SdkResult.SDK_OK) {
-                    throw new Exception("SDK initialization failed with status: " + status);
+                PrinterStatusMonitor monitor = new PrinterStatusMonitor(mPrinter);
+                monitor.setListener(this::onPrinterStatusChanged);
+                monitor.read();
+                ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+                monitor.start(sampler);
+                statusMonitor = monitor;
+
+                // Print jobs are queued and coalesced on the printer lane
+                printQueue = new PrintQueue(printerLane, mPrinter, styles, monitor);
+
+                // Two rasters: one printing while the next receipt renders
+                if (mPrinter.supportsRaster()) {
+                    rasterPool = new ReceiptRaster.Pool(mPrinter.headWidth(), 2);
                 }
-            }
-            
-            // Get printer instance
-            mPrinter = mDriverManager.getPrinter();
-            if (mPrinter == null) {
-                throw new Exception("Failed to get Printer instance");
-            }
-            
-            // Check if device supports paper cutter
-            isSupportCutter = mPrinter.isSuppoerCutter();
+                return null;
+            });
 
-            // Initialize QR scanner
-            mHQrsanner = mDriverManager.getHQrsannerDriver();
-            if (mHQrsanner == null) {
+            // Long done by now; a display that failed to come up fails the init
+            Devices.Display lcd = phaseResult(display);
+            lcdRenderer = new LcdRenderer(lcd.lcd, lanes.adopt(ExecutionLanes.LCD, lcd.executor));
+            try {
+                mScanner = phaseResult(scanner);
+            } catch (Exception e) {
+                Log.w(TAG, "QR Scanner lookup failed", e);
+                mScanner = null;
+            }
+            if (mScanner == null) {
                 Log.w(TAG, "QR Scanner not available on this device");
+            } else {
+                scanCapture = new ScanCapture(mScanner);
             }
+
+            // What getDeviceInfo reports that never changes
+            Map<String, Object> capabilities = new HashMap<>();
+            capabilities.put("model", "ZCS SmartPos");
+            capabilities.put("supportsCutter", isSupportCutter);
+            capabilities.put("hasQRScanner", mScanner != null);
+            capabilities.put("is80MMPrinter", mPrinter.headWidth() == ReceiptRaster.WIDTH_80MM);
+            capabilities.put("sdkInitialized", true);
+            deviceInfo = new DeviceInfo(capabilities, sysInfo, statusMonitor);
+            startup = phases;
        
             isDeviceInitialized = true;
             
@@ -305,8 +912,10 @@ private void initializeDevice(Result result) {
                 response.put("success", true);
                 response.put("message", "ZCS SDK initialized successfully");
                 response.put("supportsCutter", isSupportCutter);
-                response.put("hasQRScanner", mHQrsanner != null);
+                response.put("hasQRScanner", mScanner != null);
+                response.put("phases", phases.timings());
                 result.success(response);
+                replaySpool();
             });
             
             Log.d(TAG, "SDK initialization completed successfully");
@@ -326,12 +935,12 @@ private void initializeDevice(Result result) {
             return;
         }
         
-        executor.execute(() -> {
+        printerLane.execute(() -> {
             try {
                 Log.d(TAG, "Opening printer device...");
                 
                 // Check printer status first
-                int status = mPrinter.getPrinterStatus();
+                int status = statusMonitor.read();
 
                 if (status == SdkResult.SDK_OK) {
                     isDeviceOpened = true;
@@ -342,6 +951,7 @@ private void initializeDevice(Result result) {
                         response.put("message", "Printer opened successfully");
                         response.put("status", "ready");
                         result.success(response);
+                        replaySpool();
                     });
                 } else {
                     String statusMessage = getPrinterStatusMessage(status);
@@ -357,15 +967,22 @@ private void initializeDevice(Result result) {
         });
     }
 
+    // Only the scanner needs turning off, so this runs on the scanner lane
     private void closeDevice(Result result) {
-        executor.execute(() -> {
+        // Ends a scan that would otherwise hold the scanner lane until it times out
+        if ((isScannerActive || isWaitingForScan) && scanCapture != null) {
+            continuousScan = null;
+            scanCapture.cancel();
+        }
+
+        scannerLane.execute(() -> {
             try {
                 Log.d(TAG, "Closing printer device...");
                 
                 // Stop scanner if active
-                if (isScannerActive && mHQrsanner != null) {
+                if (isScannerActive && mScanner != null) {
                     try {
-                        mHQrsanner.QRScanerPowerCtrl((byte) 0);
+                        mScanner.setPowered(false);
                         isScannerActive = false;
                         Log.d(TAG, "QR Scanner stopped during device close");
                     } catch (Exception e) {
@@ -403,37 +1020,50 @@ private void showTextOnLcd(String text, int x, int y, boolean clear, Result resu
         result.error("INVALID_INPUT", "Text cannot be null or empty", null);
         return;
     }
-    
-    executor.execute(() -> {
-        try {
-            Log.d(TAG, "Displaying text on LCD: " + text);
-            
-            // Use the single thread executor like in the original code
-            mDriverManager.getSingleThreadExecutor().execute(new Runnable() {
-                @Override
-                public void run() {
-                    int status = mSys.showStringOnLcd(x, y, text, clear);
-                    
-                    mainHandler.post(() -> {
-                        if (status == SdkResult.SDK_OK) {
-                            Map<String, Object> response = new HashMap<>();
-                            response.put("success", true);
-                            response.put("message", "Text displayed on LCD successfully");
-                            result.success(response);
-                        } else {
-                            result.error("LCD_ERROR", "Failed to show text on LCD. Status: " + status, null);
-                        }
-                    });
-                }
-            });
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to show text on LCD", e);
-            mainHandler.post(() -> {
-                result.error("LCD_ERROR", "Failed to show text on LCD: " + e.getMessage(), null);
-            });
+
+    Log.d(TAG, "Displaying text on LCD: " + text);
+    renderOnLcd(LcdRenderer.Frame.line(text, x, y, clear), result);
+}
+
+// Several lines drawn as one frame, e.g. item and running total after a scan
+private void showLinesOnLcd(List<Map<String, Object>> lines, boolean clear, Result result) {
+    if (!checkDeviceReady(result)) return;
+
+    if (lines == null || lines.isEmpty()) {
+        result.error("INVALID_INPUT", "Lines cannot be null or empty", null);
+        return;
+    }
+    String[] texts = new String[lines.size()];
+    int[] xs = new int[texts.length];
+    int[] ys = new int[texts.length];
+    for (int i = 0; i < texts.length; i++) {
+        Map<String, Object> line = lines.get(i);
+        Object text = line != null ? line.get("text") : null;
+        if (!(text instanceof String)) {
+            result.error("INVALID_INPUT", "Line " + i + " has no text", null);
+            return;
         }
-    });
+        texts[i] = (String) text;
+        xs[i] = line.get("x") instanceof Number ? ((Number) line.get("x")).intValue() : 0;
+        ys[i] = line.get("y") instanceof Number ? ((Number) line.get("y")).intValue() : 0;
+    }
+    renderOnLcd(new LcdRenderer.Frame(texts, xs, ys, clear), result);
+}
+
+// Goes straight to the display thread, never behind printing; a frame
+// replaced before it was drawn still answers, as "superseded"
+private void renderOnLcd(LcdRenderer.Frame frame, Result result) {
+    lcdRenderer.submit(frame, (outcome, status) -> mainHandler.post(() -> {
+        if (outcome == LcdRenderer.FAILED) {
+            result.error("LCD_ERROR", "Failed to show text on LCD. Status: " + status, null);
+            return;
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Text displayed on LCD successfully");
+        response.put("outcome", LcdRenderer.outcomeName(outcome));
+        result.success(response);
+    }));
 }
 
 
@@ -442,67 +1072,49 @@ private void showTextOnLcd(String text, int x, int y, boolean clear, Result resu
 
     // We are working on this 
 
+// Serial number and versions, for the sysInfo startup phase
+private Map<String, String> readSysInfo() {
+    Map<String, String> info = new HashMap<>();
+
+    String sn = mSys.serialNumber();
+    Log.d(TAG, "getSN: " + sn);
+    info.put("serialNumber", sn != null ? sn : "Unknown");
+
+    String firmwareVersion = mSys.firmwareVersion();
+    Log.d(TAG, "getFirmwareVer: " + firmwareVersion);
+    info.put("firmwareVersion", firmwareVersion != null ? firmwareVersion : "Unknown");
+
+    String baseSdkVersion = mSys.baseSdkVersion();
+    Log.d(TAG, "getBaseSdkVer: " + baseSdkVersion);
+    info.put("baseSdkVersion", baseSdkVersion != null ? baseSdkVersion : "Unknown");
+
+    String sdkVersion = mSys.sdkVersion();
+    Log.d(TAG, "getSdkVersion: " + sdkVersion);
+    info.put("sdkVersion", sdkVersion != null ? sdkVersion : "Unknown");
+    return info;
+}
+
+// Answers from the DeviceInfo snapshot on the calling thread; only waits,
+// on the system lane, if the sysInfo startup phase is still running
 private void getDeviceInfo(Result result) {
-    executor.execute(() -> {
+    DeviceInfo info = deviceInfo;
+    if (!isDeviceInitialized || info == null) {
+        result.error("INFO_ERROR", "Failed to get device info: Device not initialized", null);
+        return;
+    }
+    if (info.isReady()) {
         try {
-            Log.d(TAG, "Getting device information...");
-            
-            if (!isDeviceInitialized || mSys == null) {
-                throw new Exception("Device not initialized");
-            }
-            
-            Map<String, Object> deviceInfo = new HashMap<>();
-            
-            // Get serial number using correct ZCS API
-            String[] sn = new String[1];
-            int res = mSys.getSN(sn);
-            Log.d(TAG, "getSN res: " + res);
-            if (res == SdkResult.SDK_OK && sn[0] != null) {
-                deviceInfo.put("serialNumber", sn[0]);
-                Log.d(TAG, "getSN: " + sn[0]);
-            } else {
-                deviceInfo.put("serialNumber", "Unknown");
-            }
-            
-            // Get firmware version using correct ZCS API
-            String[] firmwareVersion = new String[1];
-            res = mSys.getFirmwareVer(firmwareVersion);
-            Log.d(TAG, "getFirmwareVer res: " + res);
-            if (res == SdkResult.SDK_OK && firmwareVersion[0] != null) {
-                deviceInfo.put("firmwareVersion", firmwareVersion[0]);
-                Log.d(TAG, "getFirmwareVer: " + firmwareVersion[0]);
-            } else {
-                deviceInfo.put("firmwareVersion", "Unknown");
-            }
-            
-            // Get base SDK version using correct ZCS API
-            String[] baseSdkVersion = new String[1];
-            res = mSys.getBaseSdkVer(baseSdkVersion);
-            Log.d(TAG, "getBaseSdkVer res: " + res);
-            if (res == SdkResult.SDK_OK && baseSdkVersion[0] != null) {
-                deviceInfo.put("baseSdkVersion", baseSdkVersion[0]);
-                Log.d(TAG, "getBaseSdkVer: " + baseSdkVersion[0]);
-            } else {
-                deviceInfo.put("baseSdkVersion", "Unknown");
-            }
-            
-            // Get SDK version (this method returns string directly)
-            String sdkVersion = mSys.getSdkVersion();
-            deviceInfo.put("sdkVersion", sdkVersion != null ? sdkVersion : "Unknown");
-            Log.d(TAG, "getSdkVersion: " + sdkVersion);
-            
-            // Set model name (ZCS SDK doesn't seem to have a specific method for this)
-            deviceInfo.put("model", "ZCS SmartPos");
-            
-            // Add additional device capabilities
-            deviceInfo.put("supportsCutter", isSupportCutter);
-            deviceInfo.put("hasQRScanner", mHQrsanner != null);
-            deviceInfo.put("printerStatus", getPrinterStatusMessage(mPrinter.getPrinterStatus()));
-            deviceInfo.put("is80MMPrinter", mPrinter.is80MMPrinter());
-            deviceInfo.put("sdkInitialized", true);
-            
-            mainHandler.post(() -> result.success(deviceInfo));
-            
+            result.success(deviceInfoResponse(info));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to get device info", e);
+            result.error("INFO_ERROR", "Failed to get device info: " + e.getMessage(), null);
+        }
+        return;
+    }
+    systemLane.execute(() -> {
+        try {
+            Map<String, Object> response = deviceInfoResponse(info);
+            mainHandler.post(() -> result.success(response));
         } catch (Exception e) {
             Log.e(TAG, "Failed to get device info", e);
             mainHandler.post(() -> {
@@ -512,63 +1124,241 @@ private void getDeviceInfo(Result result) {
     });
 }
 
-
-
-    private void getDeviceStatus(Result result) {
-        Map<String, Object> status = new HashMap<>();
-        status.put("initialized", isDeviceInitialized);
-        status.put("opened", isDeviceOpened);
-        status.put("ready", isDeviceInitialized && isDeviceOpened);
-        status.put("supportsCutter", isSupportCutter);
-        status.put("hasQRScanner", mHQrsanner != null);
-        status.put("scannerActive", isScannerActive);
-        result.success(status);
+// The value of a finished startup phase, or the exception it threw
+private static <T> T phaseResult(Future<T> phase) throws Exception {
+    try {
+        return phase.get();
+    } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        throw cause instanceof Exception ? (Exception) cause : e;
     }
+}
 
-    private void printText(String text, Result result) {
-        if (!checkDeviceReady(result)) return;
-        
-        if (text == null || text.trim().isEmpty()) {
+// Whether a finished startup task threw; it is then started over
+private static boolean failed(Future<?> future) {
+    if (!future.isDone()) {
+        return false;
+    }
+    try {
+        future.get();
+        return false;
+    } catch (Exception e) {
+        return true;
+    }
+}
+
+private interface NumberedReceipt {
+    void spool(String orderNumber);
+}
+
+// Receipts are numbered before they are journaled, so a replay prints the
+// number an interrupted first attempt may already have printed. Making a
+// number can wait for startup to read the serial or sync the sequence file,
+// so it runs on the system lane; receipts sent with a number take the same
+// lane to keep their order
+private void numberReceipt(String orderNumber, Result result, NumberedReceipt then) {
+    boolean given = orderNumber != null && !orderNumber.trim().isEmpty();
+    Future<OrderNumbers> numbers = orderNumbers;
+    if (!given && numbers == null) {
+        result.error("ORDER_ERROR", "Device must be initialized first", null);
+        return;
+    }
+    systemLane.execute(() -> {
+        String number;
+        try {
+            number = given ? orderNumber : numbers.get().next();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to make an order number", e);
+            mainHandler.post(() -> {
+                result.error("ORDER_ERROR", "Failed to make an order number: " + e.getMessage(), null);
+            });
+            return;
+        }
+        // Checked before printing: the sales ledger will not take it whole
+        if (!SalesLedger.fitsOrderId(number)) {
+            mainHandler.post(() -> {
+                result.error("INVALID_INPUT", "Order number is longer than "
+                        + SalesLedger.ORDER_BYTES + " bytes: " + number, null);
+            });
+            return;
+        }
+        then.spool(number);
+    });
+}
+
+// Reserves a run of order numbers for Dart to hand out itself; answered on
+// the calling thread unless startup is still reading the serial number
+private void nextOrderNumbers(Number count, Result result) {
+    int n = count != null ? count.intValue() : 1;
+    if (n < 1 || n > MAX_ORDER_NUMBERS) {
+        result.error("INVALID_INPUT", "Count must be between 1 and " + MAX_ORDER_NUMBERS, null);
+        return;
+    }
+    Future<OrderNumbers> numbers = orderNumbers;
+    if (numbers == null) {
+        result.error("ORDER_ERROR", "Device must be initialized first", null);
+        return;
+    }
+    if (numbers.isDone()) {
+        try {
+            result.success(orderNumbersResponse(numbers, n));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to reserve order numbers", e);
+            result.error("ORDER_ERROR", "Failed to reserve order numbers: " + e.getMessage(), null);
+        }
+        return;
+    }
+    systemLane.execute(() -> {
+        try {
+            Map<String, Object> response = orderNumbersResponse(numbers, n);
+            mainHandler.post(() -> result.success(response));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to reserve order numbers", e);
+            mainHandler.post(() -> {
+                result.error("ORDER_ERROR", "Failed to reserve order numbers: " + e.getMessage(), null);
+            });
+        }
+    });
+}
+
+private Map<String, Object> orderNumbersResponse(Future<OrderNumbers> numbers, int count) throws Exception {
+    Map<String, Object> response = new HashMap<>();
+    response.put("success", true);
+    response.put("orderNumbers", Arrays.asList(numbers.get().next(count)));
+    return response;
+}
+
+private Map<String, Object> deviceInfoResponse(DeviceInfo info) throws Exception {
+    Map<String, Object> response = info.snapshot();
+    response.put("printerStatus", getPrinterStatusMessage(info.printerStatus()));
+    response.put("printerStatusAgeMillis", info.statusAgeMillis());
+    return response;
+}
+
+
+
+    private void getDeviceStatus(Result result) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("initialized", isDeviceInitialized);
+        status.put("opened", isDeviceOpened);
+        status.put("ready", isDeviceInitialized && isDeviceOpened);
+        status.put("supportsCutter", isSupportCutter);
+        status.put("hasQRScanner", mScanner != null);
+        status.put("scannerActive", isScannerActive);
+        DeviceStartup phases = startup;
+        if (phases != null) {
+            status.put("startupPhases", phases.timings());
+        }
+        result.success(status);
+    }
+
+    private void printText(String text, String styleName, Result result) {
+        if (!checkDeviceReady(result)) return;
+        
+        if (text == null || text.trim().isEmpty()) {
             result.error("INVALID_INPUT", "Text cannot be null or empty", null);
             return;
         }
+
+        PrintStyle style = styleName != null ? styles.find(styleName) : styles.get(StyleRegistry.TEXT);
+        if (style == null) {
+            result.error("INVALID_INPUT", "Unknown print style: " + styleName, null);
+            return;
+        }
         
-        executor.execute(() -> {
-            try {
-                int printStatus = mPrinter.getPrinterStatus();
-                if (printStatus == SdkResult.SDK_PRN_STATUS_PAPEROUT) {
-                    throw new Exception("Out of paper");
-                }
-                
-                PrnStrFormat format = new PrnStrFormat();
-                format.setTextSize(40);
-                format.setStyle(PrnTextStyle.NORMAL);
-                format.setFont(PrnTextFont.MONOSPACE);
-                format.setAli(Layout.Alignment.ALIGN_NORMAL);
-                
-                mPrinter.setPrintAppendString(text, format);
-                mPrinter.setPrintAppendString("\n", format);
-                
-                int result_code = mPrinter.setPrintStart();
-                
-                mainHandler.post(() -> {
-                    if (result_code == SdkResult.SDK_OK) {
-                        Map<String, Object> response = new HashMap<>();
-                        response.put("success", true);
-                        response.put("message", "Text printed successfully");
-                        result.success(response);
-                    } else {
-                        result.error("PRINT_ERROR", "Print failed with code: " + result_code, null);
-                    }
-                });
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to print text", e);
-                mainHandler.post(() -> {
-                    result.error("PRINT_ERROR", "Failed to print text: " + e.getMessage(), null);
-                });
-            }
-        });
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Text printed successfully");
+
+        enqueuePrint("text", PrintJob.PRIORITY_NORMAL, false, 2, () -> {
+            mPrinter.appendString(text, style);
+            mPrinter.appendString("\n", style);
+        }, response, "Failed to print text", result);
+    }
+
+    // Register (or replace) a named style in the shared palette
+    private void registerStyle(MethodCall call, Result result) {
+        String name = call.argument("name");
+        Integer textSize = call.argument("textSize");
+        Boolean bold = call.argument("bold");
+        Boolean italic = call.argument("italic");
+        String font = call.argument("font");
+        String alignment = call.argument("alignment");
+
+        if (name == null || name.trim().isEmpty() || textSize == null || textSize <= 0) {
+            result.error("INVALID_INPUT", "Style needs a name and a positive textSize", null);
+            return;
+        }
+
+        try {
+            boolean isBold = bold != null && bold;
+            boolean isItalic = italic != null && italic;
+            PrnTextStyle textStyle = isBold
+                    ? (isItalic ? PrnTextStyle.BOLD_ITALIC : PrnTextStyle.BOLD)
+                    : (isItalic ? PrnTextStyle.ITALIC : PrnTextStyle.NORMAL);
+            PrnTextFont textFont = font != null ? PrnTextFont.valueOf(font.toUpperCase()) : PrnTextFont.MONOSPACE;
+            PrintStyle.Align align = alignment != null
+                    ? PrintStyle.Align.valueOf(alignment.toUpperCase())
+                    : PrintStyle.Align.LEFT;
+
+            PrintStyle style = new PrintStyle(name, textSize, textStyle, textFont, align);
+            style.format();
+            styles.register(style);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Style registered: " + name);
+            response.put("styleCount", styles.size());
+            result.success(response);
+        } catch (IllegalArgumentException e) {
+            result.error("INVALID_INPUT", "Invalid style: " + e.getMessage(), null);
+        }
+    }
+
+    // Compile a Dart-described receipt layout once and keep it by id
+    private void registerTemplate(MethodCall call, Result result) {
+        String templateId = call.argument("templateId");
+        List<Map<String, Object>> ops = call.argument("ops");
+
+        if (templateId == null || templateId.trim().isEmpty()) {
+            result.error("INVALID_INPUT", "Template id cannot be null or empty", null);
+            return;
+        }
+
+        try {
+            ReceiptTemplate template = ReceiptTemplate.compile(templateId, ops, styles);
+            templates.put(templateId, template);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Template registered: " + templateId);
+            response.put("opCount", template.opCount());
+            result.success(response);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            Log.e(TAG, "Failed to compile template " + templateId, e);
+            result.error("INVALID_TEMPLATE", "Failed to compile template: " + e.getMessage(), null);
+        }
+    }
+
+    private void printFromTemplate(MethodCall call, Result result) {
+        if (!checkDeviceReady(result)) return;
+
+        String templateId = call.argument("templateId");
+        Map<String, Object> values = call.argument("values");
+        ReceiptTemplate template = templateId != null ? templates.get(templateId) : null;
+        if (template == null) {
+            result.error("INVALID_INPUT", "Unknown template: " + templateId, null);
+            return;
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Template printed successfully");
+        response.put("templateId", templateId);
+
+        enqueueReceipt("template:" + templateId, template.estimateLines(values), target -> {
+            template.print(values, new ReceiptTemplate.RunContext(target, mPrinter, symbols));
+        }, response, "Failed to print template", result);
     }
 
     private void printReceipt(Map<String, Object> receiptData, Result result) {
@@ -578,247 +1368,87 @@ private void getDeviceInfo(Result result) {
             result.error("INVALID_INPUT", "Receipt data cannot be null", null);
             return;
         }
+
+        printReceiptPayload(ReceiptPayload.fromMap(receiptData), result);
+    }
+
+    // Shared by the method channel and the binary channel
+    // Receipts arrive numbered by numberReceipt; only ones journaled without
+    // a number get one here
+    private void printReceiptPayload(ReceiptPayload receipt, Result result) {
+        String orderNumber = receipt.orderNumber;
+        if (orderNumber == null || orderNumber.trim().isEmpty()) {
+            numberReceipt(null, result, number -> mainHandler.post(() -> {
+                receipt.orderNumber = number;
+                printReceiptPayload(receipt, result);
+            }));
+            return;
+        }
         
-        executor.execute(() -> {
-            try {
-                int printStatus = mPrinter.getPrinterStatus();
-                if (printStatus == SdkResult.SDK_PRN_STATUS_PAPEROUT) {
-                    throw new Exception("Out of paper");
-                }
-                
-                // Create format objects
-                PrnStrFormat headerFormat = new PrnStrFormat();
-                headerFormat.setTextSize(50);
-                headerFormat.setAli(Layout.Alignment.ALIGN_CENTER);
-                headerFormat.setStyle(PrnTextStyle.BOLD);
-                headerFormat.setFont(PrnTextFont.SANS_SERIF);
-                
-                PrnStrFormat subHeaderFormat = new PrnStrFormat();
-                subHeaderFormat.setTextSize(30 );
-                subHeaderFormat.setAli(Layout.Alignment.ALIGN_CENTER);
-                subHeaderFormat.setStyle(PrnTextStyle.BOLD);
-                subHeaderFormat.setFont(PrnTextFont.SANS_SERIF);
-                
-                PrnStrFormat normalFormat = new PrnStrFormat();
-                normalFormat.setTextSize(22);
-                normalFormat.setStyle(PrnTextStyle.NORMAL);
-                normalFormat.setFont(PrnTextFont.MONOSPACE);
-                normalFormat.setAli(Layout.Alignment.ALIGN_NORMAL);
-                
-                PrnStrFormat boldFormat = new PrnStrFormat();
-                boldFormat.setTextSize(26);
-                boldFormat.setStyle(PrnTextStyle.BOLD);
-                boldFormat.setFont(PrnTextFont.MONOSPACE);
-                boldFormat.setAli(Layout.Alignment.ALIGN_NORMAL);
-                
-                PrnStrFormat orderNumberFormat = new PrnStrFormat();
-                orderNumberFormat.setTextSize(40);
-                orderNumberFormat.setAli(Layout.Alignment.ALIGN_CENTER);
-                orderNumberFormat.setStyle(PrnTextStyle.BOLD);
-                orderNumberFormat.setFont(PrnTextFont.SANS_SERIF);
-                
-                PrnStrFormat smallFormat = new PrnStrFormat();
-                smallFormat.setTextSize(20);
-                smallFormat.setStyle(PrnTextStyle.NORMAL);
-                smallFormat.setFont(PrnTextFont.MONOSPACE);
-                smallFormat.setAli(Layout.Alignment.ALIGN_NORMAL);
-                
-                PrnStrFormat mediaFormat = new PrnStrFormat();
-                mediaFormat.setTextSize(25);
-                mediaFormat.setStyle(PrnTextStyle.NORMAL);
-                mediaFormat.setFont(PrnTextFont.MONOSPACE);
-                mediaFormat.setAli(Layout.Alignment.ALIGN_NORMAL);
-                
-                // Print store name
-                String storeName = (String) receiptData.get("storeName");
-                String receiptType = (String) receiptData.get("receiptType");
-                if (storeName != null && !storeName.trim().isEmpty()) {
-                    mPrinter.setPrintAppendString(storeName, headerFormat);
-                } else {
-                    mPrinter.setPrintAppendString("Blankets And Wine", headerFormat);
-                }
-                
-                // Print receipt title
-                mPrinter.setPrintAppendString(receiptType, subHeaderFormat);
-                mPrinter.setPrintAppendString("", normalFormat); // Empty line
-                                                                                                                
-                // Print date and time
-                String date = (String) receiptData.get("date");
-                String time = (String) receiptData.get("time");
-                if ((date != null && !date.trim().isEmpty()) || (time != null && !time.trim().isEmpty())) {
-                    String dateTimeLine = "";
-                    if (date != null && !date.trim().isEmpty()) {
-                        dateTimeLine += "Date: " + date;
-                    }
-                    if (time != null && !time.trim().isEmpty()) {
-                        if (!dateTimeLine.isEmpty()) {
-                            dateTimeLine += ":"; // Add spacing between date and time
-                        }
-                        dateTimeLine +=time;
-                    }
-                    mPrinter.setPrintAppendString(dateTimeLine, normalFormat);
-                }
-                
-                // Print separator
-                String separator = "--------------------------------";
-                mPrinter.setPrintAppendString(separator, normalFormat);
-                
-                // Print column headers
-                mPrinter.setPrintAppendString("ITEM   QTY    KSHS", boldFormat);
-                mPrinter.setPrintAppendString(separator, normalFormat);
-                
-                // Print items
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> items = (List<Map<String, Object>>) receiptData.get("items");
-                if (items != null) {
-                    for (Map<String, Object> item : items) {
-                        String itemName = (String) item.get("name");
-                        String quantity = String.valueOf(item.get("quantity"));
-                        String price = String.valueOf(item.get("price"));
-                        
-                        // Handle null values and truncate long names
-                        if (itemName == null || itemName.trim().isEmpty()) itemName = "Unknown Item";
-                        if (itemName.length() > 15) {
-                            itemName = itemName.substring(0, 12) + "...";
-                        }
-                        
-                        // Format line
-                        String itemLine = String.format("%-15s %3sx %9s", 
-                            itemName, quantity, price);
-                        mPrinter.setPrintAppendString(itemLine, mediaFormat);
-                    }
-                }
-                
-                mPrinter.setPrintAppendString(separator, normalFormat);
-                
-                // Print financial summary
-                String subtotal = (String) receiptData.get("subtotal");
-                String tax = (String) receiptData.get("tax");
-                String total = (String) receiptData.get("total");
-                
-                if (subtotal != null && !subtotal.trim().isEmpty()) {
-                    String subtotalLine = String.format("%-20s %10s", "Subtotal:", "Kshs " + subtotal);
-                    mPrinter.setPrintAppendString(subtotalLine, normalFormat);
-                }
-                
-                if (tax != null && !tax.trim().isEmpty()) {
-                    String taxLine = String.format("%-20s %10s", "Tax:", "Kshs " + tax);
-                    mPrinter.setPrintAppendString(taxLine, normalFormat);
-                }
-                
-                if (total != null && !total.trim().isEmpty()) {
-                    String doubleSeparator = "================================";
-                    mPrinter.setPrintAppendString(doubleSeparator, normalFormat);
-                    
-                    String totalLine = String.format("%-20s %10s", "TOTAL:", "Kshs " + total);
-                    mPrinter.setPrintAppendString(totalLine, boldFormat);
-                    
-                    mPrinter.setPrintAppendString(doubleSeparator, normalFormat);
-                }
-                
-                // Add processing delay
-                Thread.sleep(100);
-                
-                // Print payment method
-                String paymentMethod = (String) receiptData.get("paymentMethod");
-                if (paymentMethod != null && !paymentMethod.trim().isEmpty()) {
-                    mPrinter.setPrintAppendString("", smallFormat);
-                    String paymentLine = String.format("Payment Method: %s", paymentMethod);
-                    mPrinter.setPrintAppendString(paymentLine, smallFormat);
-                }
-                
-                // Footer messages
-                mPrinter.setPrintAppendString("", smallFormat);
-                mPrinter.setPrintAppendString("We are glad you are here", smallFormat);
-                mPrinter.setPrintAppendString("Enjoy responsibly!", smallFormat);
-                
-                // Spacing before QR code
-                mPrinter.setPrintAppendString("", smallFormat);
-                mPrinter.setPrintAppendString("", smallFormat);
-                
-                // Generate order number
-                String orderNumber = (String) receiptData.get("orderNumber");
-                if (orderNumber == null || orderNumber.trim().isEmpty()) {
-                    orderNumber = "ORD-" + String.format("%04d", (int)(Math.random() * 9999) + 1);
-                }
-                
-                final String finalOrderNumber = orderNumber;
-                
-                // Print QR Code
-                Object qrSizeObj = receiptData.get("qrSize");
-                int qrSize = 200; // default size
-                if (qrSizeObj != null) {
-                    if (qrSizeObj instanceof Integer) {
-                        qrSize = (Integer) qrSizeObj;
-                    } else if (qrSizeObj instanceof String) {
-                        try {
-                            qrSize = Integer.parseInt((String) qrSizeObj);
-                        } catch (NumberFormatException e) {
-                            Log.w(TAG, "Invalid QR size, using default: " + qrSizeObj);
-                        }
-                    }
-                }
-                
-                // Add QR code to receipt
-               
-        
-                
-                mPrinter.setPrintAppendQRCode(finalOrderNumber, qrSize, qrSize, Layout.Alignment.ALIGN_CENTER);
-                
-                // Spacing before order number
-                mPrinter.setPrintAppendString("", smallFormat);
-                mPrinter.setPrintAppendString("", smallFormat);
-                
-                // Print order number section
-                String doubleSeparator = "================================";
-                mPrinter.setPrintAppendString(doubleSeparator, smallFormat);
+        final String finalOrderNumber = orderNumber;
         
-                mPrinter.setPrintAppendString(finalOrderNumber, orderNumberFormat);
-                mPrinter.setPrintAppendString(doubleSeparator, smallFormat);
-                
-                // Extra spacing for easy tearing
-                mPrinter.setPrintAppendString("", smallFormat);
-                mPrinter.setPrintAppendString("", smallFormat);
-                mPrinter.setPrintAppendString("", smallFormat);
-                mPrinter.setPrintAppendString("", smallFormat);
-                
-                // Add line feeds for complete printing
-                try {
-                    mPrinter.setPrintAppendString("\n", smallFormat);
-                    mPrinter.setPrintAppendString("\n", smallFormat);
-                } catch (Exception e) {
-                    Log.w(TAG, "Line feeds not supported", e);
-                }
-                
-                // Start printing
-                int result_code = mPrinter.setPrintStart();
-                
-                // Add delay to ensure printing completes
-                Thread.sleep(2000);
-                
-                // Check final printer status
-                int finalStatus = mPrinter.getPrinterStatus();
-                Log.d(TAG, "Final printer status: " + finalStatus);
-                
-                mainHandler.post(() -> {
-                    if (result_code == SdkResult.SDK_OK) {
-                        Map<String, Object> response = new HashMap<>();
-                        response.put("success", true);
-                        response.put("message", "Receipt printed successfully");
-                        response.put("orderNumber", finalOrderNumber);
-                        result.success(response);
-                    } else {
-                        result.error("PRINT_ERROR", "Print failed with code: " + result_code, null);
-                    }
-                });
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to print receipt", e);
-                mainHandler.post(() -> {
-                    result.error("PRINT_ERROR", "Failed to print receipt: " + e.getMessage(), null);
-                });
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Receipt printed successfully");
+        response.put("orderNumber", finalOrderNumber);
+
+        // A sale is recorded once its receipt has printed
+        Result recorded = new Result() {
+            @Override
+            public void success(Object value) {
+                recordSale(receipt, finalOrderNumber);
+                result.success(value);
             }
-        });
+
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                result.error(errorCode, errorMessage, errorDetails);
+            }
+
+            @Override
+            public void notImplemented() {
+                result.notImplemented();
+            }
+        };
+
+        enqueueReceipt("receipt", ReceiptLayout.estimateLines(receipt), target -> {
+            new ReceiptLayout(mPrinter, target, styles, symbols).append(receipt, finalOrderNumber);
+        }, response, "Failed to print receipt", recorded);
+    }
+
+    private void recordSale(ReceiptPayload receipt, String orderNumber) {
+        SalesRollup rollup = salesRollup;
+        if (rollup == null) return;
+        try {
+            rollup.record(orderNumber, receipt.seller, System.currentTimeMillis(),
+                    receipt.totalCents(), receipt.totalQuantity());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to record sale " + orderNumber, e);
+        }
+    }
+
+    // "lines" appends each receipt line to the SDK buffer; "raster" renders
+    // the whole receipt into one 1-bit raster off the print thread
+    private void setReceiptRenderMode(String mode, Result result) {
+        if (!"raster".equals(mode) && !"lines".equals(mode)) {
+            result.error("INVALID_INPUT", "Render mode must be \"lines\" or \"raster\"", null);
+            return;
+        }
+        if ("raster".equals(mode) && rasterPool == null) {
+            result.error("NOT_SUPPORTED", isDeviceInitialized
+                    ? "Raster receipts are not supported on this device"
+                    : "Device must be initialized first", null);
+            return;
+        }
+        rasterReceipts = "raster".equals(mode);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("mode", mode);
+        if (rasterPool != null) {
+            response.put("headWidth", rasterPool.width);
+        }
+        result.success(response);
     }
 
 
@@ -830,323 +1460,381 @@ private void getDeviceInfo(Result result) {
         return;
     }
     
-    executor.execute(() -> {
-        try {
-            int printStatus = mPrinter.getPrinterStatus();
-            if (printStatus == SdkResult.SDK_PRN_STATUS_PAPEROUT) {
-                throw new Exception("Out of paper");
-            }
-            
-            // Create format objects for different text styles
-            PrnStrFormat titleFormat = new PrnStrFormat();
-            titleFormat.setTextSize(45);
-            titleFormat.setAli(Layout.Alignment.ALIGN_CENTER);
-            titleFormat.setStyle(PrnTextStyle.BOLD);
-            titleFormat.setFont(PrnTextFont.SANS_SERIF);
-            
-            PrnStrFormat headerFormat = new PrnStrFormat();
-            headerFormat.setTextSize(35);
-            headerFormat.setAli(Layout.Alignment.ALIGN_CENTER);
-            headerFormat.setStyle(PrnTextStyle.BOLD);
-            headerFormat.setFont(PrnTextFont.SANS_SERIF);
-            
-            PrnStrFormat subHeaderFormat = new PrnStrFormat();
-            subHeaderFormat.setTextSize(28);
-            subHeaderFormat.setAli(Layout.Alignment.ALIGN_NORMAL);
-            subHeaderFormat.setStyle(PrnTextStyle.BOLD);
-            subHeaderFormat.setFont(PrnTextFont.MONOSPACE);
-            
-            PrnStrFormat normalFormat = new PrnStrFormat();
-            normalFormat.setTextSize(22);
-            normalFormat.setStyle(PrnTextStyle.NORMAL);
-            normalFormat.setFont(PrnTextFont.MONOSPACE);
-            normalFormat.setAli(Layout.Alignment.ALIGN_NORMAL);
-            
-            PrnStrFormat smallFormat = new PrnStrFormat();
-            smallFormat.setTextSize(20);
-            smallFormat.setStyle(PrnTextStyle.NORMAL);
-            smallFormat.setFont(PrnTextFont.MONOSPACE);
-            smallFormat.setAli(Layout.Alignment.ALIGN_NORMAL);
-            
-            PrnStrFormat boldFormat = new PrnStrFormat();
-            boldFormat.setTextSize(24);
-            boldFormat.setStyle(PrnTextStyle.BOLD);
-            boldFormat.setFont(PrnTextFont.MONOSPACE);
-            boldFormat.setAli(Layout.Alignment.ALIGN_NORMAL);
-            
-            // Print report header
-            String storeName = (String) reportData.get("storeName");
-            if (storeName != null && !storeName.trim().isEmpty()) {
-                mPrinter.setPrintAppendString(storeName, titleFormat);
-            } else {
-                mPrinter.setPrintAppendString("Blankets And Wine", titleFormat);
-            }
-            
-            // Print report title
-            String reportTitle = (String) reportData.get("reportTitle");
-            if (reportTitle != null && !reportTitle.trim().isEmpty()) {
-                mPrinter.setPrintAppendString(reportTitle, headerFormat);
-            } else {
-                mPrinter.setPrintAppendString("TRANSACTION REPORT", headerFormat);
-            }
-            
-            mPrinter.setPrintAppendString("", normalFormat); // Empty line
-            
-            // Print date range
-            String dateRange = (String) reportData.get("dateRange");
-            if (dateRange != null && !dateRange.trim().isEmpty()) {
-                mPrinter.setPrintAppendString("Period: " + dateRange, normalFormat);
-            }
-            
-            // Print generation timestamp
-            String generatedAt = (String) reportData.get("generatedAt");
-            if (generatedAt != null && !generatedAt.trim().isEmpty()) {
-                mPrinter.setPrintAppendString("Generated: " + generatedAt, smallFormat);
-            }
-            
-            // Print separator
-            String separator = "================================";
-            mPrinter.setPrintAppendString(separator, normalFormat);
-            
-            // Print summary section
-            String totalTransactions = (String) reportData.get("totalTransactions");
-            String totalSales = (String) reportData.get("totalSales");
-            String averageTransaction = (String) reportData.get("averageTransaction");
-            
-            if (totalTransactions != null || totalSales != null) {
-                mPrinter.setPrintAppendString("SUMMARY", subHeaderFormat);
-                mPrinter.setPrintAppendString("", normalFormat);
-                
-                if (totalTransactions != null) {
-                    String transLine = String.format("%-20s %12s", "Transactions:", totalTransactions);
-                    mPrinter.setPrintAppendString(transLine, normalFormat);
-                }
-                
-                if (totalSales != null) {
-                    String salesLine = String.format("%-20s %12s", "Total Sales:", "Kshs " + totalSales);
-                    mPrinter.setPrintAppendString(salesLine, boldFormat);
-                }
-                
-                if (averageTransaction != null) {
-                    String avgLine = String.format("%-20s %12s", "Average Sale:", "Kshs " + averageTransaction);
-                    mPrinter.setPrintAppendString(avgLine, normalFormat);
-                }
-                
-                mPrinter.setPrintAppendString(separator, normalFormat);
-            }
-            
-            // Print transactions list
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> transactions = (List<Map<String, Object>>) reportData.get("transactions");
-            
-            if (transactions != null && !transactions.isEmpty()) {
-                mPrinter.setPrintAppendString("TRANSACTIONS", subHeaderFormat);
-                mPrinter.setPrintAppendString("", normalFormat);
-                
-                // Column headers
-                mPrinter.setPrintAppendString("DATE/TIME    SELLER      AMOUNT", boldFormat);
-                String thinSeparator = "--------------------------------";
-                mPrinter.setPrintAppendString(thinSeparator, normalFormat);
-                
-                for (Map<String, Object> transaction : transactions) {
-                    String dateTime = (String) transaction.get("dateTime");
-                    String seller = (String) transaction.get("seller");
-                    String amount = (String) transaction.get("amount");
-                    String id = (String) transaction.get("id");
-                    
-                    // Handle null values and format
-                    if (dateTime == null) dateTime = "N/A";
-                    if (seller == null) seller = "Unknown";
-                    if (amount == null) amount = "0.00";
-                    
-                    // Truncate long seller names
-                    if (seller.length() > 10) {
-                        seller = seller.substring(0, 8) + "..";
-                    }
-                    
-                    // Format transaction line
-                    if (dateTime.length() > 12) {
-                        dateTime = dateTime.substring(0, 12);
-                    }
-                    
-                    String transactionLine = String.format("%-12s %-10s %8s", 
-                        dateTime, seller, "Kshs " + amount);
-                    mPrinter.setPrintAppendString(transactionLine, smallFormat);
-                    
-                    // Print transaction ID on next line if available
-                    if (id != null && !id.trim().isEmpty()) {
-                        String idLine = String.format("  ID: %s", id);
-                        mPrinter.setPrintAppendString(idLine, smallFormat);
-                    }
-                    
-                    mPrinter.setPrintAppendString("", smallFormat); // Small gap between transactions
-                }
-                
-                mPrinter.setPrintAppendString(separator, normalFormat);
-            }
-            
-            // Print seller breakdown if available
-            @SuppressWarnings("unchecked")
-            Map<String, Object> sellerBreakdown = (Map<String, Object>) reportData.get("sellerBreakdown");
-            
-            if (sellerBreakdown != null && !sellerBreakdown.isEmpty()) {
-                mPrinter.setPrintAppendString("SELLER BREAKDOWN", subHeaderFormat);
-                mPrinter.setPrintAppendString("", normalFormat);
-                
-                mPrinter.setPrintAppendString("SELLER          SALES      COUNT", boldFormat);
-                String thinSeparator = "--------------------------------";
-                mPrinter.setPrintAppendString(thinSeparator, normalFormat);
-                
-                for (Map.Entry<String, Object> entry : sellerBreakdown.entrySet()) {
-                    String sellerName = entry.getKey();
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> sellerData = (Map<String, Object>) entry.getValue();
-                    
-                    String sales = (String) sellerData.get("totalSales");
-                    String count = (String) sellerData.get("transactionCount");
-                    
-                    if (sellerName.length() > 14) {
-                        sellerName = sellerName.substring(0, 12) + "..";
-                    }
-                    
-                    String sellerLine = String.format("%-14s %8s %7s", 
-                        sellerName, 
-                        sales != null ? "Kshs " + sales : "0", 
-                        count != null ? count : "0");
-                    mPrinter.setPrintAppendString(sellerLine, normalFormat);
-                }
-                
-                mPrinter.setPrintAppendString(separator, normalFormat);
+    Map<String, Object> response = new HashMap<>();
+    response.put("success", true);
+    response.put("message", "Transaction report printed successfully");
+
+    @SuppressWarnings("unchecked")
+    List<Map<String, Object>> reportRows = (List<Map<String, Object>>) reportData.get("transactions");
+    Map<String, Object> layoutData = withShiftTotals(reportData);
+    int estimatedLines = 30 + (reportRows != null ? reportRows.size() * 3 : 0);
+
+    // Reports are long, so they print in their own cycle behind waiting
+    // receipts, and after any report stream already printing
+    ReportStream report = new ReportStream("report-" + reportStreamIds.incrementAndGet(),
+            printQueue, mPrinter, styles, reportGate);
+    report.printWhole(estimatedLines, () -> {
+        ReportLayout layout = new ReportLayout(mPrinter, styles);
+        layout.appendHeader(layoutData);
+
+        // Print transactions list
+        if (reportRows != null && !reportRows.isEmpty()) {
+            layout.appendTransactionsHeader();
+
+            ColumnFormatter columns = ReportLayout.transactionColumns();
+            String[] lines = new String[ReportLayout.MAX_LINES_PER_TRANSACTION];
+            for (Map<String, Object> transaction : reportRows) {
+                int count = ReportLayout.formatTransaction(columns, transaction, lines, 0);
+                layout.appendTransactionLines(lines, count);
             }
-            
-            // Print footer information
-            String generatedBy = (String) reportData.get("generatedBy");
-            if (generatedBy != null && !generatedBy.trim().isEmpty()) {
-                mPrinter.setPrintAppendString("", normalFormat);
-                mPrinter.setPrintAppendString("Generated by: " + generatedBy, smallFormat);
+
+            layout.appendSectionEnd();
+        }
+
+        layout.appendFooter(layoutData);
+    }, replyWhenPrinted(response, "Failed to print report", result, null));
+}
+
+    // With "useShiftTotals", the totals and seller breakdown come from the
+    // running shift totals instead of being summed in Dart and sent in
+    private Map<String, Object> withShiftTotals(Map<String, Object> reportData) {
+        SalesRollup rollup = salesRollup;
+        if (!Boolean.TRUE.equals(reportData.get("useShiftTotals")) || rollup == null) {
+            return reportData;
+        }
+        Map<String, Object> totals = rollup.summary();
+        Map<String, Object> report = new HashMap<>(reportData);
+        for (String key : SHIFT_REPORT_FIELDS) {
+            report.put(key, totals.get(key));
+        }
+        return report;
+    }
+
+    private void getSalesSummary(boolean closeShift, Result result) {
+        SalesRollup rollup = salesRollup;
+        if (rollup == null) {
+            result.error("LEDGER_ERROR", "Sales ledger is not available", null);
+            return;
+        }
+        if (!closeShift) {
+            Map<String, Object> response = rollup.summary();
+            response.put("success", true);
+            result.success(response);
+            return;
+        }
+        // Closing writes the new shift's checkpoint, so it runs on the disk thread
+        spoolExecutor.execute(() -> {
+            try {
+                Map<String, Object> response = rollup.closeShift();
+                response.put("success", true);
+                response.put("message", "Shift closed");
+                mainHandler.post(() -> result.success(response));
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to close shift", e);
+                mainHandler.post(() -> {
+                    result.error("LEDGER_ERROR", "Failed to close shift: " + e.getMessage(), null);
+                });
             }
-            
-            mPrinter.setPrintAppendString("", normalFormat);
-            mPrinter.setPrintAppendString("*** END OF REPORT ***", smallFormat);
-            
-            // Extra spacing for easy handling
-            mPrinter.setPrintAppendString("", normalFormat);
-            mPrinter.setPrintAppendString("", normalFormat);
-            mPrinter.setPrintAppendString("", normalFormat);
-            
-            // Add line feeds for complete printing
+        });
+    }
+
+    // Streaming report: header now, rows in pages, footer at the end
+    private void beginReportStream(Map<String, Object> reportData, Result result) {
+        if (!checkDeviceReady(result)) return;
+
+        if (reportData == null) {
+            result.error("INVALID_INPUT", "Report data cannot be null", null);
+            return;
+        }
+
+        String streamId = "report-" + reportStreamIds.incrementAndGet();
+        ReportStream stream = new ReportStream(streamId, printQueue, mPrinter, styles, reportGate);
+        reportStreams.put(streamId, stream);
+        stream.begin(reportData);
+        scheduleReportExpiry();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Report stream started");
+        response.put("streamId", streamId);
+        response.put("chunkSize", ReportStream.CHUNK_TRANSACTIONS);
+        result.success(response);
+    }
+
+    private void appendReportRows(String streamId, List<Map<String, Object>> rows, Result result) {
+        ReportStream stream = streamId != null ? reportStreams.get(streamId) : null;
+        if (stream == null) {
+            result.error("INVALID_INPUT", "Unknown report stream: " + streamId, null);
+            return;
+        }
+        if (rows == null || rows.isEmpty()) {
+            result.error("INVALID_INPUT", "Rows cannot be null or empty", null);
+            return;
+        }
+
+        // Replies once the page is formatted and queued, which paces Dart
+        // to the printer when all chunk buffers are in flight
+        stream.execute(() -> {
             try {
-                mPrinter.setPrintAppendString("\n", smallFormat);
-                mPrinter.setPrintAppendString("\n", smallFormat);
+                stream.addRows(rows);
+                long accepted = stream.rowCount();
+
+                mainHandler.post(() -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("streamId", streamId);
+                    response.put("rowsAccepted", accepted);
+                    result.success(response);
+                });
             } catch (Exception e) {
-                Log.w(TAG, "Line feeds not supported", e);
+                Log.e(TAG, "Failed to append report rows", e);
+                reportStreams.remove(streamId);
+                stream.abandon(e);
+                mainHandler.post(() -> {
+                    result.error("REPORT_ERROR", "Failed to append report rows: " + e.getMessage(), null);
+                });
             }
-            
-            // Start printing
-            int result_code = mPrinter.setPrintStart();
-            
-            // Add delay to ensure printing completes
-            Thread.sleep(2000);
-            
-            // Check final printer status
-            int finalStatus = mPrinter.getPrinterStatus();
-            Log.d(TAG, "Final printer status: " + finalStatus);
-            
-            mainHandler.post(() -> {
-                if (result_code == SdkResult.SDK_OK) {
+        });
+    }
+
+    private void appendReportPage(ReportPage page, Result result) {
+        ReportStream stream = page.streamId != null ? reportStreams.get(page.streamId) : null;
+        if (stream == null) {
+            result.error("INVALID_INPUT", "Unknown report stream: " + page.streamId, null);
+            return;
+        }
+
+        stream.execute(() -> {
+            try {
+                stream.addPage(page);
+                long accepted = stream.rowCount();
+
+                mainHandler.post(() -> {
                     Map<String, Object> response = new HashMap<>();
                     response.put("success", true);
-                    response.put("message", "Transaction report printed successfully");
+                    response.put("streamId", page.streamId);
+                    response.put("rowsAccepted", accepted);
                     result.success(response);
-                } else {
-                    result.error("PRINT_ERROR", "Print failed with code: " + result_code, null);
-                }
-            });
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to print transaction report", e);
-            mainHandler.post(() -> {
-                result.error("PRINT_ERROR", "Failed to print report: " + e.getMessage(), null);
-            });
-        }
-    });
-}
+                });
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to append report rows", e);
+                reportStreams.remove(page.streamId);
+                stream.abandon(e);
+                mainHandler.post(() -> {
+                    result.error("REPORT_ERROR", "Failed to append report rows: " + e.getMessage(), null);
+                });
+            }
+        });
+    }
 
-    private void printQRCode(String data, int size, Result result) {
-        if (!checkDeviceReady(result)) return;
-        
-        if (data == null || data.trim().isEmpty()) {
-            result.error("INVALID_INPUT", "QR code data cannot be null or empty", null);
+    private void endReportStream(String streamId, Map<String, Object> reportData, Result result) {
+        ReportStream stream = streamId != null ? reportStreams.remove(streamId) : null;
+        if (stream == null) {
+            result.error("INVALID_INPUT", "Unknown report stream: " + streamId, null);
             return;
         }
-        
-        executor.execute(() -> {
+
+        Map<String, Object> footerData = reportData != null ? reportData : new HashMap<>();
+        stream.execute(() -> {
             try {
-                int printStatus = mPrinter.getPrinterStatus();
-                if (printStatus == SdkResult.SDK_PRN_STATUS_PAPEROUT) {
-                    throw new Exception("Out of paper");
-                }
-                
-                // Validate QR size
-                int validSize = Math.max(100, Math.min(size, 600)); // Clamp between 100-600
-                
-                mPrinter.setPrintAppendQRCode(data, validSize, validSize, Layout.Alignment.ALIGN_CENTER);
-                int result_code = mPrinter.setPrintStart();
-                
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("message", "Transaction report printed successfully");
+                stream.finish(footerData, replyWhenReportPrinted(stream, response, result));
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to finish report stream", e);
+                stream.abandon(e);
                 mainHandler.post(() -> {
-                    if (result_code == SdkResult.SDK_OK) {
-                        Map<String, Object> response = new HashMap<>();
-                        response.put("success", true);
-                        response.put("message", "QR Code printed successfully");
-                        response.put("size", validSize);
+                    result.error("REPORT_ERROR", "Failed to finish report: " + e.getMessage(), null);
+                });
+            }
+        });
+    }
+
+    private void scheduleReportExpiry() {
+        if (!reportExpiryScheduled) {
+            reportExpiryScheduled = true;
+            mainHandler.postDelayed(this::expireReportStreams, REPORT_STREAM_IDLE_MILLIS);
+        }
+    }
+
+    private void expireReportStreams() {
+        reportExpiryScheduled = false;
+        for (Map.Entry<String, ReportStream> entry : reportStreams.entrySet()) {
+            ReportStream stream = entry.getValue();
+            if (stream.idleMillis() >= REPORT_STREAM_IDLE_MILLIS && reportStreams.remove(entry.getKey(), stream)) {
+                Log.w(TAG, "Dropping report stream " + entry.getKey() + ", idle since its last page");
+                stream.abandon(new Exception("Report stream was left unfinished"));
+            }
+        }
+        if (!reportStreams.isEmpty()) {
+            scheduleReportExpiry();
+        }
+    }
+
+    private PrintJob.Callback replyWhenReportPrinted(ReportStream stream, Map<String, Object> response,
+                                                     Result result) {
+        return new PrintJob.Callback() {
+            @Override
+            public void onPrinted(int resultCode) {
+                mainHandler.post(() -> {
+                    if (resultCode == SdkResult.SDK_OK) {
+                        response.put("rowsPrinted", stream.rowCount());
                         result.success(response);
                     } else {
-                        result.error("PRINT_ERROR", "Print failed with code: " + result_code, null);
+                        result.error("PRINT_ERROR", "Print failed with code: " + resultCode, null);
                     }
                 });
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to print QR code", e);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                Log.e(TAG, "Failed to print report footer", e);
                 mainHandler.post(() -> {
-                    result.error("PRINT_ERROR", "Failed to print QR code: " + e.getMessage(), null);
+                    result.error("PRINT_ERROR", "Failed to print report: " + e.getMessage(), null);
                 });
             }
-        });
+        };
     }
-  private void printBarcode(String data, Result result) {
+
+    // Sales from the ledger with from <= time < to (epoch ms, both optional),
+    // printed as a streamed report; nothing crosses the channel but options
+    private void printLedgerReport(Number from, Number to, Map<String, Object> reportData, Result result) {
         if (!checkDeviceReady(result)) return;
-        
-        executor.execute(() -> {
+
+        SalesLedger ledger = salesLedger;
+        if (ledger == null) {
+            result.error("LEDGER_ERROR", "Sales ledger is not available", null);
+            return;
+        }
+        long start = from != null ? from.longValue() : 0;
+        long end = to != null ? to.longValue() : Long.MAX_VALUE;
+        if (end <= start) {
+            result.error("INVALID_INPUT", "Report period is empty", null);
+            return;
+        }
+
+        reportFormatter.execute(() -> {
             try {
-                int printStatus = mPrinter.getPrinterStatus();
-                if (printStatus == SdkResult.SDK_PRN_STATUS_PAPEROUT) {
-                    throw new Exception("Out of paper");
+                SalesLedger.Snapshot snapshot = ledger.snapshot();
+                SalesLedger.Summary summary = snapshot.summarize(start, end);
+                SimpleDateFormat dateTime = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.US);
+
+                Map<String, Object> header = reportData != null ? new HashMap<>(reportData) : new HashMap<>();
+                if (header.get("reportTitle") == null) {
+                    header.put("reportTitle", "SALES REPORT");
                 }
-                
-                mPrinter.setPrintAppendBarCode(context, data, 360, 100, true, 
-                    Layout.Alignment.ALIGN_CENTER, BarcodeFormat.CODE_128);
-                int result_code = mPrinter.setPrintStart();
-                
-                mainHandler.post(() -> {
-                    if (result_code == SdkResult.SDK_OK) {
+                header.put("dateRange", (from != null ? dateTime.format(new Date(start)) : "Start")
+                        + " - " + (to != null ? dateTime.format(new Date(end)) : "Now"));
+                header.put("generatedAt", dateTime.format(new Date()));
+                header.put("totalTransactions", String.valueOf(summary.sales));
+                header.put("totalSales", PayloadCodec.formatCents(summary.totalCents));
+                header.put("averageTransaction",
+                        PayloadCodec.formatCents(summary.sales > 0 ? summary.totalCents / summary.sales : 0));
+
+                String streamId = "ledger-" + reportStreamIds.incrementAndGet();
+                ReportStream stream = new ReportStream(streamId, printQueue, mPrinter, styles, reportGate);
+                stream.begin(header);
+
+                // The rows wait for any report already printing
+                stream.execute(() -> {
+                    try {
+                        // Second pass: rows in pages, each formatted into the stream
+                        // before the next is filled, so one page is reused throughout
+                        SimpleDateFormat rowTime = new SimpleDateFormat("dd/MM HH:mm", Locale.US);
+                        long remaining = summary.sales;
+                        ReportPage page = null;
+                        int filled = 0;
+                        for (int i = 0; i < snapshot.count && remaining > 0; i++) {
+                            long timestamp = snapshot.timestamp(i);
+                            if (timestamp < start || timestamp >= end || snapshot.isShiftStart(i)) {
+                                continue;
+                            }
+                            if (page == null || (filled == 0 && page.rowCount > remaining)) {
+                                page = new ReportPage(streamId, (int) Math.min(LEDGER_PAGE_ROWS, remaining));
+                            }
+                            page.dateTimes[filled] = rowTime.format(new Date(timestamp));
+                            page.sellers[filled] = snapshot.seller(i);
+                            page.amountCents[filled] = snapshot.amountCents(i);
+                            page.ids[filled] = snapshot.orderId(i);
+                            remaining--;
+                            if (++filled == page.rowCount) {
+                                stream.addPage(page);
+                                filled = 0;
+                            }
+                        }
+
+                        Map<String, Object> sellerBreakdown = new LinkedHashMap<>();
+                        for (Map.Entry<String, long[]> entry : summary.bySeller.entrySet()) {
+                            Map<String, Object> seller = new HashMap<>();
+                            seller.put("totalSales", PayloadCodec.formatCents(entry.getValue()[0]));
+                            seller.put("transactionCount", String.valueOf(entry.getValue()[1]));
+                            sellerBreakdown.put(entry.getKey() != null ? entry.getKey() : "Unknown", seller);
+                        }
+                        Map<String, Object> footer = new HashMap<>();
+                        footer.put("sellerBreakdown", sellerBreakdown);
+                        footer.put("generatedBy", header.get("generatedBy"));
+
                         Map<String, Object> response = new HashMap<>();
                         response.put("success", true);
-                        response.put("message", "Barcode printed successfully");
-                        result.success(response);
-                    } else {
-                        result.error("PRINT_ERROR", "Print failed with code: " + result_code, null);
+                        response.put("message", "Ledger report printed successfully");
+                        response.put("totalTransactions", summary.sales);
+                        response.put("totalSalesCents", summary.totalCents);
+                        stream.finish(footer, replyWhenReportPrinted(stream, response, result));
+                    } catch (Exception e) {
+                        Log.e(TAG, "Failed to print ledger report", e);
+                        stream.abandon(e);
+                        mainHandler.post(() -> {
+                            result.error("REPORT_ERROR", "Failed to print ledger report: " + e.getMessage(), null);
+                        });
                     }
                 });
-                
             } catch (Exception e) {
-                Log.e(TAG, "Failed to print barcode", e);
+                Log.e(TAG, "Failed to print ledger report", e);
                 mainHandler.post(() -> {
-                    result.error("PRINT_ERROR", "Failed to print barcode: " + e.getMessage(), null);
+                    result.error("REPORT_ERROR", "Failed to print ledger report: " + e.getMessage(), null);
                 });
             }
         });
     }
 
+    private void printQRCode(String data, int size, Result result) {
+        if (!checkDeviceReady(result)) return;
+        
+        if (data == null || data.trim().isEmpty()) {
+            result.error("INVALID_INPUT", "QR code data cannot be null or empty", null);
+            return;
+        }
+        
+        // Validate QR size
+        int validSize = Math.max(100, Math.min(size, 600)); // Clamp between 100-600
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "QR Code printed successfully");
+        response.put("size", validSize);
+
+        enqueuePrint("qrCode", PrintJob.PRIORITY_NORMAL, false, validSize / 24, () -> {
+            symbols.appendQRCode(mPrinter, mPrinter, data, validSize);
+        }, response, "Failed to print QR code", result);
+    }
+  private void printBarcode(String data, Result result) {
+        if (!checkDeviceReady(result)) return;
+
+        if (data == null || data.trim().isEmpty()) {
+            result.error("INVALID_INPUT", "Barcode data cannot be null or empty", null);
+            return;
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Barcode printed successfully");
+
+        enqueuePrint("barcode", PrintJob.PRIORITY_NORMAL, false, 5, () -> {
+            symbols.appendBarCode(mPrinter, mPrinter, data, 360, 100, BarcodeFormat.CODE_128);
+        }, response, "Failed to print barcode", result);
+    }
+
     private void cutPaper(Result result) {
         if (!checkDeviceReady(result)) return;
         
@@ -1155,11 +1843,11 @@ private void getDeviceInfo(Result result) {
             return;
         }
         
-        executor.execute(() -> {
+        printerLane.execute(() -> {
             try {
-                int printStatus = mPrinter.getPrinterStatus();
+                int printStatus = statusMonitor.statusForPrint();
                 if (printStatus == SdkResult.SDK_OK) {
-                    mPrinter.openPrnCutter((byte) 1);
+                    mPrinter.cut();
                     
                     mainHandler.post(() -> {
                         Map<String, Object> response = new HashMap<>();
@@ -1185,20 +1873,18 @@ private void getDeviceInfo(Result result) {
             result.error("DEVICE_NOT_INITIALIZED", "Device must be initialized first", null);
             return;
         }
+
+        // A recent sample answers at once instead of queuing behind print jobs
+        PrinterStatusMonitor monitor = statusMonitor;
+        if (monitor.isFresh(2 * PrinterStatusMonitor.IDLE_INTERVAL_MILLIS)) {
+            result.success(printerStatusResponse(monitor.status()));
+            return;
+        }
         
-        executor.execute(() -> {
+        printerLane.execute(() -> {
             try {
-                int status = mPrinter.getPrinterStatus();
-                String statusMessage = getPrinterStatusMessage(status);
-                
-                mainHandler.post(() -> {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("statusCode", status);
-                    response.put("statusMessage", statusMessage);
-                    response.put("isReady", status == SdkResult.SDK_OK);
-                    response.put("isPaperOut", status == SdkResult.SDK_PRN_STATUS_PAPEROUT);
-                    result.success(response);
-                });
+                int status = monitor.read();
+                mainHandler.post(() -> result.success(printerStatusResponse(status)));
                 
             } catch (Exception e) {
                 Log.e(TAG, "Failed to get printer status", e);
@@ -1209,6 +1895,352 @@ private void getDeviceInfo(Result result) {
         });
     }
 
+    private Map<String, Object> printerStatusResponse(int status) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("statusCode", status);
+        response.put("statusMessage", getPrinterStatusMessage(status));
+        response.put("isReady", status == SdkResult.SDK_OK);
+        response.put("isPaperOut", status == SdkResult.SDK_PRN_STATUS_PAPEROUT);
+        return response;
+    }
+
+    // Runs on whichever thread read the new status
+    private void onPrinterStatusChanged(int previous, int status) {
+        Log.d(TAG, "Printer status: " + getPrinterStatusMessage(status));
+        if (status == SdkResult.SDK_OK && isDeviceOpened) {
+            retryHeldPrints();
+        }
+        if (printerStatusSink == null) {
+            return;
+        }
+        Map<String, Object> event = printerStatusEvent(previous, status);
+        mainHandler.post(() -> {
+            EventChannel.EventSink sink = printerStatusSink;
+            if (sink != null) {
+                sink.success(event);
+            }
+        });
+    }
+
+    private Map<String, Object> printerStatusEvent(int previous, int status) {
+        Map<String, Object> event = printerStatusResponse(status);
+        event.put("event", PrinterStatusMonitor.event(previous, status));
+        if (previous != PrinterStatusMonitor.UNKNOWN) {
+            event.put("previousStatusCode", previous);
+        }
+        return event;
+    }
+
+
+    // Latency histograms per method plus SDK, byte and print job counters
+    private void getMetrics(boolean reset, Result result) {
+        Map<String, Object> snapshot = metrics.snapshot();
+        PrintQueue queue = printQueue;
+        if (queue != null) {
+            snapshot.put("printQueue", queue.stats());
+        }
+        ScanCapture capture = scanCapture;
+        if (capture != null) {
+            snapshot.put("scanLatency", capture.latencySnapshot());
+        }
+        snapshot.put("printSpool", printSpool.stats());
+        LcdRenderer renderer = lcdRenderer;
+        if (renderer != null) {
+            snapshot.put("lcd", renderer.stats());
+        }
+        snapshot.put("lanes", lanes.stats());
+        if (reset) {
+            resetMetrics();
+        }
+        result.success(snapshot);
+    }
+
+    private void resetMetrics() {
+        metrics.reset();
+        lanes.reset();
+        PrintQueue queue = printQueue;
+        if (queue != null) {
+            queue.resetCounters();
+        }
+        ScanCapture capture = scanCapture;
+        if (capture != null) {
+            capture.resetLatency();
+        }
+    }
+
+    // Ring buffer trace of every SDK call; see SdkTrace
+    private void setSdkTrace(boolean enabled, boolean clear, Result result) {
+        if (clear) {
+            metrics.trace.clear();
+        }
+        metrics.trace.setEnabled(enabled);
+        Log.d(TAG, "SDK trace " + (enabled ? "enabled" : "disabled"));
+        result.success(metrics.trace.stats());
+    }
+
+    // Copies the buffer on the platform thread: a stalled print must not hold
+    // up the dump that is meant to explain it
+    private void dumpTrace(String format, boolean clear, Result result) {
+        SdkTrace.Snapshot snapshot = metrics.trace.snapshot();
+        if (clear) {
+            metrics.trace.clear();
+        }
+        if ("binary".equals(format)) {
+            result.success(snapshot.toBinary());
+        } else if (format == null || "chrome".equals(format)) {
+            Map<Long, String> threadNames = new HashMap<>();
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                threadNames.put(thread.getId(), thread.getName());
+            }
+            threadNames.keySet().retainAll(snapshot.threadIds());
+            result.success(snapshot.toChromeJson(threadNames));
+        } else {
+            result.error("INVALID_INPUT", "Unknown trace format: " + format, null);
+        }
+    }
+
+    private void openTicketIndex() {
+        try {
+            ticketIndex = TicketIndex.open(new File(filesDir, TICKET_INDEX_FILE));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to open ticket index", e);
+        }
+    }
+
+    // Builds the new index beside the current one, which keeps answering
+    // until the handover
+    private void loadTickets(String path, String format, boolean keepUsed, Result result) {
+        if (path == null || path.isEmpty()) {
+            result.error("INVALID_INPUT", "Ticket list path is required", null);
+            return;
+        }
+        if (format != null && !"codes".equals(format) && !"hashes".equals(format)) {
+            result.error("INVALID_INPUT", "Unknown ticket list format: " + format, null);
+            return;
+        }
+        stateLane.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                TicketIndex next = TicketIndex.build(new File(path), "hashes".equals(format),
+                        new File(filesDir, TICKET_INDEX_FILE));
+                TicketIndex previous = ticketIndex;
+                if (previous != null) {
+                    previous.retireInto(keepUsed ? next : null);
+                }
+                ticketIndex = next;
+                next.sync();
+                Map<String, Object> response = next.stats();
+                response.put("success", true);
+                response.put("loadMillis", (System.nanoTime() - start) / 1_000_000);
+                Log.d(TAG, "Ticket index loaded: " + response);
+                mainHandler.post(() -> result.success(response));
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to load tickets", e);
+                mainHandler.post(() -> {
+                    result.error("TICKET_ERROR", "Failed to load tickets: " + e.getMessage(), null);
+                });
+            }
+        });
+    }
+
+    private void applyTicketDelta(Number version, List<String> add, List<String> revoke, Result result) {
+        if (version == null) {
+            result.error("INVALID_INPUT", "Delta version is required", null);
+            return;
+        }
+        List<String> added = add != null ? add : Collections.<String>emptyList();
+        List<String> revoked = revoke != null ? revoke : Collections.<String>emptyList();
+        stateLane.execute(() -> {
+            TicketIndex index = ticketIndex;
+            if (index == null) {
+                mainHandler.post(() -> result.success(ticketIndexMissing()));
+                return;
+            }
+            try {
+                boolean applied = index.applyDelta(version.longValue(), added, revoked);
+                index.sync();
+                Map<String, Object> response = index.stats();
+                response.put("success", true);
+                response.put("applied", applied);
+                mainHandler.post(() -> result.success(response));
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to apply ticket delta", e);
+                mainHandler.post(() -> {
+                    result.error("TICKET_ERROR", "Failed to apply ticket delta: " + e.getMessage(), null);
+                });
+            }
+        });
+    }
+
+    // Answered on the calling thread: one probe of the mapped table
+    private void validateTicket(String code, boolean markUsed, Result result) {
+        if (code == null || code.isEmpty()) {
+            result.error("INVALID_INPUT", "Ticket code is required", null);
+            return;
+        }
+        TicketIndex index;
+        int outcome;
+        while (true) {
+            index = ticketIndex;
+            if (index == null) {
+                result.success(ticketIndexMissing());
+                return;
+            }
+            outcome = index.validate(code, markUsed, System.currentTimeMillis());
+            if (outcome != TicketIndex.RETIRED) {
+                break;
+            }
+            // A reload is handing over; the new index is published next
+            Thread.yield();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("result", TicketIndex.outcomeName(outcome));
+        response.put("valid", outcome == TicketIndex.ADMITTED);
+        if (outcome == TicketIndex.ALREADY_USED) {
+            response.put("usedAt", index.usedAtMillis(code));
+        }
+        result.success(response);
+    }
+
+    private void getTicketIndexStats(Result result) {
+        TicketIndex index = ticketIndex;
+        if (index == null) {
+            result.success(ticketIndexMissing());
+            return;
+        }
+        Map<String, Object> response = index.stats();
+        response.put("success", true);
+        result.success(response);
+    }
+
+    private Map<String, Object> ticketIndexMissing() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "No tickets loaded");
+        return response;
+    }
+
+    // Hit/miss counters of the QR and barcode raster cache
+    private void getSymbolCacheStats(boolean reset, Result result) {
+        Map<String, Object> stats = symbols.stats();
+        if (reset) {
+            symbols.resetCounters();
+        }
+        result.success(stats);
+    }
+
+    // Queue print work and report its outcome back to Flutter once the
+    // batch it was coalesced into has been started
+    private void enqueuePrint(String name, int priority, boolean exclusive, int estimatedLines,
+                              PrintJob.Body body, Map<String, Object> response,
+                              String failureMessage, Result result) {
+        printQueue.submit(new PrintJob(name, priority, exclusive, estimatedLines, body,
+                replyWhenPrinted(response, failureMessage, result, null)));
+    }
+
+    // Receipts print per line or, in raster mode, as one pre-rendered raster
+    private void enqueueReceipt(String name, int estimatedLines, PrintTarget.Content content,
+                                Map<String, Object> response, String failureMessage, Result result) {
+        final ReceiptRaster.Pool pool = rasterPool;
+        if (!rasterReceipts || pool == null) {
+            response.put("renderMode", "lines");
+            enqueuePrint(name, PrintJob.PRIORITY_RECEIPT, false, estimatedLines,
+                    () -> content.appendTo(mPrinter), response, failureMessage, result);
+            return;
+        }
+
+        rasterRenderer.execute(() -> {
+            ReceiptRaster raster;
+            try {
+                // Blocks while every raster is still waiting to print
+                raster = pool.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                long started = System.nanoTime();
+                content.appendTo(raster);
+                response.put("renderMode", "raster");
+                response.put("renderMicros", (System.nanoTime() - started) / 1000);
+                response.put("rasterBytes", raster.byteCount());
+            } catch (Exception e) {
+                pool.release(raster);
+                Log.e(TAG, failureMessage, e);
+                mainHandler.post(() -> {
+                    result.error("PRINT_ERROR", failureMessage + ": " + e.getMessage(), null);
+                });
+                return;
+            }
+
+            printQueue.submit(new PrintJob(name, PrintJob.PRIORITY_RECEIPT, estimatedLines,
+                    () -> raster.send(mPrinter),
+                    replyWhenPrinted(response, failureMessage, result, () -> pool.release(raster))));
+        });
+    }
+
+    private PrintJob.Callback replyWhenPrinted(Map<String, Object> response, String failureMessage,
+                                               Result result, Runnable done) {
+        return new PrintJob.Callback() {
+            @Override
+            public void onPrinted(int resultCode) {
+                if (done != null) done.run();
+                mainHandler.post(() -> {
+                    if (resultCode == SdkResult.SDK_OK) {
+                        result.success(response);
+                    } else {
+                        result.error("PRINT_ERROR", "Print failed with code: " + resultCode, null);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (done != null) done.run();
+                Log.e(TAG, failureMessage, e);
+                mainHandler.post(() -> {
+                    result.error("PRINT_ERROR", failureMessage + ": " + e.getMessage(), null);
+                });
+            }
+        };
+    }
+
+    /** Adapts a method channel style response map to a binary channel reply. */
+    private static final class BinaryResult implements Result {
+        private final BasicMessageChannel.Reply<Object> reply;
+        private final String valueKey;
+        private final String countKey;
+
+        BinaryResult(BasicMessageChannel.Reply<Object> reply, String valueKey, String countKey) {
+            this.reply = reply;
+            this.valueKey = valueKey;
+            this.countKey = countKey;
+        }
+
+        @Override
+        public void success(Object result) {
+            Map<?, ?> response = result instanceof Map ? (Map<?, ?>) result : new HashMap<>();
+            Object value = valueKey != null ? response.get(valueKey) : null;
+            Object count = countKey != null ? response.get(countKey) : null;
+            Object message = response.get("message");
+            reply.reply(new PayloadCodec.Reply(true, null,
+                    message != null ? message.toString() : null,
+                    value != null ? value.toString() : null,
+                    count instanceof Number ? ((Number) count).longValue() : 0));
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            reply.reply(new PayloadCodec.Reply(false, errorCode, errorMessage, null, 0));
+        }
+
+        @Override
+        public void notImplemented() {
+            reply.reply(new PayloadCodec.Reply(false, "NOT_IMPLEMENTED", null, null, 0));
+        }
+    }
 
     private boolean checkDeviceReady(Result result) {
         if (!isDeviceInitialized) {
@@ -1237,12 +2269,17 @@ private void getDeviceInfo(Result result) {
  
 private void stopQRScan(Result result) {
     if (!checkDeviceReady(result)) return;
+
+    // Ends a scan still waiting for a code, which frees the scanner lane
+    if (scanCapture != null) {
+        scanCapture.cancel();
+    }
     
-    executor.execute(() -> {
+    scannerLane.execute(() -> {
         try {
             // Power off scanner
-            mHQrsanner.QRScanerPowerCtrl((byte)0);
-            mHQrsanner.QRScanerCtrl((byte)0);
+            mScanner.setPowered(false);
+            mScanner.setEnabled(false);
             
             mainHandler.post(() -> {
                 Map<String, Object> response = new HashMap<>();
@@ -1267,7 +2304,7 @@ private void stopQRScan(Result result) {
 private void scanQRCodeOnce(Result result) {
     if (!checkDeviceReady(result)) return;
     
-    if (mHQrsanner == null) {
+    if (mScanner == null) {
         Map<String, Object> response = new HashMap<>();
         response.put("success", false);
         response.put("message", "QR Scanner not available on this device");
@@ -1277,7 +2314,7 @@ private void scanQRCodeOnce(Result result) {
     }
     
     // Prevent multiple simultaneous scans
-    if (isWaitingForScan) {
+    if (isWaitingForScan || continuousScan != null) {
         Map<String, Object> response = new HashMap<>();
         response.put("success", false);
         response.put("message", "Scanner is already in use");
@@ -1285,135 +2322,152 @@ private void scanQRCodeOnce(Result result) {
         result.success(response);
         return;
     }
+    isWaitingForScan = true;
+    int session = scanCapture.arm();
+    long triggerNanos = System.nanoTime();
     
-    executor.execute(() -> {
+    // Waits for the code on the scanner lane, so print jobs keep going
+    scannerLane.execute(() -> {
+        Map<String, Object> response = new HashMap<>();
         try {
             Log.d(TAG, "Starting QR scan...");
             
-            // Store the result callback
-            pendingScanResult = result;
-            isWaitingForScan = true;
-            
-            // Create EditText to capture scan results
-            mainHandler.post(() -> {
-                scanResultEditText = new EditText(context);
-                scanResultEditText.setOnEditorActionListener((textView, actionId, keyEvent) -> {
-                    if (isWaitingForScan) {
-                        String scannedData = textView.getText().toString().trim();
-                        if (!scannedData.isEmpty()) {
-                            handleScanResult(scannedData);
-                        }
-                    }
-                    return false;
-                });
-                
-                startScanningProcess();
-            });
+            // Power on and activate scanner
+            mScanner.setEnabled(true);
+            mScanner.setPowered(false);
+            SystemClock.sleep(10);
+            mScanner.setPowered(true);
+            SystemClock.sleep(100);
             
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to start QR scan", e);
-            cleanupScan();
-            mainHandler.post(() -> {
-                Map<String, Object> response = new HashMap<>();
+            String scannedData = scanCapture.scanOnce(session, triggerNanos, SCAN_TIMEOUT_MILLIS);
+            long latencyMillis = (System.nanoTime() - triggerNanos) / 1_000_000;
+            if (scannedData != null) {
+                Log.d(TAG, "QR scan result received in " + latencyMillis + " ms: " + scannedData);
+                response.put("success", true);
+                response.put("message", "QR code scanned successfully");
+                response.put("data", scannedData);
+                response.put("latencyMillis", latencyMillis);
+            } else if (scanCapture.lastError() != 0) {
                 response.put("success", false);
-                response.put("message", "Failed to start QR scan: " + e.getMessage());
+                response.put("message", "Scanner error: " + scanCapture.lastError());
                 response.put("data", "");
-                result.success(response);
-            });
+            } else {
+                Log.d(TAG, "QR scan timeout");
+                response.put("success", false);
+                response.put("message", "Scan timeout - no QR code detected");
+                response.put("data", "");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start QR scan", e);
+            response.put("success", false);
+            response.put("message", "Failed to start QR scan: " + e.getMessage());
+            response.put("data", "");
+        } finally {
+            // Immediately close scanner after the scan
+            closeScanner();
+            isWaitingForScan = false;
         }
+        mainHandler.post(() -> result.success(response));
     });
 }
 
-private void startScanningProcess() {
-    try {
-        // Power on and activate scanner
-        mHQrsanner.QRScanerCtrl((byte)1);
-        mHQrsanner.QRScanerPowerCtrl((byte)0);
-        SystemClock.sleep(10);
-        mHQrsanner.QRScanerPowerCtrl((byte)1);
-        SystemClock.sleep(100);
-        
-        // Request focus to capture scan input
-        if (scanResultEditText != null) {
-            scanResultEditText.requestFocus();
-        }
-        
-        // Set timeout for scan operation
-        mainHandler.postDelayed(() -> {
-            if (isWaitingForScan) {
-                handleScanTimeout();
-            }
-        }, 10000);
-        
-        Log.d(TAG, "QR scanner activated, waiting for scan...");
-        
-    } catch (Exception e) {
-        Log.e(TAG, "Failed to start scanning process", e);
-        handleScanError("Failed to activate scanner: " + e.getMessage());
-    }
-}
+// Keeps the scanner powered and streams every new code to the scans channel
+private void startContinuousScan(long dedupeWindowMillis, Result result) {
+    if (!checkDeviceReady(result)) return;
 
-private void handleScanResult(String scannedData) {
-    if (!isWaitingForScan || pendingScanResult == null) {
+    if (mScanner == null) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "QR Scanner not available on this device");
+        result.success(response);
         return;
     }
-    
-    try {
-        Log.d(TAG, "QR scan result received: " + scannedData);
-        
-        // Immediately close scanner after successful scan
-        closeScanner();
-        
-        // Return result to Flutter
+    if (isWaitingForScan || continuousScan != null) {
         Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("message", "QR code scanned successfully");
-        response.put("data", scannedData);
-        
-        pendingScanResult.success(response);
-        cleanupScan();
-        
-    } catch (Exception e) {
-        Log.e(TAG, "Error handling scan result", e);
-        handleScanError("Error processing scan result: " + e.getMessage());
+        response.put("success", false);
+        response.put("message", "Scanner is already in use");
+        result.success(response);
+        return;
     }
+
+    ContinuousScan scan = new ContinuousScan(dedupeWindowMillis, this::onContinuousScan);
+    continuousScan = scan;
+    int session = scanCapture.arm();
+
+    scannerLane.execute(() -> {
+        try {
+            // Power cycled once per session, not once per code
+            mScanner.setEnabled(true);
+            mScanner.setPowered(false);
+            SystemClock.sleep(10);
+            mScanner.setPowered(true);
+            isScannerActive = true;
+            Log.d(TAG, "Continuous scan started, dedupe window " + dedupeWindowMillis + " ms");
+
+            mainHandler.post(() -> {
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("message", "Continuous scan started");
+                result.success(response);
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start continuous scan", e);
+            closeScanner();
+            continuousScan = null;
+            mainHandler.post(() -> {
+                result.error("SCANNER_ERROR", "Failed to start continuous scan: " + e.getMessage(), null);
+            });
+            return;
+        }
+
+        // Occupies the scanner lane until stopContinuousScan cancels it
+        scanCapture.scanContinuously(session, scan);
+    });
 }
 
-private void handleScanTimeout() {
-    Log.d(TAG, "QR scan timeout");
-    closeScanner();
-    
-    if (pendingScanResult != null) {
+private void stopContinuousScan(Result result) {
+    ContinuousScan scan = continuousScan;
+    continuousScan = null;
+    if (scan == null) {
         Map<String, Object> response = new HashMap<>();
-        response.put("success", false);
-        response.put("message", "Scan timeout - no QR code detected");
-        response.put("data", "");
-        
-        pendingScanResult.success(response);
+        response.put("success", true);
+        response.put("message", "Continuous scan not running");
+        result.success(response);
+        return;
     }
-    cleanupScan();
+
+    scanCapture.cancel();
+    scannerLane.execute(() -> {
+        closeScanner();
+        isScannerActive = false;
+        mainHandler.post(() -> {
+            Map<String, Object> response = scan.stats();
+            response.put("success", true);
+            response.put("message", "Continuous scan stopped");
+            result.success(response);
+        });
+    });
 }
 
-private void handleScanError(String errorMessage) {
-    Log.e(TAG, "QR scan error: " + errorMessage);
-    closeScanner();
-    
-    if (pendingScanResult != null) {
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", false);
-        response.put("message", errorMessage);
-        response.put("data", "");
-        
-        pendingScanResult.success(response);
-    }
-    cleanupScan();
+private void onContinuousScan(String code, long timestampMillis, long sequence) {
+    Log.d(TAG, "Continuous scan #" + sequence + ": " + code);
+    Map<String, Object> event = new HashMap<>();
+    event.put("data", code);
+    event.put("timestamp", timestampMillis);
+    event.put("sequence", sequence);
+    mainHandler.post(() -> {
+        EventChannel.EventSink sink = scanSink;
+        if (sink != null) {
+            sink.success(event);
+        }
+    });
 }
 
 private void closeScanner() {
     try {
-        if (mHQrsanner != null) {
-            mHQrsanner.QRScanerCtrl((byte)0);
-            mHQrsanner.QRScanerPowerCtrl((byte)0);
+        if (mScanner != null) {
+            mScanner.setEnabled(false);
+            mScanner.setPowered(false);
         }
         Log.d(TAG, "Scanner closed successfully");
     } catch (Exception e) {
@@ -1421,11 +2475,6 @@ private void closeScanner() {
     }
 }
 
-private void cleanupScan() {
-    isWaitingForScan = false;
-    pendingScanResult = null;
-    scanResultEditText = null;
-}
 // // Add this method to handle successful scan results
 // private void handleScanResult(String scannedData) {
 //     if (!isWaitingForScan || pendingScanResult == null) {
@@ -1436,8 +2485,8 @@ private void cleanupScan() {
 //         Log.d(TAG, "QR scan result received: " + scannedData);
         
 //         // Stop the scanner
-//         mHQrsanner.QRScanerCtrl((byte)0);
-//         mHQrsanner.QRScanerPowerCtrl((byte)0);
+//         mScanner.setEnabled(false);
+//         mScanner.setPowered(false);
         
 //         // Clean up
 //         isWaitingForScan = false;
@@ -1468,8 +2517,8 @@ private void cleanupScan() {
 //         Log.w(TAG, "QR scan timeout");
         
 //         // Stop the scanner
-//         mHQrsanner.QRScanerCtrl((byte)0);
-//         mHQrsanner.QRScanerPowerCtrl((byte)0);
+//         mScanner.setEnabled(false);
+//         mScanner.setPowered(false);
         
 //         // Clean up
 //         isWaitingForScan = false;
@@ -1497,9 +2546,9 @@ private void cleanupScan() {
     
 //     try {
 //         // Stop the scanner
-//         if (mHQrsanner != null) {
-//             mHQrsanner.QRScanerCtrl((byte)0);
-//             mHQrsanner.QRScanerPowerCtrl((byte)0);
+//         if (mScanner != null) {
+//             mScanner.setEnabled(false);
+//             mScanner.setPowered(false);
 //         }
 //     } catch (Exception e) {
 //         Log.w(TAG, "Failed to stop scanner during error handling", e);
@@ -0,0 +1,161 @@
+package com.example.blankets_and_wines;
+
+import java.util.Arrays;
+
+/**
+ * ColumnFormatter - fixed-width text columns for receipt and report lines
+ *
+ * Replaces String.format("%-15s %3sx %9s", ...) on the per-item and per-row
+ * paths. Columns are configured once per layout; each line is then built in
+ * one reused StringBuilder and padded or truncated in place, so a line costs
+ * only its final String instead of a Formatter, a varargs array and the
+ * intermediate substrings and concatenations.
+ *
+ * Columns are separated by one space. As with String.format, a value wider
+ * than its column pushes the rest of the line right unless the column has a
+ * truncation marker. Not thread-safe; each layout or stream owns its own.
+ */
+final class ColumnFormatter {
+
+    private static final char[] SPACES = new char[32];
+
+    static {
+        Arrays.fill(SPACES, ' ');
+    }
+
+    private int count;
+    private int[] widths = new int[4];
+    private boolean[] rightAligned = new boolean[4];
+    private String[] markers = new String[4];
+    private String[] suffixes = new String[4];
+
+    private final StringBuilder line = new StringBuilder(64);
+    private int column;
+
+    // ==================== CONFIGURATION ====================
+
+    ColumnFormatter left(int width) {
+        return column(width, false);
+    }
+
+    ColumnFormatter right(int width) {
+        return column(width, true);
+    }
+
+    /**
+     * Cuts values of the last added column that are wider than it, ending
+     * them with {@code marker} ("" for a plain cut).
+     */
+    ColumnFormatter truncate(String marker) {
+        markers[count - 1] = marker;
+        return this;
+    }
+
+    /** Text printed straight after the last added column, outside its width. */
+    ColumnFormatter then(String suffix) {
+        suffixes[count - 1] = suffix;
+        return this;
+    }
+
+    private ColumnFormatter column(int width, boolean right) {
+        if (count == widths.length) {
+            int size = count * 2;
+            widths = Arrays.copyOf(widths, size);
+            rightAligned = Arrays.copyOf(rightAligned, size);
+            markers = Arrays.copyOf(markers, size);
+            suffixes = Arrays.copyOf(suffixes, size);
+        }
+        widths[count] = width;
+        rightAligned[count] = right;
+        count++;
+        return this;
+    }
+
+    // ==================== LINES ====================
+
+    ColumnFormatter start() {
+        line.setLength(0);
+        column = 0;
+        return this;
+    }
+
+    /** Next column; null prints as "null", like String.format. */
+    ColumnFormatter add(CharSequence value) {
+        int start = beginCell();
+        line.append(value);
+        return endCell(start);
+    }
+
+    /** Next column, with {@code prefix} counted inside the column width. */
+    ColumnFormatter add(String prefix, CharSequence value) {
+        int start = beginCell();
+        line.append(prefix).append(value);
+        return endCell(start);
+    }
+
+    ColumnFormatter add(long value) {
+        int start = beginCell();
+        line.append(value);
+        return endCell(start);
+    }
+
+    /** Next column holding a fixed-point amount, e.g. "Kshs " and 150000 as "Kshs 1500.00". */
+    ColumnFormatter addCents(String prefix, long cents) {
+        int start = beginCell();
+        line.append(prefix);
+        PayloadCodec.appendCents(line, cents);
+        return endCell(start);
+    }
+
+    /** Free text outside any column. */
+    ColumnFormatter text(CharSequence value) {
+        line.append(value);
+        return this;
+    }
+
+    String build() {
+        return line.toString();
+    }
+
+    private int beginCell() {
+        if (column >= count) {
+            throw new IllegalStateException("Only " + count + " columns configured");
+        }
+        if (column > 0) {
+            line.append(' ');
+        }
+        return line.length();
+    }
+
+    private ColumnFormatter endCell(int start) {
+        fit(line, start, widths[column], rightAligned[column], markers[column]);
+        if (suffixes[column] != null) {
+            line.append(suffixes[column]);
+        }
+        column++;
+        return this;
+    }
+
+    /**
+     * Pads or truncates the text from {@code start} to the end of {@code line}
+     * to {@code width} characters. Without a marker, longer text is kept.
+     */
+    static void fit(StringBuilder line, int start, int width, boolean right, String marker) {
+        int length = line.length() - start;
+        if (length > width) {
+            if (marker != null) {
+                // Keep the head and mark the cut
+                line.setLength(start + Math.max(0, width - marker.length()));
+                line.append(marker, 0, Math.min(marker.length(), width));
+            }
+        } else if (right) {
+            for (int pad = width - length; pad > 0; pad -= SPACES.length) {
+                line.insert(start, SPACES, 0, Math.min(pad, SPACES.length));
+            }
+        } else {
+            for (int pad = width - length; pad > 0; pad -= SPACES.length) {
+                line.append(SPACES, 0, Math.min(pad, SPACES.length));
+            }
+        }
+    }
+}
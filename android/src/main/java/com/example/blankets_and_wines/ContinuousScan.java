@@ -0,0 +1,75 @@
+package com.example.blankets_and_wines;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ContinuousScan - one scanning session that stays powered between codes
+ *
+ * Decoded codes are offered as they arrive and passed on with a wall-clock
+ * timestamp and a sequence number. A code read again within the dedupe
+ * window of its last read is suppressed; a ticket held under the scanner
+ * keeps re-reading, so every suppressed read restarts its window.
+ */
+final class ContinuousScan {
+
+    static final long DEFAULT_DEDUPE_WINDOW_MILLIS = 2000;
+
+    interface Sink {
+        void onScan(String code, long timestampMillis, long sequence);
+    }
+
+    private final long windowNanos;
+    private final Sink sink;
+    // Code to nanoTime of its last read, oldest first
+    private final LinkedHashMap<String, Long> recent = new LinkedHashMap<>();
+    private long emitted;
+    private long suppressed;
+
+    ContinuousScan(long dedupeWindowMillis, Sink sink) {
+        this.windowNanos = Math.max(0, dedupeWindowMillis) * 1_000_000;
+        this.sink = sink;
+    }
+
+    /** Returns false if {@code code} was suppressed as a repeat. */
+    boolean offer(String code) {
+        return offer(code, System.nanoTime());
+    }
+
+    boolean offer(String code, long nowNanos) {
+        if (code == null || code.isEmpty()) {
+            return false;
+        }
+        long sequence;
+        synchronized (this) {
+            expire(nowNanos);
+            // Re-insert so the map stays ordered by last read
+            Long last = recent.remove(code);
+            recent.put(code, nowNanos);
+            if (last != null) {
+                suppressed++;
+                return false;
+            }
+            sequence = ++emitted;
+        }
+        sink.onScan(code, System.currentTimeMillis(), sequence);
+        return true;
+    }
+
+    private void expire(long nowNanos) {
+        Iterator<Long> reads = recent.values().iterator();
+        while (reads.hasNext() && nowNanos - reads.next() >= windowNanos) {
+            reads.remove();
+        }
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("emitted", emitted);
+        stats.put("suppressed", suppressed);
+        stats.put("dedupeWindowMillis", windowNanos / 1_000_000);
+        return stats;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.blankets_and_wines;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * DeviceInfo - what getDeviceInfo reports, without SDK calls on the read path
+ *
+ * Capabilities (head width, cutter, scanner) are captured by the printer
+ * startup phase and the identity (serial number, versions) by the sysInfo
+ * phase; neither changes afterwards. The printer status is the only volatile
+ * field and comes from the {@link PrinterStatusMonitor} cache, which is
+ * refreshed on the monitor's own schedule, so a read never waits for a print
+ * that is running.
+ */
+final class DeviceInfo {
+
+    private final Map<String, Object> capabilities;
+    private final Future<Map<String, String>> identity;
+    private final PrinterStatusMonitor statusMonitor;
+
+    DeviceInfo(Map<String, Object> capabilities, Future<Map<String, String>> identity,
+            PrinterStatusMonitor statusMonitor) {
+        this.capabilities = new HashMap<>(capabilities);
+        this.identity = identity;
+        this.statusMonitor = statusMonitor;
+    }
+
+    /** Whether {@link #snapshot()} can run without waiting for the sysInfo phase. */
+    boolean isReady() {
+        return identity.isDone();
+    }
+
+    int printerStatus() {
+        return statusMonitor.status();
+    }
+
+    long statusAgeMillis() {
+        return statusMonitor.ageMillis();
+    }
+
+    /** Identity plus capabilities; blocks until the sysInfo phase is done. */
+    Map<String, Object> snapshot() throws Exception {
+        Map<String, Object> snapshot = new HashMap<>(identity.get());
+        snapshot.putAll(capabilities);
+        return snapshot;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.blankets_and_wines;
+
+import com.zcs.sdk.SdkResult;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * DeviceStartup - phases of initializeDevice, timed
+ *
+ * The system and printer drivers and sdkInit come first since printing
+ * needs them; the display and scanner drivers are looked up alongside.
+ * After a failed sdkInit the terminal is powered on and sdkInit is polled
+ * with backoff until it succeeds, instead of sleeping a fixed second before
+ * one retry. The remaining phases are independent: each is started on its
+ * own thread and used as soon as it completes, so printing is not held up by
+ * reading the device identity.
+ */
+final class DeviceStartup {
+
+    static final String DRIVERS = "drivers";
+    static final String SDK_INIT = "sdkInit";
+    static final String PRINTER = "printer";
+    static final String SYS_INFO = "sysInfo";
+    static final String DISPLAY = "display";
+    static final String SCANNER = "scanner";
+
+    static final long POWER_ON_TIMEOUT_MILLIS = 3000;
+    static final long FIRST_POLL_MILLIS = 20;
+    static final long MAX_POLL_MILLIS = 320;
+
+    // Phase name to duration in nanoseconds, in start order
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private volatile int initAttempts;
+
+    /** Runs {@code phase} on the calling thread. */
+    <T> T run(String name, Callable<T> phase) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return phase.call();
+        } finally {
+            finished(name, System.nanoTime() - start);
+        }
+    }
+
+    /** Starts {@code phase} on {@code executor}; the future completes when it is up. */
+    <T> Future<T> start(String name, Executor executor, Callable<T> phase) {
+        FutureTask<T> task = new FutureTask<>(() -> run(name, phase));
+        executor.execute(task);
+        return task;
+    }
+
+    private synchronized void finished(String name, long nanos) {
+        phases.put(name, nanos);
+    }
+
+    /**
+     * sdkInit, and if that fails, power on and poll sdkInit with doubling
+     * delays until it succeeds or {@code timeoutMillis} have passed.
+     * Returns the last SdkResult.
+     */
+    int initSdk(SystemDevice sys, long timeoutMillis) throws InterruptedException {
+        int attempts = 1;
+        int status = sys.init();
+        if (status != SdkResult.SDK_OK) {
+            sys.powerOn();
+            long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+            long delay = FIRST_POLL_MILLIS;
+            while (status != SdkResult.SDK_OK) {
+                long remaining = (deadline - System.nanoTime()) / 1_000_000;
+                if (remaining <= 0) {
+                    break;
+                }
+                Thread.sleep(Math.min(delay, remaining));
+                delay = Math.min(delay * 2, MAX_POLL_MILLIS);
+                status = sys.init();
+                attempts++;
+            }
+        }
+        initAttempts = attempts;
+        return status;
+    }
+
+    /** Milliseconds per finished phase, plus the sdkInit attempt count. */
+    synchronized Map<String, Object> timings() {
+        Map<String, Object> timings = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            timings.put(phase.getKey(), phase.getValue() / 1_000_000.0);
+        }
+        timings.put("sdkInitAttempts", initAttempts);
+        return timings;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.blankets_and_wines;
+
+import android.content.Context;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Devices - the peripherals the plugin drives
+ *
+ * Created once by a {@link Factory} when the device is initialised: ZCS
+ * hardware in the app, an in-memory fake in JVM tests. Only the system and
+ * printer drivers are looked up by the factory; the display and scanner are
+ * looked up in startup phases of their own, off the printer's path.
+ */
+final class Devices {
+
+    interface Factory {
+        Devices create(Context context) throws Exception;
+    }
+
+    /** The customer display and the thread the vendor expects its calls on. */
+    static final class Display {
+        final LcdDevice lcd;
+        final Executor executor;
+
+        Display(LcdDevice lcd, Executor executor) {
+            this.lcd = lcd;
+            this.executor = executor;
+        }
+    }
+
+    final SystemDevice system;
+    final PrinterDevice printer;
+    final Callable<Display> display;
+    // Finds null when the terminal has no scanner
+    final Callable<ScannerDevice> scanner;
+
+    Devices(SystemDevice system, PrinterDevice printer, Callable<Display> display,
+            Callable<ScannerDevice> scanner) {
+        this.system = system;
+        this.printer = printer;
+        this.display = display;
+        this.scanner = scanner;
+    }
+}
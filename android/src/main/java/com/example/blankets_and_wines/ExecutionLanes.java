@@ -0,0 +1,183 @@
+package com.example.blankets_and_wines;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExecutionLanes - one serial lane per peripheral
+ *
+ * Each piece of hardware gets its own single-thread lane, so calls to one
+ * device stay serialized while a long print no longer holds up the scanner,
+ * the display or a system query:
+ * <pre>
+ *   printer  print jobs, cut, status reads
+ *   scanner  scans, power on / off
+ *   lcd      the vendor's display thread, adopted rather than owned
+ *   system   identity reads, order numbers
+ *   state    work that makes no SDK call, such as the ticket index
+ * </pre>
+ * Every lane counts its queue depth (tasks waiting, now and at most), how
+ * long tasks wait before they start and how long they run.
+ */
+final class ExecutionLanes {
+
+    static final String PRINTER = "printer";
+    static final String SCANNER = "scanner";
+    static final String LCD = "lcd";
+    static final String SYSTEM = "system";
+    static final String STATE = "state";
+
+    private final PluginMetrics metrics;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    ExecutionLanes(PluginMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Starts a lane on its own thread. */
+    Lane open(String name) {
+        ExecutorService thread = metrics.newSingleThreadExecutor();
+        Lane lane = new Lane(name, thread, thread);
+        lanes.put(name, lane);
+        return lane;
+    }
+
+    /**
+     * A lane over a serial executor owned by someone else; shutting the lane
+     * down only stops it taking work. Replaces an earlier lane of that name.
+     */
+    Lane adopt(String name, Executor executor) {
+        Lane lane = new Lane(name, executor, null);
+        Lane previous = lanes.put(name, lane);
+        if (previous != null) {
+            previous.shutdown();
+        }
+        return lane;
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (Lane lane : lanes.values()) {
+            stats.put(lane.name, lane.stats());
+        }
+        return stats;
+    }
+
+    void reset() {
+        for (Lane lane : lanes.values()) {
+            lane.reset();
+        }
+    }
+
+    static final class Lane extends AbstractExecutorService {
+        final String name;
+        private final Executor target;
+        // Null when the thread belongs to someone else
+        private final ExecutorService owned;
+        private volatile boolean shutdown;
+
+        // Submitted but not started
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private final AtomicLong completed = new AtomicLong();
+        private final LatencyHistogram wait = new LatencyHistogram();
+        private final LatencyHistogram run = new LatencyHistogram();
+
+        Lane(String name, Executor target, ExecutorService owned) {
+            this.name = name;
+            this.target = target;
+            this.owned = owned;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Lane " + name + " is shut down");
+            }
+            long submitted = System.nanoTime();
+            int waiting = depth.incrementAndGet();
+            int max;
+            while (waiting > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, waiting)) {
+                // Another submitter raised it first; compare again
+            }
+            try {
+                target.execute(() -> {
+                    long started = System.nanoTime();
+                    depth.decrementAndGet();
+                    wait.record(started - submitted);
+                    try {
+                        task.run();
+                    } finally {
+                        run.record(System.nanoTime() - started);
+                        completed.incrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                depth.decrementAndGet();
+                throw e;
+            }
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("queueDepth", depth.get());
+            stats.put("maxQueueDepth", maxDepth.get());
+            stats.put("completed", completed.get());
+            stats.put("wait", wait.snapshot());
+            stats.put("run", run.snapshot());
+            return stats;
+        }
+
+        void reset() {
+            maxDepth.set(depth.get());
+            completed.set(0);
+            wait.reset();
+            run.reset();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+            if (owned != null) {
+                owned.shutdown();
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            if (owned != null) {
+                List<Runnable> dropped = owned.shutdownNow();
+                depth.addAndGet(-dropped.size());
+                return dropped;
+            }
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return owned != null ? owned.isTerminated() : shutdown && depth.get() == 0;
+        }
+
+        /** For an adopted lane this does not wait; it only reports whether work is left. */
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return owned != null ? owned.awaitTermination(timeout, unit) : isTerminated();
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.blankets_and_wines;
+
+import android.graphics.Bitmap;
+
+import com.google.zxing.BarcodeFormat;
+
+/**
+ * InstrumentedDevices - wraps each peripheral so every SDK call is timed
+ *
+ * Call durations go to {@link PluginMetrics} against the method being served
+ * (and to its {@link SdkTrace} with the call's return code), and printed
+ * text, bitmaps and rasters are counted as bytes printed. The wrappers add
+ * no behaviour of their own.
+ */
+final class InstrumentedDevices {
+
+    private InstrumentedDevices() {
+    }
+
+    static Devices wrap(Devices devices, PluginMetrics metrics) {
+        return new Devices(
+                new TimedSystem(devices.system, metrics),
+                new TimedPrinter(devices.printer, metrics),
+                () -> {
+                    Devices.Display display = devices.display.call();
+                    return new Devices.Display(new TimedLcd(display.lcd, metrics), display.executor);
+                },
+                () -> {
+                    ScannerDevice scanner = devices.scanner.call();
+                    return scanner != null ? new TimedScanner(scanner, metrics) : null;
+                });
+    }
+
+    static final class TimedSystem implements SystemDevice {
+        private final SystemDevice delegate;
+        private final PluginMetrics metrics;
+
+        TimedSystem(SystemDevice delegate, PluginMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public int init() {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                code = delegate.init();
+                return code;
+            } finally {
+                metrics.sdkCall(SdkTrace.SDK_INIT, start, code);
+            }
+        }
+
+        @Override
+        public int powerOn() {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                code = delegate.powerOn();
+                return code;
+            } finally {
+                metrics.sdkCall(SdkTrace.SYS_POWER_ON, start, code);
+            }
+        }
+
+        @Override
+        public String serialNumber() {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                String value = delegate.serialNumber();
+                code = SdkTrace.codeOf(value);
+                return value;
+            } finally {
+                metrics.sdkCall(SdkTrace.GET_SN, start, code);
+            }
+        }
+
+        @Override
+        public String firmwareVersion() {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                String value = delegate.firmwareVersion();
+                code = SdkTrace.codeOf(value);
+                return value;
+            } finally {
+                metrics.sdkCall(SdkTrace.GET_FIRMWARE_VER, start, code);
+            }
+        }
+
+        @Override
+        public String baseSdkVersion() {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                String value = delegate.baseSdkVersion();
+                code = SdkTrace.codeOf(value);
+                return value;
+            } finally {
+                metrics.sdkCall(SdkTrace.GET_BASE_SDK_VER, start, code);
+            }
+        }
+
+        @Override
+        public String sdkVersion() {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                String value = delegate.sdkVersion();
+                code = SdkTrace.codeOf(value);
+                return value;
+            } finally {
+                metrics.sdkCall(SdkTrace.GET_SDK_VERSION, start, code);
+            }
+        }
+    }
+
+    static final class TimedPrinter implements PrinterDevice {
+        private final PrinterDevice delegate;
+        private final PluginMetrics metrics;
+
+        TimedPrinter(PrinterDevice delegate, PluginMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void appendString(String text, PrintStyle style) {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                delegate.appendString(text, style);
+                code = SdkTrace.CODE_OK;
+            } finally {
+                metrics.sdkCall(SdkTrace.PRINT_APPEND_STRING, start, code);
+            }
+            metrics.addBytesPrinted(text != null ? text.length() : 0);
+        }
+
+        @Override
+        public void appendBitmap(Bitmap bitmap, PrintStyle.Align align) {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                delegate.appendBitmap(bitmap, align);
+                code = SdkTrace.CODE_OK;
+            } finally {
+                metrics.sdkCall(SdkTrace.PRINT_APPEND_BITMAP, start, code);
+            }
+            // As 1-bit rows, the way the head receives it
+            metrics.addBytesPrinted((long) (bitmap.getWidth() + 7) / 8 * bitmap.getHeight());
+        }
+
+        @Override
+        public int getStatus() {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                code = delegate.getStatus();
+                return code;
+            } finally {
+                metrics.sdkCall(SdkTrace.PRINTER_STATUS, start, code);
+            }
+        }
+
+        @Override
+        public int start() {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                code = delegate.start();
+                return code;
+            } finally {
+                metrics.sdkCall(SdkTrace.PRINT_START, start, code);
+            }
+        }
+
+        @Override
+        public long appendCount() {
+            return delegate.appendCount();
+        }
+
+        @Override
+        public int headWidth() {
+            return delegate.headWidth();
+        }
+
+        @Override
+        public boolean supportsRaster() {
+            return delegate.supportsRaster();
+        }
+
+        @Override
+        public int rasterChunkBytes() {
+            return delegate.rasterChunkBytes();
+        }
+
+        @Override
+        public int sendRaster(byte[] rows) {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                code = delegate.sendRaster(rows);
+                return code;
+            } finally {
+                metrics.sdkCall(SdkTrace.PRINT_BITMAP, start, code);
+                metrics.addBytesPrinted(rows.length);
+            }
+        }
+
+        @Override
+        public boolean supportsCutter() {
+            return delegate.supportsCutter();
+        }
+
+        @Override
+        public int cut() {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                code = delegate.cut();
+                return code;
+            } finally {
+                metrics.sdkCall(SdkTrace.PRINT_CUT, start, code);
+            }
+        }
+
+        @Override
+        public Bitmap renderQRCode(String data, int size) {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                Bitmap value = delegate.renderQRCode(data, size);
+                code = SdkTrace.codeOf(value);
+                return value;
+            } finally {
+                metrics.sdkCall(SdkTrace.CREATE_QR_CODE, start, code);
+            }
+        }
+
+        @Override
+        public Bitmap renderBarcode(String data, int width, int height, BarcodeFormat format) {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                Bitmap value = delegate.renderBarcode(data, width, height, format);
+                code = SdkTrace.codeOf(value);
+                return value;
+            } finally {
+                metrics.sdkCall(SdkTrace.CREATE_BARCODE, start, code);
+            }
+        }
+    }
+
+    static final class TimedLcd implements LcdDevice {
+        private final LcdDevice delegate;
+        private final PluginMetrics metrics;
+
+        TimedLcd(LcdDevice delegate, PluginMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public int showText(int x, int y, String text, boolean clear) {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                code = delegate.showText(x, y, text, clear);
+                return code;
+            } finally {
+                metrics.sdkCall(SdkTrace.LCD_SHOW_STRING, start, code);
+            }
+        }
+    }
+
+    static final class TimedScanner implements ScannerDevice {
+        private final ScannerDevice delegate;
+        private final PluginMetrics metrics;
+
+        TimedScanner(ScannerDevice delegate, PluginMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                delegate.setEnabled(enabled);
+                code = SdkTrace.CODE_OK;
+            } finally {
+                metrics.sdkCall(SdkTrace.QR_SCANNER_CTRL, start, code);
+            }
+        }
+
+        @Override
+        public void setPowered(boolean powered) {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                delegate.setPowered(powered);
+                code = SdkTrace.CODE_OK;
+            } finally {
+                metrics.sdkCall(SdkTrace.QR_SCANNER_POWER_CTRL, start, code);
+            }
+        }
+
+        @Override
+        public int startDecoding() {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                code = delegate.startDecoding();
+                return code;
+            } finally {
+                metrics.sdkCall(SdkTrace.QR_START_DECODING, start, code);
+            }
+        }
+
+        @Override
+        public int receive(byte[] buffer, int timeoutMillis) {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                code = delegate.receive(buffer, timeoutMillis);
+                return code;
+            } finally {
+                metrics.sdkCall(SdkTrace.QR_RECEIVE_DATA, start, code);
+            }
+        }
+
+        @Override
+        public int stopDecoding() {
+            long start = System.nanoTime();
+            int code = SdkTrace.CODE_THREW;
+            try {
+                code = delegate.stopDecoding();
+                return code;
+            } finally {
+                metrics.sdkCall(SdkTrace.QR_STOP_DECODING, start, code);
+            }
+        }
+    }
+}
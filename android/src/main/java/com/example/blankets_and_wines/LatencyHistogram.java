@@ -0,0 +1,106 @@
+package com.example.blankets_and_wines;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram - lock-free log-linear histogram of durations in nanoseconds
+ *
+ * Each power of two is split into eight buckets, so a reported percentile is
+ * within 12.5% of the true value. Recording is one bucket increment and a
+ * max update, safe from any thread without locks; a snapshot taken while
+ * other threads record may be off by those in-flight samples.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Samples above ~68 s land in the last bucket
+    private static final int MAX_EXPONENT = 36;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(index(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    static int index(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /** Largest value that falls into the bucket at {@code index}. */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    /** Value at or below which {@code fraction} of the samples fall, in nanoseconds. */
+    long percentile(double fraction) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /** Count plus mean / p50 / p95 / p99 / max in microseconds. */
+    Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new HashMap<>();
+        long total = count.get();
+        snapshot.put("count", total);
+        snapshot.put("meanMicros", total > 0 ? sum.get() / total / 1000.0 : 0.0);
+        snapshot.put("p50Micros", percentile(0.50) / 1000.0);
+        snapshot.put("p95Micros", percentile(0.95) / 1000.0);
+        snapshot.put("p99Micros", percentile(0.99) / 1000.0);
+        snapshot.put("maxMicros", max.get() / 1000.0);
+        return snapshot;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.blankets_and_wines;
+
+/** LcdDevice - the customer-facing display. */
+interface LcdDevice {
+
+    /** Returns an SdkResult code. */
+    int showText(int x, int y, String text, boolean clear);
+}
@@ -0,0 +1,179 @@
+package com.example.blankets_and_wines;
+
+import com.zcs.sdk.SdkResult;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * LcdRenderer - latest-frame-wins render loop for the customer display
+ *
+ * The display only ever needs to show the newest content, so at most one
+ * frame waits to be drawn. A frame submitted while another is waiting
+ * replaces it and the replaced one is reported {@link #SUPERSEDED} without
+ * touching the hardware; a frame identical to what is already on screen is
+ * reported {@link #UNCHANGED}. All lines of a frame are drawn in one pass on
+ * the vendor's display thread, the only hop between the caller and the SDK.
+ */
+final class LcdRenderer {
+
+    static final int SHOWN = 0;
+    static final int UNCHANGED = 1;
+    static final int SUPERSEDED = 2;
+    static final int FAILED = 3;
+
+    interface Callback {
+        /** Called on the display thread; status is the SdkResult of the last line drawn. */
+        void onRendered(int outcome, int status);
+    }
+
+    /** Lines drawn together; only the first clears the display, if asked to. */
+    static final class Frame {
+        final String[] texts;
+        final int[] xs;
+        final int[] ys;
+        final boolean clear;
+
+        Frame(String[] texts, int[] xs, int[] ys, boolean clear) {
+            this.texts = texts;
+            this.xs = xs;
+            this.ys = ys;
+            this.clear = clear;
+        }
+
+        static Frame line(String text, int x, int y, boolean clear) {
+            return new Frame(new String[] {text}, new int[] {x}, new int[] {y}, clear);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Frame)) {
+                return false;
+            }
+            Frame frame = (Frame) other;
+            return clear == frame.clear && Arrays.equals(texts, frame.texts)
+                    && Arrays.equals(xs, frame.xs) && Arrays.equals(ys, frame.ys);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(texts) * 31 + Arrays.hashCode(ys);
+        }
+    }
+
+    private final LcdDevice lcd;
+    private final Executor displayThread;
+
+    // Guarded by this
+    private Frame pending;
+    private Callback pendingCallback;
+    private boolean draining;
+
+    // Only touched on the display thread
+    private Frame shown;
+
+    private long submitted;
+    private long drawn;
+    private long unchanged;
+    private long superseded;
+    private long failed;
+
+    LcdRenderer(LcdDevice lcd, Executor displayThread) {
+        this.lcd = lcd;
+        this.displayThread = displayThread;
+    }
+
+    static String outcomeName(int outcome) {
+        switch (outcome) {
+            case SHOWN: return "shown";
+            case UNCHANGED: return "unchanged";
+            case SUPERSEDED: return "superseded";
+            default: return "failed";
+        }
+    }
+
+    /** Makes {@code frame} the next to draw, replacing any frame still waiting. */
+    void submit(Frame frame, Callback callback) {
+        Callback replaced;
+        boolean start;
+        synchronized (this) {
+            submitted++;
+            replaced = pendingCallback;
+            if (replaced != null) {
+                superseded++;
+            }
+            pending = frame;
+            pendingCallback = callback;
+            start = !draining;
+            draining = true;
+        }
+        if (replaced != null) {
+            replaced.onRendered(SUPERSEDED, SdkResult.SDK_OK);
+        }
+        if (start) {
+            displayThread.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Frame frame;
+            Callback callback;
+            synchronized (this) {
+                frame = pending;
+                callback = pendingCallback;
+                pending = null;
+                pendingCallback = null;
+                if (frame == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            if (frame.equals(shown)) {
+                count(UNCHANGED);
+                callback.onRendered(UNCHANGED, SdkResult.SDK_OK);
+                continue;
+            }
+            int status = draw(frame);
+            int outcome = status == SdkResult.SDK_OK ? SHOWN : FAILED;
+            // After a failure the screen is in an unknown state, so nothing is skipped
+            shown = outcome == SHOWN ? frame : null;
+            count(outcome);
+            callback.onRendered(outcome, status);
+        }
+    }
+
+    private int draw(Frame frame) {
+        int status = SdkResult.SDK_OK;
+        for (int i = 0; i < frame.texts.length && status == SdkResult.SDK_OK; i++) {
+            try {
+                status = lcd.showText(frame.xs[i], frame.ys[i], frame.texts[i], frame.clear && i == 0);
+            } catch (RuntimeException e) {
+                status = SdkTrace.CODE_THREW;
+            }
+        }
+        return status;
+    }
+
+    private synchronized void count(int outcome) {
+        if (outcome == SHOWN) {
+            drawn++;
+        } else if (outcome == UNCHANGED) {
+            unchanged++;
+        } else {
+            failed++;
+        }
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("submitted", submitted);
+        stats.put("drawn", drawn);
+        stats.put("unchanged", unchanged);
+        stats.put("superseded", superseded);
+        stats.put("failed", failed);
+        return stats;
+    }
+}
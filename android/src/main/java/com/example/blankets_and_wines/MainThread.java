@@ -0,0 +1,32 @@
+package com.example.blankets_and_wines;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * MainThread - where results and events are handed back to Dart
+ *
+ * The Android main looper in the app; JVM tests run the posted tasks on
+ * their own thread.
+ */
+interface MainThread {
+
+    void post(Runnable task);
+
+    void postDelayed(Runnable task, long delayMillis);
+
+    /** Posts to the Android main looper. */
+    final class MainLooper implements MainThread {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void post(Runnable task) {
+            handler.post(task);
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            handler.postDelayed(task, delayMillis);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.blankets_and_wines;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OrderNumbers - order numbers unique across terminals and restarts
+ *
+ * A number is "ORD-" + device id + "-" + sequence. The device id is the
+ * serial number, so terminals never collide; the sequence only grows, so a
+ * terminal never repeats itself. Sequences are handed out with one atomic
+ * add and persisted a block at a time: the file holds the end of the
+ * reserved block, and a restart continues from there. Numbers reserved but
+ * not used before a crash are skipped, never reused.
+ *
+ * Only the thread that crosses into a new block writes the file; threads
+ * that reach past the reserved block wait for that write.
+ */
+final class OrderNumbers {
+
+    static final int DEFAULT_BLOCK = 1000;
+
+    private final File file;
+    private final int block;
+    private final String deviceId;
+    private final String prefix;
+    private final AtomicLong next;
+    // End (exclusive) of the block persisted on disk
+    private volatile long reservedUntil;
+
+    /**
+     * @param serialNumber the device serial, or null when unknown; a random
+     *                     id is then made up once and kept in {@code file}
+     */
+    OrderNumbers(String serialNumber, File file, int block) throws IOException {
+        this.file = file;
+        this.block = block;
+        long limit = 0;
+        String storedId = null;
+        if (file.exists()) {
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String line = in.readLine();
+                limit = line != null ? Long.parseLong(line.trim()) : 0;
+                storedId = in.readLine();
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt order sequence: " + file, e);
+            }
+        }
+        this.deviceId = usable(serialNumber) ? serialNumber.trim()
+                : usable(storedId) ? storedId.trim()
+                : UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        this.prefix = "ORD-" + deviceId + "-";
+        this.next = new AtomicLong(limit + 1);
+        this.reservedUntil = limit + 1;
+        reserve(limit + 1);
+    }
+
+    private static boolean usable(String id) {
+        return id != null && !id.trim().isEmpty() && !"Unknown".equals(id);
+    }
+
+    String next() {
+        return format(take(1));
+    }
+
+    /** {@code count} consecutive numbers, reserved at once. */
+    String[] next(int count) {
+        long first = take(count);
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) {
+            numbers[i] = format(first + i);
+        }
+        return numbers;
+    }
+
+    String format(long sequence) {
+        return prefix + sequence;
+    }
+
+    private long take(int count) {
+        long first = next.getAndAdd(count);
+        long end = first + count;
+        if (end > reservedUntil) {
+            extend(end);
+        }
+        return first;
+    }
+
+    private synchronized void extend(long end) {
+        if (end <= reservedUntil) {
+            return;
+        }
+        try {
+            reserve(end);
+        } catch (IOException e) {
+            // Handing out numbers that a restart could repeat is worse than failing
+            throw new IllegalStateException("Could not persist order sequence", e);
+        }
+    }
+
+    // Persists a block that covers every sequence below end
+    private void reserve(long end) throws IOException {
+        long limit = end - 1 + block;
+        File reserving = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(reserving)) {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(limit + "\n" + deviceId + "\n");
+            writer.flush();
+            out.getFD().sync();
+        }
+        if (!reserving.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+        reservedUntil = limit + 1;
+    }
+}
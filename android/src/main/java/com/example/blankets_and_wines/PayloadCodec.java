@@ -0,0 +1,282 @@
+package com.example.blankets_and_wines;
+
+import io.flutter.plugin.common.MessageCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * PayloadCodec - compact binary codec for receipts and report pages
+ *
+ * Used on the "smartpos_plugin/binary" BasicMessageChannel next to the method
+ * channel. Every message starts with a one-byte tag. Integers are unsigned
+ * LEB128 varints, signed values (amounts in cents) are zigzag varints, and
+ * strings are a varint of (byte length + 1) followed by UTF-8, with 0 meaning
+ * null. Fields are read straight from the ByteBuffer in a fixed order, so
+ * there are no maps, boxed numbers or per-field casts.
+ *
+ * Receipt (TAG_RECEIPT):
+ *   storeName, receiptType, date, time, paymentMethod, orderNumber: string
+ *   flags: byte (bit 0 subtotal, bit 1 tax, bit 2 total present)
+ *   subtotal, tax, total: zigzag cents, only when flagged
+ *   qrSize: varint
+ *   itemCount: varint, then per item name: string, quantity: varint, price: zigzag cents
+ *
+ * Report rows (TAG_REPORT_ROWS):
+ *   streamId: string, rowCount: varint,
+ *   then per row dateTime: string, seller: string, amount: zigzag cents, id: string
+ *
+ * Reply (TAG_REPLY), native to Dart:
+ *   success: byte, code: string, message: string, value: string, count: varint
+ *
+ * The Dart side lives in lib/blankets_and_wines_binary_codec.dart and must be
+ * kept in step with this layout.
+ */
+final class PayloadCodec implements MessageCodec<Object> {
+
+    static final String CHANNEL_NAME = "smartpos_plugin/binary";
+
+    static final byte TAG_RECEIPT = 1;
+    static final byte TAG_REPORT_ROWS = 2;
+    static final byte TAG_REPLY = 0x7F;
+
+    private static final int FLAG_SUBTOTAL = 1;
+    private static final int FLAG_TAX = 1 << 1;
+    private static final int FLAG_TOTAL = 1 << 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Reply sent back to Dart for every binary message. */
+    static final class Reply {
+        final boolean success;
+        final String code;
+        final String message;
+        final String value;
+        final long count;
+
+        Reply(boolean success, String code, String message, String value, long count) {
+            this.success = success;
+            this.code = code;
+            this.message = message;
+            this.value = value;
+            this.count = count;
+        }
+    }
+
+    // Scratch for strings that arrive in direct buffers; the codec is only
+    // used on the platform thread
+    private byte[] scratch = new byte[256];
+
+    @Override
+    public ByteBuffer encodeMessage(Object message) {
+        if (message == null) {
+            return null;
+        }
+        if (!(message instanceof Reply)) {
+            throw new IllegalArgumentException("Unsupported message: " + message.getClass().getSimpleName());
+        }
+        Reply reply = (Reply) message;
+        byte[] code = bytes(reply.code);
+        byte[] text = bytes(reply.message);
+        byte[] value = bytes(reply.value);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(2 + stringSize(code) + stringSize(text) + stringSize(value) + 10)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(TAG_REPLY);
+        buffer.put((byte) (reply.success ? 1 : 0));
+        putString(buffer, code);
+        putString(buffer, text);
+        putString(buffer, value);
+        putVarLong(buffer, reply.count);
+        return buffer;
+    }
+
+    @Override
+    public Object decodeMessage(ByteBuffer message) {
+        if (message == null) {
+            return null;
+        }
+        message.order(ByteOrder.LITTLE_ENDIAN);
+        int start = message.position();
+        byte tag = message.get();
+        switch (tag) {
+            case TAG_RECEIPT: {
+                ReceiptPayload receipt = decodeReceipt(message);
+                receipt.encoded = new byte[message.position() - start];
+                ByteBuffer copy = message.duplicate();
+                copy.position(start);
+                copy.get(receipt.encoded);
+                return receipt;
+            }
+            case TAG_REPORT_ROWS:
+                return decodeReportRows(message);
+            default:
+                throw new IllegalArgumentException("Unknown payload tag: " + tag);
+        }
+    }
+
+    private ReceiptPayload decodeReceipt(ByteBuffer in) {
+        ReceiptPayload payload = new ReceiptPayload();
+        payload.storeName = getString(in);
+        payload.receiptType = getString(in);
+        payload.date = getString(in);
+        payload.time = getString(in);
+        payload.paymentMethod = getString(in);
+        payload.orderNumber = getString(in);
+
+        int flags = in.get();
+        if ((flags & FLAG_SUBTOTAL) != 0) payload.subtotal = formatCents(getZigZag(in));
+        if ((flags & FLAG_TAX) != 0) payload.tax = formatCents(getZigZag(in));
+        if ((flags & FLAG_TOTAL) != 0) payload.total = formatCents(getZigZag(in));
+
+        payload.qrSize = (int) getVarLong(in);
+
+        int count = (int) getVarLong(in);
+        payload.ensureItemCapacity(count, true);
+        for (int i = 0; i < count; i++) {
+            payload.itemNames[i] = getString(in);
+            payload.quantities[i] = (int) getVarLong(in);
+            payload.priceCents[i] = getZigZag(in);
+        }
+        // Added after the items; older senders end here
+        if (in.hasRemaining()) {
+            payload.seller = getString(in);
+        }
+        return payload;
+    }
+
+    private ReportPage decodeReportRows(ByteBuffer in) {
+        String streamId = getString(in);
+        int count = (int) getVarLong(in);
+        ReportPage page = new ReportPage(streamId, count);
+        for (int i = 0; i < count; i++) {
+            page.dateTimes[i] = getString(in);
+            page.sellers[i] = getString(in);
+            page.amountCents[i] = getZigZag(in);
+            page.ids[i] = getString(in);
+        }
+        return page;
+    }
+
+    /**
+     * A copy of an encoded receipt with its orderNumber field replaced, so the
+     * number assigned natively is journaled with the receipt.
+     */
+    static byte[] withOrderNumber(byte[] receipt, String orderNumber) {
+        ByteBuffer in = ByteBuffer.wrap(receipt).order(ByteOrder.LITTLE_ENDIAN);
+        in.get();
+        // storeName, receiptType, date, time, paymentMethod
+        for (int i = 0; i < 5; i++) {
+            skipString(in);
+        }
+        int start = in.position();
+        skipString(in);
+        int end = in.position();
+
+        byte[] number = bytes(orderNumber);
+        ByteBuffer out = ByteBuffer.allocate(start + stringSize(number) + receipt.length - end)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        out.put(receipt, 0, start);
+        putString(out, number);
+        out.put(receipt, end, receipt.length - end);
+        byte[] rewritten = new byte[out.position()];
+        System.arraycopy(out.array(), 0, rewritten, 0, rewritten.length);
+        return rewritten;
+    }
+
+    private static void skipString(ByteBuffer in) {
+        int length = (int) getVarLong(in) - 1;
+        if (length > 0) {
+            in.position(in.position() + length);
+        }
+    }
+
+    // ==================== PRIMITIVES ====================
+
+    static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IllegalArgumentException("Malformed varint");
+            }
+        }
+    }
+
+    static long getZigZag(ByteBuffer in) {
+        long raw = getVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private String getString(ByteBuffer in) {
+        int length = (int) getVarLong(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length == 0) {
+            return "";
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        in.get(scratch, 0, length);
+        return new String(scratch, 0, length, UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(UTF_8) : null;
+    }
+
+    private static int stringSize(byte[] utf8) {
+        return 5 + (utf8 != null ? utf8.length : 0);
+    }
+
+    private static void putString(ByteBuffer out, byte[] utf8) {
+        if (utf8 == null) {
+            putVarLong(out, 0);
+            return;
+        }
+        putVarLong(out, utf8.length + 1);
+        out.put(utf8);
+    }
+
+    /** Formats fixed-point cents as "1234.50" (negative amounts keep their sign). */
+    static String formatCents(long cents) {
+        StringBuilder sb = new StringBuilder(12);
+        appendCents(sb, cents);
+        return sb.toString();
+    }
+
+    static void appendCents(StringBuilder out, long cents) {
+        if (cents < 0) {
+            out.append('-');
+            cents = -cents;
+        }
+        out.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.blankets_and_wines;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * PluginMetrics - per-method latency histograms and plugin-wide counters
+ *
+ * For every method channel (and binary channel) call three latencies are kept:
+ * <ul>
+ *   <li>queued: from submission to the plugin executor until the task runs</li>
+ *   <li>sdk: each SDK call made while serving the method</li>
+ *   <li>total: from the call arriving until its result is delivered</li>
+ * </ul>
+ * The method being served is carried in a thread local: set on the platform
+ * thread while onMethodCall runs and handed to executor tasks when they are
+ * submitted. Work a task schedules in turn (a print queue drain) is charged to
+ * the same method, so a coalesced batch counts against whichever call started
+ * the drain.
+ */
+final class PluginMetrics {
+
+    static final class MethodStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LatencyHistogram queued = new LatencyHistogram();
+        final LatencyHistogram sdk = new LatencyHistogram();
+        final LatencyHistogram total = new LatencyHistogram();
+
+        void reset() {
+            calls.reset();
+            errors.reset();
+            queued.reset();
+            sdk.reset();
+            total.reset();
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("calls", calls.sum());
+            snapshot.put("errors", errors.sum());
+            snapshot.put("queued", queued.snapshot());
+            snapshot.put("sdk", sdk.snapshot());
+            snapshot.put("total", total.snapshot());
+            return snapshot;
+        }
+    }
+
+    private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private final ThreadLocal<MethodStats> current = new ThreadLocal<>();
+
+    private final LongAdder sdkCalls = new LongAdder();
+    private final LongAdder bytesPrinted = new LongAdder();
+    private volatile long startedNanos = System.nanoTime();
+
+    // Every SDK call, off until setSdkTrace turns it on
+    final SdkTrace trace = new SdkTrace(SdkTrace.DEFAULT_CAPACITY);
+
+    MethodStats method(String name) {
+        MethodStats stats = methods.get(name);
+        if (stats == null) {
+            stats = methods.computeIfAbsent(name, key -> new MethodStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Marks the start of a call on the current thread and wraps its result
+     * so delivery time and errors are recorded. Pair with {@link #exit()}.
+     */
+    Result enter(String name, Result result) {
+        MethodStats stats = method(name);
+        stats.calls.increment();
+        current.set(stats);
+        return new MeteredResult(result, stats, System.nanoTime());
+    }
+
+    void exit() {
+        current.remove();
+    }
+
+    /**
+     * Carries on serving a call entered earlier on another turn of the thread
+     * without counting it again. Pair with {@link #exit()}.
+     */
+    void resume(String name) {
+        current.set(method(name));
+    }
+
+    /**
+     * Charges an SDK call that started at {@code startNanos} to the current
+     * method, and records it in {@link #trace} while tracing is on.
+     */
+    void sdkCall(int call, long startNanos, int code) {
+        long end = System.nanoTime();
+        sdkCalls.increment();
+        MethodStats stats = current.get();
+        if (stats != null) {
+            stats.sdk.record(end - startNanos);
+        }
+        if (trace.isEnabled()) {
+            trace.record(call, startNanos, end, code);
+        }
+    }
+
+    void addBytesPrinted(long bytes) {
+        bytesPrinted.add(bytes);
+    }
+
+    /** A single-thread executor that records queue time and carries the calling method. */
+    ThreadPoolExecutor newSingleThreadExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable task) {
+                final MethodStats stats = current.get();
+                final long submitted = System.nanoTime();
+                super.execute(() -> {
+                    if (stats != null) {
+                        stats.queued.record(System.nanoTime() - submitted);
+                    }
+                    MethodStats previous = current.get();
+                    current.set(stats);
+                    try {
+                        task.run();
+                    } finally {
+                        current.set(previous);
+                    }
+                });
+            }
+        };
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> perMethod = new HashMap<>();
+        for (Map.Entry<String, MethodStats> entry : methods.entrySet()) {
+            perMethod.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("methods", perMethod);
+        snapshot.put("sdkCalls", sdkCalls.sum());
+        snapshot.put("bytesPrinted", bytesPrinted.sum());
+        snapshot.put("windowMillis", (System.nanoTime() - startedNanos) / 1_000_000);
+        return snapshot;
+    }
+
+    void reset() {
+        for (MethodStats stats : methods.values()) {
+            stats.reset();
+        }
+        sdkCalls.reset();
+        bytesPrinted.reset();
+        startedNanos = System.nanoTime();
+    }
+
+    /** Records total latency when the result is delivered, and errors. */
+    private static final class MeteredResult implements Result {
+        private final Result delegate;
+        private final MethodStats stats;
+        private final long startNanos;
+
+        MeteredResult(Result delegate, MethodStats stats, long startNanos) {
+            this.delegate = delegate;
+            this.stats = stats;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void success(Object result) {
+            stats.total.record(System.nanoTime() - startNanos);
+            delegate.success(result);
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            stats.total.record(System.nanoTime() - startNanos);
+            stats.errors.increment();
+            delegate.error(errorCode, errorMessage, errorDetails);
+        }
+
+        @Override
+        public void notImplemented() {
+            stats.total.record(System.nanoTime() - startNanos);
+            stats.errors.increment();
+            delegate.notImplemented();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.blankets_and_wines;
+
+import android.util.Log;
+
+import com.zcs.sdk.SdkResult;
+
+/**
+ * PrintCompletionDetector - waits for the printer to go idle after start()
+ *
+ * Instead of sleeping a fixed time after every start, the printer status is
+ * polled with a backoff that starts short (a short receipt is done after a
+ * few polls) and widens for long jobs so a report does not hammer the SDK.
+ * The wait is capped by an estimate of the print time derived from the number
+ * of buffered lines, so a printer that never reports idle cannot hang the queue.
+ */
+final class PrintCompletionDetector {
+
+    private static final String TAG = "SmartposPlugin";
+
+    // Thermal head feeds roughly 80 mm/s; a 22pt line is about 3.5 mm
+    private static final long MILLIS_PER_LINE = 45;
+    private static final long MIN_TIMEOUT_MILLIS = 1500;
+    private static final long TIMEOUT_SLACK_MILLIS = 1000;
+
+    private static final long FIRST_POLL_MILLIS = 10;
+    private static final long MAX_POLL_MILLIS = 200;
+
+    private final PrinterStatusMonitor monitor;
+
+    // Polls go through the monitor so its cached status stays current
+    PrintCompletionDetector(PrinterStatusMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /** Estimated time for the head to print the given number of lines. */
+    static long estimateMillis(int lines) {
+        return Math.max(0, lines) * MILLIS_PER_LINE;
+    }
+
+    /**
+     * Blocks until the printer stops reporting SDK_PRN_STATUS_PRINTING or the
+     * estimated print time (plus slack) has passed.
+     *
+     * @return the last status read from the printer
+     */
+    int awaitIdle(int estimatedLines) throws InterruptedException {
+        long start = nowMillis();
+        long deadline = start + Math.max(MIN_TIMEOUT_MILLIS, estimateMillis(estimatedLines) + TIMEOUT_SLACK_MILLIS);
+        long pollMillis = FIRST_POLL_MILLIS;
+        int polls = 0;
+
+        int status = monitor.read();
+        while (status == SdkResult.SDK_PRN_STATUS_PRINTING) {
+            long now = nowMillis();
+            if (now >= deadline) {
+                Log.w(TAG, "Printer still busy after " + (now - start) + " ms, giving up wait");
+                break;
+            }
+            Thread.sleep(Math.min(pollMillis, deadline - now));
+            pollMillis = Math.min(pollMillis * 2, MAX_POLL_MILLIS);
+            polls++;
+            status = monitor.read();
+        }
+
+        Log.d(TAG, "Print finished in " + (nowMillis() - start)
+                + " ms after " + polls + " poll(s), status: " + status);
+        return status;
+    }
+
+    // Monotonic like elapsedRealtime(), but also ticks in JVM tests
+    private static long nowMillis() {
+        return System.nanoTime() / 1_000_000;
+    }
+}
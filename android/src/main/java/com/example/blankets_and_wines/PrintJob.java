@@ -0,0 +1,81 @@
+package com.example.blankets_and_wines;
+
+/**
+ * PrintJob - a single unit of printer work waiting on the {@link PrintQueue}
+ *
+ * A job only appends its content to the printer buffer; the queue owns the
+ * getPrinterStatus() / setPrintStart() cycle so that several waiting jobs can
+ * share one start. Raster jobs instead send content that was rendered ahead
+ * of time and always print on their own. Lower priority values print first,
+ * equal priorities print in submission order.
+ */
+final class PrintJob implements Comparable<PrintJob> {
+
+    // Customer-facing receipts go ahead of everything else
+    static final int PRIORITY_RECEIPT = 0;
+    static final int PRIORITY_NORMAL = 1;
+    static final int PRIORITY_REPORT = 2;
+
+    /** Appends the job's content to the printer buffer. Runs on the print thread. */
+    interface Body {
+        void append() throws Exception;
+    }
+
+    /** Sends pre-rendered content in place of append + setPrintStart(). Runs on the print thread. */
+    interface Raster {
+        int send() throws Exception;
+    }
+
+    /** Completion callback, invoked once on the print thread. */
+    interface Callback {
+        void onPrinted(int resultCode);
+
+        void onFailed(Exception e);
+    }
+
+    final String name;
+    final int priority;
+    final boolean exclusive;
+    final int estimatedLines;
+    final Body body;
+    final Raster raster;
+    final Callback callback;
+
+    // Assigned by the queue to keep FIFO order within a priority
+    long sequence;
+
+    /**
+     * @param exclusive      print in its own setPrintStart cycle instead of being
+     *                       coalesced with other waiting jobs (long reports)
+     * @param estimatedLines rough number of printed lines, used to bound the
+     *                       wait for the printer to finish
+     */
+    PrintJob(String name, int priority, boolean exclusive, int estimatedLines, Body body, Callback callback) {
+        this.name = name;
+        this.priority = priority;
+        this.exclusive = exclusive;
+        this.estimatedLines = estimatedLines;
+        this.body = body;
+        this.raster = null;
+        this.callback = callback;
+    }
+
+    /** A raster job; it is always exclusive. */
+    PrintJob(String name, int priority, int estimatedLines, Raster raster, Callback callback) {
+        this.name = name;
+        this.priority = priority;
+        this.exclusive = true;
+        this.estimatedLines = estimatedLines;
+        this.body = null;
+        this.raster = raster;
+        this.callback = callback;
+    }
+
+    @Override
+    public int compareTo(PrintJob other) {
+        if (priority != other.priority) {
+            return priority < other.priority ? -1 : 1;
+        }
+        return Long.compare(sequence, other.sequence);
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.blankets_and_wines;
+
+import android.util.Log;
+
+import com.zcs.sdk.SdkResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PrintQueue - priority queue of print jobs drained on the plugin executor
+ *
+ * Jobs that are waiting when the printer becomes free are coalesced into one
+ * append / start() run with tear-off spacing between them, so a burst
+ * of receipts pays for a single status check and a single start. The check
+ * is normally answered by the {@link PrinterStatusMonitor} cache. Each drain
+ * task prints one batch and then reschedules itself, which keeps other work on
+ * the executor (status queries, scanner control) from starving during a rush.
+ *
+ * The SDK buffer cannot be cleared, so a job that throws after appending part
+ * of its content ends the batch: its lines are marked void and printed with
+ * the jobs before it, and the jobs after it go back to wait for a clean start.
+ *
+ * Every job hears back exactly once: once the queue is closed, or its
+ * executor stops taking drain tasks, waiting and later jobs fail.
+ */
+final class PrintQueue {
+
+    private static final String TAG = "SmartposPlugin";
+
+    // Upper bound on jobs sharing one start() so the SDK buffer stays small
+    private static final int MAX_BATCH = 8;
+    private static final int TEAR_OFF_LINES = 4;
+    static final String VOID_NOTICE = "*** VOID - PRINT FAILED ***";
+
+    private final ExecutorService executor;
+    private final PrinterDevice printer;
+    private final PriorityBlockingQueue<PrintJob> pending = new PriorityBlockingQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final AtomicLong sequence = new AtomicLong();
+    private final PrinterStatusMonitor statusMonitor;
+    private final PrintCompletionDetector completionDetector;
+    private final PrintStyle spacingStyle;
+    private final PrintStyle voidStyle;
+    // Set once by close(); jobs fail with it from then on
+    private volatile Exception closed;
+
+    private final LongAdder jobsPrinted = new LongAdder();
+    private final LongAdder jobsFailed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    PrintQueue(ExecutorService executor, PrinterDevice printer, StyleRegistry styles) {
+        this(executor, printer, styles, new PrinterStatusMonitor(printer));
+    }
+
+    PrintQueue(ExecutorService executor, PrinterDevice printer, StyleRegistry styles,
+            PrinterStatusMonitor statusMonitor) {
+        this.executor = executor;
+        this.printer = printer;
+        this.statusMonitor = statusMonitor;
+        this.completionDetector = new PrintCompletionDetector(statusMonitor);
+        this.spacingStyle = styles.get(StyleRegistry.SMALL);
+        this.voidStyle = styles.get(StyleRegistry.BOLD);
+    }
+
+    void submit(PrintJob job) {
+        Exception reason = closed;
+        if (reason != null) {
+            fail(job, reason);
+            return;
+        }
+        job.sequence = sequence.getAndIncrement();
+        pending.add(job);
+        if (closed != null) {
+            // Closed while this job was being added
+            failPending(closed);
+            return;
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Fails every waiting job with {@code reason}, and every job submitted
+     * later. A batch already printing still finishes and reports.
+     */
+    void close(Exception reason) {
+        closed = reason;
+        failPending(reason);
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    /** Job and batch counters since the last reset, plus the current backlog. */
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("jobsPrinted", jobsPrinted.sum());
+        stats.put("jobsFailed", jobsFailed.sum());
+        stats.put("batches", batches.sum());
+        stats.put("pending", pending.size());
+        return stats;
+    }
+
+    void resetCounters() {
+        jobsPrinted.reset();
+        jobsFailed.reset();
+        batches.reset();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drainOnce);
+            } catch (RejectedExecutionException e) {
+                // The printer lane was shut down under us; nothing will drain
+                drainScheduled.set(false);
+                close(new Exception("Printer is shut down", e));
+            }
+        }
+    }
+
+    private void failPending(Exception reason) {
+        PrintJob job;
+        while ((job = pending.poll()) != null) {
+            fail(job, reason);
+        }
+    }
+
+    private void drainOnce() {
+        try {
+            Exception reason = closed;
+            if (reason != null) {
+                // Jobs put back by a voided batch after close()
+                failPending(reason);
+                return;
+            }
+            List<PrintJob> batch = takeBatch();
+            if (!batch.isEmpty()) {
+                printBatch(batch);
+            }
+        } finally {
+            drainScheduled.set(false);
+            if (!pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private List<PrintJob> takeBatch() {
+        List<PrintJob> batch = new ArrayList<>();
+        PrintJob head = pending.poll();
+        if (head == null) {
+            return batch;
+        }
+        batch.add(head);
+        if (head.exclusive) {
+            return batch;
+        }
+
+        // Only this thread polls, so a peeked job is still there to take
+        while (batch.size() < MAX_BATCH) {
+            PrintJob next = pending.peek();
+            if (next == null || next.exclusive) {
+                break;
+            }
+            batch.add(pending.poll());
+        }
+        return batch;
+    }
+
+    private void printBatch(List<PrintJob> batch) {
+        int printStatus;
+        try {
+            // Usually the monitor's cached Ready, without an SDK call
+            printStatus = statusMonitor.statusForPrint();
+        } catch (Exception e) {
+            failAll(batch, e);
+            return;
+        }
+        if (printStatus == SdkResult.SDK_PRN_STATUS_PAPEROUT) {
+            failAll(batch, new Exception("Out of paper"));
+            return;
+        }
+
+        // Raster jobs are exclusive, so they always arrive alone
+        if (batch.get(0).raster != null) {
+            printRaster(batch.get(0));
+            return;
+        }
+
+        List<PrintJob> appended = new ArrayList<>(batch.size());
+        int estimatedLines = 0;
+        boolean voided = false;
+        for (int i = 0; i < batch.size(); i++) {
+            PrintJob job = batch.get(i);
+            long appendsBefore = 0;
+            try {
+                if (!appended.isEmpty()) {
+                    appendTearOff();
+                    estimatedLines += TEAR_OFF_LINES;
+                }
+                appendsBefore = printer.appendCount();
+                job.body.append();
+                appended.add(job);
+                estimatedLines += job.estimatedLines;
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to build print job " + job.name, e);
+                fail(job, e);
+                if (printer.appendCount() != appendsBefore) {
+                    voided = true;
+                    requeue(batch.subList(i + 1, batch.size()));
+                    break;
+                }
+            }
+        }
+        if (appended.isEmpty() && !voided) {
+            return;
+        }
+
+        Log.d(TAG, "Printing " + appended.size() + " coalesced job(s)");
+        batches.increment();
+        int resultCode;
+        try {
+            if (voided) {
+                // Flushed now, so the partial job prints marked, after the
+                // jobs before it and with nothing after it
+                printer.appendString(VOID_NOTICE, voidStyle);
+                appendTearOff();
+                estimatedLines += 1 + TEAR_OFF_LINES;
+            }
+            resultCode = printer.start();
+            if (resultCode == SdkResult.SDK_OK) {
+                // Hold the next batch back only as long as the printer is busy
+                completionDetector.awaitIdle(estimatedLines);
+            }
+        } catch (Exception e) {
+            failAll(appended, e);
+            return;
+        }
+
+        for (PrintJob job : appended) {
+            countResult(resultCode);
+            try {
+                job.callback.onPrinted(resultCode);
+            } catch (Exception e) {
+                Log.e(TAG, "Print callback failed for " + job.name, e);
+            }
+        }
+    }
+
+    private void printRaster(PrintJob job) {
+        batches.increment();
+        int resultCode;
+        try {
+            resultCode = job.raster.send();
+            if (resultCode == SdkResult.SDK_OK) {
+                completionDetector.awaitIdle(job.estimatedLines);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to send raster job " + job.name, e);
+            fail(job, e);
+            return;
+        }
+
+        countResult(resultCode);
+        try {
+            job.callback.onPrinted(resultCode);
+        } catch (Exception e) {
+            Log.e(TAG, "Print callback failed for " + job.name, e);
+        }
+    }
+
+    private void countResult(int resultCode) {
+        if (resultCode == SdkResult.SDK_OK) {
+            jobsPrinted.increment();
+        } else {
+            jobsFailed.increment();
+        }
+    }
+
+    // Back in the queue with their original sequence, ahead of later arrivals
+    private void requeue(List<PrintJob> jobs) {
+        pending.addAll(jobs);
+    }
+
+    private void appendTearOff() {
+        for (int i = 0; i < TEAR_OFF_LINES; i++) {
+            printer.appendString("", spacingStyle);
+        }
+    }
+
+    private void failAll(List<PrintJob> jobs, Exception e) {
+        for (PrintJob job : jobs) {
+            fail(job, e);
+        }
+    }
+
+    private void fail(PrintJob job, Exception e) {
+        jobsFailed.increment();
+        try {
+            job.callback.onFailed(e);
+        } catch (Exception callbackError) {
+            Log.e(TAG, "Print callback failed for " + job.name, callbackError);
+        }
+    }
+}
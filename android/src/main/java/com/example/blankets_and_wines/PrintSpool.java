@@ -0,0 +1,440 @@
+package com.example.blankets_and_wines;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+
+/**
+ * PrintSpool - append-only journal of print jobs that have not printed yet
+ *
+ * A job is appended as its kind (the method it replays through) plus an
+ * encoded payload, and its callback runs once the record is on storage.
+ * Appends are group committed: everything that arrives while one write and
+ * fsync is in flight goes out in the next single write and fsync, so a burst
+ * of receipts pays for a couple of syncs rather than one each.
+ *
+ * {@link #complete(long)} appends a done record. Jobs without one are handed
+ * out again by {@link #takeRecovered()} after a restart; a record torn by a
+ * crash fails its CRC and ends the journal there. Once finished jobs make up
+ * most of the file it is rewritten with only the live ones. Live jobs are
+ * capped at {@code maxBytes}; appends beyond that fail.
+ *
+ * All file work runs on the writer executor, which must be single threaded.
+ * After {@link #close()} appends fail and completions are ignored, so late
+ * callers never reach a writer that has been shut down.
+ */
+final class PrintSpool {
+
+    static final int DEFAULT_MAX_BYTES = 4 << 20;
+    // Compact once the journal is at least this big and mostly finished jobs
+    static final int COMPACT_BYTES = 256 << 10;
+
+    private static final byte TYPE_JOB = 1;
+    private static final byte TYPE_DONE = 2;
+    // length + crc
+    private static final int FRAME_BYTES = 8;
+
+    /**
+     * Runs on the writer thread once the append is durable, or has failed;
+     * on the caller's thread when the spool is already closed.
+     */
+    interface Callback {
+        void onWritten(long id);
+
+        void onFailed(Exception e);
+    }
+
+    /** A job that was journaled and not completed. */
+    static final class Entry {
+        final long id;
+        final String kind;
+        final byte[] payload;
+        final int recordBytes;
+
+        Entry(long id, String kind, byte[] payload, int recordBytes) {
+            this.id = id;
+            this.kind = kind;
+            this.payload = payload;
+            this.recordBytes = recordBytes;
+        }
+    }
+
+    // An append (kind set) or a completion (kind null) waiting for the writer
+    private static final class Pending {
+        final String kind;
+        final byte[] payload;
+        final Callback callback;
+        long id;
+
+        Pending(String kind, byte[] payload, Callback callback, long id) {
+            this.kind = kind;
+            this.payload = payload;
+            this.callback = callback;
+            this.id = id;
+        }
+    }
+
+    private final File file;
+    private final Executor writer;
+    private final int maxBytes;
+
+    private List<Pending> batch = new ArrayList<>();
+    private boolean flushScheduled;
+    private boolean closed;
+
+    // Writer thread only
+    private final Map<Long, Entry> live = new LinkedHashMap<>();
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private IOException openFailure;
+    private long nextId = 1;
+
+    private volatile List<Entry> recovered = Collections.emptyList();
+    private volatile long liveBytes;
+    private volatile long fileBytes;
+    private volatile long appended;
+    private volatile long commits;
+    private volatile long compactions;
+    private volatile long rejected;
+
+    /** Opens the journal on {@code writer}; appends made before that wait for it. */
+    PrintSpool(File file, Executor writer, int maxBytes) {
+        this.file = file;
+        this.writer = writer;
+        this.maxBytes = maxBytes;
+        writer.execute(this::recover);
+    }
+
+    /** Journals a job; {@code callback} hears when it is durable. */
+    void append(String kind, byte[] payload, Callback callback) {
+        enqueue(new Pending(kind, payload, callback, 0));
+    }
+
+    /** Marks a job finished so it is not replayed. */
+    void complete(long id) {
+        enqueue(new Pending(null, null, null, id));
+    }
+
+    private void enqueue(Pending pending) {
+        boolean refused;
+        synchronized (this) {
+            refused = closed;
+            if (!refused) {
+                batch.add(pending);
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    try {
+                        writer.execute(this::flush);
+                    } catch (RejectedExecutionException e) {
+                        // The writer stopped without close(); nothing more gets written
+                        batch.remove(pending);
+                        flushScheduled = false;
+                        closed = true;
+                        refused = true;
+                    }
+                }
+            }
+        }
+        // A refused append fails; a refused completion leaves its job to
+        // replay on the next run
+        if (refused && pending.kind != null) {
+            pending.callback.onFailed(new IOException("Print spool is closed"));
+        }
+    }
+
+    /**
+     * Jobs left unfinished by the previous run, oldest first. Each is handed
+     * out once; complete them by id like new ones.
+     */
+    List<Entry> takeRecovered() {
+        List<Entry> entries = recovered;
+        recovered = Collections.emptyList();
+        return entries;
+    }
+
+    /** Writes out what is pending and closes the journal. */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        writer.execute(() -> {
+            flush();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Everything written was already forced
+                }
+                channel = null;
+            }
+            openFailure = new IOException("Print spool is closed");
+        });
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("liveBytes", liveBytes);
+        stats.put("fileBytes", fileBytes);
+        stats.put("appended", appended);
+        stats.put("commits", commits);
+        stats.put("compactions", compactions);
+        stats.put("rejected", rejected);
+        stats.put("maxBytes", maxBytes);
+        return stats;
+    }
+
+    // ==================== WRITER THREAD ====================
+
+    private void recover() {
+        try {
+            long valid = 0;
+            if (file.exists()) {
+                valid = replay(readAll(file));
+            }
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            channel = raf.getChannel();
+            // Drop a record torn by a crash so appends follow the last good one
+            channel.truncate(valid);
+            channel.position(valid);
+            fileBytes = valid;
+            recovered = Collections.unmodifiableList(new ArrayList<>(live.values()));
+        } catch (IOException e) {
+            openFailure = e;
+        }
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+        }
+        return data;
+    }
+
+    /** Rebuilds the live jobs from journal bytes; returns the length that parsed. */
+    private long replay(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        long liveTotal = 0;
+        int valid = 0;
+        while (in.remaining() >= FRAME_BYTES) {
+            int start = in.position();
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length < 9 || length > in.remaining()) {
+                break;
+            }
+            crc.reset();
+            crc.update(data, in.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            byte type = in.get();
+            long id = in.getLong();
+            if (type == TYPE_JOB) {
+                int kindLength = in.getShort() & 0xFFFF;
+                String kind = new String(data, in.position(), kindLength, StandardCharsets.UTF_8);
+                in.position(in.position() + kindLength);
+                byte[] payload = new byte[start + FRAME_BYTES + length - in.position()];
+                in.get(payload);
+                Entry entry = new Entry(id, kind, payload, FRAME_BYTES + length);
+                live.put(id, entry);
+                liveTotal += entry.recordBytes;
+            } else {
+                Entry done = live.remove(id);
+                if (done != null) {
+                    liveTotal -= done.recordBytes;
+                }
+            }
+            nextId = Math.max(nextId, id + 1);
+            valid = in.position();
+        }
+        liveBytes = liveTotal;
+        return valid;
+    }
+
+    private void flush() {
+        while (true) {
+            List<Pending> taken;
+            synchronized (this) {
+                if (batch.isEmpty()) {
+                    flushScheduled = false;
+                    return;
+                }
+                taken = batch;
+                batch = new ArrayList<>();
+            }
+            write(taken);
+            if (fileBytes > maxBytes || (fileBytes >= COMPACT_BYTES && liveBytes * 2 < fileBytes)) {
+                compact();
+            }
+        }
+    }
+
+    private void write(List<Pending> taken) {
+        if (openFailure != null) {
+            for (Pending pending : taken) {
+                if (pending.kind != null) {
+                    pending.callback.onFailed(openFailure);
+                }
+            }
+            return;
+        }
+        List<Pending> accepted = new ArrayList<>(taken.size());
+        // Finished jobs stay live until their done records are on storage
+        List<Entry> finished = new ArrayList<>();
+        long finishedBytes = 0;
+        List<byte[]> records = new ArrayList<>(taken.size());
+        int total = 0;
+        for (Pending pending : taken) {
+            if (pending.kind == null) {
+                Entry done = live.get(pending.id);
+                if (done != null && !finished.contains(done)) {
+                    finished.add(done);
+                    finishedBytes += done.recordBytes;
+                    byte[] record = record(TYPE_DONE, pending.id, null, null);
+                    records.add(record);
+                    total += record.length;
+                }
+                continue;
+            }
+            byte[] kind = pending.kind.getBytes(StandardCharsets.UTF_8);
+            byte[] record = record(TYPE_JOB, nextId, kind, pending.payload);
+            if (liveBytes - finishedBytes + record.length > maxBytes) {
+                rejected++;
+                pending.callback.onFailed(new IOException("Print spool is full"));
+                continue;
+            }
+            pending.id = nextId++;
+            live.put(pending.id, new Entry(pending.id, pending.kind, pending.payload, record.length));
+            liveBytes += record.length;
+            records.add(record);
+            total += record.length;
+            accepted.add(pending);
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+
+        try {
+            ByteBuffer out = ByteBuffer.allocate(total);
+            for (byte[] record : records) {
+                out.put(record);
+            }
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(false);
+            fileBytes += total;
+            commits++;
+            appended += accepted.size();
+            for (Entry done : finished) {
+                live.remove(done.id);
+                liveBytes -= done.recordBytes;
+            }
+        } catch (IOException e) {
+            // Cut off whatever part of the batch reached the file; left in
+            // place, its bad CRC would end replay before every later record
+            try {
+                channel.truncate(fileBytes);
+                channel.position(fileBytes);
+            } catch (IOException truncateFailure) {
+                // Appends would land behind the torn bytes and never replay
+                openFailure = truncateFailure;
+            }
+            // Finished jobs whose done records were cut off stay live, as
+            // they will be when the journal is replayed
+            for (Pending pending : accepted) {
+                Entry entry = live.remove(pending.id);
+                liveBytes -= entry.recordBytes;
+                pending.callback.onFailed(e);
+            }
+            return;
+        }
+        for (Pending pending : accepted) {
+            pending.callback.onWritten(pending.id);
+        }
+    }
+
+    private byte[] record(byte type, long id, byte[] kind, byte[] payload) {
+        int length = 1 + 8 + (kind != null ? 2 + kind.length + payload.length : 0);
+        ByteBuffer record = ByteBuffer.allocate(FRAME_BYTES + length);
+        record.putInt(length);
+        record.putInt(0);
+        record.put(type);
+        record.putLong(id);
+        if (kind != null) {
+            record.putShort((short) kind.length);
+            record.put(kind);
+            record.put(payload);
+        }
+        crc.reset();
+        crc.update(record.array(), FRAME_BYTES, length);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    /** Rewrites the journal with only live jobs, then swaps it in. */
+    private void compact() {
+        File compacted = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile raf = new RandomAccessFile(compacted, "rw")) {
+            raf.setLength(0);
+            FileChannel out = raf.getChannel();
+            for (Entry entry : live.values()) {
+                byte[] kind = entry.kind.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer record = ByteBuffer.wrap(record(TYPE_JOB, entry.id, kind, entry.payload));
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(false);
+        } catch (IOException e) {
+            compacted.delete();
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Reopened below either way
+        }
+        boolean swapped = compacted.renameTo(file);
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            channel = raf.getChannel();
+            channel.position(channel.size());
+            fileBytes = channel.size();
+        } catch (IOException e) {
+            openFailure = e;
+            return;
+        }
+        if (swapped) {
+            compactions++;
+        } else {
+            compacted.delete();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.blankets_and_wines;
+
+import android.text.Layout;
+
+import com.zcs.sdk.print.PrnStrFormat;
+import com.zcs.sdk.print.PrnTextFont;
+import com.zcs.sdk.print.PrnTextStyle;
+
+/**
+ * PrintStyle - an immutable, named text style for the printer
+ *
+ * The SDK's PrnStrFormat is mutable, so each style builds its own instance
+ * once and hands it only to the printer. Layout code must never call setters
+ * on the returned format; register a new style instead.
+ */
+final class PrintStyle {
+
+    enum Align {
+        LEFT, CENTER, RIGHT
+    }
+
+    final String name;
+    final int textSize;
+    final PrnTextStyle textStyle;
+    final PrnTextFont font;
+    final Align align;
+
+    private volatile PrnStrFormat format;
+
+    PrintStyle(String name, int textSize, PrnTextStyle textStyle, PrnTextFont font, Align align) {
+        this.name = name;
+        this.textSize = textSize;
+        this.textStyle = textStyle;
+        this.font = font;
+        this.align = align;
+    }
+
+    boolean isBold() {
+        return textStyle == PrnTextStyle.BOLD || textStyle == PrnTextStyle.BOLD_ITALIC;
+    }
+
+    /** The SDK format for this style, built on first use and shared afterwards. */
+    PrnStrFormat format() {
+        PrnStrFormat f = format;
+        if (f == null) {
+            synchronized (this) {
+                f = format;
+                if (f == null) {
+                    f = new PrnStrFormat();
+                    f.setTextSize(textSize);
+                    f.setStyle(textStyle);
+                    f.setFont(font);
+                    f.setAli(toAlignment(align));
+                    format = f;
+                }
+            }
+        }
+        return f;
+    }
+
+    static Layout.Alignment toAlignment(Align align) {
+        switch (align) {
+            case CENTER:
+                return Layout.Alignment.ALIGN_CENTER;
+            case RIGHT:
+                return Layout.Alignment.ALIGN_OPPOSITE;
+            default:
+                return Layout.Alignment.ALIGN_NORMAL;
+        }
+    }
+}
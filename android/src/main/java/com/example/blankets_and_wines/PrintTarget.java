@@ -0,0 +1,22 @@
+package com.example.blankets_and_wines;
+
+import android.graphics.Bitmap;
+
+/**
+ * PrintTarget - where receipt layouts append their content
+ *
+ * Either the printer's own buffer ({@link PrinterDevice}), printed by the
+ * queue's start(), or a {@link ReceiptRaster} rendered ahead of time and sent
+ * in one piece.
+ */
+interface PrintTarget {
+
+    /** Content that can be appended to either kind of target. */
+    interface Content {
+        void appendTo(PrintTarget target) throws Exception;
+    }
+
+    void appendString(String text, PrintStyle style);
+
+    void appendBitmap(Bitmap bitmap, PrintStyle.Align align);
+}
@@ -0,0 +1,51 @@
+package com.example.blankets_and_wines;
+
+import android.graphics.Bitmap;
+
+import com.google.zxing.BarcodeFormat;
+
+/**
+ * PrinterDevice - the thermal printer
+ *
+ * Status and result codes are SdkResult values on every implementation, so
+ * callers handle a fake printer exactly like the real one.
+ */
+interface PrinterDevice extends PrintTarget {
+
+    /** SDK_OK, SDK_PRN_STATUS_PAPEROUT, SDK_PRN_STATUS_PRINTING, ... */
+    int getStatus();
+
+    /** Prints and clears everything appended since the last start. */
+    int start();
+
+    /**
+     * Appends made to the buffer so far. The SDK cannot clear its buffer, so
+     * the queue compares this across a job to tell whether a job that threw
+     * left lines behind. Read and written on the print thread.
+     */
+    long appendCount();
+
+    /** Print head width in dots. */
+    int headWidth();
+
+    /**
+     * Whether {@link #sendRaster} can print packed 1-bit rows on this
+     * terminal.
+     */
+    boolean supportsRaster();
+
+    /** Largest array {@link #sendRaster} accepts in one call. */
+    int rasterChunkBytes();
+
+    /** Prints head-width rows packed one bit per dot, MSB first, 1 = black. */
+    int sendRaster(byte[] rows);
+
+    boolean supportsCutter();
+
+    int cut();
+
+    Bitmap renderQRCode(String data, int size);
+
+    /** Renders a barcode with its human-readable text underneath. */
+    Bitmap renderBarcode(String data, int width, int height, BarcodeFormat format);
+}
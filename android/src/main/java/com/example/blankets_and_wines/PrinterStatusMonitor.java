@@ -0,0 +1,162 @@
+package com.example.blankets_and_wines;
+
+import android.util.Log;
+
+import com.zcs.sdk.SdkResult;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PrinterStatusMonitor - last known printer status, sampled in the background
+ *
+ * Every status read goes through {@link #read()}, whether it is the
+ * monitor's own sample or a poll from the print queue, so the cached value
+ * is as fresh as the latest of them. The monitor only samples when nobody
+ * else has read the status for a full interval: quickly while printing,
+ * at a middle rate while the printer reports a fault (so recovery is seen
+ * soon), and slowly when idle.
+ *
+ * Listeners hear about every status change exactly once, on the thread that
+ * read the new status.
+ */
+final class PrinterStatusMonitor {
+
+    private static final String TAG = "SmartposPlugin";
+
+    static final long PRINTING_INTERVAL_MILLIS = 100;
+    static final long FAULT_INTERVAL_MILLIS = 500;
+    static final long IDLE_INTERVAL_MILLIS = 1000;
+
+    // How old a Ready status may be for a print to skip its own status read
+    static final long PRINT_FRESH_MILLIS = 1500;
+
+    // Status before the first read
+    static final int UNKNOWN = Integer.MIN_VALUE;
+
+    interface Listener {
+        void onStatusChanged(int previous, int status);
+    }
+
+    private final PrinterDevice printer;
+    private final AtomicInteger status = new AtomicInteger(UNKNOWN);
+    private volatile long readNanos;
+    private volatile Listener listener;
+    private volatile ScheduledExecutorService scheduler;
+
+    PrinterStatusMonitor(PrinterDevice printer) {
+        this.printer = printer;
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Starts background sampling on {@code scheduler}. */
+    void start(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+        scheduler.execute(this::sample);
+    }
+
+    /** Stops sampling; the listener hears nothing more, even from a read in flight. */
+    void stop() {
+        listener = null;
+        ScheduledExecutorService running = scheduler;
+        scheduler = null;
+        if (running != null) {
+            running.shutdownNow();
+        }
+    }
+
+    /** Reads the status from the printer and publishes it. */
+    int read() {
+        int current = printer.getStatus();
+        observed(current);
+        return current;
+    }
+
+    void observed(int current) {
+        readNanos = System.nanoTime();
+        int previous = status.getAndSet(current);
+        Listener target = listener;
+        if (previous != current && target != null) {
+            try {
+                target.onStatusChanged(previous, current);
+            } catch (Exception e) {
+                Log.e(TAG, "Printer status listener failed", e);
+            }
+        }
+    }
+
+    int status() {
+        return status.get();
+    }
+
+    long ageMillis() {
+        return (System.nanoTime() - readNanos) / 1_000_000;
+    }
+
+    /** Whether the cached status was read within {@code millis}. */
+    boolean isFresh(long millis) {
+        return status.get() != UNKNOWN && ageMillis() < millis;
+    }
+
+    /**
+     * Status a print checks before starting: a recent Ready is taken from the
+     * cache, anything else is read again so a reloaded roll is not reported
+     * as out of paper. A printer that ran out since reports it from start().
+     */
+    int statusForPrint() {
+        if (status.get() == SdkResult.SDK_OK && isFresh(PRINT_FRESH_MILLIS)) {
+            return SdkResult.SDK_OK;
+        }
+        return read();
+    }
+
+    static long intervalMillis(int status) {
+        if (status == SdkResult.SDK_PRN_STATUS_PRINTING) {
+            return PRINTING_INTERVAL_MILLIS;
+        }
+        return status == SdkResult.SDK_OK ? IDLE_INTERVAL_MILLIS : FAULT_INTERVAL_MILLIS;
+    }
+
+    /** "ready", "busy", "paperOut", "recovered" (ready after a fault) or "fault". */
+    static String event(int previous, int status) {
+        switch (status) {
+            case SdkResult.SDK_OK:
+                return previous == UNKNOWN || previous == SdkResult.SDK_OK
+                        || previous == SdkResult.SDK_PRN_STATUS_PRINTING ? "ready" : "recovered";
+            case SdkResult.SDK_PRN_STATUS_PRINTING:
+                return "busy";
+            case SdkResult.SDK_PRN_STATUS_PAPEROUT:
+                return "paperOut";
+            default:
+                return "fault";
+        }
+    }
+
+    private void sample() {
+        ScheduledExecutorService running = scheduler;
+        if (running == null) {
+            return;
+        }
+        long interval = intervalMillis(status.get());
+        long sinceRead = ageMillis();
+        if (status.get() == UNKNOWN || sinceRead >= interval) {
+            try {
+                read();
+            } catch (Exception e) {
+                Log.w(TAG, "Printer status sample failed", e);
+            }
+            interval = intervalMillis(status.get());
+            sinceRead = 0;
+        }
+        try {
+            running.schedule(this::sample, interval - sinceRead, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Stopped while sampling
+        }
+    }
+}
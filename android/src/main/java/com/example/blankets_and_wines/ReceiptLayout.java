@@ -0,0 +1,191 @@
+package com.example.blankets_and_wines;
+
+import android.util.Log;
+
+/**
+ * ReceiptLayout - the built-in customer receipt
+ *
+ * Appends a {@link ReceiptPayload} to a {@link PrintTarget}: the printer
+ * buffer, or a raster in raster mode. Used by both the method channel
+ * printReceipt and the binary channel, so they print the same paper whichever
+ * way the data arrived.
+ */
+final class ReceiptLayout {
+
+    private static final String TAG = "SmartposPlugin";
+
+    static final String SEPARATOR = "--------------------------------";
+    static final String DOUBLE_SEPARATOR = "================================";
+
+    private final PrinterDevice renderer;
+    private final PrintTarget target;
+    private final SymbolCache symbols;
+    private final PrintStyle headerStyle;
+    private final PrintStyle subHeaderStyle;
+    private final PrintStyle normalStyle;
+    private final PrintStyle boldStyle;
+    private final PrintStyle orderNumberStyle;
+    private final PrintStyle smallStyle;
+    private final PrintStyle mediaStyle;
+
+    // ITEM (15) QTY (3)x PRICE (9), and label / amount summary lines
+    private final ColumnFormatter itemColumns = new ColumnFormatter()
+            .left(15).truncate("...")
+            .right(3).then("x")
+            .right(9);
+    private final ColumnFormatter summaryColumns = new ColumnFormatter().left(20).right(10);
+    private final ColumnFormatter text = new ColumnFormatter();
+
+    /** @param renderer renders the QR code; everything is appended to {@code target} */
+    ReceiptLayout(PrinterDevice renderer, PrintTarget target, StyleRegistry styles, SymbolCache symbols) {
+        this.renderer = renderer;
+        this.target = target;
+        this.symbols = symbols;
+        headerStyle = styles.get(StyleRegistry.HEADER);
+        subHeaderStyle = styles.get(StyleRegistry.SUB_HEADER);
+        normalStyle = styles.get(StyleRegistry.NORMAL);
+        boldStyle = styles.get(StyleRegistry.BOLD);
+        orderNumberStyle = styles.get(StyleRegistry.ORDER_NUMBER);
+        smallStyle = styles.get(StyleRegistry.SMALL);
+        mediaStyle = styles.get(StyleRegistry.MEDIA);
+    }
+
+    /** Rough printed line count, for the print-time estimate. */
+    static int estimateLines(ReceiptPayload receipt) {
+        return 40 + receipt.itemCount;
+    }
+
+    void append(ReceiptPayload receipt, String orderNumber) {
+        appendBody(receipt);
+        appendOrderNumber(orderNumber, receipt.qrSize);
+    }
+
+    /** Everything above the QR code: header, items, totals and footer messages. */
+    void appendBody(ReceiptPayload receipt) {
+        // Print store name
+        if (receipt.storeName != null && !receipt.storeName.trim().isEmpty()) {
+            target.appendString(receipt.storeName, headerStyle);
+        } else {
+            target.appendString("Blankets And Wine", headerStyle);
+        }
+
+        // Print receipt title
+        target.appendString(receipt.receiptType, subHeaderStyle);
+        target.appendString("", normalStyle); // Empty line
+
+        // Print date and time
+        String date = receipt.date;
+        String time = receipt.time;
+        if ((date != null && !date.trim().isEmpty()) || (time != null && !time.trim().isEmpty())) {
+            boolean hasDate = date != null && !date.trim().isEmpty();
+            text.start();
+            if (hasDate) {
+                text.text("Date: ").text(date);
+            }
+            if (time != null && !time.trim().isEmpty()) {
+                if (hasDate) {
+                    text.text(":"); // Add spacing between date and time
+                }
+                text.text(time);
+            }
+            target.appendString(text.build(), normalStyle);
+        }
+
+        // Print separator
+        target.appendString(SEPARATOR, normalStyle);
+
+        // Print column headers
+        target.appendString("ITEM   QTY    KSHS", boldStyle);
+        target.appendString(SEPARATOR, normalStyle);
+
+        // Print items
+        for (int i = 0; i < receipt.itemCount; i++) {
+            String itemName = receipt.itemNames[i];
+
+            // Handle null values; long names are cut by the column
+            if (itemName == null || itemName.trim().isEmpty()) itemName = "Unknown Item";
+
+            // Format line
+            itemColumns.start().add(itemName);
+            if (receipt.quantityText != null) {
+                itemColumns.add(receipt.quantityText[i]);
+            } else {
+                itemColumns.add(receipt.quantities[i]);
+            }
+            if (receipt.priceCents != null) {
+                itemColumns.addCents("", receipt.priceCents[i]);
+            } else {
+                itemColumns.add(receipt.priceText[i]);
+            }
+            target.appendString(itemColumns.build(), mediaStyle);
+        }
+
+        target.appendString(SEPARATOR, normalStyle);
+
+        // Print financial summary
+        String subtotal = receipt.subtotal;
+        String tax = receipt.tax;
+        String total = receipt.total;
+
+        if (subtotal != null && !subtotal.trim().isEmpty()) {
+            target.appendString(summaryColumns.start().add("Subtotal:").add("Kshs ", subtotal).build(), normalStyle);
+        }
+
+        if (tax != null && !tax.trim().isEmpty()) {
+            target.appendString(summaryColumns.start().add("Tax:").add("Kshs ", tax).build(), normalStyle);
+        }
+
+        if (total != null && !total.trim().isEmpty()) {
+            target.appendString(DOUBLE_SEPARATOR, normalStyle);
+
+            target.appendString(summaryColumns.start().add("TOTAL:").add("Kshs ", total).build(), boldStyle);
+
+            target.appendString(DOUBLE_SEPARATOR, normalStyle);
+        }
+
+        // Print payment method
+        String paymentMethod = receipt.paymentMethod;
+        if (paymentMethod != null && !paymentMethod.trim().isEmpty()) {
+            target.appendString("", smallStyle);
+            target.appendString(text.start().text("Payment Method: ").text(paymentMethod).build(), smallStyle);
+        }
+
+        // Footer messages
+        target.appendString("", smallStyle);
+        target.appendString("We are glad you are here", smallStyle);
+        target.appendString("Enjoy responsibly!", smallStyle);
+    }
+
+    /** The order number as a QR code and in large print, then tear-off spacing. */
+    void appendOrderNumber(String orderNumber, int qrSize) {
+        // Spacing before QR code
+        target.appendString("", smallStyle);
+        target.appendString("", smallStyle);
+
+        // Add QR code to receipt
+        symbols.appendQRCode(renderer, target, orderNumber, qrSize);
+
+        // Spacing before order number
+        target.appendString("", smallStyle);
+        target.appendString("", smallStyle);
+
+        // Print order number section
+        target.appendString(DOUBLE_SEPARATOR, smallStyle);
+        target.appendString(orderNumber, orderNumberStyle);
+        target.appendString(DOUBLE_SEPARATOR, smallStyle);
+
+        // Extra spacing for easy tearing
+        target.appendString("", smallStyle);
+        target.appendString("", smallStyle);
+        target.appendString("", smallStyle);
+        target.appendString("", smallStyle);
+
+        // Add line feeds for complete printing
+        try {
+            target.appendString("\n", smallStyle);
+            target.appendString("\n", smallStyle);
+        } catch (Exception e) {
+            Log.w(TAG, "Line feeds not supported", e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.blankets_and_wines;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReceiptPayload - the fields of one receipt, decoded once
+ *
+ * Built either from the method channel's receiptData map or straight from the
+ * binary channel. Items are kept in parallel arrays; an item price is held as
+ * text (map path, printed as sent) or as fixed-point cents (binary path).
+ * Quantities likewise print as sent on the map path, so a fractional pour
+ * such as "1.5" prints as-is; the whole-number quantities are only counted.
+ */
+final class ReceiptPayload {
+
+    String storeName;
+    String receiptType;
+    String date;
+    String time;
+    String subtotal;
+    String tax;
+    String total;
+    String paymentMethod;
+    String orderNumber;
+    // Who made the sale, for the sales ledger; not printed
+    String seller;
+    int qrSize = 200;
+
+    int itemCount;
+    String[] itemNames;
+    // Whole items, for the sales ledger's item count
+    int[] quantities;
+    // Set on the map path only
+    String[] quantityText;
+    // Exactly one of these is set
+    String[] priceText;
+    long[] priceCents;
+
+    // The binary message this was decoded from, journaled by the print spool
+    byte[] encoded;
+
+    void ensureItemCapacity(int count, boolean cents) {
+        itemCount = count;
+        itemNames = new String[count];
+        quantities = new int[count];
+        if (cents) {
+            priceCents = new long[count];
+            priceText = null;
+            quantityText = null;
+        } else {
+            priceText = new String[count];
+            priceCents = null;
+            quantityText = new String[count];
+        }
+    }
+
+    String price(int index) {
+        return priceText != null ? priceText[index] : PayloadCodec.formatCents(priceCents[index]);
+    }
+
+    /** The total in cents, read back from its text; 0 if absent or unreadable. */
+    long totalCents() {
+        if (total == null) {
+            return 0;
+        }
+        long cents = 0;
+        int fractionDigits = -1;
+        boolean negative = false;
+        for (int i = 0; i < total.length(); i++) {
+            char c = total.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (fractionDigits < 2) {
+                    cents = cents * 10 + (c - '0');
+                    if (fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c == '-') {
+                negative = true;
+            }
+            // Currency symbols and thousands separators are skipped
+        }
+        for (int i = Math.max(fractionDigits, 0); i < 2; i++) {
+            cents *= 10;
+        }
+        return negative ? -cents : cents;
+    }
+
+    int totalQuantity() {
+        int quantity = 0;
+        for (int i = 0; i < itemCount; i++) {
+            quantity += quantities[i];
+        }
+        return quantity;
+    }
+
+    @SuppressWarnings("unchecked")
+    static ReceiptPayload fromMap(Map<String, Object> receiptData) {
+        ReceiptPayload payload = new ReceiptPayload();
+        payload.storeName = (String) receiptData.get("storeName");
+        payload.receiptType = (String) receiptData.get("receiptType");
+        payload.date = (String) receiptData.get("date");
+        payload.time = (String) receiptData.get("time");
+        payload.subtotal = (String) receiptData.get("subtotal");
+        payload.tax = (String) receiptData.get("tax");
+        payload.total = (String) receiptData.get("total");
+        payload.paymentMethod = (String) receiptData.get("paymentMethod");
+        payload.orderNumber = (String) receiptData.get("orderNumber");
+        payload.seller = (String) receiptData.get("seller");
+
+        Object qrSizeObj = receiptData.get("qrSize");
+        if (qrSizeObj instanceof Integer) {
+            payload.qrSize = (Integer) qrSizeObj;
+        } else if (qrSizeObj instanceof String) {
+            try {
+                payload.qrSize = Integer.parseInt((String) qrSizeObj);
+            } catch (NumberFormatException e) {
+                // Keep the default size
+            }
+        }
+
+        List<Map<String, Object>> items = (List<Map<String, Object>>) receiptData.get("items");
+        payload.ensureItemCapacity(items != null ? items.size() : 0, false);
+        for (int i = 0; i < payload.itemCount; i++) {
+            Map<String, Object> item = items.get(i);
+            payload.itemNames[i] = (String) item.get("name");
+            Object quantity = item.get("quantity");
+            payload.quantities[i] = toInt(quantity);
+            payload.quantityText[i] = String.valueOf(quantity);
+            payload.priceText[i] = String.valueOf(item.get("price"));
+        }
+        return payload;
+    }
+
+    // Whole items in a quantity sent as a number or as text; 1.5 and "1.5" both count 1
+    private static int toInt(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof String) {
+            try {
+                return (int) Double.parseDouble(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+}
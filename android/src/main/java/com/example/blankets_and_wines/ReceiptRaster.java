@@ -0,0 +1,277 @@
+package com.example.blankets_and_wines;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+import com.zcs.sdk.SdkResult;
+import com.zcs.sdk.print.PrnStrFormat;
+import com.zcs.sdk.print.PrnTextFont;
+import com.zcs.sdk.print.PrnTextStyle;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * ReceiptRaster - a whole receipt rendered into one packed 1-bit raster
+ *
+ * The per-line path hands the SDK one setPrintAppendString / bitmap per line;
+ * at setPrintStart() it lays every line out again, stacks them into a full
+ * ARGB page, reads that back into an int[] and packs it before sending. Here
+ * the receipt is laid out once, off the print thread, with the same text
+ * settings the SDK uses, and each line is packed as it is drawn into a
+ * head-width raster: one bit per dot, MSB first, 1 = black. Printing it is
+ * then just setPrintBitmap() in the SDK's chunk size, so rendering the next
+ * receipt overlaps with printing this one.
+ *
+ * Rasters come from a {@link Pool} and keep their buffers between jobs.
+ */
+final class ReceiptRaster implements PrintTarget {
+
+    static final int WIDTH_58MM = 384;
+    static final int WIDTH_80MM = 576;
+
+    // Same cut-off the SDK uses: luminance below 200 over white paper is ink,
+    // which for black text is an alpha above 55
+    private static final int INK_LUMINANCE = 200;
+
+    final int width;
+    final int rowBytes;
+
+    private byte[] pixels;
+    private int rows;
+
+    // Scratch for laying out one appended string or bitmap at a time; the
+    // paint is made on first use, so pooled rasters cost only their buffers
+    private TextPaint paint;
+    private int[] rowPixels;
+    private Bitmap strip;
+    private Canvas canvas;
+    private byte[] chunk;
+
+    ReceiptRaster(int width, int initialRows) {
+        this.width = width;
+        this.rowBytes = (width - 1) / 8 + 1;
+        this.pixels = new byte[rowBytes * initialRows];
+        this.rowPixels = new int[width];
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int byteCount() {
+        return rows * rowBytes;
+    }
+
+    void reset() {
+        rows = 0;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void appendString(String text, PrintStyle style) {
+        PrnStrFormat format = style.format();
+        applyFormat(format);
+        StaticLayout layout = new StaticLayout(text != null ? text : "", paint, width,
+                format.getAli(), format.getLineSpacing(), 0f, false);
+        int height = layout.getHeight();
+        if (height <= 0) {
+            return;
+        }
+
+        ensureStrip(height);
+        strip.eraseColor(Color.TRANSPARENT);
+        layout.draw(canvas);
+        packRows(strip, height, 0);
+    }
+
+    @Override
+    public void appendBitmap(Bitmap bitmap, PrintStyle.Align align) {
+        Bitmap source = bitmap;
+        if (source.getWidth() > width) {
+            int scaledHeight = (int) ((long) source.getHeight() * width / source.getWidth());
+            source = Bitmap.createScaledBitmap(source, width, Math.max(1, scaledHeight), true);
+        }
+
+        int left;
+        if (align == PrintStyle.Align.CENTER) {
+            left = (width - source.getWidth()) / 2;
+        } else if (align == PrintStyle.Align.RIGHT) {
+            left = width - source.getWidth();
+        } else {
+            left = 0;
+        }
+        packRows(source, source.getHeight(), left);
+
+        if (source != bitmap) {
+            source.recycle();
+        }
+    }
+
+    /**
+     * Sends the raster to the printer, in the SDK's chunk size rounded down
+     * to whole rows. Returns the first non-OK result, or SDK_OK.
+     */
+    int send(PrinterDevice printer) {
+        int total = byteCount();
+        int chunkBytes = Math.max(rowBytes, printer.rasterChunkBytes() / rowBytes * rowBytes);
+        int resultCode = SdkResult.SDK_OK;
+        for (int offset = 0; offset < total && resultCode == SdkResult.SDK_OK; offset += chunkBytes) {
+            int length = Math.min(chunkBytes, total - offset);
+            // sendRaster prints the whole array, so only full chunks can
+            // reuse the buffer
+            byte[] data;
+            if (length == chunkBytes) {
+                if (chunk == null || chunk.length != chunkBytes) {
+                    chunk = new byte[chunkBytes];
+                }
+                data = chunk;
+            } else {
+                data = new byte[length];
+            }
+            System.arraycopy(pixels, offset, data, 0, length);
+            resultCode = printer.sendRaster(data);
+        }
+        return resultCode;
+    }
+
+    // Mirrors the SDK's TextPaint setup for a PrnStrFormat
+    private void applyFormat(PrnStrFormat format) {
+        if (paint == null) {
+            paint = new TextPaint();
+        }
+        paint.reset();
+        paint.setColor(Color.BLACK);
+        paint.setTextSize(format.getTextSize());
+        paint.setUnderlineText(format.isUnderline());
+        paint.setTextScaleX(format.getTextScaleX());
+        paint.setLetterSpacing(format.getLetterSpacing());
+
+        PrnTextStyle style = format.getStyle() != null ? format.getStyle() : PrnTextStyle.NORMAL;
+        PrnTextFont font = format.getFont() != null ? format.getFont() : PrnTextFont.DEFAULT;
+        Typeface typeface;
+        switch (font) {
+            case DEFAULT_BOLD:
+                typeface = Typeface.create(Typeface.DEFAULT_BOLD, style.ordinal());
+                break;
+            case MONOSPACE:
+                typeface = Typeface.create(Typeface.MONOSPACE, style.ordinal());
+                break;
+            case SANS_SERIF:
+                typeface = Typeface.create(Typeface.SANS_SERIF, style.ordinal());
+                break;
+            case SERIF:
+                typeface = Typeface.create(Typeface.SERIF, style.ordinal());
+                break;
+            case CUSTOM:
+                if (format.getAm() != null && !TextUtils.isEmpty(format.getPath())) {
+                    typeface = Typeface.createFromAsset(format.getAm(), format.getPath());
+                } else if (!TextUtils.isEmpty(format.getPath())) {
+                    typeface = Typeface.createFromFile(format.getPath());
+                } else {
+                    typeface = Typeface.create(Typeface.DEFAULT, style.ordinal());
+                }
+                break;
+            default:
+                typeface = Typeface.create(Typeface.DEFAULT, style.ordinal());
+                break;
+        }
+        paint.setTypeface(typeface);
+        paint.setFakeBoldText(style == PrnTextStyle.BOLD);
+    }
+
+    private void ensureStrip(int height) {
+        if (strip == null || strip.getHeight() < height) {
+            if (strip != null) {
+                strip.recycle();
+            }
+            strip = Bitmap.createBitmap(width, Math.max(height, 64), Bitmap.Config.ALPHA_8);
+            canvas = new Canvas(strip);
+        }
+    }
+
+    private void ensureRows(int extra) {
+        int needed = (rows + extra) * rowBytes;
+        if (needed > pixels.length) {
+            byte[] grown = new byte[Math.max(needed, pixels.length * 2)];
+            System.arraycopy(pixels, 0, grown, 0, rows * rowBytes);
+            pixels = grown;
+        }
+    }
+
+    /** Packs the top {@code height} rows of a bitmap into new raster rows, starting at dot {@code left}. */
+    private void packRows(Bitmap source, int height, int left) {
+        ensureRows(height);
+        int sourceWidth = Math.min(source.getWidth(), width - left);
+        if (rowPixels.length < sourceWidth) {
+            rowPixels = new int[sourceWidth];
+        }
+
+        for (int y = 0; y < height; y++) {
+            source.getPixels(rowPixels, 0, sourceWidth, 0, y, sourceWidth, 1);
+            packRow(rowPixels, sourceWidth, left);
+        }
+    }
+
+    /** Packs {@code count} ARGB pixels into a new raster row, starting at dot {@code left}. */
+    void packRow(int[] argb, int count, int left) {
+        ensureRows(1);
+        int rowStart = rows * rowBytes;
+        Arrays.fill(pixels, rowStart, rowStart + rowBytes, (byte) 0);
+        for (int x = 0; x < count; x++) {
+            if (isInk(argb[x])) {
+                int dot = left + x;
+                pixels[rowStart + (dot >> 3)] |= (byte) (0x80 >>> (dot & 7));
+            }
+        }
+        rows++;
+    }
+
+    // Luminance of the pixel composited over white paper, as the SDK weighs it
+    private static boolean isInk(int pixel) {
+        int alpha = pixel >>> 24;
+        if (alpha == 0) {
+            return false;
+        }
+        int luminance = (299 * ((pixel >> 16) & 0xFF) + 587 * ((pixel >> 8) & 0xFF) + 114 * (pixel & 0xFF)) / 1000;
+        int onPaper = 255 - alpha * (255 - luminance) / 255;
+        return onPaper < INK_LUMINANCE;
+    }
+
+    /**
+     * Pool - a fixed set of rasters shared by receipt jobs
+     *
+     * One raster can be printing while the next receipt renders into another;
+     * acquire() blocks when all are in flight, which keeps a burst of raster
+     * receipts from allocating a page buffer each.
+     */
+    static final class Pool {
+        private static final int INITIAL_ROWS = 1600;
+
+        final int width;
+        private final ArrayBlockingQueue<ReceiptRaster> free;
+
+        Pool(int width, int size) {
+            this.width = width;
+            this.free = new ArrayBlockingQueue<>(size);
+            for (int i = 0; i < size; i++) {
+                free.add(new ReceiptRaster(width, INITIAL_ROWS));
+            }
+        }
+
+        ReceiptRaster acquire() throws InterruptedException {
+            ReceiptRaster raster = free.take();
+            raster.reset();
+            return raster;
+        }
+
+        void release(ReceiptRaster raster) {
+            free.offer(raster);
+        }
+    }
+}
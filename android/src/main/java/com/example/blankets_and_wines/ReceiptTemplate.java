@@ -0,0 +1,467 @@
+package com.example.blankets_and_wines;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReceiptTemplate - a receipt layout compiled once into a flat list of print ops
+ *
+ * Dart describes a layout as a list of op maps, for example
+ * <pre>
+ *   {op: "text", style: "header", text: "{storeName}"}
+ *   {op: "text", style: "normal", text: "Date: {date}", optional: true}
+ *   {op: "separator", style: "normal", char: "-", width: 32}
+ *   {op: "repeat", list: "items", ops: [
+ *       {op: "columns", style: "media", columns: [
+ *           {text: "{name}", width: 15}, {text: "{quantity}x", width: 5, align: "RIGHT"}]}]}
+ *   {op: "qr", text: "{orderNumber}", size: 200}
+ *   {op: "barcode", text: "{orderNumber}", width: 360, height: 100}
+ *   {op: "feed", lines: 4, style: "small"}
+ * </pre>
+ * Compiling resolves style names against the palette and replaces every
+ * {field} reference with a slot index, so printing only copies the values map
+ * into a slot array once and then runs the ops in a loop. Styles are bound at
+ * registration; re-register the template to pick up a replaced style.
+ */
+final class ReceiptTemplate {
+
+    /** Per-print state shared by all ops of one template run. */
+    static final class RunContext {
+        final PrintTarget target;
+        // Renders QR codes and barcodes; content always goes to the target
+        final PrinterDevice printer;
+        final SymbolCache symbols;
+        final StringBuilder line = new StringBuilder(64);
+
+        RunContext(PrintTarget target, PrinterDevice printer, SymbolCache symbols) {
+            this.target = target;
+            this.printer = printer;
+            this.symbols = symbols;
+        }
+    }
+
+    abstract static class Op {
+        abstract void run(Object[] slots, RunContext ctx);
+
+        /** Printed lines this op contributes, for print-time estimates. */
+        int lines(Object[] slots) {
+            return 1;
+        }
+    }
+
+    final String id;
+    private final Block root;
+
+    private ReceiptTemplate(String id, Block root) {
+        this.id = id;
+        this.root = root;
+    }
+
+    void print(Map<String, Object> values, RunContext ctx) {
+        root.runWith(values, ctx);
+    }
+
+    int estimateLines(Map<String, Object> values) {
+        return root.linesWith(values);
+    }
+
+    int opCount() {
+        return root.ops.length;
+    }
+
+    // ==================== COMPILATION ====================
+
+    static ReceiptTemplate compile(String id, List<Map<String, Object>> spec, StyleRegistry styles) {
+        if (spec == null || spec.isEmpty()) {
+            throw new IllegalArgumentException("Template has no ops");
+        }
+        return new ReceiptTemplate(id, compileBlock(spec, styles));
+    }
+
+    private static Block compileBlock(List<Map<String, Object>> spec, StyleRegistry styles) {
+        List<String> fields = new ArrayList<>();
+        List<Op> ops = new ArrayList<>(spec.size());
+        for (Map<String, Object> opSpec : spec) {
+            ops.add(compileOp(opSpec, fields, styles));
+        }
+        return new Block(fields.toArray(new String[0]), ops.toArray(new Op[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Op compileOp(Map<String, Object> spec, List<String> fields, StyleRegistry styles) {
+        String op = string(spec, "op", null);
+        if (op == null) {
+            throw new IllegalArgumentException("Template op without an 'op' name");
+        }
+        switch (op) {
+            case "text":
+                return new TextOp(style(spec, styles),
+                        Binding.parse(string(spec, "text", ""), fields),
+                        bool(spec, "optional"));
+            case "columns": {
+                List<Map<String, Object>> columns = (List<Map<String, Object>>) spec.get("columns");
+                if (columns == null || columns.isEmpty()) {
+                    throw new IllegalArgumentException("columns op needs at least one column");
+                }
+                Binding[] bindings = new Binding[columns.size()];
+                int[] widths = new int[columns.size()];
+                boolean[] rightAligned = new boolean[columns.size()];
+                for (int i = 0; i < columns.size(); i++) {
+                    Map<String, Object> column = columns.get(i);
+                    bindings[i] = Binding.parse(string(column, "text", ""), fields);
+                    widths[i] = Math.max(1, Math.min(integer(column, "width", 10), ColumnsOp.MAX_WIDTH));
+                    rightAligned[i] = "RIGHT".equalsIgnoreCase(string(column, "align", "LEFT"));
+                }
+                return new ColumnsOp(style(spec, styles), bindings, widths, rightAligned);
+            }
+            case "separator": {
+                String fill = string(spec, "char", "-");
+                int width = integer(spec, "width", 32);
+                StringBuilder sb = new StringBuilder(width);
+                for (int i = 0; i < width; i++) {
+                    sb.append(fill.isEmpty() ? '-' : fill.charAt(0));
+                }
+                return new LiteralOp(style(spec, styles), sb.toString(), 1);
+            }
+            case "feed":
+                return new FeedOp(style(spec, styles), integer(spec, "lines", 1));
+            case "qr":
+                return new QrOp(Binding.parse(string(spec, "text", ""), fields),
+                        Math.max(100, Math.min(integer(spec, "size", 200), 600)));
+            case "barcode":
+                return new BarcodeOp(Binding.parse(string(spec, "text", ""), fields),
+                        integer(spec, "width", 360), integer(spec, "height", 100));
+            case "repeat": {
+                String list = string(spec, "list", null);
+                List<Map<String, Object>> body = (List<Map<String, Object>>) spec.get("ops");
+                if (list == null || body == null || body.isEmpty()) {
+                    throw new IllegalArgumentException("repeat op needs 'list' and 'ops'");
+                }
+                return new RepeatOp(slot(list, fields), compileBlock(body, styles));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown template op: " + op);
+        }
+    }
+
+    private static PrintStyle style(Map<String, Object> spec, StyleRegistry styles) {
+        return styles.get(string(spec, "style", StyleRegistry.NORMAL));
+    }
+
+    private static int slot(String field, List<String> fields) {
+        int index = fields.indexOf(field);
+        if (index < 0) {
+            fields.add(field);
+            index = fields.size() - 1;
+        }
+        return index;
+    }
+
+    private static String string(Map<String, Object> spec, String key, String fallback) {
+        Object value = spec.get(key);
+        return value != null ? String.valueOf(value) : fallback;
+    }
+
+    private static int integer(Map<String, Object> spec, String key, int fallback) {
+        Object value = spec.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Integer.parseInt((String) value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("'" + key + "' must be a number");
+            }
+        }
+        return fallback;
+    }
+
+    private static boolean bool(Map<String, Object> spec, String key) {
+        return Boolean.TRUE.equals(spec.get(key));
+    }
+
+    // ==================== RUNTIME ====================
+
+    /** A compiled op list with its own field slot table (the template or a repeat body). */
+    private static final class Block {
+        final String[] fields;
+        final Op[] ops;
+
+        Block(String[] fields, Op[] ops) {
+            this.fields = fields;
+            this.ops = ops;
+        }
+
+        Object[] bind(Map<String, Object> values) {
+            Object[] slots = new Object[fields.length];
+            if (values != null) {
+                for (int i = 0; i < fields.length; i++) {
+                    slots[i] = values.get(fields[i]);
+                }
+            }
+            return slots;
+        }
+
+        void runWith(Map<String, Object> values, RunContext ctx) {
+            Object[] slots = bind(values);
+            for (Op op : ops) {
+                op.run(slots, ctx);
+            }
+        }
+
+        int linesWith(Map<String, Object> values) {
+            Object[] slots = bind(values);
+            int lines = 0;
+            for (Op op : ops) {
+                lines += op.lines(slots);
+            }
+            return lines;
+        }
+    }
+
+    /** Literal text with {field} holes, split at compile time. */
+    static final class Binding {
+        final String[] literals;
+        final int[] slots;
+
+        private Binding(String[] literals, int[] slots) {
+            this.literals = literals;
+            this.slots = slots;
+        }
+
+        static Binding parse(String text, List<String> fields) {
+            List<String> literals = new ArrayList<>();
+            List<Integer> slots = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                int close = c == '{' ? text.indexOf('}', i + 1) : -1;
+                if (close > i + 1) {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    slots.add(slot(text.substring(i + 1, close).trim(), fields));
+                    i = close + 1;
+                } else {
+                    literal.append(c);
+                    i++;
+                }
+            }
+            literals.add(literal.toString());
+
+            int[] slotArray = new int[slots.size()];
+            for (int j = 0; j < slotArray.length; j++) {
+                slotArray[j] = slots.get(j);
+            }
+            return new Binding(literals.toArray(new String[0]), slotArray);
+        }
+
+        boolean isLiteral() {
+            return slots.length == 0;
+        }
+
+        /** Appends the bound text; returns false if any referenced field is empty. */
+        boolean appendTo(StringBuilder out, Object[] values) {
+            boolean complete = true;
+            out.append(literals[0]);
+            for (int i = 0; i < slots.length; i++) {
+                Object value = values[slots[i]];
+                if (value == null) {
+                    complete = false;
+                } else {
+                    int before = out.length();
+                    out.append(value);
+                    if (out.length() == before) {
+                        complete = false;
+                    }
+                }
+                out.append(literals[i + 1]);
+            }
+            return complete;
+        }
+    }
+
+    private static final class LiteralOp extends Op {
+        final PrintStyle style;
+        final String text;
+        final int lines;
+
+        LiteralOp(PrintStyle style, String text, int lines) {
+            this.style = style;
+            this.text = text;
+            this.lines = lines;
+        }
+
+        @Override
+        void run(Object[] slots, RunContext ctx) {
+            ctx.target.appendString(text, style);
+        }
+
+        @Override
+        int lines(Object[] slots) {
+            return lines;
+        }
+    }
+
+    private static final class TextOp extends Op {
+        final PrintStyle style;
+        final Binding text;
+        final boolean optional;
+
+        TextOp(PrintStyle style, Binding text, boolean optional) {
+            this.style = style;
+            this.text = text;
+            this.optional = optional;
+        }
+
+        @Override
+        void run(Object[] slots, RunContext ctx) {
+            if (text.isLiteral()) {
+                ctx.target.appendString(text.literals[0], style);
+                return;
+            }
+            StringBuilder line = ctx.line;
+            line.setLength(0);
+            if (text.appendTo(line, slots) || !optional) {
+                ctx.target.appendString(line.toString(), style);
+            }
+        }
+    }
+
+    private static final class ColumnsOp extends Op {
+        static final int MAX_WIDTH = 64;
+
+        final PrintStyle style;
+        final Binding[] columns;
+        final int[] widths;
+        final boolean[] rightAligned;
+
+        ColumnsOp(PrintStyle style, Binding[] columns, int[] widths, boolean[] rightAligned) {
+            this.style = style;
+            this.columns = columns;
+            this.widths = widths;
+            this.rightAligned = rightAligned;
+        }
+
+        @Override
+        void run(Object[] slots, RunContext ctx) {
+            StringBuilder line = ctx.line;
+            line.setLength(0);
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    line.append(' ');
+                }
+                int start = line.length();
+                columns[i].appendTo(line, slots);
+                ColumnFormatter.fit(line, start, widths[i], rightAligned[i], "...");
+            }
+            ctx.target.appendString(line.toString(), style);
+        }
+    }
+
+    private static final class FeedOp extends Op {
+        final PrintStyle style;
+        final int count;
+
+        FeedOp(PrintStyle style, int count) {
+            this.style = style;
+            this.count = count;
+        }
+
+        @Override
+        void run(Object[] slots, RunContext ctx) {
+            for (int i = 0; i < count; i++) {
+                ctx.target.appendString("", style);
+            }
+        }
+
+        @Override
+        int lines(Object[] slots) {
+            return count;
+        }
+    }
+
+    private static final class QrOp extends Op {
+        final Binding data;
+        final int size;
+
+        QrOp(Binding data, int size) {
+            this.data = data;
+            this.size = size;
+        }
+
+        @Override
+        void run(Object[] slots, RunContext ctx) {
+            StringBuilder line = ctx.line;
+            line.setLength(0);
+            if (data.appendTo(line, slots)) {
+                ctx.symbols.appendQRCode(ctx.printer, ctx.target, line.toString(), size);
+            }
+        }
+
+        @Override
+        int lines(Object[] slots) {
+            return size / 24;
+        }
+    }
+
+    private static final class BarcodeOp extends Op {
+        final Binding data;
+        final int width;
+        final int height;
+
+        BarcodeOp(Binding data, int width, int height) {
+            this.data = data;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        void run(Object[] slots, RunContext ctx) {
+            StringBuilder line = ctx.line;
+            line.setLength(0);
+            if (data.appendTo(line, slots)) {
+                ctx.symbols.appendBarCode(ctx.printer, ctx.target, line.toString(),
+                        width, height, BarcodeFormat.CODE_128);
+            }
+        }
+
+        @Override
+        int lines(Object[] slots) {
+            return height / 24 + 1;
+        }
+    }
+
+    private static final class RepeatOp extends Op {
+        final int listSlot;
+        final Block body;
+
+        RepeatOp(int listSlot, Block body) {
+            this.listSlot = listSlot;
+            this.body = body;
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<Map<String, Object>> rows(Object[] slots) {
+            Object list = slots[listSlot];
+            return list instanceof List ? (List<Map<String, Object>>) list : Collections.<Map<String, Object>>emptyList();
+        }
+
+        @Override
+        void run(Object[] slots, RunContext ctx) {
+            for (Map<String, Object> row : rows(slots)) {
+                body.runWith(row, ctx);
+            }
+        }
+
+        @Override
+        int lines(Object[] slots) {
+            return rows(slots).size() * body.ops.length;
+        }
+    }
+}
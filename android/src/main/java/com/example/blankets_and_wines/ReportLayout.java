@@ -0,0 +1,239 @@
+package com.example.blankets_and_wines;
+
+import android.util.Log;
+
+import java.util.Map;
+
+/**
+ * ReportLayout - the sections of a printed transaction report
+ *
+ * Shared by the one-shot printTransactionReport and the streaming report, so
+ * both produce the same paper. Transaction rows are formatted into plain lines
+ * first (all rows use the small style), which lets the streaming report format
+ * the next chunk while the previous one is printing.
+ */
+final class ReportLayout {
+
+    private static final String TAG = "SmartposPlugin";
+
+    static final String SEPARATOR = "================================";
+    static final String THIN_SEPARATOR = "--------------------------------";
+
+    // A transaction takes at most three lines: the row, its id and a gap
+    static final int MAX_LINES_PER_TRANSACTION = 3;
+
+    private final PrintTarget target;
+    private final PrintStyle titleStyle;
+    private final PrintStyle headerStyle;
+    private final PrintStyle subHeaderStyle;
+    private final PrintStyle normalStyle;
+    private final PrintStyle smallStyle;
+    private final PrintStyle boldStyle;
+
+    private final ColumnFormatter summaryColumns = new ColumnFormatter().left(20).right(12);
+    // SELLER (14) SALES (8) COUNT (7)
+    private final ColumnFormatter sellerColumns = new ColumnFormatter()
+            .left(14).truncate("..")
+            .right(8)
+            .right(7);
+
+    ReportLayout(PrintTarget target, StyleRegistry styles) {
+        this.target = target;
+        titleStyle = styles.get(StyleRegistry.REPORT_TITLE);
+        headerStyle = styles.get(StyleRegistry.REPORT_HEADER);
+        subHeaderStyle = styles.get(StyleRegistry.REPORT_SUB_HEADER);
+        normalStyle = styles.get(StyleRegistry.NORMAL);
+        smallStyle = styles.get(StyleRegistry.SMALL);
+        boldStyle = styles.get(StyleRegistry.REPORT_BOLD);
+    }
+
+    /** Store name, title, period and the summary block. */
+    void appendHeader(Map<String, Object> reportData) {
+        // Print report header
+        String storeName = (String) reportData.get("storeName");
+        if (storeName != null && !storeName.trim().isEmpty()) {
+            target.appendString(storeName, titleStyle);
+        } else {
+            target.appendString("Blankets And Wine", titleStyle);
+        }
+
+        // Print report title
+        String reportTitle = (String) reportData.get("reportTitle");
+        if (reportTitle != null && !reportTitle.trim().isEmpty()) {
+            target.appendString(reportTitle, headerStyle);
+        } else {
+            target.appendString("TRANSACTION REPORT", headerStyle);
+        }
+
+        target.appendString("", normalStyle); // Empty line
+
+        // Print date range
+        String dateRange = (String) reportData.get("dateRange");
+        if (dateRange != null && !dateRange.trim().isEmpty()) {
+            target.appendString("Period: " + dateRange, normalStyle);
+        }
+
+        // Print generation timestamp
+        String generatedAt = (String) reportData.get("generatedAt");
+        if (generatedAt != null && !generatedAt.trim().isEmpty()) {
+            target.appendString("Generated: " + generatedAt, smallStyle);
+        }
+
+        // Print separator
+        target.appendString(SEPARATOR, normalStyle);
+
+        // Print summary section
+        String totalTransactions = (String) reportData.get("totalTransactions");
+        String totalSales = (String) reportData.get("totalSales");
+        String averageTransaction = (String) reportData.get("averageTransaction");
+
+        if (totalTransactions != null || totalSales != null) {
+            target.appendString("SUMMARY", subHeaderStyle);
+            target.appendString("", normalStyle);
+
+            if (totalTransactions != null) {
+                target.appendString(summaryColumns.start().add("Transactions:").add(totalTransactions).build(), normalStyle);
+            }
+
+            if (totalSales != null) {
+                target.appendString(summaryColumns.start().add("Total Sales:").add("Kshs ", totalSales).build(), boldStyle);
+            }
+
+            if (averageTransaction != null) {
+                target.appendString(summaryColumns.start().add("Average Sale:").add("Kshs ", averageTransaction).build(), normalStyle);
+            }
+
+            target.appendString(SEPARATOR, normalStyle);
+        }
+    }
+
+    /** Section title and column headers above the transaction rows. */
+    void appendTransactionsHeader() {
+        target.appendString("TRANSACTIONS", subHeaderStyle);
+        target.appendString("", normalStyle);
+
+        // Column headers
+        target.appendString("DATE/TIME    SELLER      AMOUNT", boldStyle);
+        target.appendString(THIN_SEPARATOR, normalStyle);
+    }
+
+    /**
+     * Columns for {@link #formatTransaction}: DATE/TIME (12, cut), SELLER
+     * (10, cut with ".."), AMOUNT (8). Each formatting thread needs its own.
+     */
+    static ColumnFormatter transactionColumns() {
+        return new ColumnFormatter()
+                .left(12).truncate("")
+                .left(10).truncate("..")
+                .right(8);
+    }
+
+    /**
+     * Formats one transaction into {@code out} starting at {@code offset}.
+     *
+     * @return the number of lines written (at most MAX_LINES_PER_TRANSACTION)
+     */
+    static int formatTransaction(ColumnFormatter columns, Map<String, Object> transaction,
+                                 String[] out, int offset) {
+        String amount = (String) transaction.get("amount");
+        startTransaction(columns, (String) transaction.get("dateTime"), (String) transaction.get("seller"))
+                .add("Kshs ", amount != null ? amount : "0.00");
+        return finishTransaction(columns, (String) transaction.get("id"), out, offset);
+    }
+
+    /** Same as {@link #formatTransaction(ColumnFormatter, Map, String[], int)} for a row of a binary page. */
+    static int formatTransaction(ColumnFormatter columns, ReportPage page, int row, String[] out, int offset) {
+        startTransaction(columns, page.dateTimes[row], page.sellers[row])
+                .addCents("Kshs ", page.amountCents[row]);
+        return finishTransaction(columns, page.ids[row], out, offset);
+    }
+
+    private static ColumnFormatter startTransaction(ColumnFormatter columns, String dateTime, String seller) {
+        // Handle null values; long values are cut by the columns
+        return columns.start()
+                .add(dateTime != null ? dateTime : "N/A")
+                .add(seller != null ? seller : "Unknown");
+    }
+
+    private static int finishTransaction(ColumnFormatter columns, String id, String[] out, int offset) {
+        int lines = 0;
+        out[offset + lines++] = columns.build();
+
+        // Print transaction ID on next line if available
+        if (id != null && !id.trim().isEmpty()) {
+            out[offset + lines++] = columns.start().text("  ID: ").text(id).build();
+        }
+
+        out[offset + lines++] = ""; // Small gap between transactions
+        return lines;
+    }
+
+    /** Appends lines produced by {@link #formatTransaction}. */
+    void appendTransactionLines(String[] lines, int count) {
+        for (int i = 0; i < count; i++) {
+            target.appendString(lines[i], smallStyle);
+        }
+    }
+
+    void appendSectionEnd() {
+        target.appendString(SEPARATOR, normalStyle);
+    }
+
+    /** Seller breakdown (if any) followed by the report footer. */
+    void appendFooter(Map<String, Object> reportData) {
+        // Print seller breakdown if available
+        @SuppressWarnings("unchecked")
+        Map<String, Object> sellerBreakdown = (Map<String, Object>) reportData.get("sellerBreakdown");
+
+        if (sellerBreakdown != null && !sellerBreakdown.isEmpty()) {
+            target.appendString("SELLER BREAKDOWN", subHeaderStyle);
+            target.appendString("", normalStyle);
+
+            target.appendString("SELLER          SALES      COUNT", boldStyle);
+            target.appendString(THIN_SEPARATOR, normalStyle);
+
+            for (Map.Entry<String, Object> entry : sellerBreakdown.entrySet()) {
+                String sellerName = entry.getKey();
+                @SuppressWarnings("unchecked")
+                Map<String, Object> sellerData = (Map<String, Object>) entry.getValue();
+
+                String sales = (String) sellerData.get("totalSales");
+                String count = (String) sellerData.get("transactionCount");
+
+                sellerColumns.start().add(sellerName);
+                if (sales != null) {
+                    sellerColumns.add("Kshs ", sales);
+                } else {
+                    sellerColumns.add("0");
+                }
+                sellerColumns.add(count != null ? count : "0");
+                target.appendString(sellerColumns.build(), normalStyle);
+            }
+
+            target.appendString(SEPARATOR, normalStyle);
+        }
+
+        // Print footer information
+        String generatedBy = (String) reportData.get("generatedBy");
+        if (generatedBy != null && !generatedBy.trim().isEmpty()) {
+            target.appendString("", normalStyle);
+            target.appendString("Generated by: " + generatedBy, smallStyle);
+        }
+
+        target.appendString("", normalStyle);
+        target.appendString("*** END OF REPORT ***", smallStyle);
+
+        // Extra spacing for easy handling
+        target.appendString("", normalStyle);
+        target.appendString("", normalStyle);
+        target.appendString("", normalStyle);
+
+        // Add line feeds for complete printing
+        try {
+            target.appendString("\n", smallStyle);
+            target.appendString("\n", smallStyle);
+        } catch (Exception e) {
+            Log.w(TAG, "Line feeds not supported", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.blankets_and_wines;
+
+/**
+ * ReportPage - a page of transaction rows decoded from the binary channel
+ *
+ * Rows are kept column-wise with amounts as fixed-point cents, so a page of
+ * thousands of rows costs a handful of arrays rather than a map per row.
+ */
+final class ReportPage {
+
+    final String streamId;
+    final int rowCount;
+    final String[] dateTimes;
+    final String[] sellers;
+    final long[] amountCents;
+    final String[] ids;
+
+    ReportPage(String streamId, int rowCount) {
+        this.streamId = streamId;
+        this.rowCount = rowCount;
+        dateTimes = new String[rowCount];
+        sellers = new String[rowCount];
+        amountCents = new long[rowCount];
+        ids = new String[rowCount];
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.blankets_and_wines;
+
+import com.zcs.sdk.SdkResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * ReportStream - a transaction report printed in fixed-size chunks
+ *
+ * Rows arrive from Dart in pages and are formatted on the report formatter
+ * thread into reusable line buffers. Every CHUNK_TRANSACTIONS rows the buffer
+ * is handed to the print queue as its own job, so the first chunk prints while
+ * later pages are still arriving and being formatted. Only BUFFERED_CHUNKS + 1
+ * buffers exist; when all are waiting on the printer, formatting blocks until
+ * one is printed and recycled, which bounds memory however long the report.
+ *
+ * Streams print one at a time through a shared {@link Gate}, in the order they
+ * began, so two reports never interleave on paper. addRows(), addPage() and
+ * finish() run in tasks handed to {@link #execute}, which holds them back
+ * until the stream has the gate. A report sent whole goes through the same
+ * gate as a single job, see {@link #printWhole}.
+ */
+final class ReportStream {
+
+    static final int CHUNK_TRANSACTIONS = 40;
+    static final int BUFFERED_CHUNKS = 2;
+
+    private static final class Chunk {
+        final String[] lines = new String[CHUNK_TRANSACTIONS * ReportLayout.MAX_LINES_PER_TRANSACTION];
+        int lineCount;
+        int rowCount;
+    }
+
+    /**
+     * Lets one stream at a time print. A stream holds the gate from its header
+     * until its footer has printed, it fails or it is abandoned. Tasks of the
+     * streams behind it wait in those streams, not on the formatter thread,
+     * so the stream printing never waits behind them.
+     */
+    static final class Gate {
+        private final Executor formatter;
+        private final ArrayDeque<ReportStream> waiting = new ArrayDeque<>();
+        private ReportStream active;
+
+        Gate(Executor formatter) {
+            this.formatter = formatter;
+        }
+
+        private void enter(ReportStream stream) {
+            synchronized (this) {
+                if (active != null) {
+                    waiting.add(stream);
+                    return;
+                }
+                active = stream;
+            }
+            stream.open();
+        }
+
+        // Safe to call more than once
+        private void leave(ReportStream stream) {
+            ReportStream next;
+            synchronized (this) {
+                if (active != stream) {
+                    waiting.remove(stream);
+                    return;
+                }
+                next = waiting.poll();
+                active = next;
+            }
+            if (next != null) {
+                next.open();
+            }
+        }
+    }
+
+    final String id;
+
+    private final PrintQueue queue;
+    private final PrinterDevice printer;
+    private final StyleRegistry styles;
+    private final Gate gate;
+    private final ArrayBlockingQueue<Chunk> freeChunks = new ArrayBlockingQueue<>(BUFFERED_CHUNKS + 1);
+
+    // Guarded by this
+    private PrintJob header;
+    private boolean opened;
+    private final List<Runnable> deferred = new ArrayList<>();
+    private int tasks;
+    private long idleSinceNanos = System.nanoTime();
+
+    // Formatter thread state
+    private final ColumnFormatter rowColumns = ReportLayout.transactionColumns();
+    private Chunk current;
+    private boolean rowsStarted;
+    private long rowCount;
+
+    private volatile Exception failure;
+
+    ReportStream(String id, PrintQueue queue, PrinterDevice printer, StyleRegistry styles, Gate gate) {
+        this.id = id;
+        this.queue = queue;
+        this.printer = printer;
+        this.styles = styles;
+        this.gate = gate;
+        for (int i = 0; i < BUFFERED_CHUNKS + 1; i++) {
+            freeChunks.add(new Chunk());
+        }
+    }
+
+    long rowCount() {
+        return rowCount;
+    }
+
+    /** Queues the report header and summary once no earlier stream is printing. */
+    void begin(Map<String, Object> reportData) {
+        synchronized (this) {
+            header = new PrintJob(id + ":header", PrintJob.PRIORITY_REPORT, true, 15,
+                    () -> new ReportLayout(printer, styles).appendHeader(reportData),
+                    new ChunkCallback(null));
+        }
+        gate.enter(this);
+    }
+
+    /**
+     * Queues a report already in hand as one job once no earlier stream is
+     * printing, and holds the gate until it has printed. Used instead of
+     * begin(), addRows() and finish().
+     */
+    void printWhole(int estimatedLines, PrintJob.Body body, PrintJob.Callback callback) {
+        synchronized (this) {
+            header = new PrintJob(id, PrintJob.PRIORITY_REPORT, true, estimatedLines, body,
+                    new PrintJob.Callback() {
+                        @Override
+                        public void onPrinted(int resultCode) {
+                            gate.leave(ReportStream.this);
+                            callback.onPrinted(resultCode);
+                        }
+
+                        @Override
+                        public void onFailed(Exception e) {
+                            gate.leave(ReportStream.this);
+                            callback.onFailed(e);
+                        }
+                    });
+        }
+        gate.enter(this);
+    }
+
+    /** Runs {@code task} on the formatter thread once this stream has the gate. */
+    void execute(Runnable task) {
+        Runnable tracked = () -> {
+            try {
+                task.run();
+            } finally {
+                synchronized (ReportStream.this) {
+                    tasks--;
+                    idleSinceNanos = System.nanoTime();
+                }
+            }
+        };
+        synchronized (this) {
+            tasks++;
+            if (opened) {
+                gate.formatter.execute(tracked);
+            } else {
+                deferred.add(tracked);
+            }
+        }
+    }
+
+    /** How long no task has been waiting or running, in milliseconds. */
+    synchronized long idleMillis() {
+        return tasks > 0 ? 0 : (System.nanoTime() - idleSinceNanos) / 1_000_000;
+    }
+
+    /**
+     * Gives up on the stream: it lets the next one print, and its waiting and
+     * later tasks fail with {@code reason}.
+     */
+    void abandon(Exception reason) {
+        fail(reason);
+        synchronized (this) {
+            if (!opened) {
+                // Never got the gate; its tasks run only to report the failure
+                header = null;
+                release();
+            }
+        }
+    }
+
+    // Called by the gate when this stream's turn comes
+    private void open() {
+        synchronized (this) {
+            if (opened) {
+                return;
+            }
+            if (header != null && failure == null) {
+                queue.submit(header);
+            }
+            header = null;
+            release();
+        }
+        if (failure != null) {
+            gate.leave(this);
+        }
+    }
+
+    // Guarded by this
+    private void release() {
+        opened = true;
+        for (Runnable task : deferred) {
+            gate.formatter.execute(task);
+        }
+        deferred.clear();
+    }
+
+    private void fail(Exception e) {
+        synchronized (this) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        gate.leave(this);
+    }
+
+    /** Formats a page of rows, queuing every full chunk. Blocks while all buffers are in flight. */
+    void addRows(List<Map<String, Object>> rows) throws Exception {
+        checkFailure();
+        for (Map<String, Object> row : rows) {
+            if (current == null) {
+                current = freeChunks.take();
+                checkFailure();
+            }
+            current.lineCount += ReportLayout.formatTransaction(rowColumns, row, current.lines, current.lineCount);
+            current.rowCount++;
+            rowCount++;
+            if (current.rowCount == CHUNK_TRANSACTIONS) {
+                submitCurrent();
+            }
+        }
+    }
+
+    /** Same as {@link #addRows} for a page decoded from the binary channel. */
+    void addPage(ReportPage page) throws Exception {
+        checkFailure();
+        for (int i = 0; i < page.rowCount; i++) {
+            if (current == null) {
+                current = freeChunks.take();
+                checkFailure();
+            }
+            current.lineCount += ReportLayout.formatTransaction(rowColumns, page, i, current.lines, current.lineCount);
+            current.rowCount++;
+            rowCount++;
+            if (current.rowCount == CHUNK_TRANSACTIONS) {
+                submitCurrent();
+            }
+        }
+    }
+
+    /** Flushes the last partial chunk and queues the seller breakdown and footer. */
+    void finish(Map<String, Object> footerData, PrintJob.Callback callback) throws Exception {
+        checkFailure();
+        if (current != null) {
+            submitCurrent();
+        }
+        final boolean closeSection = rowsStarted;
+        queue.submit(new PrintJob(id + ":footer", PrintJob.PRIORITY_REPORT, true, 30, () -> {
+            ReportLayout layout = new ReportLayout(printer, styles);
+            if (closeSection) {
+                layout.appendSectionEnd();
+            }
+            layout.appendFooter(footerData);
+        }, new PrintJob.Callback() {
+            // The report is on paper either way; the next stream may start
+            @Override
+            public void onPrinted(int resultCode) {
+                gate.leave(ReportStream.this);
+                callback.onPrinted(resultCode);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                gate.leave(ReportStream.this);
+                callback.onFailed(e);
+            }
+        }));
+    }
+
+    private void submitCurrent() {
+        final Chunk chunk = current;
+        final boolean withSectionHeader = !rowsStarted;
+        current = null;
+        rowsStarted = true;
+
+        queue.submit(new PrintJob(id + ":rows", PrintJob.PRIORITY_REPORT, true, chunk.lineCount + 4, () -> {
+            ReportLayout layout = new ReportLayout(printer, styles);
+            if (withSectionHeader) {
+                layout.appendTransactionsHeader();
+            }
+            layout.appendTransactionLines(chunk.lines, chunk.lineCount);
+        }, new ChunkCallback(chunk)));
+    }
+
+    private void checkFailure() throws Exception {
+        Exception e = failure;
+        if (e != null) {
+            throw new Exception("Report stopped: " + e.getMessage(), e);
+        }
+    }
+
+    /** Records the first print failure and returns the chunk's buffer to the pool. */
+    private final class ChunkCallback implements PrintJob.Callback {
+        private final Chunk chunk;
+
+        ChunkCallback(Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public void onPrinted(int resultCode) {
+            if (resultCode != SdkResult.SDK_OK) {
+                fail(new Exception("Print failed with code: " + resultCode));
+            }
+            recycle();
+        }
+
+        @Override
+        public void onFailed(Exception e) {
+            fail(e);
+            recycle();
+        }
+
+        private void recycle() {
+            if (chunk != null) {
+                Arrays.fill(chunk.lines, 0, chunk.lineCount, null);
+                chunk.lineCount = 0;
+                chunk.rowCount = 0;
+                freeChunks.offer(chunk);
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.blankets_and_wines;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SalesLedger - append-only file of every receipt that printed
+ *
+ * Each sale is one fixed-width 96-byte record, big-endian:
+ * <pre>
+ *   long timestamp (epoch ms), long amount (cents), int item count,
+ *   60 bytes order id, 16 bytes seller (UTF-8, zero padded)
+ * </pre>
+ * so record i is at i * 96 and the file needs no index. The order id field
+ * holds "ORD-" + a 32-character serial + "-" + any long sequence; longer ids
+ * are rejected rather than cut, since a cut id could match another order.
+ * Sellers are only labels and are cut to fit. A record with an item
+ * count of -1 is not a sale but the start of a shift at its timestamp; see
+ * {@link #appendShiftStart}. Appends are a single
+ * positional write into the page cache, which survives the app being killed;
+ * {@link #force()} makes them durable. A record torn by a crash is dropped
+ * when the ledger is opened.
+ *
+ * Reports read a {@link Snapshot}: the records present when it was taken,
+ * mapped read-only and scanned in place.
+ */
+final class SalesLedger {
+
+    static final int RECORD_BYTES = 96;
+    static final int ORDER_BYTES = 60;
+    // Item count of a shift boundary record
+    static final int SHIFT_START = -1;
+
+    private static final int AMOUNT_OFFSET = 8;
+    private static final int ITEMS_OFFSET = 16;
+    private static final int ORDER_OFFSET = 20;
+    private static final int SELLER_OFFSET = 80;
+    private static final int SELLER_BYTES = 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private volatile long count;
+
+    private SalesLedger(FileChannel channel, long count) {
+        this.channel = channel;
+        this.count = count;
+    }
+
+    static SalesLedger open(File file) throws IOException {
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        long count = channel.size() / RECORD_BYTES;
+        channel.truncate(count * RECORD_BYTES);
+        return new SalesLedger(channel, count);
+    }
+
+    long count() {
+        return count;
+    }
+
+    synchronized void append(String orderId, String seller, long timestampMillis, long amountCents,
+            int itemCount) throws IOException {
+        if (!fitsOrderId(orderId)) {
+            throw new IllegalArgumentException("Order id longer than " + ORDER_BYTES + " bytes: " + orderId);
+        }
+        record.clear();
+        record.putLong(timestampMillis);
+        record.putLong(amountCents);
+        record.putInt(itemCount);
+        putFixed(orderId, ORDER_BYTES);
+        putFixed(seller, SELLER_BYTES);
+        record.flip();
+        long position = count * RECORD_BYTES;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        count++;
+    }
+
+    /** Whether {@code orderId} can be recorded whole; null always can. */
+    static boolean fitsOrderId(String orderId) {
+        return orderId == null || orderId.getBytes(StandardCharsets.UTF_8).length <= ORDER_BYTES;
+    }
+
+    /**
+     * Marks the start of a shift, so the shift totals can be rebuilt from the
+     * ledger alone. Reports and summaries skip it.
+     */
+    void appendShiftStart(long timestampMillis) throws IOException {
+        append(null, null, timestampMillis, 0, SHIFT_START);
+    }
+
+    // UTF-8, cut at a character boundary and zero padded to width
+    private void putFixed(String text, int width) {
+        int end = record.position() + width;
+        if (text != null) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, width);
+            while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+                length--;
+            }
+            record.put(bytes, 0, length);
+        }
+        while (record.position() < end) {
+            record.put((byte) 0);
+        }
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    /** The records written so far, mapped for reading. */
+    Snapshot snapshot() throws IOException {
+        long records = count;
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, records * RECORD_BYTES);
+        return new Snapshot(map, (int) records);
+    }
+
+    /** Read-only view of a prefix of the ledger; record indexes run from 0. */
+    static final class Snapshot {
+        private final ByteBuffer map;
+        final int count;
+
+        Snapshot(ByteBuffer map, int count) {
+            this.map = map;
+            this.count = count;
+        }
+
+        long timestamp(int index) {
+            return map.getLong(index * RECORD_BYTES);
+        }
+
+        long amountCents(int index) {
+            return map.getLong(index * RECORD_BYTES + AMOUNT_OFFSET);
+        }
+
+        int itemCount(int index) {
+            return map.getInt(index * RECORD_BYTES + ITEMS_OFFSET);
+        }
+
+        boolean isShiftStart(int index) {
+            return itemCount(index) == SHIFT_START;
+        }
+
+        String orderId(int index) {
+            return fixed(index * RECORD_BYTES + ORDER_OFFSET, ORDER_BYTES);
+        }
+
+        String seller(int index) {
+            return fixed(index * RECORD_BYTES + SELLER_OFFSET, SELLER_BYTES);
+        }
+
+        private String fixed(int offset, int width) {
+            int length = 0;
+            while (length < width && map.get(offset + length) != 0) {
+                length++;
+            }
+            if (length == 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = map.get(offset + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /** Totals over sales with {@code from <= timestamp < to}, one sequential pass. */
+        Summary summarize(long from, long to) {
+            Summary summary = new Summary();
+            for (int i = 0; i < count; i++) {
+                long timestamp = timestamp(i);
+                if (timestamp < from || timestamp >= to || isShiftStart(i)) {
+                    continue;
+                }
+                long cents = amountCents(i);
+                summary.sales++;
+                summary.totalCents += cents;
+                summary.items += itemCount(i);
+                String seller = seller(i);
+                long[] perSeller = summary.bySeller.get(seller);
+                if (perSeller == null) {
+                    perSeller = new long[2];
+                    summary.bySeller.put(seller, perSeller);
+                }
+                perSeller[0] += cents;
+                perSeller[1]++;
+            }
+            return summary;
+        }
+    }
+
+    static final class Summary {
+        long sales;
+        long totalCents;
+        long items;
+        // Seller (null when none was given) to {cents, sales}, in order of first sale
+        final Map<String, long[]> bySeller = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.blankets_and_wines;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+
+/**
+ * SalesRollup - running totals of the current shift, kept as sales print
+ *
+ * Every sale goes through {@link #record}, which appends it to the
+ * {@link SalesLedger} and folds it into the totals: count, cents and items,
+ * per seller (sellers are interned to ids that index primitive arrays) and
+ * per hour of the day. A summary therefore costs O(sellers), however many
+ * sales the shift has.
+ *
+ * The totals are checkpointed to a small file every {@link #CHECKPOINT_EVERY}
+ * sales, written on the given executor. The checkpoint records how many
+ * ledger records it covers, so opening replays only the ledger tail after it.
+ * Closing a shift writes a boundary record to the ledger, so the ledger stays
+ * the source of truth: without a checkpoint the shift is rebuilt from the
+ * last boundary, and a stale or missing checkpoint only costs a longer replay.
+ */
+final class SalesRollup {
+
+    static final int CHECKPOINT_EVERY = 256;
+
+    private static final int MAGIC = 0x524F4C4C; // "ROLL"
+    private static final int VERSION = 1;
+    private static final int HOURS = 24;
+    private static final long HOUR_MILLIS = 3600_000L;
+
+    private final SalesLedger ledger;
+    private final File file;
+    private final Executor writer;
+    private final TimeZone zone;
+
+    // Ledger records folded in, and the first record of the shift
+    private long applied;
+    private long shiftStartRecord;
+    private long shiftStartMillis;
+
+    private long sales;
+    private long totalCents;
+    private long items;
+    private final long[] hourCents = new long[HOURS];
+    private final long[] hourSales = new long[HOURS];
+
+    // Seller id is the index into these; null (no seller) is interned too
+    private final Map<String, Integer> sellerIds = new HashMap<>();
+    private final List<String> sellerNames = new ArrayList<>();
+    private long[] sellerCents = new long[8];
+    private long[] sellerSales = new long[8];
+
+    private long sinceCheckpoint;
+    // Held from copying the totals to the rename, so checkpoints land in order
+    private final Object checkpointLock = new Object();
+
+    private SalesRollup(SalesLedger ledger, File file, Executor writer, TimeZone zone) {
+        this.ledger = ledger;
+        this.file = file;
+        this.writer = writer;
+        this.zone = zone;
+    }
+
+    /**
+     * Loads the checkpoint in {@code file}, if any, and folds in the ledger
+     * records written after it.
+     */
+    static SalesRollup open(SalesLedger ledger, File file, Executor writer, TimeZone zone)
+            throws IOException {
+        SalesRollup rollup = new SalesRollup(ledger, file, writer, zone);
+        SalesLedger.Snapshot snapshot = ledger.snapshot();
+        if (!rollup.load()) {
+            // The shift began at the last boundary; before the first one, at
+            // the first sale. Earlier, closed shifts are not folded in
+            rollup.shiftStartMillis = System.currentTimeMillis();
+            for (int i = snapshot.count - 1; i >= 0; i--) {
+                if (snapshot.isShiftStart(i)) {
+                    rollup.applied = i;
+                    break;
+                }
+            }
+        }
+        if (rollup.applied > snapshot.count) {
+            // The checkpoint counted records the ledger lost in a crash
+            rollup.reset(Math.min(rollup.shiftStartRecord, snapshot.count), rollup.shiftStartMillis);
+            rollup.applied = rollup.shiftStartRecord;
+        }
+        for (int i = (int) rollup.applied; i < snapshot.count; i++) {
+            if (snapshot.isShiftStart(i)) {
+                rollup.reset(i + 1, snapshot.timestamp(i));
+                rollup.applied = i + 1;
+                continue;
+            }
+            rollup.fold(snapshot.seller(i), snapshot.timestamp(i), snapshot.amountCents(i),
+                    snapshot.itemCount(i));
+        }
+        return rollup;
+    }
+
+    /** Appends a sale to the ledger and adds it to the shift totals. */
+    synchronized void record(String orderId, String seller, long timestampMillis, long amountCents,
+            int itemCount) throws IOException {
+        ledger.append(orderId, seller, timestampMillis, amountCents, itemCount);
+        fold(seller, timestampMillis, amountCents, itemCount);
+        if (++sinceCheckpoint >= CHECKPOINT_EVERY) {
+            sinceCheckpoint = 0;
+            writer.execute(this::checkpointQuietly);
+        }
+    }
+
+    private void fold(String seller, long timestampMillis, long amountCents, int itemCount) {
+        applied++;
+        sales++;
+        totalCents += amountCents;
+        items += itemCount;
+
+        int hour = hourOf(timestampMillis);
+        hourCents[hour] += amountCents;
+        hourSales[hour]++;
+
+        int id = sellerId(seller);
+        sellerCents[id] += amountCents;
+        sellerSales[id]++;
+    }
+
+    private int hourOf(long timestampMillis) {
+        long local = timestampMillis + zone.getOffset(timestampMillis);
+        int hour = (int) ((local / HOUR_MILLIS) % HOURS);
+        return hour >= 0 ? hour : hour + HOURS;
+    }
+
+    private int sellerId(String seller) {
+        Integer id = sellerIds.get(seller);
+        if (id != null) {
+            return id;
+        }
+        int next = sellerNames.size();
+        if (next == sellerCents.length) {
+            sellerCents = Arrays.copyOf(sellerCents, next * 2);
+            sellerSales = Arrays.copyOf(sellerSales, next * 2);
+        }
+        sellerIds.put(seller, next);
+        sellerNames.add(seller);
+        return next;
+    }
+
+    private void reset(long startRecord, long startMillis) {
+        shiftStartRecord = startRecord;
+        shiftStartMillis = startMillis;
+        sales = 0;
+        totalCents = 0;
+        items = 0;
+        Arrays.fill(hourCents, 0);
+        Arrays.fill(hourSales, 0);
+        sellerIds.clear();
+        sellerNames.clear();
+        Arrays.fill(sellerCents, 0);
+        Arrays.fill(sellerSales, 0);
+    }
+
+    // ==================== SUMMARIES ====================
+
+    /** Totals of the shift so far, ready to send over the channel. */
+    synchronized Map<String, Object> summary() {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("shiftStart", shiftStartMillis);
+        summary.put("sales", sales);
+        summary.put("totalCents", totalCents);
+        summary.put("items", items);
+        long averageCents = sales > 0 ? totalCents / sales : 0;
+        summary.put("averageCents", averageCents);
+
+        List<Map<String, Object>> sellers = new ArrayList<>(sellerNames.size());
+        Map<String, Object> sellerBreakdown = new LinkedHashMap<>();
+        for (int id = 0; id < sellerNames.size(); id++) {
+            String name = sellerNames.get(id) != null ? sellerNames.get(id) : "Unknown";
+            Map<String, Object> seller = new HashMap<>();
+            seller.put("seller", name);
+            seller.put("totalCents", sellerCents[id]);
+            seller.put("sales", sellerSales[id]);
+            sellers.add(seller);
+
+            Map<String, Object> breakdown = new HashMap<>();
+            breakdown.put("totalSales", PayloadCodec.formatCents(sellerCents[id]));
+            breakdown.put("transactionCount", String.valueOf(sellerSales[id]));
+            sellerBreakdown.put(name, breakdown);
+        }
+        summary.put("sellers", sellers);
+
+        List<Long> hourlyCents = new ArrayList<>(HOURS);
+        List<Long> hourlySales = new ArrayList<>(HOURS);
+        for (int hour = 0; hour < HOURS; hour++) {
+            hourlyCents.add(hourCents[hour]);
+            hourlySales.add(hourSales[hour]);
+        }
+        summary.put("hourlyCents", hourlyCents);
+        summary.put("hourlySales", hourlySales);
+
+        // The same totals in the fields ReportLayout prints
+        summary.put("totalTransactions", String.valueOf(sales));
+        summary.put("totalSales", PayloadCodec.formatCents(totalCents));
+        summary.put("averageTransaction", PayloadCodec.formatCents(averageCents));
+        summary.put("sellerBreakdown", sellerBreakdown);
+        return summary;
+    }
+
+    /**
+     * Ends the shift: returns its summary and starts a new one from the next
+     * sale. The boundary goes into the ledger and the new shift is
+     * checkpointed before returning, so a restart cannot fold the closed
+     * shift's sales back in; call it off the main thread.
+     */
+    Map<String, Object> closeShift() throws IOException {
+        Map<String, Object> closed;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            ledger.appendShiftStart(now);
+            closed = summary();
+            closed.put("shiftEnd", now);
+            applied++;
+            reset(applied, now);
+            sinceCheckpoint = 0;
+        }
+        checkpoint();
+        return closed;
+    }
+
+    // ==================== CHECKPOINTS ====================
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            // The next checkpoint or a longer replay on open covers it
+        }
+    }
+
+    /** Writes the totals to the checkpoint file; copied under the lock, written outside it. */
+    void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            write(copyState());
+        }
+    }
+
+    private synchronized byte[] copyState() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + sellerNames.size() * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(applied);
+        out.writeLong(shiftStartRecord);
+        out.writeLong(shiftStartMillis);
+        out.writeLong(sales);
+        out.writeLong(totalCents);
+        out.writeLong(items);
+        for (int hour = 0; hour < HOURS; hour++) {
+            out.writeLong(hourCents[hour]);
+            out.writeLong(hourSales[hour]);
+        }
+        out.writeInt(sellerNames.size());
+        for (int id = 0; id < sellerNames.size(); id++) {
+            String name = sellerNames.get(id);
+            out.writeBoolean(name != null);
+            if (name != null) {
+                out.writeUTF(name);
+            }
+            out.writeLong(sellerCents[id]);
+            out.writeLong(sellerSales[id]);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void write(byte[] state) throws IOException {
+        File writing = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(writing)) {
+            out.write(state);
+            out.getFD().sync();
+        }
+        if (!writing.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    // Returns false, leaving the totals empty, when there is no usable checkpoint
+    private boolean load() {
+        if (!file.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            applied = in.readLong();
+            shiftStartRecord = in.readLong();
+            shiftStartMillis = in.readLong();
+            sales = in.readLong();
+            totalCents = in.readLong();
+            items = in.readLong();
+            for (int hour = 0; hour < HOURS; hour++) {
+                hourCents[hour] = in.readLong();
+                hourSales[hour] = in.readLong();
+            }
+            int sellers = in.readInt();
+            for (int i = 0; i < sellers; i++) {
+                String name = in.readBoolean() ? in.readUTF() : null;
+                int id = sellerId(name);
+                sellerCents[id] = in.readLong();
+                sellerSales[id] = in.readLong();
+            }
+            return true;
+        } catch (IOException e) {
+            // Torn or foreign file: start over from the whole ledger
+            applied = 0;
+            reset(0, 0);
+            return false;
+        }
+    }
+}
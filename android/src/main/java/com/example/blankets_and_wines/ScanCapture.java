@@ -0,0 +1,160 @@
+package com.example.blankets_and_wines;
+
+import android.util.Log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ScanCapture - reads decoded codes straight from the scanner, off the main thread
+ *
+ * Replaces capturing the scanner's keyboard output in an EditText, which
+ * tied each scan to UI-thread focus and layout and allocated a view per
+ * scan. Codes are received through the SDK into one reused buffer on the
+ * calling (scanner) thread; the only allocation per code is its String.
+ *
+ * Waits are split into short receives so {@link #cancel()} takes effect
+ * within one poll. Each scan belongs to the session {@link #arm()} returned
+ * and runs only while that session is current, so a cancel is never undone
+ * by the next arm: a stopped session stays stopped even if a new one starts
+ * before it has polled again. Latency from trigger to decoded code is
+ * recorded for every single scan.
+ */
+final class ScanCapture {
+
+    private static final String TAG = "SmartposPlugin";
+
+    static final int BUFFER_BYTES = 1024;
+    static final int POLL_MILLIS = 200;
+    // Pause after a receive error so a failing scanner is not spun on
+    private static final long ERROR_BACKOFF_MILLIS = 100;
+
+    private final ScannerDevice scanner;
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private final LatencyHistogram latency = new LatencyHistogram();
+    // Bumped by every arm and cancel; a scan runs while it equals its session
+    private final AtomicInteger session = new AtomicInteger();
+    private volatile int lastError;
+
+    ScanCapture(ScannerDevice scanner) {
+        this.scanner = scanner;
+    }
+
+    /**
+     * Starts a session for the next scan. Called when a scan is requested,
+     * before it is queued, so a cancel that arrives before the scan starts
+     * still counts.
+     */
+    int arm() {
+        return session.incrementAndGet();
+    }
+
+    /** Ends the current session's wait within one poll. */
+    void cancel() {
+        session.incrementAndGet();
+    }
+
+    private boolean current(int armed) {
+        return session.get() == armed;
+    }
+
+    /** The last negative SdkResult from the scanner, 0 if none. */
+    int lastError() {
+        return lastError;
+    }
+
+    /**
+     * Starts decoding and waits for one code, for at most
+     * {@code timeoutMillis}. Returns null on timeout, cancel or error.
+     * {@code armed} is the session from {@link #arm()}; {@code triggerNanos}
+     * is when the scan was asked for.
+     */
+    String scanOnce(int armed, long triggerNanos, long timeoutMillis) {
+        lastError = 0;
+        int status = scanner.startDecoding();
+        if (status < 0) {
+            lastError = status;
+            return null;
+        }
+        try {
+            long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+            while (current(armed)) {
+                long remaining = (deadline - System.nanoTime()) / 1_000_000;
+                if (remaining <= 0) {
+                    return null;
+                }
+                int length = scanner.receive(buffer, (int) Math.min(POLL_MILLIS, remaining));
+                if (length < 0) {
+                    lastError = length;
+                    return null;
+                }
+                String code = decode(length);
+                if (code != null) {
+                    latency.record(System.nanoTime() - triggerNanos);
+                    return code;
+                }
+            }
+            return null;
+        } finally {
+            scanner.stopDecoding();
+        }
+    }
+
+    /**
+     * Starts decoding and passes every code to {@code scan} until session
+     * {@code armed} is cancelled or another is armed.
+     */
+    void scanContinuously(int armed, ContinuousScan scan) {
+        lastError = 0;
+        int status = scanner.startDecoding();
+        if (status < 0) {
+            lastError = status;
+            return;
+        }
+        try {
+            while (current(armed)) {
+                int length = scanner.receive(buffer, POLL_MILLIS);
+                if (length < 0) {
+                    lastError = length;
+                    Log.w(TAG, "Scanner receive failed: " + length);
+                    try {
+                        Thread.sleep(ERROR_BACKOFF_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    continue;
+                }
+                String code = decode(length);
+                if (code != null) {
+                    scan.offer(code);
+                }
+            }
+        } finally {
+            scanner.stopDecoding();
+        }
+    }
+
+    // The scanner ends codes with CR / LF like a keyboard would
+    private String decode(int length) {
+        int start = 0;
+        int end = Math.min(length, buffer.length);
+        while (start < end && (buffer[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        return end > start ? new String(buffer, start, end - start, StandardCharsets.UTF_8) : null;
+    }
+
+    /** Trigger-to-code latency of single scans. */
+    Map<String, Object> latencySnapshot() {
+        return latency.snapshot();
+    }
+
+    void resetLatency() {
+        latency.reset();
+    }
+}
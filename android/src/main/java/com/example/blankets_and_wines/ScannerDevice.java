@@ -0,0 +1,28 @@
+package com.example.blankets_and_wines;
+
+/**
+ * ScannerDevice - the built-in QR scanner
+ *
+ * Besides typing decoded text into the focused input like a keyboard, the
+ * scanner hands decoded codes straight to the SDK once decoding is started,
+ * which is how the plugin reads them (see ScanCapture).
+ */
+interface ScannerDevice {
+
+    void setEnabled(boolean enabled);
+
+    void setPowered(boolean powered);
+
+    /** Returns an SdkResult code. */
+    int startDecoding();
+
+    /**
+     * Waits up to {@code timeoutMillis} for the next decoded code and copies
+     * it into {@code buffer}. Returns its length, 0 if nothing was decoded in
+     * time, or a negative SdkResult code.
+     */
+    int receive(byte[] buffer, int timeoutMillis);
+
+    /** Returns an SdkResult code. */
+    int stopDecoding();
+}
@@ -0,0 +1,308 @@
+package com.example.blankets_and_wines;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SdkTrace - fixed-size ring buffer of ZCS SDK calls
+ *
+ * Each call made through {@link InstrumentedDevices} can be recorded with its
+ * start and end nanoTime, call id, thread and return code. The buffer is
+ * allocated once, as parallel primitive arrays, and recording claims a slot
+ * with one atomic increment and writes it in place, so tracing allocates
+ * nothing. While tracing is off a call costs one volatile read.
+ *
+ * Once full, the oldest calls are overwritten. A dump taken while calls are
+ * still being recorded skips the slots being written at that moment.
+ */
+final class SdkTrace {
+
+    static final int DEFAULT_CAPACITY = 4096;
+
+    // Call ids, named after the SDK method each one wraps
+    static final int SDK_INIT = 0;
+    static final int SYS_POWER_ON = 1;
+    static final int GET_SN = 2;
+    static final int GET_FIRMWARE_VER = 3;
+    static final int GET_BASE_SDK_VER = 4;
+    static final int GET_SDK_VERSION = 5;
+    static final int PRINT_APPEND_STRING = 6;
+    static final int PRINT_APPEND_BITMAP = 7;
+    static final int PRINTER_STATUS = 8;
+    static final int PRINT_START = 9;
+    static final int PRINT_BITMAP = 10;
+    static final int PRINT_CUT = 11;
+    static final int CREATE_QR_CODE = 12;
+    static final int CREATE_BARCODE = 13;
+    static final int LCD_SHOW_STRING = 14;
+    static final int QR_SCANNER_CTRL = 15;
+    static final int QR_SCANNER_POWER_CTRL = 16;
+    static final int QR_START_DECODING = 17;
+    static final int QR_RECEIVE_DATA = 18;
+    static final int QR_STOP_DECODING = 19;
+
+    static final String[] CALL_NAMES = {
+            "sdkInit", "sysPowerOn", "getSN", "getFirmwareVer", "getBaseSdkVer",
+            "getSdkVersion", "setPrintAppendString", "setPrintAppendBitmap",
+            "getPrinterStatus", "setPrintStart", "setPrintBitmap", "openPrnCutter",
+            "createQRCode", "createBarcode", "showStringOnLcd", "QRScanerCtrl",
+            "QRScanerPowerCtrl", "QRstartDecoding", "QRreciveData", "QRstopDecoding",
+    };
+
+    // Return codes for calls that do not return an SdkResult
+    static final int CODE_OK = 0;
+    static final int CODE_NULL = Integer.MIN_VALUE + 1;
+    static final int CODE_THREW = Integer.MIN_VALUE;
+
+    // "SDKT"
+    static final int BINARY_MAGIC = 0x53444B54;
+    static final byte BINARY_VERSION = 1;
+    // start offset, duration, thread, call, code
+    static final int BINARY_ENTRY_BYTES = 8 + 8 + 4 + 1 + 4;
+
+    private final int mask;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] threads;
+    private final byte[] calls;
+    private final int[] codes;
+    // Claim number + 1 of the call in each slot, written last; 0 while unwritten
+    private final long[] sequence;
+
+    private final AtomicLong next = new AtomicLong();
+    private volatile boolean enabled;
+
+    /** {@code capacity} is rounded up to a power of two. */
+    SdkTrace(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        starts = new long[size];
+        ends = new long[size];
+        threads = new long[size];
+        calls = new byte[size];
+        codes = new int[size];
+        sequence = new long[size];
+    }
+
+    static int codeOf(Object returned) {
+        return returned != null ? CODE_OK : CODE_NULL;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /** Calls recorded since the last clear, including overwritten ones. */
+    long recorded() {
+        return next.get();
+    }
+
+    void record(int call, long startNanos, long endNanos, int code) {
+        long claim = next.getAndIncrement();
+        int slot = (int) claim & mask;
+        sequence[slot] = 0;
+        starts[slot] = startNanos;
+        ends[slot] = endNanos;
+        threads[slot] = Thread.currentThread().getId();
+        calls[slot] = (byte) call;
+        codes[slot] = code;
+        sequence[slot] = claim + 1;
+    }
+
+    void clear() {
+        next.set(0);
+        Arrays.fill(sequence, 0);
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("capacity", capacity());
+        stats.put("recorded", recorded());
+        return stats;
+    }
+
+    // ==================== EXPORT ====================
+
+    /** Copy of the calls still in the buffer, oldest first. */
+    Snapshot snapshot() {
+        long last = next.get();
+        long first = Math.max(0, last - capacity());
+        Snapshot snapshot = new Snapshot((int) (last - first), last);
+        for (long claim = first; claim < last; claim++) {
+            int slot = (int) claim & mask;
+            if (sequence[slot] != claim + 1) {
+                continue;
+            }
+            int i = snapshot.count;
+            snapshot.starts[i] = starts[slot];
+            snapshot.ends[i] = ends[slot];
+            snapshot.threads[i] = threads[slot];
+            snapshot.calls[i] = calls[slot];
+            snapshot.codes[i] = codes[slot];
+            if (sequence[slot] == claim + 1) {
+                snapshot.count++;
+            }
+        }
+        return snapshot;
+    }
+
+    static final class Snapshot {
+        final long[] starts;
+        final long[] ends;
+        final long[] threads;
+        final byte[] calls;
+        final int[] codes;
+        final long recorded;
+        int count;
+
+        Snapshot(int size, long recorded) {
+            starts = new long[size];
+            ends = new long[size];
+            threads = new long[size];
+            calls = new byte[size];
+            codes = new int[size];
+            this.recorded = recorded;
+        }
+
+        Set<Long> threadIds() {
+            Set<Long> ids = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                ids.add(threads[i]);
+            }
+            return ids;
+        }
+
+        long baseNanos() {
+            long base = Long.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                base = Math.min(base, starts[i]);
+            }
+            return count > 0 ? base : 0;
+        }
+
+        /**
+         * Big-endian binary dump:
+         * <pre>
+         *   int    magic "SDKT", byte version
+         *   byte   call name count, then per name: short length + UTF-8 bytes
+         *   long   calls recorded (including overwritten), long base nanoTime
+         *   int    entry count, then per entry:
+         *          long start - base, long duration, int thread id, byte call, int code
+         * </pre>
+         */
+        byte[] toBinary() {
+            byte[][] names = new byte[CALL_NAMES.length][];
+            int size = 4 + 1 + 1 + 8 + 8 + 4 + count * BINARY_ENTRY_BYTES;
+            for (int i = 0; i < names.length; i++) {
+                names[i] = CALL_NAMES[i].getBytes(StandardCharsets.UTF_8);
+                size += 2 + names[i].length;
+            }
+            long base = baseNanos();
+            ByteBuffer out = ByteBuffer.allocate(size);
+            out.putInt(BINARY_MAGIC).put(BINARY_VERSION).put((byte) names.length);
+            for (byte[] name : names) {
+                out.putShort((short) name.length).put(name);
+            }
+            out.putLong(recorded).putLong(base).putInt(count);
+            for (int i = 0; i < count; i++) {
+                out.putLong(starts[i] - base)
+                        .putLong(ends[i] - starts[i])
+                        .putInt((int) threads[i])
+                        .put(calls[i])
+                        .putInt(codes[i]);
+            }
+            return out.array();
+        }
+
+        /**
+         * Chrome trace event JSON (chrome://tracing, Perfetto): one complete
+         * event per call, with thread names for threads that are still alive.
+         */
+        String toChromeJson(Map<Long, String> threadNames) {
+            long base = baseNanos();
+            StringBuilder json = new StringBuilder(128 + count * 128);
+            json.append("{\"displayTimeUnit\":\"ns\",\"otherData\":{\"recorded\":")
+                    .append(recorded).append(",\"exported\":").append(count)
+                    .append("},\"traceEvents\":[");
+            boolean first = true;
+            for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                json.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":")
+                        .append(thread.getKey()).append(",\"args\":{\"name\":");
+                appendJsonString(json, thread.getValue());
+                json.append("}}");
+            }
+            for (int i = 0; i < count; i++) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                json.append("{\"name\":\"").append(CALL_NAMES[calls[i]])
+                        .append("\",\"cat\":\"sdk\",\"ph\":\"X\",\"ts\":");
+                appendMicros(json, starts[i] - base);
+                json.append(",\"dur\":");
+                appendMicros(json, ends[i] - starts[i]);
+                json.append(",\"pid\":1,\"tid\":").append(threads[i]).append(",\"args\":{\"code\":");
+                switch (codes[i]) {
+                    case CODE_THREW:
+                        json.append("\"threw\"");
+                        break;
+                    case CODE_NULL:
+                        json.append("\"null\"");
+                        break;
+                    default:
+                        json.append(codes[i]);
+                        break;
+                }
+                json.append("}}");
+            }
+            return json.append("]}").toString();
+        }
+
+        // Chrome trace timestamps are fractional microseconds
+        private static void appendMicros(StringBuilder json, long nanos) {
+            json.append(nanos / 1000).append('.');
+            long fraction = nanos % 1000;
+            if (fraction < 100) {
+                json.append('0');
+            }
+            if (fraction < 10) {
+                json.append('0');
+            }
+            json.append(fraction);
+        }
+
+        private static void appendJsonString(StringBuilder json, String value) {
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    json.append('\\').append(c);
+                } else if (c < 0x20) {
+                    json.append(' ');
+                } else {
+                    json.append(c);
+                }
+            }
+            json.append('"');
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.blankets_and_wines;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SizedLru - least recently used map bounded by entry count and by bytes
+ *
+ * Callers pass each value's size in bytes when storing it, so the map never
+ * looks inside its values. Lookups count hits and misses, and entries pushed
+ * out by the bounds count as evictions. All methods are synchronized.
+ */
+final class SizedLru<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+        final long bytes;
+
+        Entry(V value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    SizedLru(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /** The value for {@code key}, now the most recently used, or null on a miss. */
+    synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+            return entry.value;
+        }
+        misses++;
+        return null;
+    }
+
+    synchronized void put(K key, V value, long size) {
+        Entry<V> previous = entries.put(key, new Entry<>(value, size));
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += size;
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        // Always keep the newest entry, even if it alone exceeds the byte budget
+        while (entries.size() > 1 && (entries.size() > maxEntries || bytes > maxBytes)) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    synchronized void resetCounters() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        long lookups = hits + misses;
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        stats.put("hitRate", lookups > 0 ? (double) hits / lookups : 0.0);
+        stats.put("entries", entries.size());
+        stats.put("bytes", bytes);
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxBytes", maxBytes);
+        return stats;
+    }
+}
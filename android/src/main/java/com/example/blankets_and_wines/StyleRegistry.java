@@ -0,0 +1,87 @@
+package com.example.blankets_and_wines;
+
+import com.zcs.sdk.print.PrnStrFormat;
+import com.zcs.sdk.print.PrnTextFont;
+import com.zcs.sdk.print.PrnTextStyle;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * StyleRegistry - named palette of print styles shared by every print job
+ *
+ * Holds the built-in receipt and report styles plus any styles registered
+ * from Dart. Lookups are lock-free; registering a style under an existing
+ * name replaces it for jobs that start afterwards.
+ */
+final class StyleRegistry {
+
+    // Receipt styles
+    static final String HEADER = "header";
+    static final String SUB_HEADER = "subHeader";
+    static final String NORMAL = "normal";
+    static final String BOLD = "bold";
+    static final String ORDER_NUMBER = "orderNumber";
+    static final String SMALL = "small";
+    static final String MEDIA = "media";
+
+    // Transaction report styles
+    static final String REPORT_TITLE = "reportTitle";
+    static final String REPORT_HEADER = "reportHeader";
+    static final String REPORT_SUB_HEADER = "reportSubHeader";
+    static final String REPORT_BOLD = "reportBold";
+
+    // Plain printText
+    static final String TEXT = "text";
+
+    private final Map<String, PrintStyle> styles = new ConcurrentHashMap<>();
+
+    StyleRegistry() {
+        register(new PrintStyle(HEADER, 50, PrnTextStyle.BOLD, PrnTextFont.SANS_SERIF, PrintStyle.Align.CENTER));
+        register(new PrintStyle(SUB_HEADER, 30, PrnTextStyle.BOLD, PrnTextFont.SANS_SERIF, PrintStyle.Align.CENTER));
+        register(new PrintStyle(NORMAL, 22, PrnTextStyle.NORMAL, PrnTextFont.MONOSPACE, PrintStyle.Align.LEFT));
+        register(new PrintStyle(BOLD, 26, PrnTextStyle.BOLD, PrnTextFont.MONOSPACE, PrintStyle.Align.LEFT));
+        register(new PrintStyle(ORDER_NUMBER, 40, PrnTextStyle.BOLD, PrnTextFont.SANS_SERIF, PrintStyle.Align.CENTER));
+        register(new PrintStyle(SMALL, 20, PrnTextStyle.NORMAL, PrnTextFont.MONOSPACE, PrintStyle.Align.LEFT));
+        register(new PrintStyle(MEDIA, 25, PrnTextStyle.NORMAL, PrnTextFont.MONOSPACE, PrintStyle.Align.LEFT));
+
+        register(new PrintStyle(REPORT_TITLE, 45, PrnTextStyle.BOLD, PrnTextFont.SANS_SERIF, PrintStyle.Align.CENTER));
+        register(new PrintStyle(REPORT_HEADER, 35, PrnTextStyle.BOLD, PrnTextFont.SANS_SERIF, PrintStyle.Align.CENTER));
+        register(new PrintStyle(REPORT_SUB_HEADER, 28, PrnTextStyle.BOLD, PrnTextFont.MONOSPACE, PrintStyle.Align.LEFT));
+        register(new PrintStyle(REPORT_BOLD, 24, PrnTextStyle.BOLD, PrnTextFont.MONOSPACE, PrintStyle.Align.LEFT));
+
+        register(new PrintStyle(TEXT, 40, PrnTextStyle.NORMAL, PrnTextFont.MONOSPACE, PrintStyle.Align.LEFT));
+    }
+
+    void register(PrintStyle style) {
+        styles.put(style.name, style);
+    }
+
+    /** Returns the named style, or null if nothing is registered under that name. */
+    PrintStyle find(String name) {
+        return name != null ? styles.get(name) : null;
+    }
+
+    PrintStyle get(String name) {
+        PrintStyle style = styles.get(name);
+        if (style == null) {
+            throw new IllegalArgumentException("Unknown print style: " + name);
+        }
+        return style;
+    }
+
+    PrnStrFormat format(String name) {
+        return get(name).format();
+    }
+
+    /** Builds the SDK format of every registered style so the first print pays nothing. */
+    void prewarm() {
+        for (PrintStyle style : styles.values()) {
+            style.format();
+        }
+    }
+
+    int size() {
+        return styles.size();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.blankets_and_wines;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.Map;
+
+/**
+ * SymbolCache - LRU cache of rendered QR codes and barcodes
+ *
+ * setPrintAppendQRCode / setPrintAppendBarCode encode the symbol and render a
+ * full ARGB bitmap on every call. Here each symbol is rendered once, reduced to
+ * a 1-byte-per-pixel ALPHA_8 mask (opaque where the module is dark), and kept
+ * by (format, width, height, data). Repeat prints append the cached mask with
+ * setPrintAppendBitmap, which draws it black on the white print canvas exactly
+ * as the SDK does with its own bitmap.
+ *
+ * The cache is a {@link SizedLru} bounded by entry count and by bitmap bytes.
+ * Evicted bitmaps are not recycled, since a queued job may still be appending
+ * them; they are left to the garbage collector.
+ */
+final class SymbolCache {
+
+    static final int DEFAULT_MAX_ENTRIES = 64;
+    static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+    private static final class Key {
+        final BarcodeFormat format;
+        final int width;
+        final int height;
+        final String data;
+        final int hash;
+
+        Key(BarcodeFormat format, int width, int height, String data) {
+            this.format = format;
+            this.width = width;
+            this.height = height;
+            this.data = data;
+            this.hash = ((format.hashCode() * 31 + width) * 31 + height) * 31 + data.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && width == other.width && height == other.height
+                    && format == other.format && data.equals(other.data);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final SizedLru<Key, Bitmap> entries;
+
+    SymbolCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    SymbolCache(int maxEntries, long maxBytes) {
+        this.entries = new SizedLru<>(maxEntries, maxBytes);
+    }
+
+    /** Appends a centred QR code, rendering it only on a cache miss. */
+    void appendQRCode(PrinterDevice renderer, PrintTarget target, String data, int size) {
+        Key key = new Key(BarcodeFormat.QR_CODE, size, size, data);
+        Bitmap symbol = entries.get(key);
+        if (symbol == null) {
+            symbol = store(key, renderer.renderQRCode(data, size));
+        }
+        target.appendBitmap(symbol, PrintStyle.Align.CENTER);
+    }
+
+    /** Appends a centred barcode with its human-readable text, rendering it only on a cache miss. */
+    void appendBarCode(PrinterDevice renderer, PrintTarget target, String data,
+                       int width, int height, BarcodeFormat format) {
+        Key key = new Key(format, width, height, data);
+        Bitmap symbol = entries.get(key);
+        if (symbol == null) {
+            symbol = store(key, renderer.renderBarcode(data, width, height, format));
+        }
+        target.appendBitmap(symbol, PrintStyle.Align.CENTER);
+    }
+
+    private Bitmap store(Key key, Bitmap rendered) {
+        if (rendered == null) {
+            throw new IllegalArgumentException("Could not encode " + key.format + " for: " + key.data);
+        }
+        // Convert outside the lock; a racing miss for the same key just
+        // replaces an identical entry
+        Bitmap mask = toMask(rendered);
+        entries.put(key, mask, mask.getAllocationByteCount());
+        return mask;
+    }
+
+    /** Reduces a rendered symbol to an ALPHA_8 mask that is opaque on dark pixels. */
+    private static Bitmap toMask(Bitmap rendered) {
+        int width = rendered.getWidth();
+        int height = rendered.getHeight();
+        int[] row = new int[width];
+        Bitmap mask = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        for (int y = 0; y < height; y++) {
+            rendered.getPixels(row, 0, width, 0, y, width, 1);
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                boolean dark = Color.alpha(pixel) > 127
+                        && Color.red(pixel) + Color.green(pixel) + Color.blue(pixel) < 384;
+                row[x] = dark ? Color.BLACK : Color.TRANSPARENT;
+            }
+            mask.setPixels(row, 0, width, 0, y, width, 1);
+        }
+        rendered.recycle();
+        return mask;
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    void resetCounters() {
+        entries.resetCounters();
+    }
+
+    Map<String, Object> stats() {
+        return entries.stats();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.blankets_and_wines;
+
+/**
+ * SystemDevice - SDK initialisation, power and device identity
+ *
+ * Identity getters return null when the terminal does not report the value.
+ */
+interface SystemDevice {
+
+    /** Returns an SdkResult code. */
+    int init();
+
+    int powerOn();
+
+    String serialNumber();
+
+    String firmwareVersion();
+
+    String baseSdkVersion();
+
+    String sdkVersion();
+}
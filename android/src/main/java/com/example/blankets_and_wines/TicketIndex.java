@@ -0,0 +1,458 @@
+package com.example.blankets_and_wines;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TicketIndex - offline ticket validation from a memory-mapped hash table
+ *
+ * Tickets are keyed by the 64-bit FNV-1a hash of the UTF-8 ticket code (0 is
+ * stored as 1), which is also the format of a bulk hash list. The table lives
+ * in a file mapped into memory: an open-addressing table with linear probing,
+ * sized to a power of two at most half full after a bulk load, so a million
+ * tickets take 32 MB of page cache and nothing on the app heap.
+ *
+ * Layout, big-endian:
+ * <pre>
+ *   header (64 bytes): int magic "TIDX", int version, int capacity,
+ *                      int count, long delta version, reserved
+ *   slot (16 bytes):   long key (0 = empty), int state, int used-at (epoch s)
+ * </pre>
+ *
+ * {@link #validate} hashes the code in place, probes and marks the ticket used
+ * under the index lock, so two scans of one ticket can never both be admitted
+ * and no objects are allocated. Marks are written to the mapped pages and
+ * survive the app being killed; {@link #sync()} forces them to storage.
+ *
+ * A bulk load builds a new file beside the current one and is renamed over
+ * it, so a failed load keeps the old index. Deltas add or revoke tickets in
+ * place and are applied once each, by version.
+ */
+final class TicketIndex {
+
+    // validate() results
+    static final int ADMITTED = 0;
+    static final int ALREADY_USED = 1;
+    static final int UNKNOWN = 2;
+    static final int REVOKED = 3;
+    // The index was replaced by a reload; validate against the new one
+    static final int RETIRED = 4;
+
+    // Slot states
+    private static final int EMPTY = 0;
+    private static final int VALID = 1;
+    private static final int USED = 2;
+    private static final int REVOKED_STATE = 3;
+
+    private static final int MAGIC = 0x54494458;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 16;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COUNT_OFFSET = 12;
+    private static final int DELTA_VERSION_OFFSET = 16;
+
+    private static final int MIN_CAPACITY = 1024;
+    // Deltas may fill the table up to this before a reload is needed
+    private static final double MAX_LOAD = 0.75;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer table;
+    private final int mask;
+    private int count;
+    private int used;
+    private int revoked;
+    // Read without the lock by sync()
+    private volatile boolean retired;
+
+    private TicketIndex(File file, RandomAccessFile raf, MappedByteBuffer table) {
+        this.file = file;
+        this.raf = raf;
+        this.table = table;
+        this.mask = table.getInt(CAPACITY_OFFSET) - 1;
+    }
+
+    // ==================== HASHING ====================
+
+    /** 64-bit FNV-1a of the UTF-8 bytes of {@code code}, without encoding it first. */
+    static long hash(CharSequence code) {
+        long hash = FNV_OFFSET;
+        int length = code.length();
+        for (int i = 0; i < length; i++) {
+            int c = code.charAt(i);
+            if (c < 0x80) {
+                hash = (hash ^ c) * FNV_PRIME;
+            } else if (c < 0x800) {
+                hash = (hash ^ (0xC0 | (c >> 6))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | (c & 0x3F))) * FNV_PRIME;
+            } else if (Character.isHighSurrogate((char) c) && i + 1 < length
+                    && Character.isLowSurrogate(code.charAt(i + 1))) {
+                int cp = Character.toCodePoint((char) c, code.charAt(++i));
+                hash = (hash ^ (0xF0 | (cp >> 18))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | ((cp >> 12) & 0x3F))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | ((cp >> 6) & 0x3F))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | (cp & 0x3F))) * FNV_PRIME;
+            } else {
+                hash = (hash ^ (0xE0 | (c >> 12))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | ((c >> 6) & 0x3F))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | (c & 0x3F))) * FNV_PRIME;
+            }
+        }
+        return key(hash);
+    }
+
+    private static long key(long hash) {
+        return hash != 0 ? hash : 1;
+    }
+
+    // FNV's low bits are weak; spread them before masking (MurmurHash3 fmix64)
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    // ==================== LOOKUP ====================
+
+    /**
+     * Slot offset holding {@code key}, or the empty slot where it would go.
+     * insert() keeps the table below MAX_LOAD, so a probe always ends; a
+     * table that is full anyway, from a damaged file, fails instead of
+     * spinning.
+     */
+    private int find(long key) {
+        int slot = (int) mix(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            long stored = table.getLong(offset);
+            if (stored == key || stored == 0) {
+                return offset;
+            }
+            slot = (slot + 1) & mask;
+        }
+        throw new IllegalStateException("Ticket index is full, reload it");
+    }
+
+    /**
+     * Checks a ticket and, if {@code markUsed}, admits it: a valid ticket is
+     * marked used and reported ADMITTED exactly once.
+     */
+    synchronized int validate(CharSequence code, boolean markUsed, long nowMillis) {
+        if (retired) {
+            return RETIRED;
+        }
+        int offset = find(hash(code));
+        switch (table.getInt(offset + 8)) {
+            case VALID:
+                if (markUsed) {
+                    table.putInt(offset + 12, (int) (nowMillis / 1000));
+                    table.putInt(offset + 8, USED);
+                    used++;
+                }
+                return ADMITTED;
+            case USED:
+                return ALREADY_USED;
+            case REVOKED_STATE:
+                return REVOKED;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    /** "admitted", "alreadyUsed", "unknown" or "revoked". */
+    static String outcomeName(int outcome) {
+        switch (outcome) {
+            case ADMITTED:
+                return "admitted";
+            case ALREADY_USED:
+                return "alreadyUsed";
+            case REVOKED:
+                return "revoked";
+            default:
+                return "unknown";
+        }
+    }
+
+    /** When the ticket was marked used, in epoch milliseconds, or 0. */
+    synchronized long usedAtMillis(CharSequence code) {
+        int offset = find(hash(code));
+        return table.getInt(offset + 8) == USED ? (table.getInt(offset + 12) & 0xFFFFFFFFL) * 1000 : 0;
+    }
+
+    // ==================== UPDATES ====================
+
+    private boolean insert(long key) {
+        int offset = find(key);
+        if (table.getLong(offset) == 0) {
+            if (count + 1 > (mask + 1) * MAX_LOAD) {
+                throw new IllegalStateException("Ticket index is full, reload it");
+            }
+            table.putLong(offset, key);
+            table.putInt(offset + 8, VALID);
+            count++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds and revokes tickets by code, once per {@code version}: a delta at
+     * or below the last applied version is ignored. Revoked tickets keep
+     * their slot so probe chains stay intact; adding one back makes it valid.
+     *
+     * @return false if the delta was already applied
+     * @throws IllegalStateException if the table is too full; reload instead
+     */
+    synchronized boolean applyDelta(long version, Iterable<String> added, Iterable<String> revokedCodes) {
+        if (version <= table.getLong(DELTA_VERSION_OFFSET)) {
+            return false;
+        }
+        int adding = 0;
+        for (String ignored : added) {
+            adding++;
+        }
+        if (count + adding > (mask + 1) * MAX_LOAD) {
+            throw new IllegalStateException("Ticket index is full, reload it");
+        }
+        for (String code : added) {
+            long key = hash(code);
+            if (!insert(key)) {
+                int offset = find(key);
+                if (table.getInt(offset + 8) == REVOKED_STATE) {
+                    table.putInt(offset + 8, VALID);
+                    revoked--;
+                }
+            }
+        }
+        for (String code : revokedCodes) {
+            int offset = find(hash(code));
+            int state = table.getInt(offset + 8);
+            if (state == VALID || state == USED) {
+                table.putInt(offset + 8, REVOKED_STATE);
+                revoked++;
+                if (state == USED) {
+                    used--;
+                }
+            }
+        }
+        table.putInt(COUNT_OFFSET, count);
+        table.putLong(DELTA_VERSION_OFFSET, version);
+        return true;
+    }
+
+    /**
+     * Hands the index over to {@code next} after a reload: tickets used here
+     * stay used there unless {@code next} is null, and validate() here
+     * returns RETIRED from now on.
+     */
+    synchronized void retireInto(TicketIndex next) {
+        for (int slot = 0; next != null && slot <= mask; slot++) {
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            if (table.getInt(offset + 8) == USED) {
+                next.carryUsed(table.getLong(offset), table.getInt(offset + 12));
+            }
+        }
+        retired = true;
+        close();
+    }
+
+    private synchronized void carryUsed(long key, int usedAtSeconds) {
+        int offset = find(key);
+        if (table.getInt(offset + 8) == VALID) {
+            table.putInt(offset + 12, usedAtSeconds);
+            table.putInt(offset + 8, USED);
+            used++;
+        }
+    }
+
+    /**
+     * Forces marks and deltas out of the page cache. The write-back can take
+     * a while on a big table, so it runs without the lock and validate()
+     * keeps answering meanwhile.
+     */
+    void sync() {
+        if (!retired) {
+            table.force();
+        }
+    }
+
+    private void close() {
+        try {
+            raf.close();
+        } catch (IOException ignored) {
+            // The mapping stays valid until collected
+        }
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("capacity", mask + 1);
+        stats.put("tickets", count);
+        stats.put("used", used);
+        stats.put("revoked", revoked);
+        stats.put("loadFactor", count / (double) (mask + 1));
+        stats.put("deltaVersion", table.getLong(DELTA_VERSION_OFFSET));
+        stats.put("fileBytes", file.length());
+        return stats;
+    }
+
+    // ==================== FILES ====================
+
+    /** Maps an existing index, or returns null if there is none. */
+    static TicketIndex open(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            MappedByteBuffer table = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+            if (raf.length() < HEADER_BYTES || table.getInt(0) != MAGIC || table.getInt(4) != VERSION) {
+                throw new IOException("Not a ticket index: " + file);
+            }
+            TicketIndex index = new TicketIndex(file, raf, table);
+            index.recount();
+            return index;
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private void recount() {
+        for (int slot = 0; slot <= mask; slot++) {
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            if (table.getLong(offset) == 0) {
+                continue;
+            }
+            count++;
+            int state = table.getInt(offset + 8);
+            if (state == USED) {
+                used++;
+            } else if (state == REVOKED_STATE) {
+                revoked++;
+            }
+        }
+    }
+
+    /**
+     * Builds an index at {@code target} from {@code source}: one ticket code
+     * per line when {@code hashes} is false, otherwise big-endian 64-bit
+     * hashes. Lines are hashed straight from the read buffer.
+     */
+    static TicketIndex build(File source, boolean hashes, File target) throws IOException {
+        int records = hashes ? (int) (source.length() / 8) : countLines(source);
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, records * 2) - 1) << 1;
+
+        File building = new File(target.getPath() + ".tmp");
+        RandomAccessFile raf = new RandomAccessFile(building, "rw");
+        TicketIndex index;
+        try {
+            raf.setLength(0);
+            long size = HEADER_BYTES + (long) capacity * SLOT_BYTES;
+            raf.setLength(size);
+            MappedByteBuffer table = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            table.putInt(0, MAGIC);
+            table.putInt(4, VERSION);
+            table.putInt(CAPACITY_OFFSET, capacity);
+            index = new TicketIndex(target, raf, table);
+
+            if (hashes) {
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(new FileInputStream(source), 1 << 16))) {
+                    for (int i = 0; i < records; i++) {
+                        index.insert(key(in.readLong()));
+                    }
+                } catch (EOFException e) {
+                    throw new IOException("Truncated hash list: " + source, e);
+                }
+            } else {
+                index.insertLines(source);
+            }
+            table.putInt(COUNT_OFFSET, index.count);
+            table.force();
+        } catch (IllegalStateException e) {
+            // More tickets than were counted, such as a list still being written
+            raf.close();
+            building.delete();
+            throw new IOException("Ticket list outgrew its index while loading: " + source, e);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            building.delete();
+            throw e;
+        }
+        if (!building.renameTo(target)) {
+            index.close();
+            building.delete();
+            throw new IOException("Could not replace " + target);
+        }
+        return index;
+    }
+
+    private void insertLines(File source) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        long hash = FNV_OFFSET;
+        int lineBytes = 0;
+        try (InputStream in = new FileInputStream(source)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n' || b == '\r') {
+                        if (lineBytes > 0) {
+                            insert(key(hash));
+                        }
+                        hash = FNV_OFFSET;
+                        lineBytes = 0;
+                    } else {
+                        hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+                        lineBytes++;
+                    }
+                }
+            }
+        }
+        if (lineBytes > 0) {
+            insert(key(hash));
+        }
+    }
+
+    private static int countLines(File source) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        int lines = 0;
+        boolean open = false;
+        try (InputStream in = new FileInputStream(source)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    // Split like insertLines: on either break, skipping empty lines
+                    byte b = buffer[i];
+                    if (b == '\n' || b == '\r') {
+                        if (open) {
+                            lines++;
+                        }
+                        open = false;
+                    } else {
+                        open = true;
+                    }
+                }
+            }
+        }
+        return open ? lines + 1 : lines;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.blankets_and_wines;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import com.google.zxing.BarcodeFormat;
+import com.zcs.sdk.DriverManager;
+import com.zcs.sdk.HQrsanner;
+import com.zcs.sdk.Printer;
+import com.zcs.sdk.SdkResult;
+import com.zcs.sdk.Sys;
+import com.zcs.sdk.util.PowerHelper;
+
+/**
+ * ZcsDevices - {@link Devices} backed by the ZCS SmartPos SDK
+ *
+ * Thin pass-throughs; all policy (retries, queuing, caching) stays in the
+ * plugin so it behaves the same against the fake devices.
+ */
+final class ZcsDevices {
+
+    private ZcsDevices() {
+    }
+
+    /**
+     * Looks up the system and printer drivers; the display and scanner
+     * lookups run later. Matches {@link Devices.Factory}.
+     */
+    static Devices create(Context context) throws Exception {
+        DriverManager driverManager = DriverManager.getInstance();
+        if (driverManager == null) {
+            throw new Exception("Failed to get DriverManager instance");
+        }
+
+        Sys sys = driverManager.getBaseSysDevice();
+        if (sys == null) {
+            throw new Exception("Failed to get Sys instance");
+        }
+
+        Printer printer = driverManager.getPrinter();
+        if (printer == null) {
+            throw new Exception("Failed to get Printer instance");
+        }
+
+        return new Devices(new ZcsSystem(sys), new ZcsPrinter(printer, context),
+                () -> new Devices.Display(new ZcsLcd(sys), driverManager.getSingleThreadExecutor()),
+                () -> {
+                    HQrsanner scanner = driverManager.getHQrsannerDriver();
+                    return scanner != null ? new ZcsScanner(scanner) : null;
+                });
+    }
+
+    static final class ZcsSystem implements SystemDevice {
+        private final Sys sys;
+
+        ZcsSystem(Sys sys) {
+            this.sys = sys;
+        }
+
+        @Override
+        public int init() {
+            return sys.sdkInit();
+        }
+
+        @Override
+        public int powerOn() {
+            return sys.sysPowerOn();
+        }
+
+        @Override
+        public String serialNumber() {
+            String[] sn = new String[1];
+            return sys.getSN(sn) == SdkResult.SDK_OK ? sn[0] : null;
+        }
+
+        @Override
+        public String firmwareVersion() {
+            String[] version = new String[1];
+            return sys.getFirmwareVer(version) == SdkResult.SDK_OK ? version[0] : null;
+        }
+
+        @Override
+        public String baseSdkVersion() {
+            String[] version = new String[1];
+            return sys.getBaseSdkVer(version) == SdkResult.SDK_OK ? version[0] : null;
+        }
+
+        @Override
+        public String sdkVersion() {
+            return sys.getSdkVersion();
+        }
+    }
+
+    static final class ZcsPrinter implements PrinterDevice {
+        // setPrintBitmap() chunk sizes the SDK (1.9.4) keeps in its obfuscated
+        // field "a" once it probes the head: 1024 rows of 48 bytes at 58 mm,
+        // 768 rows of 72 bytes at 80 mm
+        static final int RASTER_CHUNK_58MM = 1024 * 48;
+        static final int RASTER_CHUNK_80MM = 768 * 72;
+
+        private final Printer printer;
+        private final Context context;
+        private long appends;
+
+        ZcsPrinter(Printer printer, Context context) {
+            this.printer = printer;
+            this.context = context;
+        }
+
+        @Override
+        public void appendString(String text, PrintStyle style) {
+            appends++;
+            printer.setPrintAppendString(text, style.format());
+        }
+
+        @Override
+        public void appendBitmap(Bitmap bitmap, PrintStyle.Align align) {
+            appends++;
+            printer.setPrintAppendBitmap(bitmap, PrintStyle.toAlignment(align));
+        }
+
+        @Override
+        public long appendCount() {
+            return appends;
+        }
+
+        @Override
+        public int getStatus() {
+            return printer.getPrinterStatus();
+        }
+
+        @Override
+        public int start() {
+            return printer.setPrintStart();
+        }
+
+        @Override
+        public int headWidth() {
+            return printer.is80MMPrinter() ? ReceiptRaster.WIDTH_80MM : ReceiptRaster.WIDTH_58MM;
+        }
+
+        // Z91 terminals print through a different SDK command (and power the
+        // head around it), so raw setPrintBitmap() rows are not used there
+        @Override
+        public boolean supportsRaster() {
+            return !PowerHelper.isZ91();
+        }
+
+        @Override
+        public int rasterChunkBytes() {
+            return headWidth() == ReceiptRaster.WIDTH_80MM ? RASTER_CHUNK_80MM : RASTER_CHUNK_58MM;
+        }
+
+        @Override
+        public int sendRaster(byte[] rows) {
+            return printer.setPrintBitmap(rows);
+        }
+
+        @Override
+        public boolean supportsCutter() {
+            return printer.isSuppoerCutter();
+        }
+
+        @Override
+        public int cut() {
+            return printer.openPrnCutter((byte) 1);
+        }
+
+        @Override
+        public Bitmap renderQRCode(String data, int size) {
+            return Printer.createQRCode(data, size, size);
+        }
+
+        @Override
+        public Bitmap renderBarcode(String data, int width, int height, BarcodeFormat format) {
+            return printer.createBarcode(context, data, width, height, true, format);
+        }
+    }
+
+    static final class ZcsLcd implements LcdDevice {
+        private final Sys sys;
+
+        ZcsLcd(Sys sys) {
+            this.sys = sys;
+        }
+
+        @Override
+        public int showText(int x, int y, String text, boolean clear) {
+            return sys.showStringOnLcd(x, y, text, clear);
+        }
+    }
+
+    static final class ZcsScanner implements ScannerDevice {
+        private final HQrsanner scanner;
+        // Length out-parameter; receive() is only called from the capture thread
+        private final int[] received = new int[1];
+
+        ZcsScanner(HQrsanner scanner) {
+            this.scanner = scanner;
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            scanner.QRScanerCtrl((byte) (enabled ? 1 : 0));
+        }
+
+        @Override
+        public void setPowered(boolean powered) {
+            scanner.QRScanerPowerCtrl((byte) (powered ? 1 : 0));
+        }
+
+        @Override
+        public int startDecoding() {
+            return scanner.QRstartDecoding();
+        }
+
+        @Override
+        public int receive(byte[] buffer, int timeoutMillis) {
+            int[] length = received;
+            length[0] = 0;
+            int status = scanner.QRreciveData(buffer, length, timeoutMillis);
+            if (status == SdkResult.SDK_OK) {
+                return Math.min(length[0], buffer.length);
+            }
+            // Nothing decoded before the timeout
+            return status == SdkResult.SDK_TIMEOUT ? 0 : status;
+        }
+
+        @Override
+        public int stopDecoding() {
+            return scanner.QRstopDecoding();
+        }
+    }
+}
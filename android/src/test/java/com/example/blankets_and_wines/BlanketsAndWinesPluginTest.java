@@ -1,11 +1,24 @@
 package com.example.blankets_and_wines;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * This demonstrates a simple unit test of the Java portion of this plugin's implementation.
@@ -13,9 +26,112 @@ import org.junit.Test;
  * Once you have built the plugin's example app, you can run these tests from the command
  * line by running `./gradlew testDebugUnitTest` in the `example/android/` directory, or
  * you can run them directly from IDEs that support JUnit such as Android Studio.
+ *
+ * The device tests drive the plugin against {@link FakeDevices}, with the test thread
+ * standing in for the main thread.
  */
 
 public class BlanketsAndWinesPluginTest {
+  @Rule public final TemporaryFolder files = new TemporaryFolder();
+
+  private final FakeDevices fake = new FakeDevices();
+  // Tasks posted to the main thread; the test thread runs them while it waits
+  private final BlockingQueue<Runnable> mainThread = new LinkedBlockingQueue<>();
+  private BlanketsAndWinesPlugin plugin;
+
+  @Before
+  public void setUp() {
+    plugin = new BlanketsAndWinesPlugin(fake.factory(), new MainThread() {
+      @Override
+      public void post(Runnable task) {
+        mainThread.add(task);
+      }
+
+      @Override
+      public void postDelayed(Runnable task, long delayMillis) {
+        // Only report stream expiry is delayed; no test waits for it
+      }
+    });
+    plugin.start(files.getRoot());
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    plugin.stop();
+    // Lets the stopped plugin close its storage
+    Runnable task;
+    while ((task = mainThread.poll(200, TimeUnit.MILLISECONDS)) != null) {
+      task.run();
+    }
+  }
+
+  private static final class Reply implements MethodChannel.Result {
+    boolean done;
+    Object value;
+    String errorCode;
+    String errorMessage;
+    Object errorDetails;
+
+    @Override
+    public void success(Object result) {
+      value = result;
+      done = true;
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+      this.errorCode = errorCode;
+      this.errorMessage = errorMessage;
+      this.errorDetails = errorDetails;
+      done = true;
+    }
+
+    @Override
+    public void notImplemented() {
+      errorCode = "notImplemented";
+      done = true;
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> map() {
+      assertEquals(errorCode + ": " + errorMessage, null, errorCode);
+      return (Map<String, Object>) value;
+    }
+  }
+
+  // Calls the plugin as the main thread would and runs posted tasks until it answers
+  private Reply call(String method, Map<String, Object> arguments) throws InterruptedException {
+    Reply reply = new Reply();
+    plugin.onMethodCall(new MethodCall(method, arguments), reply);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!reply.done) {
+      Runnable task = mainThread.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+      assertNotNull(method + " never answered", task);
+      task.run();
+    }
+    return reply;
+  }
+
+  private void initializeAndOpen() throws InterruptedException {
+    call("initializeDevice", null).map();
+    call("openDevice", null).map();
+  }
+
+  private static Map<String, Object> receiptData() {
+    Map<String, Object> item = new HashMap<>();
+    item.put("name", "Tusker");
+    item.put("quantity", 2);
+    item.put("price", "250.00");
+    Map<String, Object> receiptData = new HashMap<>();
+    receiptData.put("storeName", "Blankets & Wines");
+    receiptData.put("items", Arrays.asList(item));
+    receiptData.put("total", "500.00");
+    receiptData.put("seller", "Wanjiru");
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("receiptData", receiptData);
+    return arguments;
+  }
+
   @Test
   public void onMethodCall_getPlatformVersion_returnsExpectedValue() {
     BlanketsAndWinesPlugin plugin = new BlanketsAndWinesPlugin();
@@ -26,4 +142,67 @@ public class BlanketsAndWinesPluginTest {
 
     verify(mockResult).success("Android " + android.os.Build.VERSION.RELEASE);
   }
+
+  @Test
+  public void initializeDevice_bringsUpEveryPeripheralInTimedPhases() throws Exception {
+    Map<String, Object> response = call("initializeDevice", null).map();
+
+    assertEquals(true, response.get("success"));
+    assertEquals(true, response.get("hasQRScanner"));
+    @SuppressWarnings("unchecked")
+    Map<String, Object> phases = (Map<String, Object>) response.get("phases");
+    for (String phase : Arrays.asList(DeviceStartup.DRIVERS, DeviceStartup.SDK_INIT,
+        DeviceStartup.DISPLAY, DeviceStartup.SCANNER, DeviceStartup.PRINTER)) {
+      assertTrue(phases.toString(), phases.containsKey(phase));
+    }
+    assertEquals(1, fake.count("init"));
+  }
+
+  @Test
+  public void openDevice_needsAnInitializedDevice() throws Exception {
+    assertEquals("DEVICE_NOT_INITIALIZED", call("openDevice", null).errorCode);
+  }
+
+  @Test
+  public void openDevice_outOfPaper_fails() throws Exception {
+    call("initializeDevice", null).map();
+    fake.printer.paperOut();
+
+    Reply reply = call("openDevice", null);
+    assertEquals("OPEN_ERROR", reply.errorCode);
+    assertTrue(reply.errorMessage, reply.errorMessage.contains("Out of paper"));
+  }
+
+  @Test
+  public void printText_printsOnceTheDeviceIsOpen() throws Exception {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("text", "WELCOME");
+    assertEquals("DEVICE_NOT_INITIALIZED", call("printText", arguments).errorCode);
+
+    initializeAndOpen();
+    assertEquals(true, call("printText", arguments).map().get("success"));
+    assertEquals(1, fake.count("append:WELCOME"));
+    assertEquals(1, fake.count("start"));
+  }
+
+  @Test
+  public void printReceipt_outOfPaper_isHeldForTheNextAttempt() throws Exception {
+    initializeAndOpen();
+    fake.printer.paperOut();
+    // Prints go ahead on a recent Ready, so wait for the sampler to see the empty roll
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!Boolean.TRUE.equals(call("getPrinterStatus", null).map().get("isPaperOut"))) {
+      assertTrue("paper out never sampled", System.nanoTime() < deadline);
+      Thread.sleep(50);
+    }
+
+    Reply reply = call("printReceipt", receiptData());
+    assertEquals("PRINT_ERROR", reply.errorCode);
+    assertTrue(reply.errorMessage, reply.errorMessage.contains("Out of paper"));
+    @SuppressWarnings("unchecked")
+    Map<String, Object> details = (Map<String, Object>) reply.errorDetails;
+    assertEquals(true, details.get("held"));
+    assertNotNull(details.get("spoolId"));
+    assertEquals(0, fake.count("start"));
+  }
 }
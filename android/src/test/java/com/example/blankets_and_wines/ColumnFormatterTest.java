@@ -0,0 +1,60 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ColumnFormatterTest {
+
+  @Test
+  public void itemLine_matchesStringFormat() {
+    ColumnFormatter columns = new ColumnFormatter().left(15).truncate("...").right(3).then("x").right(9);
+
+    assertEquals(String.format("%-15s %3sx %9s", "Tusker", 2, "450.00"),
+        columns.start().add("Tusker").add(2).add("450.00").build());
+    assertEquals(String.format("%-15s %3sx %9s", "Four Cousins...", 12, "1500.50"),
+        columns.start().add("Four Cousins Red Sweet").add(12).addCents("", 150050).build());
+  }
+
+  @Test
+  public void overflowWithoutMarker_pushesLineRight() {
+    ColumnFormatter columns = ReportLayout.transactionColumns();
+
+    assertEquals(String.format("%-12s %-10s %8s", "01-17 21:43:", "Achieng ..", "Kshs 12500.00"),
+        columns.start().add("01-17 21:43:59").add("Achieng Bar 2").addCents("Kshs ", 1250000).build());
+  }
+
+  @Test
+  public void formatTransaction_writesRowIdAndGap() {
+    ReportPage page = new ReportPage("s", 1);
+    page.dateTimes[0] = null;
+    page.sellers[0] = "Kamau";
+    page.amountCents[0] = -505;
+    page.ids[0] = "TX1";
+    String[] lines = new String[ReportLayout.MAX_LINES_PER_TRANSACTION];
+
+    int count = ReportLayout.formatTransaction(ReportLayout.transactionColumns(), page, 0, lines, 0);
+
+    assertEquals(3, count);
+    assertEquals(String.format("%-12s %-10s %8s", "N/A", "Kamau", "Kshs -5.05"), lines[0]);
+    assertEquals("  ID: TX1", lines[1]);
+    assertEquals("", lines[2]);
+  }
+
+  @Test
+  public void fit_padsAndCutsInPlace() {
+    StringBuilder line = new StringBuilder("ab|");
+    ColumnFormatter.fit(line, 3, 5, true, null);
+    assertEquals("ab|     ", line.toString());
+
+    line.setLength(0);
+    line.append("abcdefgh");
+    ColumnFormatter.fit(line, 0, 2, false, "...");
+    assertEquals("..", line.toString());
+
+    line.setLength(0);
+    line.append("x");
+    ColumnFormatter.fit(line, 1, 40, true, null);
+    assertEquals(41, line.length());
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class ContinuousScanTest {
+
+  private static final long MS = 1_000_000;
+
+  private final List<String> emitted = new ArrayList<>();
+  private final List<Long> sequences = new ArrayList<>();
+  private final ContinuousScan scan = new ContinuousScan(1000, (code, timestamp, sequence) -> {
+    emitted.add(code);
+    sequences.add(sequence);
+  });
+
+  @Test
+  public void repeatWithinWindow_isSuppressed() {
+    assertTrue(scan.offer("T1", 0));
+    assertFalse(scan.offer("T1", 500 * MS));
+    assertTrue(scan.offer("T2", 600 * MS));
+
+    assertEquals(Arrays.asList("T1", "T2"), emitted);
+    assertEquals(Arrays.asList(1L, 2L), sequences);
+    assertEquals(1L, scan.stats().get("suppressed"));
+  }
+
+  @Test
+  public void heldTicket_staysSuppressedWhileItKeepsReading() {
+    scan.offer("T1", 0);
+    scan.offer("T1", 800 * MS);
+    scan.offer("T1", 1600 * MS);
+
+    assertEquals(Arrays.asList("T1"), emitted);
+    // A full window after the last read it counts again
+    assertTrue(scan.offer("T1", 2600 * MS));
+  }
+
+  @Test
+  public void expiredCodes_areForgotten() {
+    scan.offer("T1", 0);
+    scan.offer("T2", 400 * MS);
+
+    assertTrue(scan.offer("T1", 1100 * MS));
+    assertFalse(scan.offer("T2", 1200 * MS));
+    assertFalse(scan.offer("", 1300 * MS));
+  }
+}
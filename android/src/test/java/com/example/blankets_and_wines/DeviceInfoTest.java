@@ -0,0 +1,46 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.zcs.sdk.SdkResult;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.FutureTask;
+import org.junit.Test;
+
+public class DeviceInfoTest {
+
+  private final FakeDevices fake = new FakeDevices();
+  private final PrinterStatusMonitor monitor = new PrinterStatusMonitor(fake.printer);
+  private final FutureTask<Map<String, String>> identity =
+      new FutureTask<>(() -> Collections.singletonMap("serialNumber", fake.system.serialNumber()));
+  private final DeviceInfo info =
+      new DeviceInfo(Collections.singletonMap("supportsCutter", true), identity, monitor);
+
+  @Test
+  public void snapshot_combinesIdentityAndCapabilitiesOnceReady() throws Exception {
+    assertFalse(info.isReady());
+
+    identity.run();
+
+    assertTrue(info.isReady());
+    Map<String, Object> snapshot = info.snapshot();
+    assertEquals("FAKE0001", snapshot.get("serialNumber"));
+    assertEquals(true, snapshot.get("supportsCutter"));
+    info.snapshot();
+    assertEquals(1, fake.count("serialNumber"));
+  }
+
+  @Test
+  public void printerStatus_comesFromMonitorCacheWithoutSdkCalls() {
+    monitor.read();
+    fake.printer.paperOut();
+
+    assertEquals(SdkResult.SDK_OK, info.printerStatus());
+    monitor.observed(SdkResult.SDK_PRN_STATUS_PAPEROUT);
+    assertEquals(SdkResult.SDK_PRN_STATUS_PAPEROUT, info.printerStatus());
+    assertEquals(1, fake.count("status"));
+  }
+}
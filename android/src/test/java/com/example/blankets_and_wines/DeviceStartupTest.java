@@ -0,0 +1,84 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.zcs.sdk.SdkResult;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class DeviceStartupTest {
+
+  private final FakeDevices fake = new FakeDevices();
+  private final DeviceStartup startup = new DeviceStartup();
+
+  @Test
+  public void failedInit_powersOnAndPollsUntilReady() throws Exception {
+    fake.system.failingInits = 3;
+    long start = System.nanoTime();
+
+    int status = startup.initSdk(fake.system, 5000);
+
+    assertEquals(SdkResult.SDK_OK, status);
+    assertEquals(Arrays.asList("init", "powerOn", "init", "init", "init"), fake.ops());
+    assertEquals(4, startup.timings().get("sdkInitAttempts"));
+    // 20 + 40 + 80 ms of backoff, well under the old fixed second
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+  }
+
+  @Test
+  public void initThatNeverSucceeds_givesUpAtTimeout() throws Exception {
+    fake.system.initResult = SdkResult.SDK_ERROR;
+    long start = System.nanoTime();
+
+    int status = startup.initSdk(fake.system, 150);
+
+    assertEquals(SdkResult.SDK_ERROR, status);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    // Remaining time is counted in whole milliseconds
+    assertTrue(elapsed >= 145 && elapsed < 1000);
+  }
+
+  @Test
+  public void phases_areTimedWhetherInlineOrInBackground() throws Exception {
+    ExecutorService background = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> sn = startup.start(DeviceStartup.SYS_INFO, background, fake.system::serialNumber);
+      startup.run(DeviceStartup.PRINTER, () -> {
+        Thread.sleep(20);
+        return null;
+      });
+
+      assertEquals("FAKE0001", sn.get(5, TimeUnit.SECONDS));
+      Map<String, Object> timings = startup.timings();
+      assertTrue((double) timings.get(DeviceStartup.PRINTER) >= 20);
+      assertTrue(timings.containsKey(DeviceStartup.SYS_INFO));
+    } finally {
+      background.shutdown();
+    }
+  }
+
+  @Test
+  public void displayAndScanner_areLookedUpInTheirOwnTimedPhases() throws Exception {
+    Devices devices = InstrumentedDevices.wrap(fake.devices(), new PluginMetrics());
+    ExecutorService background = Executors.newSingleThreadExecutor();
+    try {
+      Future<Devices.Display> display = startup.start(DeviceStartup.DISPLAY, background, devices.display);
+      Future<ScannerDevice> scanner = startup.start(DeviceStartup.SCANNER, background, devices.scanner);
+
+      display.get(5, TimeUnit.SECONDS).lcd.showText(0, 0, "WELCOME", true);
+      scanner.get(5, TimeUnit.SECONDS).setPowered(true);
+      assertEquals(Arrays.asList("lcd:WELCOME", "scannerPowered:true"), fake.ops());
+      Map<String, Object> timings = startup.timings();
+      assertTrue(timings.containsKey(DeviceStartup.DISPLAY));
+      assertTrue(timings.containsKey(DeviceStartup.SCANNER));
+    } finally {
+      background.shutdown();
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class ExecutionLanesTest {
+
+  private final ExecutionLanes lanes = new ExecutionLanes(new PluginMetrics());
+  private final List<ExecutorService> opened = new ArrayList<>();
+
+  private ExecutorService open(String name) {
+    ExecutorService lane = lanes.open(name);
+    opened.add(lane);
+    return lane;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> stats(String lane) {
+    return (Map<String, Object>) lanes.stats().get(lane);
+  }
+
+  @After
+  public void tearDown() {
+    for (ExecutorService lane : opened) {
+      lane.shutdownNow();
+    }
+  }
+
+  @Test
+  public void busyPrinter_doesNotHoldUpTheScanner() throws InterruptedException {
+    ExecutorService printer = open(ExecutionLanes.PRINTER);
+    ExecutorService scanner = open(ExecutionLanes.SCANNER);
+    CountDownLatch printing = new CountDownLatch(1);
+    CountDownLatch scanned = new CountDownLatch(1);
+
+    printer.execute(() -> {
+      try {
+        printing.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    scanner.execute(scanned::countDown);
+
+    assertTrue(scanned.await(5, TimeUnit.SECONDS));
+    printing.countDown();
+  }
+
+  @Test
+  public void lane_runsInOrderAndCountsDepthAndWait() throws InterruptedException {
+    ExecutorService printer = open(ExecutionLanes.PRINTER);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Integer> order = new ArrayList<>();
+
+    printer.execute(() -> {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    // The blocking task has left the queue before the others join it
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 3; i++) {
+      int n = i;
+      printer.execute(() -> order.add(n));
+    }
+    assertEquals(3, stats(ExecutionLanes.PRINTER).get("queueDepth"));
+    // Long enough that the queued tasks' wait shows up
+    Thread.sleep(20);
+
+    release.countDown();
+    printer.shutdown();
+    assertTrue(printer.awaitTermination(5, TimeUnit.SECONDS));
+
+    Map<String, Object> stats = stats(ExecutionLanes.PRINTER);
+    assertEquals(0, stats.get("queueDepth"));
+    assertEquals(3, stats.get("maxQueueDepth"));
+    assertEquals(4L, stats.get("completed"));
+    @SuppressWarnings("unchecked")
+    Map<String, Object> wait = (Map<String, Object>) stats.get("wait");
+    assertTrue((Double) wait.get("maxMicros") >= 10_000);
+    assertEquals(3, order.size());
+    assertEquals(Integer.valueOf(0), order.get(0));
+    assertEquals(Integer.valueOf(2), order.get(2));
+  }
+
+  @Test
+  public void adoptedLane_usesTheGivenThreadAndStopsTakingWork() {
+    List<Runnable> vendorThread = new ArrayList<>();
+    ExecutorService lcd = lanes.adopt(ExecutionLanes.LCD, vendorThread::add);
+
+    lcd.execute(() -> { });
+    assertEquals(1, vendorThread.size());
+    assertEquals(1, stats(ExecutionLanes.LCD).get("queueDepth"));
+    vendorThread.remove(0).run();
+    assertEquals(1L, stats(ExecutionLanes.LCD).get("completed"));
+
+    lanes.adopt(ExecutionLanes.LCD, vendorThread::add);
+
+    assertTrue(lcd.isShutdown());
+    try {
+      lcd.execute(() -> { });
+      throw new AssertionError("Replaced lane took work");
+    } catch (RejectedExecutionException expected) {
+      // Work goes to the lane that replaced it
+    }
+  }
+}
@@ -0,0 +1,290 @@
+package com.example.blankets_and_wines;
+
+import android.graphics.Bitmap;
+import com.google.zxing.BarcodeFormat;
+import com.zcs.sdk.SdkResult;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory peripherals for JVM tests.
+ *
+ * Every call is recorded in {@link #ops} as a short string ("start",
+ * "append:TOTAL", "raster:48", ...). The printer can be configured to take a
+ * while per call, run out of paper, keep reporting PRINTING for a number of
+ * polls after a start, return failure codes or throw.
+ */
+final class FakeDevices {
+
+  final List<String> ops = new ArrayList<>();
+  final FakeSystem system = new FakeSystem();
+  final FakePrinter printer = new FakePrinter();
+  final FakeLcd lcd = new FakeLcd();
+  final FakeScanner scanner = new FakeScanner();
+
+  Devices devices() {
+    return new Devices(system, printer, () -> new Devices.Display(lcd, Runnable::run), () -> scanner);
+  }
+
+  Devices.Factory factory() {
+    return context -> devices();
+  }
+
+  synchronized List<String> ops() {
+    return new ArrayList<>(ops);
+  }
+
+  synchronized int count(String op) {
+    int count = 0;
+    for (String recorded : ops) {
+      if (recorded.equals(op)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private synchronized void record(String op) {
+    ops.add(op);
+  }
+
+  private static void pause(long millis) {
+    if (millis <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  final class FakeSystem implements SystemDevice {
+    volatile int initResult = SdkResult.SDK_OK;
+    // sdkInit calls that fail before initResult is returned, as after a reboot
+    volatile int failingInits;
+    volatile String serialNumber = "FAKE0001";
+
+    @Override
+    public int init() {
+      record("init");
+      if (failingInits > 0) {
+        failingInits--;
+        return SdkResult.SDK_ERROR;
+      }
+      return initResult;
+    }
+
+    @Override
+    public int powerOn() {
+      record("powerOn");
+      return SdkResult.SDK_OK;
+    }
+
+    @Override
+    public String serialNumber() {
+      record("serialNumber");
+      return serialNumber;
+    }
+
+    @Override
+    public String firmwareVersion() {
+      return "fake-fw";
+    }
+
+    @Override
+    public String baseSdkVersion() {
+      return "fake-base";
+    }
+
+    @Override
+    public String sdkVersion() {
+      return "fake-sdk";
+    }
+  }
+
+  final class FakePrinter implements PrinterDevice {
+    // Simulated time each SDK call takes
+    volatile long latencyMillis;
+    volatile int status = SdkResult.SDK_OK;
+    volatile int startResult = SdkResult.SDK_OK;
+    volatile int rasterResult = SdkResult.SDK_OK;
+    // Status polls that still report PRINTING after each start
+    volatile int printingPolls;
+    // Thrown (once) by the next append
+    volatile RuntimeException appendFailure;
+    volatile int headWidth = ReceiptRaster.WIDTH_58MM;
+    volatile boolean cutter;
+
+    private int busyPolls;
+    private volatile long appends;
+    // Copies of every sendRaster() array; the raster reuses its chunk buffer
+    private final List<byte[]> rasters = new ArrayList<>();
+
+    void paperOut() {
+      status = SdkResult.SDK_PRN_STATUS_PAPEROUT;
+    }
+
+    @Override
+    public void appendString(String text, PrintStyle style) {
+      pause(latencyMillis);
+      RuntimeException failure = appendFailure;
+      if (failure != null) {
+        appendFailure = null;
+        throw failure;
+      }
+      appends++;
+      record("append:" + text);
+    }
+
+    @Override
+    public void appendBitmap(Bitmap bitmap, PrintStyle.Align align) {
+      pause(latencyMillis);
+      appends++;
+      record("bitmap:" + align);
+    }
+
+    @Override
+    public long appendCount() {
+      return appends;
+    }
+
+    @Override
+    public int getStatus() {
+      pause(latencyMillis);
+      record("status");
+      synchronized (this) {
+        if (busyPolls > 0) {
+          busyPolls--;
+          return SdkResult.SDK_PRN_STATUS_PRINTING;
+        }
+      }
+      return status;
+    }
+
+    @Override
+    public int start() {
+      pause(latencyMillis);
+      record("start");
+      synchronized (this) {
+        busyPolls = printingPolls;
+      }
+      return startResult;
+    }
+
+    @Override
+    public int headWidth() {
+      return headWidth;
+    }
+
+    @Override
+    public boolean supportsRaster() {
+      return true;
+    }
+
+    @Override
+    public int rasterChunkBytes() {
+      return 49152;
+    }
+
+    @Override
+    public int sendRaster(byte[] rows) {
+      pause(latencyMillis);
+      record("raster:" + rows.length);
+      synchronized (this) {
+        rasters.add(rows.clone());
+        busyPolls = printingPolls;
+      }
+      return rasterResult;
+    }
+
+    synchronized List<byte[]> rasters() {
+      return new ArrayList<>(rasters);
+    }
+
+    @Override
+    public boolean supportsCutter() {
+      return cutter;
+    }
+
+    @Override
+    public int cut() {
+      record("cut");
+      return SdkResult.SDK_OK;
+    }
+
+    // Bitmaps cannot be created on the JVM; callers treat null as "could not encode"
+    @Override
+    public Bitmap renderQRCode(String data, int size) {
+      record("renderQR:" + data);
+      return null;
+    }
+
+    @Override
+    public Bitmap renderBarcode(String data, int width, int height, BarcodeFormat format) {
+      record("renderBarcode:" + data);
+      return null;
+    }
+  }
+
+  final class FakeLcd implements LcdDevice {
+    @Override
+    public int showText(int x, int y, String text, boolean clear) {
+      record("lcd:" + text);
+      return SdkResult.SDK_OK;
+    }
+  }
+
+  final class FakeScanner implements ScannerDevice {
+    volatile boolean enabled;
+    volatile boolean powered;
+    // Raw codes handed out by receive(), one per call; empty means a timeout
+    final java.util.concurrent.BlockingQueue<String> codes =
+        new java.util.concurrent.LinkedBlockingQueue<>();
+    volatile int receiveResult;
+
+    @Override
+    public void setEnabled(boolean enabled) {
+      record("scannerEnabled:" + enabled);
+      this.enabled = enabled;
+    }
+
+    @Override
+    public void setPowered(boolean powered) {
+      record("scannerPowered:" + powered);
+      this.powered = powered;
+    }
+
+    @Override
+    public int startDecoding() {
+      record("startDecoding");
+      return SdkResult.SDK_OK;
+    }
+
+    @Override
+    public int receive(byte[] buffer, int timeoutMillis) {
+      if (receiveResult < 0) {
+        return receiveResult;
+      }
+      String code;
+      try {
+        code = codes.poll(timeoutMillis, java.util.concurrent.TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return 0;
+      }
+      if (code == null) {
+        return 0;
+      }
+      byte[] bytes = code.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+      System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+      return bytes.length;
+    }
+
+    @Override
+    public int stopDecoding() {
+      record("stopDecoding");
+      return SdkResult.SDK_OK;
+    }
+  }
+}
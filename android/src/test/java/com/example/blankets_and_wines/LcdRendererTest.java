@@ -0,0 +1,90 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+
+import com.zcs.sdk.SdkResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Test;
+
+public class LcdRendererTest {
+
+  private final List<String> drawn = new ArrayList<>();
+  private final List<String> outcomes = new ArrayList<>();
+  private final List<Runnable> displayQueue = new ArrayList<>();
+  // Holds work until runDisplay(), like a display thread that is busy
+  private final Executor displayThread = displayQueue::add;
+  private int status = SdkResult.SDK_OK;
+
+  private final LcdDevice lcd = (x, y, text, clear) -> {
+    drawn.add(text + (clear ? "!" : ""));
+    return status;
+  };
+
+  private final LcdRenderer renderer = new LcdRenderer(lcd, displayThread);
+
+  private void show(String text) {
+    renderer.submit(LcdRenderer.Frame.line(text, 0, 0, true), callback(text));
+  }
+
+  private LcdRenderer.Callback callback(String name) {
+    return (outcome, code) -> outcomes.add(name + ":" + LcdRenderer.outcomeName(outcome));
+  }
+
+  private void runDisplay() {
+    while (!displayQueue.isEmpty()) {
+      displayQueue.remove(0).run();
+    }
+  }
+
+  @Test
+  public void burst_drawsOnlyTheLatestFrame() {
+    show("Tusker x1");
+    show("Tusker x2");
+    show("Tusker x3");
+
+    assertEquals(1, displayQueue.size());
+    runDisplay();
+
+    assertEquals(Arrays.asList("Tusker x3!"), drawn);
+    assertEquals(Arrays.asList("Tusker x1:superseded", "Tusker x2:superseded", "Tusker x3:shown"),
+        outcomes);
+  }
+
+  @Test
+  public void sameContent_isNotRedrawn() {
+    show("Total 1,200.00");
+    runDisplay();
+    show("Total 1,200.00");
+    runDisplay();
+
+    assertEquals(1, drawn.size());
+    assertEquals("Total 1,200.00:unchanged", outcomes.get(1));
+  }
+
+  @Test
+  public void lines_areDrawnTogetherAndClearOnce() {
+    renderer.submit(new LcdRenderer.Frame(new String[] {"Gilbeys 750ml", "Total 2,100.00"},
+        new int[] {0, 0}, new int[] {0, 24}, true), callback("frame"));
+    runDisplay();
+
+    assertEquals(Arrays.asList("Gilbeys 750ml!", "Total 2,100.00"), drawn);
+    assertEquals(Arrays.asList("frame:shown"), outcomes);
+  }
+
+  @Test
+  public void failedDraw_isRetriedWithTheSameContent() {
+    status = -1;
+    show("Welcome");
+    runDisplay();
+    status = SdkResult.SDK_OK;
+    show("Welcome");
+    runDisplay();
+
+    assertEquals(Arrays.asList("Welcome:failed", "Welcome:shown"), outcomes);
+    assertEquals(2, drawn.size());
+    assertEquals(1L, renderer.stats().get("failed"));
+  }
+}
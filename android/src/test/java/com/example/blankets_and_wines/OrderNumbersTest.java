@@ -0,0 +1,96 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OrderNumbersTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File sequence() {
+    return new File(folder.getRoot(), "order_sequence");
+  }
+
+  private static long sequenceOf(String number) {
+    return Long.parseLong(number.substring(number.lastIndexOf('-') + 1));
+  }
+
+  @Test
+  public void numbers_carryTheSerialAndCountUp() throws IOException {
+    OrderNumbers numbers = new OrderNumbers("N86012345", sequence(), 10);
+
+    assertEquals("ORD-N86012345-1", numbers.next());
+    assertEquals("ORD-N86012345-2", numbers.next());
+    assertArrayEquals(new String[] {"ORD-N86012345-3", "ORD-N86012345-4", "ORD-N86012345-5"},
+        numbers.next(3));
+  }
+
+  @Test
+  public void restart_neverRepeatsANumber() throws IOException {
+    OrderNumbers first = new OrderNumbers("N1", sequence(), 10);
+    long last = 0;
+    for (int i = 0; i < 25; i++) {
+      last = sequenceOf(first.next());
+    }
+
+    OrderNumbers second = new OrderNumbers("N1", sequence(), 10);
+
+    assertTrue(sequenceOf(second.next()) > last);
+  }
+
+  @Test
+  public void unknownSerial_usesAnIdKeptAcrossRestarts() throws IOException {
+    String first = new OrderNumbers("Unknown", sequence(), 10).next();
+    String second = new OrderNumbers(null, sequence(), 10).next();
+
+    String prefix = first.substring(0, first.lastIndexOf('-'));
+    assertTrue(second.startsWith(prefix + "-"));
+    assertTrue(prefix.length() > "ORD-".length());
+  }
+
+  @Test
+  public void concurrentCallers_getDistinctNumbers() throws Exception {
+    OrderNumbers numbers = new OrderNumbers("N1", sequence(), 100);
+    Set<String> seen = ConcurrentHashMap.newKeySet();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < 5000; i++) {
+          if (i % 10 == 0) {
+            for (String number : numbers.next(5)) {
+              seen.add(number);
+            }
+          } else {
+            seen.add(numbers.next());
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    int expected = 8 * (4500 + 500 * 5);
+    assertEquals(expected, seen.size());
+
+    // Everything handed out is below where a restart would pick up
+    long highest = 0;
+    for (String number : seen) {
+      highest = Math.max(highest, sequenceOf(number));
+    }
+    assertTrue(highest < sequenceOf(new OrderNumbers("N1", sequence(), 100).next()));
+  }
+}
@@ -0,0 +1,173 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class PayloadCodecTest {
+
+  private static void putString(ByteBuffer out, String value) {
+    if (value == null) {
+      PayloadCodec.putVarLong(out, 0);
+      return;
+    }
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    PayloadCodec.putVarLong(out, utf8.length + 1);
+    out.put(utf8);
+  }
+
+  private static void putZigZag(ByteBuffer out, long value) {
+    PayloadCodec.putVarLong(out, (value << 1) ^ (value >> 63));
+  }
+
+  @Test
+  public void decodeMessage_receipt_readsEveryField() {
+    ByteBuffer in = ByteBuffer.allocateDirect(256).order(ByteOrder.LITTLE_ENDIAN);
+    in.put(PayloadCodec.TAG_RECEIPT);
+    putString(in, "Blankets & Wine");
+    putString(in, "SALE");
+    putString(in, "2025-01-17");
+    putString(in, null);
+    putString(in, "M-Pesa");
+    putString(in, "");
+    in.put((byte) 0b101); // subtotal and total, no tax
+    putZigZag(in, 150000);
+    putZigZag(in, 174000);
+    PayloadCodec.putVarLong(in, 300);
+    PayloadCodec.putVarLong(in, 2);
+    putString(in, "Café Latte");
+    PayloadCodec.putVarLong(in, 3);
+    putZigZag(in, 45050);
+    putString(in, "Refund");
+    PayloadCodec.putVarLong(in, 1);
+    putZigZag(in, -1005);
+    in.flip();
+
+    ReceiptPayload receipt = (ReceiptPayload) new PayloadCodec().decodeMessage(in);
+
+    assertEquals("Blankets & Wine", receipt.storeName);
+    assertEquals("SALE", receipt.receiptType);
+    assertNull(receipt.time);
+    assertEquals("", receipt.orderNumber);
+    assertEquals("1500.00", receipt.subtotal);
+    assertNull(receipt.tax);
+    assertEquals("1740.00", receipt.total);
+    assertEquals(300, receipt.qrSize);
+    assertEquals(2, receipt.itemCount);
+    assertEquals("Café Latte", receipt.itemNames[0]);
+    assertEquals(3, receipt.quantities[0]);
+    assertEquals("450.50", receipt.price(0));
+    assertEquals("-10.05", receipt.price(1));
+    assertEquals(174000, receipt.totalCents());
+    assertNull(receipt.seller);
+  }
+
+  @Test
+  public void decodeMessage_receipt_readsTrailingSellerAndKeepsBytes() {
+    ByteBuffer in = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+    in.put(PayloadCodec.TAG_RECEIPT);
+    for (int i = 0; i < 6; i++) {
+      putString(in, null);
+    }
+    in.put((byte) 0);
+    PayloadCodec.putVarLong(in, 200);
+    PayloadCodec.putVarLong(in, 0);
+    putString(in, "Wanjiru");
+    in.flip();
+    byte[] sent = new byte[in.limit()];
+    in.duplicate().get(sent);
+
+    ReceiptPayload receipt = (ReceiptPayload) new PayloadCodec().decodeMessage(in);
+
+    assertEquals("Wanjiru", receipt.seller);
+    assertArrayEquals(sent, receipt.encoded);
+  }
+
+  @Test
+  public void withOrderNumber_replacesOnlyTheOrderNumber() {
+    ByteBuffer in = ByteBuffer.allocate(128).order(ByteOrder.LITTLE_ENDIAN);
+    in.put(PayloadCodec.TAG_RECEIPT);
+    putString(in, "Blankets & Wine");
+    putString(in, "SALE");
+    putString(in, null);
+    putString(in, "21:04");
+    putString(in, "Cash");
+    putString(in, "");
+    in.put((byte) 0b100);
+    putZigZag(in, 90000);
+    PayloadCodec.putVarLong(in, 200);
+    PayloadCodec.putVarLong(in, 1);
+    putString(in, "Tusker");
+    PayloadCodec.putVarLong(in, 2);
+    putZigZag(in, 45000);
+    putString(in, "Wanjiru");
+    in.flip();
+    byte[] sent = new byte[in.limit()];
+    in.get(sent);
+
+    byte[] numbered = PayloadCodec.withOrderNumber(sent, "ORD-PF2000001-42");
+    ReceiptPayload receipt = (ReceiptPayload) new PayloadCodec().decodeMessage(ByteBuffer.wrap(numbered));
+
+    assertEquals("ORD-PF2000001-42", receipt.orderNumber);
+    assertEquals("Cash", receipt.paymentMethod);
+    assertEquals("900.00", receipt.total);
+    assertEquals("Tusker", receipt.itemNames[0]);
+    assertEquals("Wanjiru", receipt.seller);
+    assertArrayEquals(numbered, receipt.encoded);
+  }
+
+  @Test
+  public void totalCents_readsFormattedTotals() {
+    ReceiptPayload receipt = new ReceiptPayload();
+    String[] totals = {"1,234.50", "Kshs 80", "0.5", "-12.345", null};
+    long[] cents = {123450, 8000, 50, -1234, 0};
+    for (int i = 0; i < totals.length; i++) {
+      receipt.total = totals[i];
+      assertEquals(String.valueOf(totals[i]), cents[i], receipt.totalCents());
+    }
+  }
+
+  @Test
+  public void decodeMessage_reportRows_keepsAmountsInCents() {
+    ByteBuffer in = ByteBuffer.allocate(128).order(ByteOrder.LITTLE_ENDIAN);
+    in.put(PayloadCodec.TAG_REPORT_ROWS);
+    putString(in, "report-7");
+    PayloadCodec.putVarLong(in, 1);
+    putString(in, "17/01 21:04");
+    putString(in, "Wanjiru");
+    putZigZag(in, 250000);
+    putString(in, "TX-1");
+    in.flip();
+
+    ReportPage page = (ReportPage) new PayloadCodec().decodeMessage(in);
+
+    assertEquals("report-7", page.streamId);
+    assertEquals(1, page.rowCount);
+    assertEquals(250000, page.amountCents[0]);
+    String[] lines = new String[ReportLayout.MAX_LINES_PER_TRANSACTION];
+    assertEquals(3, ReportLayout.formatTransaction(ReportLayout.transactionColumns(), page, 0, lines, 0));
+    assertEquals("  ID: TX-1", lines[1]);
+  }
+
+  @Test
+  public void encodeMessage_reply_leavesPositionAtMessageEnd() {
+    ByteBuffer out = new PayloadCodec().encodeMessage(
+        new PayloadCodec.Reply(true, null, "ok", "ORD-0042", 300));
+
+    byte[] bytes = new byte[out.position()];
+    out.flip();
+    out.get(bytes);
+    assertArrayEquals(new byte[] {
+        PayloadCodec.TAG_REPLY, 1,
+        0,
+        3, 'o', 'k',
+        9, 'O', 'R', 'D', '-', '0', '0', '4', '2',
+        (byte) 0xAC, 0x02
+    }, bytes);
+  }
+}
@@ -0,0 +1,99 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class PluginMetricsTest {
+
+  @Test
+  public void histogram_percentilesWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long micros = 1; micros <= 1000; micros++) {
+      histogram.record(micros * 1000);
+    }
+
+    assertEquals(1000, histogram.count());
+    assertWithin(500_000, histogram.percentile(0.50));
+    assertWithin(950_000, histogram.percentile(0.95));
+    assertWithin(990_000, histogram.percentile(0.99));
+    assertEquals(1_000_000, histogram.percentile(1.0));
+  }
+
+  @Test
+  public void histogram_bucketBoundsCoverEveryValue() {
+    for (long value : new long[] {0, 7, 8, 15, 16, 1000, 123_456_789, 1L << 35}) {
+      int index = LatencyHistogram.index(value);
+      assertTrue(value <= LatencyHistogram.upperBound(index));
+      assertTrue(index == 0 || value > LatencyHistogram.upperBound(index - 1));
+    }
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue("expected ~" + expected + " but was " + actual,
+        Math.abs(actual - expected) <= expected / 8);
+  }
+
+  @Test
+  public void executorTasks_chargeQueueAndSdkTimeToSubmittingMethod() throws Exception {
+    PluginMetrics metrics = new PluginMetrics();
+    FakeDevices fake = new FakeDevices();
+    Devices devices = InstrumentedDevices.wrap(fake.devices(), metrics);
+    ThreadPoolExecutor executor = metrics.newSingleThreadExecutor();
+    CountDownLatch done = new CountDownLatch(1);
+
+    metrics.enter("getPrinterStatus", null);
+    try {
+      executor.execute(() -> {
+        devices.printer.getStatus();
+        devices.printer.appendString("12345", null);
+        done.countDown();
+      });
+    } finally {
+      metrics.exit();
+    }
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    executor.shutdown();
+
+    PluginMetrics.MethodStats stats = metrics.method("getPrinterStatus");
+    assertEquals(1, stats.calls.sum());
+    assertEquals(1, stats.queued.count());
+    assertEquals(2, stats.sdk.count());
+    Map<String, Object> snapshot = metrics.snapshot();
+    assertEquals(2L, snapshot.get("sdkCalls"));
+    assertEquals(5L, snapshot.get("bytesPrinted"));
+
+    metrics.reset();
+    assertEquals(0, stats.sdk.count());
+  }
+
+  @Test
+  public void everyOutcome_recordsLatency() {
+    PluginMetrics metrics = new PluginMetrics();
+    Result ignored = new Result() {
+      @Override
+      public void success(Object result) { }
+
+      @Override
+      public void error(String errorCode, String errorMessage, Object errorDetails) { }
+
+      @Override
+      public void notImplemented() { }
+    };
+
+    metrics.enter("unknownMethod", ignored).notImplemented();
+    metrics.exit();
+    metrics.enter("unknownMethod", ignored).success(null);
+    metrics.exit();
+
+    PluginMetrics.MethodStats stats = metrics.method("unknownMethod");
+    assertEquals(2, stats.total.count());
+    assertEquals(1, stats.errors.sum());
+  }
+}
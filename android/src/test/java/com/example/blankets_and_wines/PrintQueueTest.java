@@ -0,0 +1,207 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.zcs.sdk.SdkResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PrintQueueTest {
+
+  private final FakeDevices fake = new FakeDevices();
+  private final StyleRegistry styles = new StyleRegistry();
+  private ExecutorService executor;
+  private PrintQueue queue;
+  private CountDownLatch gate;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+    queue = new PrintQueue(executor, fake.printer, styles);
+    // Hold the print thread so submitted jobs are all waiting when it drains
+    gate = new CountDownLatch(1);
+    executor.execute(() -> {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static final class Outcome implements PrintJob.Callback {
+    final CountDownLatch done = new CountDownLatch(1);
+    volatile Integer resultCode;
+    volatile Exception failure;
+
+    @Override
+    public void onPrinted(int resultCode) {
+      this.resultCode = resultCode;
+      done.countDown();
+    }
+
+    @Override
+    public void onFailed(Exception e) {
+      failure = e;
+      done.countDown();
+    }
+
+    void await() throws InterruptedException {
+      assertTrue("job never completed", done.await(5, TimeUnit.SECONDS));
+    }
+  }
+
+  private Outcome submit(String text, int priority) {
+    Outcome outcome = new Outcome();
+    queue.submit(new PrintJob(text, priority, false, 1,
+        () -> fake.printer.appendString(text, styles.get(StyleRegistry.NORMAL)), outcome));
+    return outcome;
+  }
+
+  @Test
+  public void waitingJobs_shareOneStartWithTearOffBetween() throws Exception {
+    fake.printer.printingPolls = 2;
+    Outcome a = submit("A", PrintJob.PRIORITY_NORMAL);
+    Outcome b = submit("B", PrintJob.PRIORITY_NORMAL);
+    gate.countDown();
+    a.await();
+    b.await();
+
+    assertEquals(SdkResult.SDK_OK, (int) a.resultCode);
+    assertEquals(SdkResult.SDK_OK, (int) b.resultCode);
+    assertEquals(1, fake.count("start"));
+    List<String> appended = new ArrayList<>();
+    for (String op : fake.ops()) {
+      if (op.startsWith("append:")) {
+        appended.add(op);
+      }
+    }
+    assertEquals(Arrays.asList("append:A", "append:", "append:", "append:", "append:", "append:B"), appended);
+    // One status check before the start, then polls until the fake goes idle
+    assertEquals(4, fake.count("status"));
+  }
+
+  @Test
+  public void paperOut_failsEveryWaitingJobWithoutStarting() throws Exception {
+    fake.printer.paperOut();
+    Outcome a = submit("A", PrintJob.PRIORITY_NORMAL);
+    Outcome b = submit("B", PrintJob.PRIORITY_NORMAL);
+    gate.countDown();
+    a.await();
+    b.await();
+
+    assertEquals("Out of paper", a.failure.getMessage());
+    assertEquals("Out of paper", b.failure.getMessage());
+    assertEquals(0, fake.count("start"));
+  }
+
+  @Test
+  public void failedAppend_failsOnlyThatJob() throws Exception {
+    Outcome a = submit("A", PrintJob.PRIORITY_NORMAL);
+    fake.printer.appendFailure = new IllegalStateException("boom");
+    gate.countDown();
+    a.await();
+
+    Outcome b = submit("B", PrintJob.PRIORITY_NORMAL);
+    b.await();
+
+    assertEquals("boom", a.failure.getMessage());
+    assertEquals(SdkResult.SDK_OK, (int) b.resultCode);
+    assertEquals(1, fake.count("start"));
+  }
+
+  @Test
+  public void partlyAppendedJob_isVoidedAndPrintedWithoutLaterJobs() throws Exception {
+    Outcome a = submit("A", PrintJob.PRIORITY_NORMAL);
+    Outcome torn = new Outcome();
+    queue.submit(new PrintJob("torn", PrintJob.PRIORITY_NORMAL, false, 1, () -> {
+      fake.printer.appendString("T1", styles.get(StyleRegistry.NORMAL));
+      throw new IllegalStateException("torn");
+    }, torn));
+    Outcome c = submit("C", PrintJob.PRIORITY_NORMAL);
+    gate.countDown();
+    a.await();
+    torn.await();
+    c.await();
+
+    assertEquals(SdkResult.SDK_OK, (int) a.resultCode);
+    assertEquals("torn", torn.failure.getMessage());
+    assertEquals(SdkResult.SDK_OK, (int) c.resultCode);
+    List<String> ops = fake.ops();
+    int voidNotice = ops.indexOf("append:" + PrintQueue.VOID_NOTICE);
+    assertTrue(ops.indexOf("append:T1") < voidNotice);
+    // The first start prints A and the voided lines; C waits for its own
+    assertTrue(voidNotice < ops.indexOf("start"));
+    assertTrue(ops.indexOf("start") < ops.indexOf("append:C"));
+    assertEquals(2, fake.count("start"));
+  }
+
+  @Test
+  public void close_failsWaitingAndLaterJobs() throws Exception {
+    Outcome waiting = submit("A", PrintJob.PRIORITY_NORMAL);
+    queue.close(new Exception("detached"));
+    Outcome later = submit("B", PrintJob.PRIORITY_NORMAL);
+    gate.countDown();
+    waiting.await();
+    later.await();
+
+    assertEquals("detached", waiting.failure.getMessage());
+    assertEquals("detached", later.failure.getMessage());
+    assertEquals(0, fake.count("start"));
+  }
+
+  @Test
+  public void shutDownExecutor_failsJobsInsteadOfThrowing() throws Exception {
+    executor.shutdownNow();
+    Outcome rejected = submit("A", PrintJob.PRIORITY_NORMAL);
+    rejected.await();
+    Outcome later = submit("B", PrintJob.PRIORITY_NORMAL);
+    later.await();
+
+    assertEquals("Printer is shut down", rejected.failure.getMessage());
+    assertEquals("Printer is shut down", later.failure.getMessage());
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void receipts_printAheadOfReports() throws Exception {
+    Outcome report = new Outcome();
+    queue.submit(new PrintJob("report", PrintJob.PRIORITY_REPORT, true, 1,
+        () -> fake.printer.appendString("report", styles.get(StyleRegistry.NORMAL)), report));
+    Outcome receipt = submit("receipt", PrintJob.PRIORITY_RECEIPT);
+    gate.countDown();
+    report.await();
+    receipt.await();
+
+    List<String> ops = fake.ops();
+    assertTrue(ops.indexOf("append:receipt") < ops.indexOf("append:report"));
+    assertEquals(2, fake.count("start"));
+  }
+
+  @Test
+  public void startFailure_isReportedToEveryJobInTheBatch() throws Exception {
+    fake.printer.startResult = SdkResult.SDK_PRN_STATUS_PAPEROUT;
+    Outcome a = submit("A", PrintJob.PRIORITY_NORMAL);
+    Outcome b = submit("B", PrintJob.PRIORITY_NORMAL);
+    gate.countDown();
+    a.await();
+    b.await();
+
+    assertEquals(SdkResult.SDK_PRN_STATUS_PAPEROUT, (int) a.resultCode);
+    assertEquals(SdkResult.SDK_PRN_STATUS_PAPEROUT, (int) b.resultCode);
+  }
+}
@@ -0,0 +1,222 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PrintSpoolTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<Long> written = new ArrayList<>();
+  private final List<Exception> failures = new ArrayList<>();
+  private final PrintSpool.Callback callback = new PrintSpool.Callback() {
+    @Override
+    public void onWritten(long id) {
+      written.add(id);
+    }
+
+    @Override
+    public void onFailed(Exception e) {
+      failures.add(e);
+    }
+  };
+
+  // Runs writer tasks when told to, so appends can pile up
+  private static final class ManualExecutor implements Executor {
+    final List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable task) {
+      tasks.add(task);
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove(0).run();
+      }
+    }
+  }
+
+  private File journal() {
+    return new File(folder.getRoot(), "print_spool.journal");
+  }
+
+  private PrintSpool open(int maxBytes) {
+    return new PrintSpool(journal(), Runnable::run, maxBytes);
+  }
+
+  private static byte[] bytes(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void unfinishedJobs_areRecoveredInOrder() {
+    PrintSpool spool = open(PrintSpool.DEFAULT_MAX_BYTES);
+    spool.append("printText", bytes("one"), callback);
+    spool.append("printReceiptBinary", bytes("two"), callback);
+    spool.append("printText", bytes("three"), callback);
+    spool.complete(written.get(1));
+    spool.close();
+
+    List<PrintSpool.Entry> recovered = open(PrintSpool.DEFAULT_MAX_BYTES).takeRecovered();
+
+    assertEquals(2, recovered.size());
+    assertEquals(written.get(0).longValue(), recovered.get(0).id);
+    assertEquals("printText", recovered.get(0).kind);
+    assertArrayEquals(bytes("one"), recovered.get(0).payload);
+    assertArrayEquals(bytes("three"), recovered.get(1).payload);
+  }
+
+  @Test
+  public void recoveredJobs_areHandedOutOnce() {
+    PrintSpool spool = open(PrintSpool.DEFAULT_MAX_BYTES);
+    spool.append("printText", bytes("one"), callback);
+    spool.close();
+
+    PrintSpool reopened = open(PrintSpool.DEFAULT_MAX_BYTES);
+
+    assertEquals(1, reopened.takeRecovered().size());
+    assertTrue(reopened.takeRecovered().isEmpty());
+  }
+
+  @Test
+  public void newIds_followRecoveredOnes() {
+    PrintSpool spool = open(PrintSpool.DEFAULT_MAX_BYTES);
+    spool.append("printText", bytes("one"), callback);
+    spool.close();
+
+    open(PrintSpool.DEFAULT_MAX_BYTES).append("printText", bytes("two"), callback);
+
+    assertEquals(2, written.size());
+    assertTrue(written.get(1) > written.get(0));
+  }
+
+  @Test
+  public void tornRecord_endsTheJournal() throws IOException {
+    PrintSpool spool = open(PrintSpool.DEFAULT_MAX_BYTES);
+    spool.append("printText", bytes("one"), callback);
+    spool.append("printText", bytes("two"), callback);
+    spool.close();
+    try (RandomAccessFile raf = new RandomAccessFile(journal(), "rw")) {
+      raf.setLength(raf.length() - 2);
+    }
+
+    PrintSpool reopened = open(PrintSpool.DEFAULT_MAX_BYTES);
+    reopened.append("printText", bytes("three"), callback);
+    reopened.close();
+    List<PrintSpool.Entry> recovered = open(PrintSpool.DEFAULT_MAX_BYTES).takeRecovered();
+
+    assertEquals(2, recovered.size());
+    assertArrayEquals(bytes("one"), recovered.get(0).payload);
+    assertArrayEquals(bytes("three"), recovered.get(1).payload);
+  }
+
+  @Test
+  public void appendsWhileWriting_shareOneSync() {
+    ManualExecutor writer = new ManualExecutor();
+    PrintSpool spool = new PrintSpool(journal(), writer, PrintSpool.DEFAULT_MAX_BYTES);
+    for (int i = 0; i < 10; i++) {
+      spool.append("printText", bytes("receipt " + i), callback);
+    }
+    writer.runAll();
+
+    assertEquals(10, written.size());
+    assertEquals(1L, spool.stats().get("commits"));
+  }
+
+  @Test
+  public void liveJobsBeyondTheCap_areRejected() {
+    PrintSpool spool = open(100);
+    spool.append("printText", new byte[40], callback);
+    spool.append("printText", new byte[40], callback);
+
+    assertEquals(1, written.size());
+    assertEquals(1, failures.size());
+    assertEquals(1L, spool.stats().get("rejected"));
+
+    spool.complete(written.get(0));
+    spool.append("printText", new byte[40], callback);
+    assertEquals(2, written.size());
+  }
+
+  @Test
+  public void finishedJobs_areCompactedAway() {
+    PrintSpool spool = open(PrintSpool.DEFAULT_MAX_BYTES);
+    spool.append("printText", bytes("kept"), callback);
+    byte[] receipt = new byte[1024];
+    while ((Long) spool.stats().get("compactions") == 0) {
+      spool.append("printReceiptBinary", receipt, callback);
+      spool.complete(written.get(written.size() - 1));
+    }
+    spool.close();
+
+    assertTrue(journal().length() < PrintSpool.COMPACT_BYTES);
+    List<PrintSpool.Entry> recovered = open(PrintSpool.DEFAULT_MAX_BYTES).takeRecovered();
+    assertEquals(1, recovered.size());
+    assertArrayEquals(bytes("kept"), recovered.get(0).payload);
+  }
+
+  @Test
+  public void useAfterClose_failsAppendsAndIgnoresCompletions() {
+    StoppableExecutor writer = new StoppableExecutor();
+    PrintSpool spool = new PrintSpool(journal(), writer, PrintSpool.DEFAULT_MAX_BYTES);
+    spool.append("printText", bytes("one"), callback);
+    writer.runAll();
+    spool.close();
+    writer.runAll();
+    writer.shutdown = true;
+
+    // A job that finished printing after the plugin detached
+    spool.complete(written.get(0));
+    spool.append("printText", bytes("two"), callback);
+
+    assertEquals(1, failures.size());
+    assertEquals("Print spool is closed", failures.get(0).getMessage());
+    assertEquals(1, open(PrintSpool.DEFAULT_MAX_BYTES).takeRecovered().size());
+  }
+
+  @Test
+  public void writerShutDownWithoutClose_failsAppends() {
+    StoppableExecutor writer = new StoppableExecutor();
+    PrintSpool spool = new PrintSpool(journal(), writer, PrintSpool.DEFAULT_MAX_BYTES);
+    writer.runAll();
+    writer.shutdown = true;
+
+    spool.complete(1);
+    spool.append("printText", bytes("one"), callback);
+
+    assertEquals(1, failures.size());
+    assertTrue(written.isEmpty());
+  }
+
+  // Like a shut-down executor: rejects tasks once shutdown is set
+  private static final class StoppableExecutor implements Executor {
+    final ManualExecutor tasks = new ManualExecutor();
+    boolean shutdown;
+
+    @Override
+    public void execute(Runnable task) {
+      if (shutdown) {
+        throw new RejectedExecutionException("shut down");
+      }
+      tasks.execute(task);
+    }
+
+    void runAll() {
+      tasks.runAll();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.zcs.sdk.SdkResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class PrinterStatusMonitorTest {
+
+  private final FakeDevices fake = new FakeDevices();
+  private final PrinterStatusMonitor monitor = new PrinterStatusMonitor(fake.printer);
+  private final List<String> events = new ArrayList<>();
+
+  @Test
+  public void changes_arePublishedOnceEach() {
+    monitor.setListener((previous, status) -> events.add(PrinterStatusMonitor.event(previous, status)));
+
+    monitor.read();
+    monitor.read();
+    fake.printer.paperOut();
+    monitor.read();
+    monitor.read();
+    fake.printer.status = SdkResult.SDK_OK;
+    monitor.read();
+    monitor.observed(SdkResult.SDK_PRN_STATUS_PRINTING);
+
+    assertEquals(Arrays.asList("ready", "paperOut", "recovered", "busy"), events);
+  }
+
+  @Test
+  public void printCheck_usesRecentReadyAndRereadsAnythingElse() {
+    assertEquals(SdkResult.SDK_OK, monitor.statusForPrint());
+    assertEquals(SdkResult.SDK_OK, monitor.statusForPrint());
+    assertEquals(1, fake.count("status"));
+
+    // A roll reloaded since the last sample is noticed before failing the job
+    monitor.observed(SdkResult.SDK_PRN_STATUS_PAPEROUT);
+    assertEquals(SdkResult.SDK_OK, monitor.statusForPrint());
+    assertEquals(2, fake.count("status"));
+  }
+
+  @Test
+  public void sampling_speedsUpWhilePrinting() {
+    assertEquals(PrinterStatusMonitor.IDLE_INTERVAL_MILLIS,
+        PrinterStatusMonitor.intervalMillis(SdkResult.SDK_OK));
+    assertEquals(PrinterStatusMonitor.PRINTING_INTERVAL_MILLIS,
+        PrinterStatusMonitor.intervalMillis(SdkResult.SDK_PRN_STATUS_PRINTING));
+    assertEquals(PrinterStatusMonitor.FAULT_INTERVAL_MILLIS,
+        PrinterStatusMonitor.intervalMillis(SdkResult.SDK_PRN_STATUS_PAPEROUT));
+  }
+
+  @Test
+  public void background_samplesUntilStopped() throws Exception {
+    fake.printer.status = SdkResult.SDK_PRN_STATUS_PRINTING;
+    monitor.start(Executors.newSingleThreadScheduledExecutor());
+    Thread.sleep(350);
+    monitor.stop();
+
+    int samples = fake.count("status");
+    assertTrue("samples: " + samples, samples >= 3 && samples <= 6);
+    assertEquals(SdkResult.SDK_PRN_STATUS_PRINTING, monitor.status());
+    Thread.sleep(250);
+    assertEquals(samples, fake.count("status"));
+  }
+
+  @Test
+  public void stopped_reportsNothingMore() {
+    monitor.setListener((previous, status) -> events.add(PrinterStatusMonitor.event(previous, status)));
+    monitor.read();
+    monitor.stop();
+
+    // A read already under way when the monitor was replaced
+    fake.printer.paperOut();
+    monitor.read();
+
+    assertEquals(Arrays.asList("ready"), events);
+  }
+}
@@ -0,0 +1,52 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class ReceiptPayloadTest {
+
+  private static Map<String, Object> item(String name, Object quantity) {
+    Map<String, Object> item = new HashMap<>();
+    item.put("name", name);
+    item.put("quantity", quantity);
+    item.put("price", "250.00");
+    return item;
+  }
+
+  @SafeVarargs
+  private static ReceiptPayload receipt(Map<String, Object>... items) {
+    Map<String, Object> receiptData = new HashMap<>();
+    receiptData.put("items", Arrays.asList(items));
+    return ReceiptPayload.fromMap(receiptData);
+  }
+
+  @Test
+  public void quantities_printAsSentAndCountWholeItems() {
+    ReceiptPayload receipt = receipt(
+        item("Tusker", 2), item("Gilbeys Gin", "1.5"), item("Wine", 1.5), item("Water", " 3 "));
+
+    assertEquals(Arrays.asList("2", "1.5", "1.5", " 3 "), Arrays.asList(receipt.quantityText));
+    assertEquals(2 + 1 + 1 + 3, receipt.totalQuantity());
+  }
+
+  @Test
+  public void fractionalQuantity_printsOnTheItemLine() {
+    FakeDevices fake = new FakeDevices();
+    ReceiptPayload receipt = receipt(item("Gin", "1.5"));
+    new ReceiptLayout(fake.printer, fake.printer, new StyleRegistry(), new SymbolCache())
+        .appendBody(receipt);
+
+    List<String> ops = fake.ops();
+    boolean printed = false;
+    for (String op : ops) {
+      printed |= op.startsWith("append:Gin") && op.contains("1.5");
+    }
+    assertTrue(ops.toString(), printed);
+  }
+}
@@ -0,0 +1,144 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import com.zcs.sdk.SdkResult;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ReceiptRasterTest {
+
+  private static final int BLACK = 0xFF000000;
+  private static final int WHITE = 0xFFFFFFFF;
+
+  private final FakeDevices fake = new FakeDevices();
+
+  // A head-width row of white with black at the given dots
+  private static int[] row(int width, int... blackDots) {
+    int[] row = new int[width];
+    Arrays.fill(row, WHITE);
+    for (int dot : blackDots) {
+      row[dot] = BLACK;
+    }
+    return row;
+  }
+
+  private byte[] sent(ReceiptRaster raster) {
+    assertEquals(SdkResult.SDK_OK, raster.send(fake.printer));
+    List<byte[]> rasters = fake.printer.rasters();
+    assertEquals(1, rasters.size());
+    return rasters.get(0);
+  }
+
+  @Test
+  public void rows_packMostSignificantBitFirstAt58mm() {
+    ReceiptRaster raster = new ReceiptRaster(ReceiptRaster.WIDTH_58MM, 4);
+    raster.packRow(row(ReceiptRaster.WIDTH_58MM, 0, 7, 8, 383), ReceiptRaster.WIDTH_58MM, 0);
+
+    byte[] expected = new byte[48];
+    expected[0] = (byte) 0x81;
+    expected[1] = (byte) 0x80;
+    expected[47] = 0x01;
+    assertEquals(48, raster.rowBytes);
+    assertArrayEquals(expected, sent(raster));
+  }
+
+  @Test
+  public void rows_packFromTheGivenLeftDotAt80mm() {
+    ReceiptRaster raster = new ReceiptRaster(ReceiptRaster.WIDTH_80MM, 4);
+    // A six-dot strip drawn against the right edge
+    int[] strip = new int[6];
+    Arrays.fill(strip, BLACK);
+    raster.packRow(strip, strip.length, ReceiptRaster.WIDTH_80MM - strip.length);
+    raster.packRow(row(ReceiptRaster.WIDTH_80MM, 9), ReceiptRaster.WIDTH_80MM, 0);
+
+    byte[] expected = new byte[2 * 72];
+    expected[71] = 0x3F;
+    expected[72 + 1] = 0x40;
+    assertEquals(72, raster.rowBytes);
+    assertEquals(2, raster.rows());
+    assertArrayEquals(expected, sent(raster));
+  }
+
+  @Test
+  public void ink_isDecidedAgainstWhitePaper() {
+    ReceiptRaster raster = new ReceiptRaster(ReceiptRaster.WIDTH_58MM, 1);
+    int[] pixels = {
+        0x00000000, // transparent
+        WHITE,
+        0xFF969696, // opaque gray, luminance 150
+        0x28000000, // black at alpha 40, 215 on paper
+        0x3C000000, // black at alpha 60, 195 on paper
+        0xFFC8C8C8, // opaque gray at the cut-off
+    };
+    raster.packRow(pixels, pixels.length, 0);
+
+    assertEquals((byte) 0x28, sent(raster)[0]);
+  }
+
+  @Test
+  public void send_splitsIntoWholeRowChunksAtBothWidths() {
+    int[] widths = {ReceiptRaster.WIDTH_58MM, ReceiptRaster.WIDTH_80MM};
+    int[] rows = {1100, 700};
+    // 49152 bytes is 1024 rows at 48 bytes, but only 682 whole rows at 72
+    int[][] expectedChunks = {{1024 * 48, 76 * 48}, {682 * 72, 18 * 72}};
+    for (int w = 0; w < widths.length; w++) {
+      FakeDevices devices = new FakeDevices();
+      ReceiptRaster raster = new ReceiptRaster(widths[w], 16);
+      int[] blank = row(widths[w]);
+      for (int y = 0; y < rows[w]; y++) {
+        raster.packRow(blank, widths[w], 0);
+      }
+
+      assertEquals(SdkResult.SDK_OK, raster.send(devices.printer));
+      List<byte[]> chunks = devices.printer.rasters();
+      assertEquals(2, chunks.size());
+      assertEquals(expectedChunks[w][0], chunks.get(0).length);
+      assertEquals(expectedChunks[w][1], chunks.get(1).length);
+    }
+  }
+
+  @Test
+  public void send_stopsAtTheFirstFailedChunk() {
+    ReceiptRaster raster = new ReceiptRaster(ReceiptRaster.WIDTH_58MM, 16);
+    int[] blank = row(ReceiptRaster.WIDTH_58MM);
+    for (int y = 0; y < 3000; y++) {
+      raster.packRow(blank, ReceiptRaster.WIDTH_58MM, 0);
+    }
+    fake.printer.rasterResult = SdkResult.SDK_PRN_STATUS_PAPEROUT;
+
+    assertEquals(SdkResult.SDK_PRN_STATUS_PAPEROUT, raster.send(fake.printer));
+    assertEquals(1, fake.printer.rasters().size());
+  }
+
+  @Test
+  public void pool_handsOutResetRastersAndWaitsWhenAllAreOut() throws Exception {
+    ReceiptRaster.Pool pool = new ReceiptRaster.Pool(ReceiptRaster.WIDTH_80MM, 2);
+    ReceiptRaster first = pool.acquire();
+    pool.acquire();
+    first.packRow(row(ReceiptRaster.WIDTH_80MM, 0), ReceiptRaster.WIDTH_80MM, 0);
+    assertEquals(ReceiptRaster.WIDTH_80MM, first.width);
+
+    ExecutorService waiter = Executors.newSingleThreadExecutor();
+    try {
+      Future<ReceiptRaster> third = waiter.submit(pool::acquire);
+      Thread.sleep(100);
+      assertFalse("acquired a third raster from a pool of two", third.isDone());
+
+      pool.release(first);
+      ReceiptRaster reused = third.get(5, TimeUnit.SECONDS);
+      assertSame(first, reused);
+      assertEquals(0, reused.rows());
+    } finally {
+      waiter.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class ReceiptTemplateTest {
+
+  private final FakeDevices fake = new FakeDevices();
+  private final StyleRegistry styles = new StyleRegistry();
+
+  private static Map<String, Object> op(Object... keysAndValues) {
+    Map<String, Object> op = new HashMap<>();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      op.put((String) keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return op;
+  }
+
+  @SafeVarargs
+  private static List<Map<String, Object>> ops(Map<String, Object>... ops) {
+    return Arrays.asList(ops);
+  }
+
+  private List<String> print(ReceiptTemplate template, Map<String, Object> values) {
+    template.print(values, new ReceiptTemplate.RunContext(fake.printer, fake.printer, new SymbolCache()));
+    return fake.ops();
+  }
+
+  private ReceiptTemplate itemsTemplate() {
+    return ReceiptTemplate.compile("sale", ops(
+        op("op", "text", "style", "header", "text", "{storeName}"),
+        op("op", "text", "text", "Date: {date}", "optional", true),
+        op("op", "separator", "char", "=", "width", 8),
+        op("op", "repeat", "list", "items", "ops", ops(
+            op("op", "columns", "columns", ops(
+                op("text", "{name}", "width", 6),
+                op("text", "{quantity}x", "width", 4, "align", "RIGHT"))))),
+        op("op", "text", "text", "Total {total}"),
+        op("op", "feed", "lines", 2)), styles);
+  }
+
+  private static Map<String, Object> item(String name, Object quantity) {
+    Map<String, Object> item = new HashMap<>();
+    item.put("name", name);
+    item.put("quantity", quantity);
+    return item;
+  }
+
+  @Test
+  public void boundTemplate_printsEveryOpInOrder() {
+    Map<String, Object> values = new HashMap<>();
+    values.put("storeName", "Blankets & Wine");
+    values.put("date", "17/01/2025");
+    values.put("total", "1,740.00");
+    values.put("items", Arrays.asList(item("Tusker", 2), item("Gilbeys Gin", "1.5")));
+
+    assertEquals(Arrays.asList(
+        "append:Blankets & Wine",
+        "append:Date: 17/01/2025",
+        "append:========",
+        "append:Tusker   2x",
+        "append:Gil... 1.5x",
+        "append:Total 1,740.00",
+        "append:",
+        "append:"), print(itemsTemplate(), values));
+  }
+
+  @Test
+  public void missingBindings_dropOptionalLinesAndLeaveOthersBlank() {
+    Map<String, Object> values = new HashMap<>();
+    values.put("storeName", "Blankets & Wine");
+    values.put("date", "");
+
+    assertEquals(Arrays.asList(
+        "append:Blankets & Wine",
+        "append:========",
+        "append:Total ",
+        "append:",
+        "append:"), print(itemsTemplate(), values));
+  }
+
+  @Test
+  public void emptyRepeat_printsNothingForTheList() {
+    ReceiptTemplate template = ReceiptTemplate.compile("empty", ops(
+        op("op", "repeat", "list", "items", "ops", ops(op("op", "text", "text", "{name}"))),
+        op("op", "text", "text", "Thank you")), styles);
+    Map<String, Object> values = new HashMap<>();
+    values.put("items", Collections.emptyList());
+
+    assertEquals(Arrays.asList("append:Thank you"), print(template, values));
+    assertEquals(1, template.estimateLines(values));
+  }
+
+  @Test
+  public void symbolWithMissingData_isSkipped() {
+    ReceiptTemplate template = ReceiptTemplate.compile("qr", ops(
+        op("op", "qr", "text", "{orderNumber}"),
+        op("op", "barcode", "text", "{orderNumber}")), styles);
+
+    assertEquals(Collections.emptyList(), print(template, new HashMap<>()));
+  }
+
+  @Test
+  public void estimateLines_countsRepeatedRowsAndFeeds() {
+    Map<String, Object> values = new HashMap<>();
+    List<Map<String, Object>> items = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      items.add(item("Tusker", 1));
+    }
+    values.put("items", items);
+
+    // Three text lines, the separator, three rows and two feeds
+    assertEquals(9, itemsTemplate().estimateLines(values));
+  }
+
+  @Test
+  public void invalidSpecs_areRejectedWhenCompiled() {
+    List<List<Map<String, Object>>> specs = Arrays.asList(
+        Collections.<Map<String, Object>>emptyList(),
+        ops(op("text", "no op name")),
+        ops(op("op", "marquee")),
+        ops(op("op", "columns")),
+        ops(op("op", "repeat", "list", "items")),
+        ops(op("op", "feed", "lines", "many")));
+    for (List<Map<String, Object>> spec : specs) {
+      try {
+        ReceiptTemplate.compile("bad", spec, styles);
+        fail("Compiled " + spec);
+      } catch (IllegalArgumentException expected) {
+        // Reported to Dart as INVALID_TEMPLATE
+      }
+    }
+  }
+}
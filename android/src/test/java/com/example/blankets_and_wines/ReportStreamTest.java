@@ -0,0 +1,246 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class ReportStreamTest {
+
+  private final FakeDevices fake = new FakeDevices();
+  private final StyleRegistry styles = new StyleRegistry();
+  private final ExecutorService printThread = Executors.newSingleThreadExecutor();
+  private final ExecutorService formatter = Executors.newSingleThreadExecutor();
+  private final PrintQueue queue = new PrintQueue(printThread, fake.printer, styles);
+  private final ReportStream.Gate gate = new ReportStream.Gate(formatter);
+
+  @After
+  public void tearDown() {
+    printThread.shutdownNow();
+    formatter.shutdownNow();
+  }
+
+  private interface Step {
+    void run() throws Exception;
+  }
+
+  private static final class Outcome implements PrintJob.Callback {
+    final CountDownLatch done = new CountDownLatch(1);
+    volatile Integer resultCode;
+    volatile Exception failure;
+
+    @Override
+    public void onPrinted(int resultCode) {
+      this.resultCode = resultCode;
+      done.countDown();
+    }
+
+    @Override
+    public void onFailed(Exception e) {
+      failure = e;
+      done.countDown();
+    }
+
+    void await() throws InterruptedException {
+      assertTrue("report never finished", done.await(5, TimeUnit.SECONDS));
+    }
+  }
+
+  private ReportStream begin(String title) {
+    ReportStream stream = new ReportStream(title, queue, fake.printer, styles, gate);
+    Map<String, Object> header = new HashMap<>();
+    header.put("reportTitle", title);
+    stream.begin(header);
+    return stream;
+  }
+
+  private static FutureTask<Void> run(ReportStream stream, Step step) {
+    FutureTask<Void> task = new FutureTask<>(() -> {
+      step.run();
+      return null;
+    });
+    stream.execute(task);
+    return task;
+  }
+
+  private static List<Map<String, Object>> rows(String prefix, int count) {
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Map<String, Object> row = new HashMap<>();
+      row.put("dateTime", "17/01 21:04");
+      row.put("seller", "Wanjiru");
+      row.put("amount", "250.00");
+      row.put("id", prefix + "-" + i);
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  private Outcome finish(ReportStream stream) throws Exception {
+    Outcome outcome = new Outcome();
+    run(stream, () -> stream.finish(new HashMap<>(), outcome)).get(5, TimeUnit.SECONDS);
+    return outcome;
+  }
+
+  // Blocks the print thread until the returned latch is released
+  private CountDownLatch holdPrinter() {
+    CountDownLatch release = new CountDownLatch(1);
+    printThread.execute(() -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    return release;
+  }
+
+  private int indexOf(String text) {
+    List<String> ops = fake.ops();
+    for (int i = 0; i < ops.size(); i++) {
+      if (ops.get(i).contains(text)) {
+        return i;
+      }
+    }
+    throw new AssertionError("Never printed: " + text);
+  }
+
+  @Test
+  public void rows_printInChunksBetweenHeaderAndFooter() throws Exception {
+    ReportStream stream = begin("REPORT A");
+    int rows = ReportStream.CHUNK_TRANSACTIONS * 2 + 10;
+    run(stream, () -> stream.addRows(rows("A", rows))).get(5, TimeUnit.SECONDS);
+    Outcome outcome = finish(stream);
+    outcome.await();
+
+    assertEquals(Integer.valueOf(0), outcome.resultCode);
+    assertEquals(rows, stream.rowCount());
+    // Header, three chunks and the footer, each its own start
+    assertEquals(5, fake.count("start"));
+    assertTrue(indexOf("REPORT A") < indexOf("ID: A-0"));
+    assertTrue(indexOf("ID: A-" + (rows - 1)) < indexOf("END OF REPORT"));
+  }
+
+  @Test
+  public void allBuffersInFlight_blockFormattingUntilOneIsPrinted() throws Exception {
+    CountDownLatch release = holdPrinter();
+    ReportStream stream = begin("REPORT A");
+    int rows = ReportStream.CHUNK_TRANSACTIONS * (ReportStream.BUFFERED_CHUNKS + 2);
+    FutureTask<Void> adding = run(stream, () -> stream.addRows(rows("A", rows)));
+
+    Thread.sleep(200);
+    assertFalse("formatted past the chunk buffers", adding.isDone());
+    assertEquals(0, fake.count("start"));
+
+    release.countDown();
+    adding.get(5, TimeUnit.SECONDS);
+    Outcome outcome = finish(stream);
+    outcome.await();
+    assertEquals(6, fake.count("start"));
+  }
+
+  @Test
+  public void printFailure_stopsTheStream() throws Exception {
+    fake.printer.startResult = -1;
+    CountDownLatch release = holdPrinter();
+    ReportStream stream = begin("REPORT A");
+    run(stream, () -> stream.addRows(rows("A", ReportStream.CHUNK_TRANSACTIONS))).get(5, TimeUnit.SECONDS);
+    release.countDown();
+    // Jobs of one priority print in order, so the chunk is done after this
+    Outcome marker = new Outcome();
+    queue.submit(new PrintJob("marker", PrintJob.PRIORITY_REPORT, true, 1, () -> { }, marker));
+    marker.await();
+
+    try {
+      run(stream, () -> stream.addRows(rows("A", 1))).get(5, TimeUnit.SECONDS);
+      fail("Rows were accepted after the report failed");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause().getMessage(), e.getCause().getMessage().startsWith("Report stopped"));
+    }
+  }
+
+  @Test
+  public void secondStream_waitsForTheFirstToFinish() throws Exception {
+    ReportStream first = begin("REPORT A");
+    ReportStream second = begin("REPORT B");
+    FutureTask<Void> secondRows = run(second, () -> second.addRows(rows("B", 1)));
+    Outcome secondDone = new Outcome();
+    run(second, () -> second.finish(new HashMap<>(), secondDone));
+
+    run(first, () -> first.addRows(rows("A", 1))).get(5, TimeUnit.SECONDS);
+    Thread.sleep(100);
+    assertFalse("second stream ran while the first was printing", secondRows.isDone());
+
+    finish(first).await();
+    secondDone.await();
+    assertTrue(indexOf("ID: A-0") < indexOf("REPORT B"));
+    assertTrue(indexOf("REPORT B") < indexOf("ID: B-0"));
+  }
+
+  @Test
+  public void wholeReport_waitsForTheStreamAheadAndHoldsTheGate() throws Exception {
+    ReportStream first = begin("REPORT A");
+    ReportStream whole = new ReportStream("REPORT W", queue, fake.printer, styles, gate);
+    Outcome wholeDone = new Outcome();
+    whole.printWhole(1, () -> fake.printer.appendString("WHOLE REPORT", null), wholeDone);
+    ReportStream third = begin("REPORT C");
+
+    run(first, () -> first.addRows(rows("A", 1))).get(5, TimeUnit.SECONDS);
+    Thread.sleep(100);
+    assertEquals("whole report printed while a stream was printing", 1, wholeDone.done.getCount());
+
+    finish(first).await();
+    wholeDone.await();
+    run(third, () -> third.addRows(rows("C", 1))).get(5, TimeUnit.SECONDS);
+    finish(third).await();
+
+    assertEquals(Integer.valueOf(0), wholeDone.resultCode);
+    assertTrue(indexOf("ID: A-0") < indexOf("WHOLE REPORT"));
+    assertTrue(indexOf("WHOLE REPORT") < indexOf("REPORT C"));
+  }
+
+  @Test
+  public void abandonedStream_letsTheNextOnePrint() throws Exception {
+    ReportStream first = begin("REPORT A");
+    ReportStream second = begin("REPORT B");
+    run(first, () -> first.addRows(rows("A", 1))).get(5, TimeUnit.SECONDS);
+
+    first.abandon(new Exception("left unfinished"));
+    run(second, () -> second.addRows(rows("B", 1))).get(5, TimeUnit.SECONDS);
+    finish(second).await();
+
+    assertTrue(indexOf("REPORT B") < indexOf("ID: B-0"));
+    try {
+      run(first, () -> first.addRows(rows("A", 1))).get(5, TimeUnit.SECONDS);
+      fail("An abandoned stream took rows");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause().getMessage().contains("left unfinished"));
+    }
+  }
+
+  @Test
+  public void idleMillis_countsOnlyWhileNothingIsQueued() throws Exception {
+    ReportStream first = begin("REPORT A");
+    ReportStream second = begin("REPORT B");
+    run(second, () -> second.addRows(rows("B", 1)));
+
+    // Waiting for the gate is not idleness
+    Thread.sleep(20);
+    assertEquals(0, second.idleMillis());
+    assertTrue(first.idleMillis() >= 20);
+    finish(first).await();
+  }
+}
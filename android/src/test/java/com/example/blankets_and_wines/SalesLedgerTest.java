@@ -0,0 +1,114 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SalesLedgerTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File file() {
+    return new File(folder.getRoot(), "sales_ledger.dat");
+  }
+
+  @Test
+  public void records_readBackFromSnapshot() throws IOException {
+    SalesLedger ledger = SalesLedger.open(file());
+    ledger.append("ORD-N1-1", "Wanjiru", 1000, 174000, 4);
+    ledger.append("ORD-N1-2", null, 2000, -1005, 1);
+
+    SalesLedger.Snapshot snapshot = ledger.snapshot();
+
+    assertEquals(2, snapshot.count);
+    assertEquals(1000, snapshot.timestamp(0));
+    assertEquals(174000, snapshot.amountCents(0));
+    assertEquals(4, snapshot.itemCount(0));
+    assertEquals("ORD-N1-1", snapshot.orderId(0));
+    assertEquals("Wanjiru", snapshot.seller(0));
+    assertEquals(-1005, snapshot.amountCents(1));
+    assertNull(snapshot.seller(1));
+    assertEquals(2 * SalesLedger.RECORD_BYTES, file().length());
+  }
+
+  @Test
+  public void longSeller_isCutAtACharacterBoundary() throws IOException {
+    SalesLedger ledger = SalesLedger.open(file());
+    ledger.append("ORD-N1-1", "Nyambura Wanjikũũũũ", 0, 0, 0);
+
+    assertEquals("Nyambura Wanjik", ledger.snapshot().seller(0));
+  }
+
+  @Test
+  public void orderIds_areKeptWholeOrRejected() throws IOException {
+    SalesLedger ledger = SalesLedger.open(file());
+    // A 32-character serial and the largest sequence
+    String longest = "ORD-ABCDEFGHIJKLMNOPQRSTUVWXYZ012345-" + Long.MAX_VALUE;
+    ledger.append(longest, "S", 0, 0, 0);
+
+    assertEquals(longest, ledger.snapshot().orderId(0));
+    try {
+      ledger.append(longest + "-REPRINT", "S", 0, 0, 0);
+      fail("Recorded an order id that does not fit");
+    } catch (IllegalArgumentException expected) {
+      assertEquals(1, ledger.count());
+    }
+  }
+
+  @Test
+  public void snapshot_excludesLaterSales() throws IOException {
+    SalesLedger ledger = SalesLedger.open(file());
+    ledger.append("A", "S", 1, 100, 1);
+    SalesLedger.Snapshot snapshot = ledger.snapshot();
+    ledger.append("B", "S", 2, 100, 1);
+
+    assertEquals(1, snapshot.count);
+    assertEquals(2, ledger.snapshot().count);
+  }
+
+  @Test
+  public void tornRecord_isDroppedOnOpen() throws IOException {
+    SalesLedger ledger = SalesLedger.open(file());
+    ledger.append("A", "S", 1, 100, 1);
+    ledger.append("B", "S", 2, 200, 1);
+    ledger.close();
+    try (RandomAccessFile raf = new RandomAccessFile(file(), "rw")) {
+      raf.setLength(raf.length() - 10);
+    }
+
+    SalesLedger reopened = SalesLedger.open(file());
+    reopened.append("C", "S", 3, 300, 1);
+    SalesLedger.Snapshot snapshot = reopened.snapshot();
+
+    assertEquals(2, snapshot.count);
+    assertEquals("A", snapshot.orderId(0));
+    assertEquals("C", snapshot.orderId(1));
+  }
+
+  @Test
+  public void summarize_totalsThePeriodBySeller() throws IOException {
+    SalesLedger ledger = SalesLedger.open(file());
+    ledger.append("1", "Wanjiru", 100, 1000, 2);
+    ledger.append("2", "Otieno", 200, 2500, 1);
+    ledger.append("3", "Wanjiru", 300, 500, 3);
+    ledger.append("4", "Otieno", 400, 9900, 1);
+
+    SalesLedger.Summary summary = ledger.snapshot().summarize(200, 400);
+
+    assertEquals(2, summary.sales);
+    assertEquals(3000, summary.totalCents);
+    assertEquals(4, summary.items);
+    assertEquals(Arrays.asList("Otieno", "Wanjiru"), Arrays.asList(summary.bySeller.keySet().toArray()));
+    assertArrayEquals(new long[] {2500, 1}, summary.bySeller.get("Otieno"));
+    assertArrayEquals(new long[] {500, 1}, summary.bySeller.get("Wanjiru"));
+  }
+}
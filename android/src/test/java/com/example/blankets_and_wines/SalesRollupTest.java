@@ -0,0 +1,167 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SalesRollupTest {
+
+  private static final long HOUR = 3600_000L;
+  private static final TimeZone NAIROBI = TimeZone.getTimeZone("Africa/Nairobi");
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<Runnable> pending = new ArrayList<>();
+  private final Executor writer = pending::add;
+
+  private File ledgerFile() {
+    return new File(folder.getRoot(), "sales_ledger.dat");
+  }
+
+  private File checkpoint() {
+    return new File(folder.getRoot(), "sales_rollup.dat");
+  }
+
+  private SalesRollup open(SalesLedger ledger) throws IOException {
+    return SalesRollup.open(ledger, checkpoint(), writer, NAIROBI);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static long sellerCents(Map<String, Object> summary, String name) {
+    for (Map<String, Object> seller : (List<Map<String, Object>>) summary.get("sellers")) {
+      if (name.equals(seller.get("seller"))) {
+        return (Long) seller.get("totalCents");
+      }
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static long hourSales(Map<String, Object> summary, int hour) {
+    return ((List<Long>) summary.get("hourlySales")).get(hour);
+  }
+
+  @Test
+  public void summary_totalsSellersAndHours() throws IOException {
+    SalesLedger ledger = SalesLedger.open(ledgerFile());
+    SalesRollup rollup = open(ledger);
+    // 21:00 and 22:30 in Nairobi (UTC+3)
+    rollup.record("1", "Wanjiru", 18 * HOUR, 1000, 2);
+    rollup.record("2", "Otieno", 19 * HOUR + HOUR / 2, 2500, 1);
+    rollup.record("3", "Wanjiru", 19 * HOUR, 500, 3);
+
+    Map<String, Object> summary = rollup.summary();
+
+    assertEquals(3L, summary.get("sales"));
+    assertEquals(4000L, summary.get("totalCents"));
+    assertEquals(6L, summary.get("items"));
+    assertEquals(1333L, summary.get("averageCents"));
+    assertEquals(1500, sellerCents(summary, "Wanjiru"));
+    assertEquals(2500, sellerCents(summary, "Otieno"));
+    assertEquals(1, hourSales(summary, 21));
+    assertEquals(2, hourSales(summary, 22));
+    assertEquals("3", summary.get("totalTransactions"));
+    assertEquals(3, ledger.count());
+  }
+
+  @Test
+  public void reopen_replaysOnlyTheLedgerAfterTheCheckpoint() throws IOException {
+    SalesLedger ledger = SalesLedger.open(ledgerFile());
+    SalesRollup rollup = open(ledger);
+    for (int i = 0; i < SalesRollup.CHECKPOINT_EVERY + 10; i++) {
+      rollup.record("ORD-" + i, i % 2 == 0 ? "A" : "B", i, 100, 1);
+    }
+    assertEquals(1, pending.size());
+    pending.remove(0).run();
+    ledger.close();
+
+    // Replaying more than the tail would count checkpointed sales twice
+    SalesRollup reopened = open(SalesLedger.open(ledgerFile()));
+    Map<String, Object> summary = reopened.summary();
+
+    assertEquals((long) SalesRollup.CHECKPOINT_EVERY + 10, summary.get("sales"));
+    assertEquals(100L * (SalesRollup.CHECKPOINT_EVERY + 10), summary.get("totalCents"));
+    assertEquals(100L * (SalesRollup.CHECKPOINT_EVERY + 10) / 2, sellerCents(summary, "A"));
+  }
+
+  @Test
+  public void closeShift_startsOverAndSurvivesRestart() throws IOException {
+    SalesLedger ledger = SalesLedger.open(ledgerFile());
+    SalesRollup rollup = open(ledger);
+    rollup.record("1", "A", 0, 700, 1);
+    rollup.record("2", "A", 0, 300, 1);
+
+    Map<String, Object> closed = rollup.closeShift();
+    rollup.record("3", "B", 0, 50, 1);
+    ledger.close();
+
+    assertEquals(1000L, closed.get("totalCents"));
+    assertTrue(closed.containsKey("shiftEnd"));
+    Map<String, Object> reopened = open(SalesLedger.open(ledgerFile())).summary();
+    assertEquals(1L, reopened.get("sales"));
+    assertEquals(50L, reopened.get("totalCents"));
+    assertEquals(-1, sellerCents(reopened, "A"));
+  }
+
+  @Test
+  public void checkpointAheadOfLedger_rebuildsTheShift() throws IOException {
+    SalesLedger ledger = SalesLedger.open(ledgerFile());
+    SalesRollup rollup = open(ledger);
+    rollup.record("1", "A", 0, 100, 1);
+    rollup.record("2", "A", 0, 200, 1);
+    rollup.checkpoint();
+    ledger.close();
+    // The last sale never reached the disk
+    try (RandomAccessFile raf = new RandomAccessFile(ledgerFile(), "rw")) {
+      raf.setLength(SalesLedger.RECORD_BYTES);
+    }
+
+    Map<String, Object> summary = open(SalesLedger.open(ledgerFile())).summary();
+
+    assertEquals(1L, summary.get("sales"));
+    assertEquals(100L, summary.get("totalCents"));
+  }
+
+  @Test
+  public void missingCheckpoint_rebuildsFromTheWholeLedger() throws IOException {
+    SalesLedger ledger = SalesLedger.open(ledgerFile());
+    ledger.append("1", "A", 0, 100, 1);
+    ledger.append("2", null, 0, 200, 1);
+
+    Map<String, Object> summary = open(ledger).summary();
+
+    assertEquals(300L, summary.get("totalCents"));
+    assertEquals(200, sellerCents(summary, "Unknown"));
+  }
+
+  @Test
+  public void missingCheckpoint_keepsClosedShiftsOut() throws IOException {
+    SalesLedger ledger = SalesLedger.open(ledgerFile());
+    SalesRollup rollup = open(ledger);
+    rollup.record("1", "A", 0, 700, 1);
+    rollup.closeShift();
+    rollup.record("2", "B", 0, 50, 1);
+    ledger.close();
+    assertTrue(checkpoint().delete());
+
+    SalesLedger reopened = SalesLedger.open(ledgerFile());
+    Map<String, Object> summary = open(reopened).summary();
+
+    assertEquals(1L, summary.get("sales"));
+    assertEquals(50L, summary.get("totalCents"));
+    assertEquals(-1, sellerCents(summary, "A"));
+    // The boundary is not a sale
+    assertEquals(2L, reopened.snapshot().summarize(Long.MIN_VALUE, Long.MAX_VALUE).sales);
+  }
+}
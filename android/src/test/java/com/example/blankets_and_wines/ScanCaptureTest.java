@@ -0,0 +1,92 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.zcs.sdk.SdkResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class ScanCaptureTest {
+
+  private final FakeDevices fake = new FakeDevices();
+  private final ScanCapture capture = new ScanCapture(fake.scanner);
+
+  @Test
+  public void scanOnce_returnsTrimmedCodeAndRecordsLatency() {
+    fake.scanner.codes.add("TICKET-1\r\n");
+
+    String code = capture.scanOnce(capture.arm(), System.nanoTime(), 1000);
+
+    assertEquals("TICKET-1", code);
+    assertEquals(1L, capture.latencySnapshot().get("count"));
+    assertEquals(Arrays.asList("startDecoding", "stopDecoding"), fake.ops());
+  }
+
+  @Test
+  public void scanOnce_timesOutAndStopsDecoding() {
+    long start = System.nanoTime();
+
+    assertNull(capture.scanOnce(capture.arm(), start, 250));
+
+    assertTrue(System.nanoTime() - start >= 240_000_000L);
+    assertEquals(0, capture.lastError());
+    assertEquals(1, fake.count("stopDecoding"));
+  }
+
+  @Test
+  public void scanOnce_reportsScannerErrors() {
+    fake.scanner.receiveResult = SdkResult.SDK_RECV_DATA_ERROR;
+
+    assertNull(capture.scanOnce(capture.arm(), System.nanoTime(), 1000));
+    assertEquals(SdkResult.SDK_RECV_DATA_ERROR, capture.lastError());
+  }
+
+  @Test
+  public void cancelBeforeStart_endsTheScanAtOnce() {
+    int session = capture.arm();
+    capture.cancel();
+
+    assertNull(capture.scanOnce(session, System.nanoTime(), 5000));
+  }
+
+  @Test
+  public void scanContinuously_feedsEveryCodeUntilCancelled() throws Exception {
+    List<String> codes = Collections.synchronizedList(new ArrayList<>());
+    ContinuousScan scan = new ContinuousScan(1000, (code, timestamp, sequence) -> codes.add(code));
+    int session = capture.arm();
+    Thread reader = new Thread(() -> capture.scanContinuously(session, scan));
+    reader.start();
+
+    fake.scanner.codes.add("A\n");
+    fake.scanner.codes.add("A\n");
+    fake.scanner.codes.add("B\n");
+    Thread.sleep(300);
+    capture.cancel();
+    reader.join(2000);
+
+    assertEquals(Arrays.asList("A", "B"), codes);
+    assertEquals(1, fake.count("stopDecoding"));
+  }
+
+  @Test
+  public void rearmWithinAPoll_stillEndsTheCancelledSession() throws Exception {
+    ContinuousScan scan = new ContinuousScan(1000, (code, timestamp, sequence) -> { });
+    int first = capture.arm();
+    Thread reader = new Thread(() -> capture.scanContinuously(first, scan));
+    reader.start();
+    Thread.sleep(50);
+
+    // Stop then start again before the old loop's receive returns
+    capture.cancel();
+    capture.arm();
+    reader.join(2000);
+
+    assertFalse(reader.isAlive());
+  }
+}
@@ -0,0 +1,93 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import org.junit.Test;
+
+public class SdkTraceTest {
+
+  @Test
+  public void disabled_recordsNothing() {
+    PluginMetrics metrics = new PluginMetrics();
+    Devices devices = InstrumentedDevices.wrap(new FakeDevices().devices(), metrics);
+
+    devices.printer.getStatus();
+
+    assertEquals(0, metrics.trace.recorded());
+    assertEquals(0, metrics.trace.snapshot().count);
+  }
+
+  @Test
+  public void wrappedCalls_recordCallIdAndReturnCode() {
+    PluginMetrics metrics = new PluginMetrics();
+    FakeDevices fake = new FakeDevices();
+    Devices devices = InstrumentedDevices.wrap(fake.devices(), metrics);
+    metrics.trace.setEnabled(true);
+
+    devices.printer.getStatus();
+    devices.printer.appendString("A", null);
+    devices.printer.renderQRCode("x", 100);
+
+    SdkTrace.Snapshot snapshot = metrics.trace.snapshot();
+    assertEquals(3, snapshot.count);
+    assertEquals(SdkTrace.PRINTER_STATUS, snapshot.calls[0]);
+    assertEquals(fake.printer.status, snapshot.codes[0]);
+    assertEquals(SdkTrace.PRINT_APPEND_STRING, snapshot.calls[1]);
+    assertEquals(SdkTrace.CODE_OK, snapshot.codes[1]);
+    // The fake renders nothing
+    assertEquals(SdkTrace.CODE_NULL, snapshot.codes[2]);
+    assertEquals(Thread.currentThread().getId(), snapshot.threads[0]);
+    assertTrue(snapshot.ends[0] >= snapshot.starts[0]);
+  }
+
+  @Test
+  public void fullBuffer_keepsNewestCallsInOrder() {
+    SdkTrace trace = new SdkTrace(8);
+    for (int i = 0; i < 20; i++) {
+      trace.record(SdkTrace.PRINT_START, i * 10, i * 10 + 5, i);
+    }
+
+    SdkTrace.Snapshot snapshot = trace.snapshot();
+    assertEquals(8, snapshot.count);
+    assertEquals(20, snapshot.recorded);
+    for (int i = 0; i < 8; i++) {
+      assertEquals(12 + i, snapshot.codes[i]);
+    }
+  }
+
+  @Test
+  public void exports_binaryLayoutAndChromeEvents() {
+    SdkTrace trace = new SdkTrace(8);
+    trace.record(SdkTrace.PRINTER_STATUS, 1_000, 3_500, 0);
+    trace.record(SdkTrace.PRINT_START, 4_000, 1_004_000, SdkTrace.CODE_THREW);
+    SdkTrace.Snapshot snapshot = trace.snapshot();
+
+    ByteBuffer in = ByteBuffer.wrap(snapshot.toBinary());
+    assertEquals(SdkTrace.BINARY_MAGIC, in.getInt());
+    assertEquals(SdkTrace.BINARY_VERSION, in.get());
+    int names = in.get();
+    for (int i = 0; i < names; i++) {
+      int length = in.getShort();
+      in.position(in.position() + length);
+    }
+    assertEquals(2, in.getLong());
+    assertEquals(1_000, in.getLong());
+    assertEquals(2, in.getInt());
+    in.position(in.position() + SdkTrace.BINARY_ENTRY_BYTES);
+    assertEquals(3_000, in.getLong());
+    assertEquals(1_000_000, in.getLong());
+    in.getInt();
+    assertEquals(SdkTrace.PRINT_START, in.get());
+    assertEquals(SdkTrace.CODE_THREW, in.getInt());
+    assertEquals(0, in.remaining());
+
+    String json = snapshot.toChromeJson(Collections.singletonMap(1L, "pool \"1\""));
+    assertTrue(json.contains("\"name\":\"getPrinterStatus\",\"cat\":\"sdk\",\"ph\":\"X\",\"ts\":0.000,\"dur\":2.500"));
+    assertTrue(json.contains("\"name\":\"setPrintStart\",\"cat\":\"sdk\",\"ph\":\"X\",\"ts\":3.000,\"dur\":1000.000"));
+    assertTrue(json.contains("\"code\":\"threw\""));
+    assertTrue(json.contains("\"args\":{\"name\":\"pool \\\"1\\\"\"}"));
+  }
+}
@@ -0,0 +1,112 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Test;
+
+public class SymbolCacheTest {
+
+  private final SizedLru<String, String> lru = new SizedLru<>(3, 100);
+
+  @Test
+  public void lookups_countHitsAndMisses() {
+    lru.put("A", "qr-a", 10);
+
+    assertEquals("qr-a", lru.get("A"));
+    assertEquals("qr-a", lru.get("A"));
+    assertNull(lru.get("B"));
+
+    Map<String, Object> stats = lru.stats();
+    assertEquals(2L, stats.get("hits"));
+    assertEquals(1L, stats.get("misses"));
+    assertEquals(2.0 / 3, (double) stats.get("hitRate"), 1e-9);
+  }
+
+  @Test
+  public void entryLimit_evictsTheLeastRecentlyUsed() {
+    lru.put("A", "qr-a", 10);
+    lru.put("B", "qr-b", 10);
+    lru.put("C", "qr-c", 10);
+    // A is now more recent than B
+    lru.get("A");
+    lru.put("D", "qr-d", 10);
+
+    assertNull(lru.get("B"));
+    for (String key : Arrays.asList("A", "C", "D")) {
+      assertEquals("qr-" + key.toLowerCase(), lru.get(key));
+    }
+    Map<String, Object> stats = lru.stats();
+    assertEquals(1L, stats.get("evictions"));
+    assertEquals(3, stats.get("entries"));
+    assertEquals(30L, stats.get("bytes"));
+  }
+
+  @Test
+  public void byteLimit_evictsUntilTheRestFit() {
+    lru.put("A", "qr-a", 40);
+    lru.put("B", "qr-b", 40);
+    lru.put("C", "qr-c", 70);
+
+    assertNull(lru.get("A"));
+    assertNull(lru.get("B"));
+    assertEquals(70L, lru.stats().get("bytes"));
+    assertEquals(2L, lru.stats().get("evictions"));
+  }
+
+  @Test
+  public void oversizedEntry_isStillKeptAlone() {
+    lru.put("A", "qr-a", 10);
+    lru.put("huge", "qr-huge", 500);
+
+    assertEquals("qr-huge", lru.get("huge"));
+    assertEquals(1, lru.stats().get("entries"));
+  }
+
+  @Test
+  public void replacedEntry_isSizedOnce() {
+    lru.put("A", "qr-a", 10);
+    lru.put("A", "qr-a2", 30);
+
+    assertEquals("qr-a2", lru.get("A"));
+    assertEquals(30L, lru.stats().get("bytes"));
+    assertEquals(0L, lru.stats().get("evictions"));
+  }
+
+  @Test
+  public void clearAndReset_emptyTheCacheAndCounters() {
+    lru.put("A", "qr-a", 10);
+    lru.get("A");
+    lru.clear();
+    lru.resetCounters();
+
+    Map<String, Object> stats = lru.stats();
+    assertEquals(0, stats.get("entries"));
+    assertEquals(0L, stats.get("bytes"));
+    assertEquals(0L, stats.get("hits"));
+    assertEquals(0.0, (double) stats.get("hitRate"), 0);
+  }
+
+  @Test
+  public void unrenderableSymbol_isAMissAndIsNotCached() {
+    FakeDevices fake = new FakeDevices();
+    SymbolCache cache = new SymbolCache();
+    // The fake renders nothing, as the SDK does for data it cannot encode
+    for (int i = 0; i < 2; i++) {
+      try {
+        cache.appendQRCode(fake.printer, fake.printer, "ORD-N1-1", 200);
+        fail("Appended a symbol that never rendered");
+      } catch (IllegalArgumentException expected) {
+        // Reported as a print failure for the job
+      }
+    }
+
+    Map<String, Object> stats = cache.stats();
+    assertEquals(2L, stats.get("misses"));
+    assertEquals(0, stats.get("entries"));
+    assertEquals(2, fake.count("renderQR:ORD-N1-1"));
+  }
+}
@@ -0,0 +1,176 @@
+package com.example.blankets_and_wines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TicketIndexTest {
+
+  private static final long NOW = 1_700_000_000_000L;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File codes(String text) throws IOException {
+    File file = folder.newFile();
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+    return file;
+  }
+
+  private File indexFile() {
+    return new File(folder.getRoot(), "tickets.idx");
+  }
+
+  @Test
+  public void validTicket_isAdmittedOnce() throws IOException {
+    TicketIndex index = TicketIndex.build(codes("BW-1\nBW-2\r\nBW-3"), false, indexFile());
+
+    assertEquals(TicketIndex.ADMITTED, index.validate("BW-2", true, NOW));
+    assertEquals(TicketIndex.ALREADY_USED, index.validate("BW-2", true, NOW + 5000));
+    assertEquals(NOW, index.usedAtMillis("BW-2"));
+    assertEquals(TicketIndex.UNKNOWN, index.validate("BW-9", true, NOW));
+    assertEquals(3, index.stats().get("tickets"));
+    assertEquals(1, index.stats().get("used"));
+  }
+
+  @Test
+  public void crOnlyList_isSizedForEveryLine() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 3000; i++) {
+      text.append("BW-").append(i).append('\r');
+    }
+
+    TicketIndex index = TicketIndex.build(codes(text.toString()), false, indexFile());
+
+    assertEquals(3000, index.stats().get("tickets"));
+    assertEquals(8192, index.stats().get("capacity"));
+    assertEquals(TicketIndex.ADMITTED, index.validate("BW-2999", true, NOW));
+  }
+
+  @Test
+  public void sync_doesNotHoldUpValidation() throws Exception {
+    TicketIndex index = TicketIndex.build(codes("BW-1\nBW-2\n"), false, indexFile());
+    Thread syncing = new Thread(() -> {
+      for (int i = 0; i < 200; i++) {
+        index.sync();
+      }
+    });
+    syncing.start();
+    synchronized (index) {
+      // Holding the index lock must not stop a sync from finishing
+      syncing.join(5000);
+    }
+    assertFalse(syncing.isAlive());
+  }
+
+  @Test
+  public void checkWithoutMarking_leavesTicketValid() throws IOException {
+    TicketIndex index = TicketIndex.build(codes("BW-1\n"), false, indexFile());
+
+    assertEquals(TicketIndex.ADMITTED, index.validate("BW-1", false, NOW));
+    assertEquals(TicketIndex.ADMITTED, index.validate("BW-1", true, NOW));
+  }
+
+  @Test
+  public void hash_isFnv1aOfUtf8Bytes() {
+    for (String code : Arrays.asList("BW-1", "tiké", "€50", "🎟42")) {
+      long expected = 0xcbf29ce484222325L;
+      for (byte b : code.getBytes(StandardCharsets.UTF_8)) {
+        expected = (expected ^ (b & 0xFF)) * 0x100000001b3L;
+      }
+      assertEquals(code, expected, TicketIndex.hash(code));
+    }
+  }
+
+  @Test
+  public void hashList_matchesCodes() throws IOException {
+    File hashes = folder.newFile();
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(hashes))) {
+      out.writeLong(TicketIndex.hash("BW-1"));
+      out.writeLong(TicketIndex.hash("BW-2"));
+    }
+    TicketIndex index = TicketIndex.build(hashes, true, indexFile());
+
+    assertEquals(TicketIndex.ADMITTED, index.validate("BW-1", true, NOW));
+    assertEquals(TicketIndex.UNKNOWN, index.validate("BW-3", true, NOW));
+  }
+
+  @Test
+  public void marks_surviveReopening() throws IOException {
+    TicketIndex index = TicketIndex.build(codes("BW-1\nBW-2\n"), false, indexFile());
+    index.validate("BW-1", true, NOW);
+    index.sync();
+
+    TicketIndex reopened = TicketIndex.open(indexFile());
+
+    assertEquals(TicketIndex.ALREADY_USED, reopened.validate("BW-1", true, NOW));
+    assertEquals(TicketIndex.ADMITTED, reopened.validate("BW-2", true, NOW));
+    assertEquals(2, reopened.stats().get("tickets"));
+  }
+
+  @Test
+  public void open_withoutIndex_returnsNull() throws IOException {
+    assertNull(TicketIndex.open(indexFile()));
+  }
+
+  @Test
+  public void delta_addsAndRevokesOncePerVersion() throws IOException {
+    TicketIndex index = TicketIndex.build(codes("BW-1\nBW-2\n"), false, indexFile());
+
+    assertTrue(index.applyDelta(1, Arrays.asList("BW-3"), Arrays.asList("BW-1")));
+    assertFalse(index.applyDelta(1, Arrays.asList("BW-4"), Collections.<String>emptyList()));
+
+    assertEquals(TicketIndex.REVOKED, index.validate("BW-1", true, NOW));
+    assertEquals(TicketIndex.ADMITTED, index.validate("BW-3", true, NOW));
+    assertEquals(TicketIndex.UNKNOWN, index.validate("BW-4", true, NOW));
+    assertEquals(1L, index.stats().get("deltaVersion"));
+
+    index.applyDelta(2, Arrays.asList("BW-1"), Collections.<String>emptyList());
+    assertEquals(TicketIndex.ADMITTED, index.validate("BW-1", true, NOW));
+  }
+
+  @Test
+  public void reload_keepsUsedTicketsAndRetiresOldIndex() throws IOException {
+    TicketIndex first = TicketIndex.build(codes("BW-1\nBW-2\n"), false, indexFile());
+    first.validate("BW-1", true, NOW);
+
+    TicketIndex second = TicketIndex.build(codes("BW-1\nBW-2\nBW-3\n"), false, indexFile());
+    first.retireInto(second);
+
+    assertEquals(TicketIndex.RETIRED, first.validate("BW-2", true, NOW));
+    assertEquals(TicketIndex.ALREADY_USED, second.validate("BW-1", true, NOW));
+    assertEquals(NOW, second.usedAtMillis("BW-1"));
+    assertEquals(TicketIndex.ADMITTED, second.validate("BW-3", true, NOW));
+  }
+
+  @Test
+  public void millionTickets_loadIntoMappedFile() throws IOException {
+    File hashes = folder.newFile();
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(hashes)))) {
+      for (int i = 0; i < 1_000_000; i++) {
+        out.writeLong(TicketIndex.hash("BW-" + i));
+      }
+    }
+    TicketIndex index = TicketIndex.build(hashes, true, indexFile());
+
+    assertEquals(1_000_000, index.stats().get("tickets"));
+    assertEquals(1 << 21, index.stats().get("capacity"));
+    assertEquals(TicketIndex.ADMITTED, index.validate("BW-999999", true, NOW));
+    assertEquals(TicketIndex.UNKNOWN, index.validate("BW-1000000", true, NOW));
+  }
+}
@@ -1,6 +1,12 @@
 import 'dart:async';
+import 'dart:typed_data';
 import 'package:flutter/services.dart';
 
+import 'blankets_and_wines_binary_codec.dart';
+
+export 'blankets_and_wines_binary_codec.dart'
+    show BinaryReceipt, BinaryReceiptItem, BinaryReportRow, BinaryReply;
+
 /// Main class for SmartPos Plugin
 /// 
 /// This class provides a Flutter interface to the ZCS SmartPos SDK
@@ -11,6 +17,17 @@ class SmartposPlugin {
   
   // Method channel for communication with native Android code
   static const MethodChannel _channel = MethodChannel('smartpos_plugin');
+
+  // Binary channel for receipts and report pages (see SmartposPayloadCodec)
+  static const BasicMessageChannel<Object?> _binaryChannel =
+      BasicMessageChannel<Object?>('smartpos_plugin/binary', SmartposPayloadCodec());
+
+  // Codes read in continuous scan mode
+  static const EventChannel _scanChannel = EventChannel('smartpos_plugin/scans');
+
+  // Printer status changes pushed by the native status monitor
+  static const EventChannel _printerStatusChannel =
+      EventChannel('smartpos_plugin/printer_status');
   
   
 
@@ -99,6 +116,32 @@ static Future<Map<String, dynamic>> showTextOnLcd({
     }
   }
 
+  /// Show several lines on the customer display as one frame
+  ///
+  /// Each line is a map with 'text' and optional 'x' / 'y'. Only the newest
+  /// frame is drawn: one replaced before it reached the display returns
+  /// outcome 'superseded', and one identical to what is shown returns
+  /// 'unchanged' without redrawing.
+  static Future<Map<String, dynamic>> showLinesOnLcd(
+    List<Map<String, dynamic>> lines, {
+    bool clear = true,
+  }) async {
+    try {
+      final result = await _channel.invokeMethod('showLinesOnLcd', {
+        'lines': lines,
+        'clear': clear,
+      });
+
+      return Map<String, dynamic>.from(result);
+    } on PlatformException catch (e) {
+      return {
+        'success': false,
+        'message': 'Platform error: ${e.message}',
+        'error': e.code,
+      };
+    }
+  }
+
 
   
   
@@ -266,6 +309,8 @@ static Future<Map<String, dynamic>> showTextOnLcd({
   /// [isBold] - Make text bold (default: false)
   /// [isUnderline] - Underline text (default: false)
   /// [alignment] - Text alignment: "LEFT", "CENTER", "RIGHT" (default: "LEFT")
+  /// [style] - Name of a palette style (see [registerStyle]); overrides the
+  /// default text style when given
   /// 
   static Future<Map<String, dynamic>> printText(
     String text, {
@@ -273,6 +318,7 @@ static Future<Map<String, dynamic>> showTextOnLcd({
     bool isBold = false,
     bool isUnderline = false,
     String alignment = "LEFT",
+    String? style,
   }) async {
     try {
       final Map<String, dynamic> result = Map<String, dynamic>.from(
@@ -282,6 +328,7 @@ static Future<Map<String, dynamic>> showTextOnLcd({
           'isBold': isBold,
           'isUnderline': isUnderline,
           'alignment': alignment,
+          'style': style,
         })
       );
       return result;
@@ -289,6 +336,38 @@ static Future<Map<String, dynamic>> showTextOnLcd({
       throw SmartPosException('Failed to print text: ${e.message}');
     }
   }
+
+  /// Register a named print style in the native style palette
+  ///
+  /// Styles are built once and shared by every print job. Registering a name
+  /// that already exists (e.g. "header") replaces it for later prints.
+  ///
+  /// [font] - "MONOSPACE", "SANS_SERIF", "SERIF" or "DEFAULT" (default: "MONOSPACE")
+  /// [alignment] - "LEFT", "CENTER", "RIGHT" (default: "LEFT")
+  static Future<Map<String, dynamic>> registerStyle(
+    String name, {
+    required int textSize,
+    bool bold = false,
+    bool italic = false,
+    String font = "MONOSPACE",
+    String alignment = "LEFT",
+  }) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('registerStyle', {
+          'name': name,
+          'textSize': textSize,
+          'bold': bold,
+          'italic': italic,
+          'font': font,
+          'alignment': alignment,
+        })
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to register style: ${e.message}');
+    }
+  }
   
   /// Print a formatted receipt
   /// 
@@ -308,6 +387,215 @@ static Future<Map<String, dynamic>> showTextOnLcd({
     }
   }
   
+  /// Choose how receipts and template receipts are sent to the printer
+  ///
+  /// [mode] - "lines" (default) appends each line to the SDK print buffer;
+  /// "raster" renders the whole receipt into one 1-bit raster the width of
+  /// the print head, off the print thread, and sends it in one go. Receipt
+  /// results then include 'renderMode', and for raster 'renderMicros' and
+  /// 'rasterBytes', so the two modes can be compared on a device.
+  static Future<Map<String, dynamic>> setReceiptRenderMode(String mode) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('setReceiptRenderMode', {'mode': mode})
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to set receipt render mode: ${e.message}');
+    }
+  }
+
+  /// Print a receipt sent over the binary channel
+  ///
+  /// Same layout as [printReceipt], but the fields are encoded straight to
+  /// bytes with amounts in cents, skipping the map encoding on both sides.
+  /// The reply's value is the order number.
+  static Future<BinaryReply> printReceiptBinary(BinaryReceipt receipt) async {
+    final reply = await _binaryChannel.send(receipt) as BinaryReply?;
+    if (reply == null || !reply.success) {
+      throw SmartPosException('Failed to print receipt: ${reply?.message}');
+    }
+    return reply;
+  }
+
+  /// Print a report of the sales recorded on this device
+  ///
+  /// Every receipt that prints is kept in a native ledger (order number,
+  /// seller, time, total and item count), so the report needs no data from
+  /// Dart. [from] and [to] bound the period, end exclusive; [reportData]
+  /// may set storeName, reportTitle and generatedBy.
+  static Future<Map<String, dynamic>> printLedgerReport({
+    DateTime? from,
+    DateTime? to,
+    Map<String, dynamic>? reportData,
+  }) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('printLedgerReport', {
+          'from': from?.millisecondsSinceEpoch,
+          'to': to?.millisecondsSinceEpoch,
+          'reportData': reportData,
+        })
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to print ledger report: ${e.message}');
+    }
+  }
+
+  /// Print a transaction report in one call
+  ///
+  /// [reportData] - storeName, reportTitle, dateRange, summary fields,
+  /// 'transactions' and 'sellerBreakdown'. For very large reports prefer
+  /// [printReportStreamed].
+  static Future<Map<String, dynamic>> printTransactionReport(
+    Map<String, dynamic> reportData
+  ) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('printTransactionReport', {
+          'reportData': reportData,
+        })
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to print report: ${e.message}');
+    }
+  }
+
+  /// Print a transaction report whose rows arrive in pages
+  ///
+  /// The header prints straight away and rows print in fixed-size chunks
+  /// while later pages are still being sent, so memory stays bounded on
+  /// both sides. [reportData] holds the header and footer fields (everything
+  /// except 'transactions'); [pages] yields the transaction rows.
+  static Future<Map<String, dynamic>> printReportStreamed(
+    Map<String, dynamic> reportData,
+    Stream<List<Map<String, dynamic>>> pages,
+  ) async {
+    String? streamId;
+    try {
+      final Map<String, dynamic> started = Map<String, dynamic>.from(
+        await _channel.invokeMethod('beginReportStream', {
+          'reportData': reportData,
+        })
+      );
+      streamId = started['streamId'] as String;
+
+      await for (final page in pages) {
+        if (page.isEmpty) continue;
+        // Each call returns once the page is queued, pacing us to the printer
+        await _channel.invokeMethod('appendReportRows', {
+          'streamId': streamId,
+          'rows': page,
+        });
+      }
+
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('endReportStream', {
+          'streamId': streamId,
+          'reportData': reportData,
+        })
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to print streamed report: ${e.message}');
+    }
+  }
+
+  /// Same as [printReportStreamed], with row pages sent over the binary
+  /// channel as [BinaryReportRow]s (amounts in cents).
+  static Future<Map<String, dynamic>> printReportStreamedBinary(
+    Map<String, dynamic> reportData,
+    Stream<List<BinaryReportRow>> pages,
+  ) async {
+    try {
+      final Map<String, dynamic> started = Map<String, dynamic>.from(
+        await _channel.invokeMethod('beginReportStream', {
+          'reportData': reportData,
+        })
+      );
+      final streamId = started['streamId'] as String;
+
+      await for (final page in pages) {
+        if (page.isEmpty) continue;
+        final reply = await _binaryChannel.send(BinaryReportRows(streamId, page)) as BinaryReply?;
+        if (reply == null || !reply.success) {
+          throw SmartPosException('Failed to print streamed report: ${reply?.message}');
+        }
+      }
+
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('endReportStream', {
+          'streamId': streamId,
+          'reportData': reportData,
+        })
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to print streamed report: ${e.message}');
+    }
+  }
+
+  /// Register a receipt template once; the plugin compiles it into a flat
+  /// list of print ops that [printFromTemplate] runs.
+  ///
+  /// Each op is a map with an 'op' key: "text", "columns", "separator",
+  /// "feed", "qr", "barcode" or "repeat". Text may reference values as
+  /// {fieldName}; "repeat" runs its nested 'ops' for each row of a list field.
+  ///
+  /// ```dart
+  /// await SmartposPlugin.registerTemplate('bar_tab', [
+  ///   {'op': 'text', 'style': 'header', 'text': '{storeName}'},
+  ///   {'op': 'separator', 'char': '-', 'width': 32},
+  ///   {'op': 'repeat', 'list': 'items', 'ops': [
+  ///     {'op': 'columns', 'style': 'media', 'columns': [
+  ///       {'text': '{name}', 'width': 15},
+  ///       {'text': '{quantity}x', 'width': 4, 'align': 'RIGHT'},
+  ///       {'text': '{price}', 'width': 9, 'align': 'RIGHT'},
+  ///     ]},
+  ///   ]},
+  ///   {'op': 'qr', 'text': '{orderNumber}', 'size': 200},
+  ///   {'op': 'feed', 'lines': 4, 'style': 'small'},
+  /// ]);
+  /// ```
+  static Future<Map<String, dynamic>> registerTemplate(
+    String templateId,
+    List<Map<String, dynamic>> ops,
+  ) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('registerTemplate', {
+          'templateId': templateId,
+          'ops': ops,
+        })
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to register template: ${e.message}');
+    }
+  }
+
+  /// Print a receipt from a template registered with [registerTemplate]
+  ///
+  /// [values] - Field values referenced by the template, e.g. {'storeName': ..., 'items': [...]}
+  static Future<Map<String, dynamic>> printFromTemplate(
+    String templateId,
+    Map<String, dynamic> values,
+  ) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('printFromTemplate', {
+          'templateId': templateId,
+          'values': values,
+        })
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to print from template: ${e.message}');
+    }
+  }
+
   static Future<Map<String, dynamic>> printQrCode(
     String data, {
     int size = 200,
@@ -358,6 +646,102 @@ static Future<Map<String, dynamic>> showTextOnLcd({
       throw SmartPosException('Failed to get printer status: ${e.message}');
     }
   }
+
+  /// Printer status changes, sampled natively without going through the
+  /// print queue
+  ///
+  /// Each event has `event` ("ready", "busy", "paperOut", "recovered" or
+  /// "fault"), `statusCode`, `statusMessage`, `isReady`, `isPaperOut` and,
+  /// after the first, `previousStatusCode`. A new listener first gets the
+  /// current state. Events start once the device is initialized.
+  static Stream<Map<String, dynamic>> get printerStatusEvents {
+    return _printerStatusChannel
+        .receiveBroadcastStream()
+        .map((event) => Map<String, dynamic>.from(event as Map));
+  }
+
+  /// Hit/miss counters of the cache of rendered QR codes and barcodes
+  ///
+  /// Returns hits, misses, evictions, hitRate, entries, bytes, maxEntries and
+  /// maxBytes. Pass [reset] to zero the counters after reading them.
+  static Future<Map<String, dynamic>> getSymbolCacheStats({bool reset = false}) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('getSymbolCacheStats', {'reset': reset})
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to get symbol cache stats: ${e.message}');
+    }
+  }
+
+  /// Drop every cached QR code and barcode raster
+  static Future<Map<String, dynamic>> clearSymbolCache() async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('clearSymbolCache')
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to clear symbol cache: ${e.message}');
+    }
+  }
+  /// Per-method latency histograms (queued, sdk, total; p50/p95/p99/max in
+  /// microseconds) plus SDK call, bytes printed and print job counters.
+  /// 'lanes' has, per peripheral lane (printer, scanner, lcd, system, state),
+  /// the current and highest queue depth and wait / run histograms
+  static Future<Map<String, dynamic>> getMetrics({bool reset = false}) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('getMetrics', {'reset': reset})
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to get metrics: ${e.message}');
+    }
+  }
+
+  /// Start a new metrics window
+  static Future<void> resetMetrics() async {
+    try {
+      await _channel.invokeMethod('resetMetrics');
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to reset metrics: ${e.message}');
+    }
+  }
+  /// Turn the SDK call trace on or off; returns enabled, capacity and the
+  /// number of calls recorded
+  static Future<Map<String, dynamic>> setSdkTrace(bool enabled, {bool clear = false}) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('setSdkTrace', {'enabled': enabled, 'clear': clear})
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to set SDK trace: ${e.message}');
+    }
+  }
+
+  /// Traced SDK calls as Chrome trace JSON, for chrome://tracing or Perfetto
+  static Future<String> dumpTrace({bool clear = false}) async {
+    try {
+      final String result = await _channel.invokeMethod('dumpTrace', {'format': 'chrome', 'clear': clear});
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to dump trace: ${e.message}');
+    }
+  }
+
+  /// Traced SDK calls in the compact binary layout described in SdkTrace.java
+  static Future<Uint8List> dumpTraceBinary({bool clear = false}) async {
+    try {
+      final Uint8List result = await _channel.invokeMethod('dumpTrace', {'format': 'binary', 'clear': clear});
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to dump trace: ${e.message}');
+    }
+  }
+
   // ===================SCANN QRCODE ====================
   /// Scan a QR code
  
@@ -422,9 +806,145 @@ static Future<Map<String, dynamic>> showTextOnLcd({
     }
   }
 
+  /// Keep the scanner powered and deliver every code on [scanEvents]
+  ///
+  /// A code read again within [dedupeWindow] of its last read is dropped.
+  static Future<bool> startContinuousScan({Duration dedupeWindow = const Duration(seconds: 2)}) async {
+    try {
+      Map<dynamic, dynamic> response = await _channel.invokeMethod('startContinuousScan', {
+        'dedupeWindowMillis': dedupeWindow.inMilliseconds,
+      });
+      return response['success'] ?? false;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to start continuous scan: ${e.message}');
+    }
+  }
+
+  /// Power the scanner off; returns emitted and suppressed counts
+  static Future<Map<String, dynamic>> stopContinuousScan() async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('stopContinuousScan')
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to stop continuous scan: ${e.message}');
+    }
+  }
+
+  /// Codes from continuous scanning: `data`, `timestamp` (epoch millis) and
+  /// `sequence`
+  static Stream<Map<String, dynamic>> get scanEvents {
+    return _scanChannel
+        .receiveBroadcastStream()
+        .map((event) => Map<String, dynamic>.from(event as Map));
+  }
 
+  /// Reserve [count] order numbers (at most 1000), unique across terminals
+  /// and restarts, for orders numbered before they print
+  static Future<List<String>> nextOrderNumbers([int count = 1]) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('nextOrderNumbers', {'count': count})
+      );
+      return List<String>.from(result['orderNumbers'] as List);
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to reserve order numbers: ${e.message}');
+    }
+  }
+
+  // ==================== TICKET VALIDATION ====================
+
+  /// Replace the offline ticket index with the list at [path]: one ticket
+  /// code per line, or with `format: 'hashes'` big-endian 64-bit FNV-1a
+  /// hashes of the UTF-8 codes. Tickets already used stay used unless
+  /// [keepUsed] is false.
+  static Future<Map<String, dynamic>> loadTickets(String path,
+      {String format = 'codes', bool keepUsed = true}) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('loadTickets', {
+          'path': path,
+          'format': format,
+          'keepUsed': keepUsed,
+        })
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to load tickets: ${e.message}');
+    }
+  }
+
+  /// Add and revoke tickets; a delta is applied once, the first time its
+  /// [version] is above the last one applied
+  static Future<Map<String, dynamic>> applyTicketDelta(int version,
+      {List<String> add = const [], List<String> revoke = const []}) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('applyTicketDelta', {
+          'version': version,
+          'add': add,
+          'revoke': revoke,
+        })
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to apply ticket delta: ${e.message}');
+    }
+  }
+
+  /// Check a ticket against the offline index and, unless [markUsed] is
+  /// false, admit it. `result` is `admitted`, `alreadyUsed` (with `usedAt`),
+  /// `unknown` or `revoked`.
+  static Future<Map<String, dynamic>> validateTicket(String code, {bool markUsed = true}) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('validateTicket', {
+          'code': code,
+          'markUsed': markUsed,
+        })
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to validate ticket: ${e.message}');
+    }
+  }
+
+  static Future<Map<String, dynamic>> getTicketIndexStats() async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('getTicketIndexStats')
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to get ticket index stats: ${e.message}');
+    }
+  }
+
+  /// Get the running totals of the current shift
+  ///
+  /// Totals are kept natively as receipts print, so this is instant however
+  /// many sales the shift has: sales, totalCents, items, averageCents,
+  /// sellers, and hourlyCents / hourlySales (24 buckets, local time). The
+  /// result also carries totalTransactions, totalSales, averageTransaction
+  /// and sellerBreakdown formatted for reports; printTransactionReport
+  /// fills them in itself when reportData has `useShiftTotals: true`.
+  ///
+  /// With [closeShift] the totals are returned for a Z-report and a new
+  /// shift starts from the next sale.
+  static Future<Map<String, dynamic>> getSalesSummary({bool closeShift = false}) async {
+    try {
+      final Map<String, dynamic> result = Map<String, dynamic>.from(
+        await _channel.invokeMethod('getSalesSummary', {
+          'closeShift': closeShift,
+        })
+      );
+      return result;
+    } on PlatformException catch (e) {
+      throw SmartPosException('Failed to get sales summary: ${e.message}');
+    }
+  }
 
-  
   // ==================== PIN PAD OPERATIONS ====================
   
   /// Get encrypted PIN block
@@ -0,0 +1,228 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:flutter/services.dart';
+
+/// Binary payloads for the 'smartpos_plugin/binary' channel
+///
+/// Mirrors PayloadCodec.java on the Android side; the two must change
+/// together. Each message starts with a one-byte tag. Integers are unsigned
+/// LEB128 varints, amounts are zigzag varints of cents, and strings are a
+/// varint of (UTF-8 length + 1) followed by the bytes, with 0 meaning null.
+
+const int _tagReceipt = 1;
+const int _tagReportRows = 2;
+const int _tagReply = 0x7F;
+
+/// One receipt line. [priceCents] is the line amount in cents.
+class BinaryReceiptItem {
+  final String name;
+  final int quantity;
+  final int priceCents;
+
+  const BinaryReceiptItem({
+    required this.name,
+    required this.quantity,
+    required this.priceCents,
+  });
+}
+
+/// Receipt fields sent over the binary channel. Amounts are in cents.
+class BinaryReceipt {
+  final String? storeName;
+  final String? receiptType;
+  final String? date;
+  final String? time;
+  final String? paymentMethod;
+  final String? orderNumber;
+  final int? subtotalCents;
+  final int? taxCents;
+  final int? totalCents;
+  final int qrSize;
+  final List<BinaryReceiptItem> items;
+  /// Who made the sale, recorded in the sales ledger; not printed
+  final String? seller;
+
+  const BinaryReceipt({
+    this.storeName,
+    this.receiptType,
+    this.date,
+    this.time,
+    this.paymentMethod,
+    this.orderNumber,
+    this.subtotalCents,
+    this.taxCents,
+    this.totalCents,
+    this.qrSize = 200,
+    this.items = const [],
+    this.seller,
+  });
+}
+
+/// One transaction row of a streamed report. [amountCents] is in cents.
+class BinaryReportRow {
+  final String? dateTime;
+  final String? seller;
+  final int amountCents;
+  final String? id;
+
+  const BinaryReportRow({
+    this.dateTime,
+    this.seller,
+    required this.amountCents,
+    this.id,
+  });
+}
+
+/// A page of rows for a report stream started with beginReportStream.
+class BinaryReportRows {
+  final String streamId;
+  final List<BinaryReportRow> rows;
+
+  const BinaryReportRows(this.streamId, this.rows);
+}
+
+/// Native reply to every binary message
+class BinaryReply {
+  final bool success;
+  final String? code;
+  final String? message;
+  final String? value;
+  final int count;
+
+  const BinaryReply(this.success, this.code, this.message, this.value, this.count);
+}
+
+/// Codec for [BinaryReceipt] and [BinaryReportRows] messages and
+/// [BinaryReply] responses.
+class SmartposPayloadCodec implements MessageCodec<Object?> {
+  const SmartposPayloadCodec();
+
+  @override
+  ByteData? encodeMessage(Object? message) {
+    if (message == null) return null;
+    final out = _Writer();
+    if (message is BinaryReceipt) {
+      out.byte(_tagReceipt);
+      out.string(message.storeName);
+      out.string(message.receiptType);
+      out.string(message.date);
+      out.string(message.time);
+      out.string(message.paymentMethod);
+      out.string(message.orderNumber);
+      out.byte((message.subtotalCents != null ? 1 : 0) |
+          (message.taxCents != null ? 2 : 0) |
+          (message.totalCents != null ? 4 : 0));
+      if (message.subtotalCents != null) out.zigZag(message.subtotalCents!);
+      if (message.taxCents != null) out.zigZag(message.taxCents!);
+      if (message.totalCents != null) out.zigZag(message.totalCents!);
+      out.varInt(message.qrSize);
+      out.varInt(message.items.length);
+      for (final item in message.items) {
+        out.string(item.name);
+        out.varInt(item.quantity);
+        out.zigZag(item.priceCents);
+      }
+      out.string(message.seller);
+    } else if (message is BinaryReportRows) {
+      out.byte(_tagReportRows);
+      out.string(message.streamId);
+      out.varInt(message.rows.length);
+      for (final row in message.rows) {
+        out.string(row.dateTime);
+        out.string(row.seller);
+        out.zigZag(row.amountCents);
+        out.string(row.id);
+      }
+    } else {
+      throw ArgumentError('Unsupported message: ${message.runtimeType}');
+    }
+    return out.done();
+  }
+
+  @override
+  Object? decodeMessage(ByteData? message) {
+    if (message == null) return null;
+    final reader = _Reader(message);
+    final tag = reader.byte();
+    if (tag != _tagReply) {
+      throw FormatException('Unexpected reply tag: $tag');
+    }
+    final success = reader.byte() != 0;
+    return BinaryReply(success, reader.string(), reader.string(), reader.string(), reader.varInt());
+  }
+}
+
+class _Writer {
+  Uint8List _bytes = Uint8List(256);
+  int _length = 0;
+
+  void _ensure(int extra) {
+    if (_length + extra <= _bytes.length) return;
+    var size = _bytes.length * 2;
+    while (size < _length + extra) {
+      size *= 2;
+    }
+    final grown = Uint8List(size);
+    grown.setRange(0, _length, _bytes);
+    _bytes = grown;
+  }
+
+  void byte(int value) {
+    _ensure(1);
+    _bytes[_length++] = value & 0xFF;
+  }
+
+  void varInt(int value) {
+    _ensure(10);
+    while (value & ~0x7F != 0) {
+      _bytes[_length++] = (value & 0x7F) | 0x80;
+      value = value >>> 7;
+    }
+    _bytes[_length++] = value;
+  }
+
+  void zigZag(int value) => varInt((value << 1) ^ (value >> 63));
+
+  void string(String? value) {
+    if (value == null) {
+      varInt(0);
+      return;
+    }
+    final utf8Bytes = utf8.encode(value);
+    varInt(utf8Bytes.length + 1);
+    _ensure(utf8Bytes.length);
+    _bytes.setRange(_length, _length + utf8Bytes.length, utf8Bytes);
+    _length += utf8Bytes.length;
+  }
+
+  ByteData done() => ByteData.sublistView(_bytes, 0, _length);
+}
+
+class _Reader {
+  final ByteData _data;
+  int _position = 0;
+
+  _Reader(this._data);
+
+  int byte() => _data.getUint8(_position++);
+
+  int varInt() {
+    var value = 0;
+    var shift = 0;
+    while (true) {
+      final b = byte();
+      value |= (b & 0x7F) << shift;
+      if (b & 0x80 == 0) return value;
+      shift += 7;
+    }
+  }
+
+  String? string() {
+    final length = varInt() - 1;
+    if (length < 0) return null;
+    final value = utf8.decode(Uint8List.sublistView(_data, _position, _position + length));
+    _position += length;
+    return value;
+  }
+}